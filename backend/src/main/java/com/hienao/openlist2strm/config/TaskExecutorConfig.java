@@ -1,6 +1,8 @@
 package com.hienao.openlist2strm.config;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -49,4 +51,104 @@ public class TaskExecutorConfig {
 
     return executor;
   }
+
+  /** STRM批量重写线程池 负责调度重写任务，文件处理提交到共享的虚拟线程池并按并行度限制 */
+  @Bean("strmRewriteExecutor")
+  public Executor strmRewriteExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(2);
+    executor.setQueueCapacity(10);
+    executor.setThreadNamePrefix("strm-rewrite-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(false);
+
+    executor.initialize();
+
+    log.info(
+        "STRM重写线程池初始化完成 - 核心线程数: {}, 最大线程数: {}, 队列容量: {}",
+        executor.getCorePoolSize(),
+        executor.getMaxPoolSize(),
+        executor.getQueueCapacity());
+
+    return executor;
+  }
+
+  /** 文件写入线程池 按目录批量写入STRM文件，队列满时由调用线程写入 */
+  @Bean("fileWriteExecutor")
+  public Executor fileWriteExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(2);
+    executor.setMaxPoolSize(4);
+    executor.setQueueCapacity(200);
+    executor.setThreadNamePrefix("file-write-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(true);
+    executor.setAwaitTerminationSeconds(60);
+
+    executor.initialize();
+
+    log.info(
+        "文件写入线程池初始化完成 - 核心线程数: {}, 最大线程数: {}, 队列容量: {}",
+        executor.getCorePoolSize(),
+        executor.getMaxPoolSize(),
+        executor.getQueueCapacity());
+
+    return executor;
+  }
+
+  /** TMDB缓存后台刷新线程池 队列满时拒绝刷新请求，继续使用旧数据 */
+  @Bean("tmdbRefreshExecutor")
+  public Executor tmdbRefreshExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(2);
+    executor.setQueueCapacity(500);
+    executor.setThreadNamePrefix("tmdb-refresh-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(false);
+
+    executor.initialize();
+
+    log.info(
+        "TMDB缓存刷新线程池初始化完成 - 核心线程数: {}, 最大线程数: {}, 队列容量: {}",
+        executor.getCorePoolSize(),
+        executor.getMaxPoolSize(),
+        executor.getQueueCapacity());
+
+    return executor;
+  }
+
+  /** TMDB ID索引导入线程池 同一时间只执行一个导入，不排队 */
+  @Bean("tmdbIndexImportExecutor")
+  public Executor tmdbIndexImportExecutor() {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(0);
+    executor.setThreadNamePrefix("tmdb-index-import-");
+    executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+    executor.setWaitForTasksToCompleteOnShutdown(false);
+
+    executor.initialize();
+
+    log.info(
+        "TMDB ID索引导入线程池初始化完成 - 核心线程数: {}, 最大线程数: {}, 队列容量: {}",
+        executor.getCorePoolSize(),
+        executor.getMaxPoolSize(),
+        executor.getQueueCapacity());
+
+    return executor;
+  }
+
+  /** 刮削线程池 每个目录使用一个虚拟线程，并发数和排队数由刮削队列按配置限制 */
+  @Bean(name = "scrapingExecutor", destroyMethod = "close")
+  public ExecutorService scrapingExecutor() {
+    log.info("刮削线程池初始化完成 - 使用虚拟线程");
+    return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("scrap-", 0).factory());
+  }
 }
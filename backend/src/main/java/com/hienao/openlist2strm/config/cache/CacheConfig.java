@@ -1,6 +1,8 @@
 package com.hienao.openlist2strm.config.cache;
 
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.hienao.openlist2strm.dto.strm.ResolvedStrmLink;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.springframework.cache.CacheManager;
@@ -17,11 +19,19 @@ public class CacheConfig {
   public static final String VERIFY_CODE = "verifyCode";
   public static final String VERSION_CHECK = "versionCheck";
   public static final String GITHUB_RELEASES = "githubReleases";
+  public static final String STRM_LINK = "strmLink";
+  public static final String TMDB_RESPONSE = "tmdbResponse";
 
   @Bean
   public CacheManager cacheManager() {
     SimpleCacheManager cacheManager = new SimpleCacheManager();
-    cacheManager.setCaches(List.of(verifyCodeCache(), versionCheckCache(), githubReleasesCache()));
+    cacheManager.setCaches(
+        List.of(
+            verifyCodeCache(),
+            versionCheckCache(),
+            githubReleasesCache(),
+            strmLinkCache(),
+            tmdbResponseCache()));
     return cacheManager;
   }
 
@@ -42,4 +52,47 @@ public class CacheConfig {
         GITHUB_RELEASES,
         Caffeine.newBuilder().maximumSize(10).expireAfterWrite(6, TimeUnit.HOURS).build());
   }
+
+  /** TMDB响应内存缓存，数据新鲜度由条目中的获取时间判断，数据库为持久层 */
+  private CaffeineCache tmdbResponseCache() {
+    return new CaffeineCache(
+        TMDB_RESPONSE,
+        Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(6, TimeUnit.HOURS)
+            .recordStats()
+            .build());
+  }
+
+  /** STRM链接解析缓存，每个条目按签名有效期单独过期 */
+  private CaffeineCache strmLinkCache() {
+    return new CaffeineCache(
+        STRM_LINK,
+        Caffeine.newBuilder()
+            .maximumSize(50000)
+            .expireAfter(
+                new Expiry<Object, Object>() {
+                  @Override
+                  public long expireAfterCreate(Object key, Object value, long currentTime) {
+                    if (value instanceof ResolvedStrmLink link) {
+                      long remainingMillis = link.getExpireAtMillis() - System.currentTimeMillis();
+                      return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                    }
+                    return TimeUnit.MINUTES.toNanos(10);
+                  }
+
+                  @Override
+                  public long expireAfterUpdate(
+                      Object key, Object value, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, value, currentTime);
+                  }
+
+                  @Override
+                  public long expireAfterRead(
+                      Object key, Object value, long currentTime, long currentDuration) {
+                    return currentDuration;
+                  }
+                })
+            .build());
+  }
 }
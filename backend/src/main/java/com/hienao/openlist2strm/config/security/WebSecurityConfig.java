@@ -47,6 +47,9 @@ public class WebSecurityConfig {
         new AntPathRequestMatcher("/api/test/**"),
         // 日志接口（无需认证）
         new AntPathRequestMatcher("/api/logs/**"),
+        // STRM链接解析（供播放器访问，链接自带校验码）
+        new AntPathRequestMatcher("/api/s/**", HttpMethod.GET.name()),
+        new AntPathRequestMatcher("/api/s/**", HttpMethod.HEAD.name()),
         // WebSocket 连接（无需认证）
         new AntPathRequestMatcher("/ws/**"),
         // 其他公开端点
@@ -0,0 +1,43 @@
+package com.hienao.openlist2strm.controller;
+
+import com.hienao.openlist2strm.dto.ApiResponse;
+import com.hienao.openlist2strm.dto.tmdb.NegativeMatchStats;
+import com.hienao.openlist2strm.service.NegativeMatchCacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * 未匹配结果缓存管理控制器
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/negative-cache")
+@RequiredArgsConstructor
+@Tag(name = "未匹配缓存管理", description = "TMDB和AI未匹配结果缓存的统计和清理接口")
+public class NegativeMatchCacheController {
+
+  private final NegativeMatchCacheService negativeMatchCacheService;
+
+  /** 获取缓存统计 */
+  @GetMapping("/stats")
+  @Operation(summary = "获取缓存统计", description = "获取未匹配缓存的跳过、重试次数和条目数")
+  public ResponseEntity<ApiResponse<NegativeMatchStats>> getStats() {
+    return ResponseEntity.ok(ApiResponse.success(negativeMatchCacheService.getStats()));
+  }
+
+  /** 清除缓存 */
+  @DeleteMapping
+  @Operation(summary = "清除缓存", description = "按类型清除未匹配缓存，不指定类型时清除全部，清除后下次刮削会重新查询")
+  public ResponseEntity<ApiResponse<Integer>> purge(
+      @Parameter(description = "类型：movie/tv/ai") @RequestParam(required = false) String kind) {
+    return ResponseEntity.ok(ApiResponse.success(negativeMatchCacheService.purge(kind)));
+  }
+}
@@ -19,15 +19,25 @@
 package com.hienao.openlist2strm.controller;
 
 import com.hienao.openlist2strm.dto.ApiResponse;
+import com.hienao.openlist2strm.dto.media.ScrapingJobStatus;
 import com.hienao.openlist2strm.dto.openlist.OpenlistConfigDto;
 import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.service.BatchRenameService;
 import com.hienao.openlist2strm.service.FileRenamingService;
+import com.hienao.openlist2strm.service.MediaScrapingService;
 import com.hienao.openlist2strm.service.OpenlistApiService;
 import com.hienao.openlist2strm.service.OpenlistConfigService;
+import com.hienao.openlist2strm.service.ScrapingJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -36,10 +46,13 @@ import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.client.HttpStatusCodeException;
 
 /**
  * 配置管理控制器
@@ -61,6 +74,8 @@ public class OpenlistConfigController {
   private final FileRenamingService fileRenamingService;
   private final com.hienao.openlist2strm.service.MediaScrapingService mediaScrapingService;
   private final com.hienao.openlist2strm.service.DirectoryTitleExtractorService directoryTitleExtractorService;
+  private final ScrapingJobService scrapingJobService;
+  private final BatchRenameService batchRenameService;
 
   /** 查询所有配置 */
   @GetMapping
@@ -320,52 +335,117 @@ public class OpenlistConfigController {
 
   /** 下载文件 */
   @GetMapping("/{id}/download")
-  @Operation(summary = "下载文件", description = "下载指定路径的文件")
-  public ResponseEntity<byte[]> downloadFile(
+  @Operation(summary = "下载文件", description = "流式下载指定路径的文件，支持Range请求")
+  public void downloadFile(
       @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
-      @Parameter(description = "文件路径", required = true) @RequestParam String path) {
+      @Parameter(description = "文件路径", required = true) @RequestParam String path,
+      @Parameter(description = "Range请求头", required = false)
+          @RequestHeader(value = HttpHeaders.RANGE, required = false)
+          String range,
+      HttpServletResponse response)
+      throws IOException {
     try {
       OpenlistConfig config = openlistConfigService.getById(id);
       if (config == null) {
-        return ResponseEntity.notFound().build();
+        response.sendError(HttpStatus.NOT_FOUND.value());
+        return;
       }
-      
-      log.info("下载文件: configId={}, path={}", id, path);
-      
+
+      log.info("下载文件: configId={}, path={}, range={}", id, path, range);
+
       String fullPath = buildFullPath(config.getBasePath(), path);
-      
-      OpenlistApiService.OpenlistFile fileInfo = new OpenlistApiService.OpenlistFile();
-      fileInfo.setPath(fullPath);
-      fileInfo.setName(path.substring(path.lastIndexOf('/') + 1));
-      
-      List<OpenlistApiService.OpenlistFile> directoryFiles = openlistApiService.getDirectoryContents(
-          config, fullPath.substring(0, Math.max(0, fullPath.lastIndexOf('/'))));
-      
-      for (OpenlistApiService.OpenlistFile f : directoryFiles) {
-        if (f.getPath() != null && f.getPath().equals(fullPath)) {
-          fileInfo = f;
-          break;
+      OpenlistApiService.FsGetData info = openlistApiService.getFileInfo(config, fullPath);
+      if (Boolean.TRUE.equals(info.getIsDir())) {
+        response.sendError(HttpStatus.BAD_REQUEST.value(), "不能下载目录");
+        return;
+      }
+
+      long maxBytes = openlistApiService.getMaxDownloadBytes();
+      if (range == null && info.getSize() != null && info.getSize() > maxBytes) {
+        response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "文件超过下载大小上限");
+        return;
+      }
+
+      OpenlistApiService.OpenlistFile file = new OpenlistApiService.OpenlistFile();
+      file.setPath(fullPath);
+      file.setName(info.getName() != null ? info.getName() : path.substring(path.lastIndexOf('/') + 1));
+      file.setSign(openlistApiService.resolveFileSign(config, fullPath, info.getSign()));
+
+      Boolean streamed =
+          openlistApiService.streamFile(
+              config,
+              file,
+              range,
+              (status, headers, body) -> {
+                long contentLength = headers.getContentLength();
+                if (contentLength > maxBytes) {
+                  response.sendError(HttpStatus.PAYLOAD_TOO_LARGE.value(), "文件超过下载大小上限");
+                  return true;
+                }
+
+                // 上游不支持Range时返回200和完整内容，原样转发
+                response.setStatus(status.value());
+                response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+                response.setHeader(
+                    HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment()
+                        .filename(file.getName(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString());
+                response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+                String contentRange = headers.getFirst(HttpHeaders.CONTENT_RANGE);
+                if (contentRange != null) {
+                  response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange);
+                }
+                if (contentLength >= 0) {
+                  response.setContentLengthLong(contentLength);
+                }
+                copyLimited(body, response.getOutputStream(), maxBytes);
+                return true;
+              });
+
+      if (streamed == null && !response.isCommitted()) {
+        response.sendError(HttpStatus.BAD_GATEWAY.value(), "文件下载重定向失败");
+      }
+    } catch (HttpStatusCodeException e) {
+      // 上游的错误状态（如 416 Range Not Satisfiable）原样返回
+      log.warn("下载文件失败: id={}, path={}, status={}", id, path, e.getStatusCode());
+      if (!response.isCommitted()) {
+        String contentRange = e.getResponseHeaders() != null
+            ? e.getResponseHeaders().getFirst(HttpHeaders.CONTENT_RANGE)
+            : null;
+        if (contentRange != null) {
+          response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange);
         }
+        response.sendError(e.getStatusCode().value());
       }
-      
-      byte[] fileContent = openlistApiService.getFileContent(config, fileInfo, false);
-      if (fileContent == null) {
-        return ResponseEntity.notFound().build();
+    } catch (BusinessException e) {
+      log.warn("下载文件失败: id={}, path={}, error={}", id, path, e.getMessage());
+      if (!response.isCommitted()) {
+        response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
       }
-      
-      String fileName = fileInfo.getName();
-      String encodedFileName = java.net.URLEncoder.encode(fileName, "UTF-8").replace("+", "%20");
-      
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-      headers.setContentDispositionFormData("attachment", encodedFileName);
-      headers.setContentLength(fileContent.length);
-      
-      return ResponseEntity.ok().headers(headers).body(fileContent);
     } catch (Exception e) {
       log.error("下载文件失败: id={}, path={}, error={}", id, path, e.getMessage(), e);
-      return ResponseEntity.internalServerError().build();
+      if (!response.isCommitted()) {
+        response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+      }
+    }
+  }
+
+  /** 复制响应体，超过大小上限时中断（上游未返回Content-Length时生效） */
+  private static void copyLimited(InputStream in, OutputStream out, long maxBytes)
+      throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long total = 0;
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      total += read;
+      if (total > maxBytes) {
+        throw new IOException("文件超过下载大小上限: " + maxBytes + " bytes");
+      }
+      out.write(buffer, 0, read);
     }
+    out.flush();
   }
 
   /** 搜索文件 */
@@ -507,7 +587,7 @@ public class OpenlistConfigController {
         relativePathList.add(relativeItem);
       }
 
-      Map<String, Object> result = openlistApiService.batchRenameFiles(config, relativePathList);
+      Map<String, Object> result = batchRenameService.rename(config, relativePathList);
 
       return ResponseEntity.ok(ApiResponse.success(result));
     } catch (Exception e) {
@@ -516,6 +596,45 @@ public class OpenlistConfigController {
     }
   }
   
+  /** 查询批量重命名进度 */
+  @GetMapping("/{id}/batch-rename/{batchId}")
+  @Operation(summary = "查询批量重命名进度", description = "根据重命名日志返回批次中各条目的状态")
+  public ResponseEntity<ApiResponse<Map<String, Object>>> getBatchRename(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "批次ID", required = true) @PathVariable String batchId) {
+    OpenlistConfig config = openlistConfigService.getById(id);
+    if (config == null) {
+      return ResponseEntity.ok(ApiResponse.error(404, "配置不存在"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(batchRenameService.getBatch(config, batchId)));
+  }
+
+  /** 继续执行批量重命名 */
+  @PostMapping("/{id}/batch-rename/{batchId}/resume")
+  @Operation(summary = "继续批量重命名", description = "重新执行批次中未完成和失败的条目")
+  public ResponseEntity<ApiResponse<Map<String, Object>>> resumeBatchRename(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "批次ID", required = true) @PathVariable String batchId) {
+    OpenlistConfig config = openlistConfigService.getById(id);
+    if (config == null) {
+      return ResponseEntity.ok(ApiResponse.error(404, "配置不存在"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(batchRenameService.resume(config, batchId)));
+  }
+
+  /** 回滚批量重命名 */
+  @PostMapping("/{id}/batch-rename/{batchId}/rollback")
+  @Operation(summary = "回滚批量重命名", description = "将批次中已完成的条目恢复为原文件名")
+  public ResponseEntity<ApiResponse<Map<String, Object>>> rollbackBatchRename(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "批次ID", required = true) @PathVariable String batchId) {
+    OpenlistConfig config = openlistConfigService.getById(id);
+    if (config == null) {
+      return ResponseEntity.ok(ApiResponse.error(404, "配置不存在"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(batchRenameService.rollback(config, batchId)));
+  }
+
   /**
    * 从路径中去除 basePath 前缀
    *
@@ -726,6 +845,8 @@ public class OpenlistConfigController {
   public static class ScrapingRequest {
     private List<ScrapingItem> items;
     private ScrapingOptions options;
+    /** 并发数，为空时使用系统配置 */
+    private Integer concurrency;
     
     @lombok.Data
     public static class ScrapingItem {
@@ -776,8 +897,10 @@ public class OpenlistConfigController {
 
   /** 批量刮削 */
   @PostMapping("/{id}/scraping")
-  @Operation(summary = "批量刮削影视信息", description = "根据TMDB匹配结果批量生成NFO文件和下载图片")
-  public ResponseEntity<ApiResponse<Map<String, Object>>> batchScraping(
+  @Operation(
+      summary = "提交批量刮削任务",
+      description = "根据TMDB匹配结果在后台批量生成NFO文件和下载图片，返回任务ID用于查询进度")
+  public ResponseEntity<ApiResponse<ScrapingJobStatus>> batchScraping(
       @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
       @Parameter(description = "刮削请求", required = true) @RequestBody ScrapingRequest request) {
     try {
@@ -785,8 +908,11 @@ public class OpenlistConfigController {
       if (config == null) {
         return ResponseEntity.ok(ApiResponse.error(404, "配置不存在"));
       }
+      if (request.getItems() == null || request.getItems().isEmpty()) {
+        return ResponseEntity.ok(ApiResponse.error(400, "刮削条目不能为空"));
+      }
 
-      log.info("开始批量刮削: configId={}, count={}", id, request.getItems().size());
+      log.info("提交批量刮削: configId={}, count={}", id, request.getItems().size());
 
       Map<String, Boolean> options = new HashMap<>();
       if (request.getOptions() != null) {
@@ -799,42 +925,74 @@ public class OpenlistConfigController {
         options.put("downloadBackdrop", false);
       }
 
-      List<Map<String, Object>> results = new ArrayList<>();
-      int successCount = 0;
-      int failedCount = 0;
-
+      // 电视剧单集按剧集目录分组，每个剧集只查询一次详情
+      List<MediaScrapingService.ScrapTarget> targets = new ArrayList<>();
       for (ScrapingRequest.ScrapingItem item : request.getItems()) {
-        Map<String, Object> result = mediaScrapingService.scrapFromTmdbMatch(
-            config,
-            item.getFilePath(),
-            item.getTmdbId(),
-            item.getType(),
-            item.getSeason(),
-            item.getEpisode(),
-            item.getTargetFileName(),
-            options);
-        
-        results.add(result);
-        
-        if ((Boolean) result.getOrDefault("success", false)) {
-          successCount++;
-        } else {
-          failedCount++;
-        }
+        targets.add(
+            new MediaScrapingService.ScrapTarget(
+                item.getFilePath(),
+                item.getTmdbId(),
+                item.getType(),
+                item.getSeason(),
+                item.getEpisode(),
+                item.getTargetFileName()));
       }
 
-      Map<String, Object> response = new HashMap<>();
-      response.put("results", results);
-      response.put("total", request.getItems().size());
-      response.put("successCount", successCount);
-      response.put("failedCount", failedCount);
-
-      log.info("批量刮削完成: 成功 {} 个，失败 {} 个", successCount, failedCount);
-      return ResponseEntity.ok(ApiResponse.success(response));
+      return ResponseEntity.ok(
+          ApiResponse.success(
+              scrapingJobService.submit(config, targets, options, request.getConcurrency())));
 
     } catch (Exception e) {
-      log.error("批量刮削失败: id={}, error={}", id, e.getMessage(), e);
+      log.error("提交批量刮削失败: id={}, error={}", id, e.getMessage(), e);
       return ResponseEntity.ok(ApiResponse.error(500, "批量刮削失败: " + e.getMessage()));
     }
   }
+
+  /** 查询批量刮削进度 */
+  @GetMapping("/{id}/scraping/{jobId}")
+  @Operation(summary = "查询批量刮削进度", description = "获取批量刮削任务的进度和偏移量之后新完成条目的结果")
+  public ResponseEntity<ApiResponse<ScrapingJobStatus>> getScrapingStatus(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "刮削任务ID", required = true) @PathVariable String jobId,
+      @Parameter(description = "已取得的结果数，只返回之后完成的结果", required = false)
+          @RequestParam(defaultValue = "0") int offset) {
+    ScrapingJobStatus status = scrapingJobService.getStatus(id, jobId, offset);
+    if (status == null) {
+      return ResponseEntity.ok(ApiResponse.error(404, "刮削任务不存在或已过期"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(status));
+  }
+
+  /** 取消批量刮削 */
+  @DeleteMapping("/{id}/scraping/{jobId}")
+  @Operation(summary = "取消批量刮削", description = "取消正在执行的批量刮削任务，正在处理的条目会执行完毕")
+  public ResponseEntity<ApiResponse<Void>> cancelScraping(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "刮削任务ID", required = true) @PathVariable String jobId) {
+    if (!scrapingJobService.cancel(id, jobId)) {
+      return ResponseEntity.ok(ApiResponse.error(404, "没有正在执行的刮削任务"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(null));
+  }
+
+  /** 下载批量刮削结果 */
+  @GetMapping("/{id}/scraping/{jobId}/download")
+  @Operation(summary = "下载批量刮削结果", description = "任务结束后以JSON文件下载全部条目的刮削结果")
+  public ResponseEntity<ScrapingJobStatus> downloadScrapingResults(
+      @Parameter(description = CONFIG_ID_PARAM, required = true) @PathVariable Long id,
+      @Parameter(description = "刮削任务ID", required = true) @PathVariable String jobId) {
+    ScrapingJobStatus status = scrapingJobService.getResults(id, jobId);
+    if (status == null) {
+      return ResponseEntity.notFound().build();
+    }
+    if ("RUNNING".equals(status.getState())) {
+      return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            "attachment; filename=\"scraping-" + jobId + ".json\"")
+        .body(status);
+  }
 }
@@ -0,0 +1,50 @@
+package com.hienao.openlist2strm.controller;
+
+import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.service.StrmLinkResolverService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.net.URI;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * STRM链接解析控制器 供播放器访问，无需登录认证；挂载在 /api 下，经前端端口的反向代理转发到后端
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/s")
+@RequiredArgsConstructor
+@Tag(name = "STRM链接解析", description = "将STRM中的稳定地址跳转到最新签名的播放链接")
+public class StrmLinkController {
+
+  private final StrmLinkResolverService strmLinkResolverService;
+
+  /** 解析STRM链接并302跳转 */
+  @GetMapping("/{taskId}/{linkId}")
+  @Operation(summary = "解析STRM链接", description = "返回302跳转到最新签名的OpenList链接或网盘直链")
+  public ResponseEntity<Void> resolve(
+      @Parameter(description = "任务ID") @PathVariable Long taskId,
+      @Parameter(description = "链接ID") @PathVariable String linkId) {
+    try {
+      String targetUrl = strmLinkResolverService.resolve(taskId, linkId);
+      return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(targetUrl)).build();
+    } catch (BusinessException e) {
+      log.warn("STRM链接解析失败 - 任务ID: {}, 链接ID: {}, 错误: {}", taskId, linkId, e.getMessage());
+      return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+    } catch (Exception e) {
+      log.error("STRM链接解析异常 - 任务ID: {}, 链接ID: {}", taskId, linkId, e);
+      return ResponseEntity.status(HttpStatus.BAD_GATEWAY).build();
+    }
+  }
+}
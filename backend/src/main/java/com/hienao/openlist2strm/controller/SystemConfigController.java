@@ -34,6 +34,7 @@ public class SystemConfigController {
   public ResponseEntity<ApiResponse<Map<String, Object>>> getSystemConfig() {
     try {
       Map<String, Object> config = systemConfigService.getSystemConfig();
+      config.remove(SystemConfigService.STRM_LINK_SECRET_KEY);
       return ResponseEntity.ok(ApiResponse.success(config));
     } catch (Exception e) {
       log.error("获取系统配置失败", e);
@@ -47,6 +48,9 @@ public class SystemConfigController {
   public ResponseEntity<ApiResponse<String>> saveSystemConfig(
       @RequestBody Map<String, Object> config) {
     try {
+      // 链接签名密钥由服务端生成，不允许通过接口修改
+      config.remove(SystemConfigService.STRM_LINK_SECRET_KEY);
+
       // 验证媒体文件后缀配置
       if (config.containsKey("mediaExtensions")) {
         Object mediaExtensions = config.get("mediaExtensions");
@@ -1,9 +1,11 @@
 package com.hienao.openlist2strm.controller;
 
 import com.hienao.openlist2strm.dto.ApiResponse;
+import com.hienao.openlist2strm.dto.strm.StrmRewriteStatus;
 import com.hienao.openlist2strm.dto.task.TaskConfigDto;
 import com.hienao.openlist2strm.entity.TaskConfig;
 import com.hienao.openlist2strm.service.TaskConfigService;
+import com.hienao.openlist2strm.service.StrmRewriteService;
 import com.hienao.openlist2strm.service.TaskExecutionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -35,6 +37,7 @@ public class TaskConfigController {
 
   private final TaskConfigService taskConfigService;
   private final TaskExecutionService taskExecutionService;
+  private final StrmRewriteService strmRewriteService;
 
   /** 查询所有配置 */
   @GetMapping
@@ -178,6 +181,40 @@ public class TaskConfigController {
     return ResponseEntity.ok(ApiResponse.success("任务已提交执行"));
   }
 
+  /** 批量重写STRM文件 */
+  @PostMapping("/{id}/rewrite-strm")
+  @Operation(
+      summary = "批量重写STRM文件",
+      description = "修改strmBaseUrl、URL编码或链接模式后，直接重写已生成的STRM文件，不请求OpenList")
+  public ResponseEntity<ApiResponse<StrmRewriteStatus>> rewriteStrm(
+      @Parameter(description = "任务配置ID", required = true) @PathVariable Long id,
+      @Parameter(description = "并行度") @RequestParam(required = false) Integer parallelism) {
+    return ResponseEntity.ok(ApiResponse.success(strmRewriteService.submitRewrite(id, parallelism)));
+  }
+
+  /** 查询STRM重写进度 */
+  @GetMapping("/{id}/rewrite-strm")
+  @Operation(summary = "查询STRM重写进度", description = "获取指定任务最近一次STRM批量重写的进度与速度")
+  public ResponseEntity<ApiResponse<StrmRewriteStatus>> getRewriteStrmStatus(
+      @Parameter(description = "任务配置ID", required = true) @PathVariable Long id) {
+    StrmRewriteStatus status = strmRewriteService.getStatus(id);
+    if (status == null) {
+      return ResponseEntity.ok(ApiResponse.error(404, "没有STRM重写记录"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(status));
+  }
+
+  /** 取消STRM重写 */
+  @DeleteMapping("/{id}/rewrite-strm")
+  @Operation(summary = "取消STRM重写", description = "取消指定任务正在执行的STRM批量重写")
+  public ResponseEntity<ApiResponse<Void>> cancelRewriteStrm(
+      @Parameter(description = "任务配置ID", required = true) @PathVariable Long id) {
+    if (!strmRewriteService.cancel(id)) {
+      return ResponseEntity.ok(ApiResponse.error(404, "没有正在执行的STRM重写"));
+    }
+    return ResponseEntity.ok(ApiResponse.success(null));
+  }
+
   /** 更新状态请求体 */
   public static class UpdateStatusRequest {
     private Boolean isActive;
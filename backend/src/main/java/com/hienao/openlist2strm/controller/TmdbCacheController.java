@@ -0,0 +1,57 @@
+package com.hienao.openlist2strm.controller;
+
+import com.hienao.openlist2strm.dto.ApiResponse;
+import com.hienao.openlist2strm.dto.tmdb.TmdbCacheStats;
+import com.hienao.openlist2strm.dto.tmdb.TmdbRateLimitStats;
+import com.hienao.openlist2strm.service.TmdbApiService;
+import com.hienao.openlist2strm.service.SystemConfigService;
+import com.hienao.openlist2strm.service.TmdbCacheService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * TMDB缓存管理控制器
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tmdb-cache")
+@RequiredArgsConstructor
+@Tag(name = "TMDB缓存管理", description = "TMDB响应缓存的统计和清理、请求限流统计接口")
+public class TmdbCacheController {
+
+  private final TmdbCacheService tmdbCacheService;
+  private final SystemConfigService systemConfigService;
+  private final TmdbApiService tmdbApiService;
+
+  /** 获取缓存统计 */
+  @GetMapping("/stats")
+  @Operation(summary = "获取缓存统计", description = "获取TMDB缓存的命中、刷新次数和条目数")
+  public ResponseEntity<ApiResponse<TmdbCacheStats>> getStats() {
+    return ResponseEntity.ok(
+        ApiResponse.success(tmdbCacheService.getStats(systemConfigService.getTmdbConfig())));
+  }
+
+  /** 清除缓存 */
+  @DeleteMapping
+  @Operation(summary = "清除缓存", description = "按类型清除TMDB缓存，不指定类型时清除全部")
+  public ResponseEntity<ApiResponse<Integer>> purge(
+      @Parameter(description = "缓存类型：search/movie/tv/season") @RequestParam(required = false)
+          String kind) {
+    return ResponseEntity.ok(ApiResponse.success(tmdbCacheService.purge(kind)));
+  }
+
+  /** 获取限流统计 */
+  @GetMapping("/rate-limit")
+  @Operation(summary = "获取限流统计", description = "获取TMDB请求的限流等待时间、429次数和重试次数")
+  public ResponseEntity<ApiResponse<TmdbRateLimitStats>> getRateLimitStats() {
+    return ResponseEntity.ok(ApiResponse.success(tmdbApiService.getRateLimitStats()));
+  }
+}
@@ -0,0 +1,64 @@
+package com.hienao.openlist2strm.controller;
+
+import com.hienao.openlist2strm.dto.ApiResponse;
+import com.hienao.openlist2strm.dto.tmdb.TmdbIdIndexImportResult;
+import com.hienao.openlist2strm.dto.tmdb.TmdbIdIndexStats;
+import com.hienao.openlist2strm.service.TmdbIdIndexService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.nio.file.Paths;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * TMDB离线ID索引管理控制器
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/tmdb-index")
+@RequiredArgsConstructor
+@Tag(name = "TMDB离线ID索引", description = "从TMDB每日ID导出文件导入本地索引、统计和清理接口")
+public class TmdbIdIndexController {
+
+  private final TmdbIdIndexService tmdbIdIndexService;
+
+  /** 导入导出文件 */
+  @PostMapping("/import")
+  @Operation(
+      summary = "导入导出文件",
+      description = "从服务器本地的TMDB每日ID导出文件（.json.gz或.json）在后台导入索引，立即返回导入状态")
+  public ResponseEntity<ApiResponse<TmdbIdIndexImportResult>> importDump(
+      @Parameter(description = "类型：movie/tv") @RequestParam String kind,
+      @Parameter(description = "导出文件在服务器上的路径") @RequestParam String path) {
+    return ResponseEntity.ok(
+        ApiResponse.success(tmdbIdIndexService.submitImport(kind, Paths.get(path))));
+  }
+
+  /** 获取导入状态 */
+  @GetMapping("/import")
+  @Operation(summary = "获取导入状态", description = "获取正在执行或最近一次导入的进度和结果")
+  public ResponseEntity<ApiResponse<TmdbIdIndexImportResult>> getImportStatus() {
+    return ResponseEntity.ok(ApiResponse.success(tmdbIdIndexService.getImportStatus()));
+  }
+
+  /** 获取索引统计 */
+  @GetMapping("/stats")
+  @Operation(summary = "获取索引统计", description = "获取本地索引的条目数、本地命中和在线回退次数")
+  public ResponseEntity<ApiResponse<TmdbIdIndexStats>> getStats() {
+    return ResponseEntity.ok(ApiResponse.success(tmdbIdIndexService.getStats()));
+  }
+
+  /** 清除索引 */
+  @DeleteMapping
+  @Operation(summary = "清除索引", description = "按类型清除本地索引，不指定类型时清除全部")
+  public ResponseEntity<ApiResponse<Integer>> purge(
+      @Parameter(description = "类型：movie/tv") @RequestParam(required = false) String kind) {
+    return ResponseEntity.ok(ApiResponse.success(tmdbIdIndexService.purge(kind)));
+  }
+}
@@ -0,0 +1,59 @@
+package com.hienao.openlist2strm.dto.media;
+
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 批量刮削任务状态
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class ScrapingJobStatus {
+
+  /** 刮削任务ID */
+  private String jobId;
+
+  /** OpenList配置ID */
+  private Long configId;
+
+  /** 状态：RUNNING, COMPLETED, CANCELLED, FAILED */
+  private String state;
+
+  /** 并发数 */
+  private int concurrency;
+
+  /** 条目总数 */
+  private int total;
+
+  /** 已处理数量 */
+  private int processed;
+
+  /** 成功数量 */
+  private int successCount;
+
+  /** 失败数量（不含取消） */
+  private int failedCount;
+
+  /** 取消后未处理的数量 */
+  private int cancelledCount;
+
+  /** 开始时间戳（毫秒） */
+  private long startTime;
+
+  /** 耗时（毫秒） */
+  private long elapsedMillis;
+
+  /** 错误信息 */
+  private String message;
+
+  /** 下次查询进度时传入的偏移量，即目前已完成的结果数 */
+  private int nextOffset;
+
+  /** 查询进度时为偏移量之后新完成的结果（按完成顺序）；下载时为全部结果（按提交顺序） */
+  private List<Map<String, Object>> results;
+}
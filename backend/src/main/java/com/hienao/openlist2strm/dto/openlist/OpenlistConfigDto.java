@@ -1,5 +1,6 @@
 package com.hienao.openlist2strm.dto.openlist;
 
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
@@ -47,4 +48,10 @@ public class OpenlistConfigDto {
 
   /** 是否启用URL编码：true-启用（默认），false-禁用 */
   private Boolean enableUrlEncoding;
+
+  /** 本地签名密钥（OpenList站点令牌），为空时使用列表接口返回的sign */
+  @Size(max = 1000, message = "签名密钥长度不能超过1000个字符") private String signSecret;
+
+  /** 本地签名有效期（小时），0表示永不过期 */
+  @Min(value = 0, message = "签名有效期不能小于0") private Integer signExpireHours;
 }
@@ -0,0 +1,23 @@
+package com.hienao.openlist2strm.dto.strm;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * STRM链接解析结果 用于缓存解析后的跳转地址及其有效期
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResolvedStrmLink {
+
+  /** 跳转地址 */
+  private String url;
+
+  /** 缓存失效时间戳（毫秒） */
+  private long expireAtMillis;
+}
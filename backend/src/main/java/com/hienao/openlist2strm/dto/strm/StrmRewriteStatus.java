@@ -0,0 +1,51 @@
+package com.hienao.openlist2strm.dto.strm;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * STRM批量重写任务状态
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class StrmRewriteStatus {
+
+  /** 任务ID */
+  private Long taskId;
+
+  /** 状态：RUNNING, COMPLETED, CANCELLED, FAILED */
+  private String state;
+
+  /** STRM文件总数 */
+  private long total;
+
+  /** 已处理数量 */
+  private long processed;
+
+  /** 已重写数量 */
+  private long rewritten;
+
+  /** 内容未变化数量 */
+  private long unchanged;
+
+  /** 无法识别链接而跳过的数量 */
+  private long skipped;
+
+  /** 失败数量 */
+  private long failed;
+
+  /** 开始时间戳（毫秒） */
+  private long startTime;
+
+  /** 耗时（毫秒） */
+  private long elapsedMillis;
+
+  /** 处理速度（文件/秒） */
+  private double filesPerSecond;
+
+  /** 错误信息 */
+  private String message;
+}
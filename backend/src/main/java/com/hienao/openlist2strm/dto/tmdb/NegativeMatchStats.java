@@ -0,0 +1,37 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import java.util.Map;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 未匹配结果缓存统计信息
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class NegativeMatchStats {
+
+  /** 是否启用 */
+  private Boolean enabled;
+
+  /** 当前配置指纹 */
+  private String configHash;
+
+  /** 被跳过的查询次数 */
+  private Long suppressed;
+
+  /** 到期后重新查询的次数 */
+  private Long retries;
+
+  /** 记录的未匹配次数 */
+  private Long recordedMisses;
+
+  /** 重新查询后匹配成功、移除条目的次数 */
+  private Long recoveries;
+
+  /** 按类型的条目数 */
+  private Map<String, Long> entries;
+}
@@ -0,0 +1,43 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import java.util.Map;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB缓存统计信息
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class TmdbCacheStats {
+
+  /** 是否启用缓存 */
+  private Boolean enabled;
+
+  /** 内存缓存命中次数 */
+  private Long memoryHits;
+
+  /** 数据库缓存命中次数 */
+  private Long databaseHits;
+
+  /** 返回过期数据并后台刷新的次数 */
+  private Long staleHits;
+
+  /** 未命中、请求TMDB的次数 */
+  private Long misses;
+
+  /** 后台刷新次数 */
+  private Long refreshes;
+
+  /** 请求TMDB失败的次数 */
+  private Long fetchErrors;
+
+  /** 内存缓存条目数（估算） */
+  private Long memoryEntries;
+
+  /** 数据库缓存按类型的条目数 */
+  private Map<String, Long> databaseEntries;
+}
@@ -0,0 +1,45 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB离线ID索引导入状态
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class TmdbIdIndexImportResult {
+
+  /** 类型：movie/tv */
+  private String kind;
+
+  /** 导出文件路径 */
+  private String file;
+
+  /** 状态：RUNNING/COMPLETED/FAILED */
+  private String state;
+
+  /** 失败原因 */
+  private String message;
+
+  /** 开始时间（毫秒） */
+  private Long startTime;
+
+  /** 读取的行数 */
+  private Long lines;
+
+  /** 导入的条目数 */
+  private Long imported;
+
+  /** 跳过的条目数（成人内容、格式错误或标题为空） */
+  private Long skipped;
+
+  /** 删除的已不存在的条目数 */
+  private Long removed;
+
+  /** 耗时（毫秒） */
+  private Long elapsedMillis;
+}
@@ -0,0 +1,37 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import java.util.Map;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB离线ID索引统计信息
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class TmdbIdIndexStats {
+
+  /** 是否启用本地优先匹配 */
+  private Boolean enabled;
+
+  /** 是否正在导入 */
+  private Boolean importing;
+
+  /** 最近一次导入的状态 */
+  private TmdbIdIndexImportResult lastImport;
+
+  /** 本地命中次数 */
+  private Long localHits;
+
+  /** 回退到在线搜索的次数 */
+  private Long onlineFallbacks;
+
+  /** 在线搜索后回填的年份数 */
+  private Long yearsFilled;
+
+  /** 按类型的条目数 */
+  private Map<String, Long> entries;
+}
@@ -0,0 +1,39 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB请求限流统计信息
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class TmdbRateLimitStats {
+
+  /** 每秒请求数上限 */
+  private Integer rateLimitPerSecond;
+
+  /** 允许的突发请求数 */
+  private Integer rateLimitBurst;
+
+  /** 经过限流器的请求数 */
+  private Long requests;
+
+  /** 需要等待令牌的请求数 */
+  private Long throttled;
+
+  /** 累计等待时间（毫秒） */
+  private Long totalWaitMillis;
+
+  /** 单次最长等待时间（毫秒） */
+  private Long maxWaitMillis;
+
+  /** 收到429的次数 */
+  private Long tooManyRequests;
+
+  /** 重试次数 */
+  private Long retries;
+}
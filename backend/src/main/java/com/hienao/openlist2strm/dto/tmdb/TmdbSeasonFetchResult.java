@@ -0,0 +1,23 @@
+package com.hienao.openlist2strm.dto.tmdb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * 电视剧季详情批量获取结果
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@Accessors(chain = true)
+public class TmdbSeasonFetchResult {
+
+  /** 季号到季详情，按季列表顺序排列 */
+  private Map<Integer, TmdbSeasonDetail> seasons = new LinkedHashMap<>();
+
+  /** 获取失败的季号到错误信息，按季列表顺序排列 */
+  private Map<Integer, String> failures = new LinkedHashMap<>();
+}
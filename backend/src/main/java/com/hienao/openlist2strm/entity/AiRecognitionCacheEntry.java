@@ -0,0 +1,31 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * AI文件名识别结果缓存实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class AiRecognitionCacheEntry {
+
+  /** 缓存键 */
+  private String cacheKey;
+
+  /** 记录时的模型和提示词指纹 */
+  private String configHash;
+
+  /** 识别结果JSON */
+  private String result;
+
+  /** 识别时间戳（毫秒） */
+  private Long createdAt;
+}
@@ -0,0 +1,43 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * 未匹配结果缓存实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class NegativeMatchEntry {
+
+  /** 缓存键 */
+  private String cacheKey;
+
+  /** 类型：movie/tv/ai */
+  private String kind;
+
+  /** 规范化后的查询词 */
+  private String query;
+
+  /** 年份 */
+  private String year;
+
+  /** 记录时的正则和AI配置指纹 */
+  private String configHash;
+
+  /** 连续未匹配次数 */
+  private Integer failureCount;
+
+  /** 最近一次未匹配时间戳（毫秒） */
+  private Long lastFailedAt;
+
+  /** 允许重试的时间戳（毫秒） */
+  private Long nextRetryAt;
+}
@@ -45,4 +45,10 @@ public class OpenlistConfig {
 
   /** 是否启用URL编码：1-启用（默认），0-禁用 */
   private Boolean enableUrlEncoding;
+
+  /** 本地签名密钥（OpenList站点令牌），为空时使用列表接口返回的sign */
+  private String signSecret;
+
+  /** 本地签名有效期（小时），0表示永不过期 */
+  private Integer signExpireHours;
 }
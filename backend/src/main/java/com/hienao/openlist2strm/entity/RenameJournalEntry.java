@@ -0,0 +1,49 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * 批量重命名日志实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class RenameJournalEntry {
+
+  /** 主键 */
+  private Long id;
+
+  /** 批次ID */
+  private String batchId;
+
+  /** OpenList配置ID */
+  private Long configId;
+
+  /** 批次内序号 */
+  private Integer seq;
+
+  /** 源路径（相对于挂载目录） */
+  private String srcPath;
+
+  /** 目标路径（相对于挂载目录） */
+  private String dstPath;
+
+  /** 状态：PENDING/DONE/FAILED/ROLLED_BACK */
+  private String status;
+
+  /** 最近一次失败原因 */
+  private String error;
+
+  /** 创建时间戳（毫秒） */
+  private Long createdAt;
+
+  /** 最近更新时间戳（毫秒） */
+  private Long updatedAt;
+}
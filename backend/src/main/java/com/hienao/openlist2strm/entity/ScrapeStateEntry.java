@@ -0,0 +1,34 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * 目录刮削状态实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class ScrapeStateEntry {
+
+  /** STRM保存目录路径 */
+  private String directoryPath;
+
+  /** 目录内文件名、大小和修改时间的指纹 */
+  private String fingerprint;
+
+  /** 记录时的刮削配置指纹 */
+  private String configSignature;
+
+  /** 是否已完全刮削 */
+  private Boolean fullyScraped;
+
+  /** 检查时间戳（毫秒） */
+  private Long checkedAt;
+}
@@ -0,0 +1,31 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB响应缓存实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class TmdbCacheEntry {
+
+  /** 缓存键 */
+  private String cacheKey;
+
+  /** 缓存类型：search/movie/tv/season */
+  private String kind;
+
+  /** TMDB返回的原始JSON */
+  private String body;
+
+  /** 获取时间戳（毫秒） */
+  private Long fetchedAt;
+}
@@ -0,0 +1,40 @@
+package com.hienao.openlist2strm.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+/**
+ * TMDB离线ID索引实体类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class TmdbIdIndexEntry {
+
+  /** 类型：movie/tv */
+  private String kind;
+
+  /** TMDB ID */
+  private Integer tmdbId;
+
+  /** 规范化后的原始标题 */
+  private String title;
+
+  /** 原始标题 */
+  private String originalTitle;
+
+  /** 流行度 */
+  private Double popularity;
+
+  /** 年份（在线搜索后回填） */
+  private String year;
+
+  /** 最近一次导入时间戳（毫秒） */
+  private Long importedAt;
+}
@@ -0,0 +1,36 @@
+package com.hienao.openlist2strm.job;
+
+import com.hienao.openlist2strm.service.SystemConfigService;
+import com.hienao.openlist2strm.service.TmdbCacheService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.springframework.stereotype.Component;
+
+/**
+ * TMDB缓存清理定时任务 删除超过有效期和容忍期、已不会再被使用的持久化缓存
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TmdbCacheCleanupJob implements Job {
+
+  private final SystemConfigService systemConfigService;
+  private final TmdbCacheService tmdbCacheService;
+
+  @Override
+  public void execute(JobExecutionContext context) throws JobExecutionException {
+    try {
+      log.info("开始执行TMDB缓存清理任务");
+      tmdbCacheService.purgeExpired(systemConfigService.getTmdbConfig());
+    } catch (Exception e) {
+      log.error("TMDB缓存清理任务执行失败: {}", e.getMessage(), e);
+      throw new JobExecutionException(e);
+    }
+  }
+}
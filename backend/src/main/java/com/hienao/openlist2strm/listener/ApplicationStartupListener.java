@@ -3,11 +3,13 @@ package com.hienao.openlist2strm.listener;
 import com.hienao.openlist2strm.config.PathConfiguration;
 import com.hienao.openlist2strm.entity.TaskConfig;
 import com.hienao.openlist2strm.job.LogCleanupJob;
+import com.hienao.openlist2strm.job.TmdbCacheCleanupJob;
 import com.hienao.openlist2strm.service.DataReportService;
 import com.hienao.openlist2strm.service.LogConfigService;
 import com.hienao.openlist2strm.service.QuartzSchedulerService;
 import com.hienao.openlist2strm.service.SystemConfigService;
 import com.hienao.openlist2strm.service.TaskConfigService;
+import com.hienao.openlist2strm.service.TmdbCacheService;
 import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -46,6 +48,7 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
   private final SystemConfigService systemConfigService;
   private final DataReportService dataReportService;
   private final PathConfiguration pathConfiguration;
+  private final TmdbCacheService tmdbCacheService;
 
   @Override
   public void onApplicationEvent(ApplicationReadyEvent event) {
@@ -61,7 +64,11 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
       // 3. 注册日志清理定时任务
       registerLogCleanupTask();
 
-      // 4. 查询所有有定时任务表达式的任务配置
+      // 4. 清理过期TMDB缓存并注册定时清理任务
+      executeStartupTmdbCacheCleanup();
+      registerTmdbCacheCleanupTask();
+
+      // 5. 查询所有有定时任务表达式的任务配置
       List<TaskConfig> scheduledConfigs = taskConfigService.getScheduledConfigs();
 
       if (scheduledConfigs.isEmpty()) {
@@ -117,6 +124,49 @@ public class ApplicationStartupListener implements ApplicationListener<Applicati
     }
   }
 
+  /** 注册TMDB缓存清理定时任务 */
+  private void registerTmdbCacheCleanupTask() {
+    try {
+      Scheduler scheduler = quartzSchedulerService.getScheduler();
+
+      // 每天凌晨2:00执行TMDB缓存清理任务
+      String cronExpression = "0 0 2 * * ?";
+      String jobName = "TmdbCacheCleanupJob";
+      String jobGroup = "SYSTEM";
+
+      JobDetail jobDetail =
+          JobBuilder.newJob(TmdbCacheCleanupJob.class)
+              .withIdentity(jobName, jobGroup)
+              .withDescription("TMDB缓存清理定时任务")
+              .storeDurably(true)
+              .build();
+
+      CronTrigger trigger =
+          TriggerBuilder.newTrigger()
+              .withIdentity(jobName + "Trigger", jobGroup)
+              .withDescription("TMDB缓存清理触发器")
+              .withSchedule(CronScheduleBuilder.cronSchedule(cronExpression))
+              .forJob(jobDetail)
+              .build();
+
+      scheduler.scheduleJob(jobDetail, trigger);
+
+      log.info("TMDB缓存清理定时任务注册成功，执行时间: 每天凌晨2:00");
+
+    } catch (Exception e) {
+      log.error("注册TMDB缓存清理定时任务失败: {}", e.getMessage(), e);
+    }
+  }
+
+  /** 执行启动时TMDB缓存清理，清理失败不影响应用启动 */
+  private void executeStartupTmdbCacheCleanup() {
+    try {
+      tmdbCacheService.purgeExpired(systemConfigService.getTmdbConfig());
+    } catch (Exception e) {
+      log.error("启动时TMDB缓存清理执行失败: {}", e.getMessage(), e);
+    }
+  }
+
   /** 执行启动时日志清理 在应用启动时执行一次日志清理，清理过期的日志文件 */
   private void executeStartupLogCleanup() {
     try {
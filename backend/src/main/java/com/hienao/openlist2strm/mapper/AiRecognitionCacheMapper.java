@@ -0,0 +1,41 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.AiRecognitionCacheEntry;
+import java.util.Collection;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * AI文件名识别结果缓存Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface AiRecognitionCacheMapper {
+
+  /**
+   * 批量查询缓存
+   *
+   * @param cacheKeys 缓存键，不能为空
+   * @return 命中的缓存条目
+   */
+  List<AiRecognitionCacheEntry> selectByKeys(@Param("cacheKeys") Collection<String> cacheKeys);
+
+  /**
+   * 插入或更新缓存
+   *
+   * @param entry 缓存条目
+   * @return 影响行数
+   */
+  int upsert(AiRecognitionCacheEntry entry);
+
+  /**
+   * 删除配置指纹不一致的条目
+   *
+   * @param configHash 当前配置指纹
+   * @return 删除行数
+   */
+  int deleteByConfigHashNot(@Param("configHash") String configHash);
+}
@@ -0,0 +1,64 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.NegativeMatchEntry;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 未匹配结果缓存Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface NegativeMatchMapper {
+
+  /**
+   * 根据缓存键查询
+   *
+   * @param cacheKey 缓存键
+   * @return 缓存条目
+   */
+  NegativeMatchEntry selectByKey(@Param("cacheKey") String cacheKey);
+
+  /**
+   * 按类型统计条目数
+   *
+   * @return 每行包含kind和count
+   */
+  List<Map<String, Object>> countByKind();
+
+  /**
+   * 插入或更新缓存
+   *
+   * @param entry 缓存条目
+   * @return 影响行数
+   */
+  int upsert(NegativeMatchEntry entry);
+
+  /**
+   * 按类型删除缓存
+   *
+   * @param kind 类型，为空时删除全部
+   * @return 删除行数
+   */
+  int deleteByKind(@Param("kind") String kind);
+
+  /**
+   * 删除指定缓存键
+   *
+   * @param cacheKey 缓存键
+   * @return 删除行数
+   */
+  int deleteByKey(@Param("cacheKey") String cacheKey);
+
+  /**
+   * 删除配置指纹不一致的条目
+   *
+   * @param configHash 当前配置指纹
+   * @return 删除行数
+   */
+  int deleteByConfigHashNot(@Param("configHash") String configHash);
+}
@@ -0,0 +1,55 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.RenameJournalEntry;
+import java.util.List;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 批量重命名日志Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface RenameJournalMapper {
+
+  /**
+   * 批量插入日志条目
+   *
+   * @param entries 日志条目
+   * @return 影响行数
+   */
+  int insertBatch(@Param("entries") List<RenameJournalEntry> entries);
+
+  /**
+   * 查询批次的全部条目，按序号升序
+   *
+   * @param batchId 批次ID
+   * @return 日志条目
+   */
+  List<RenameJournalEntry> selectByBatchId(@Param("batchId") String batchId);
+
+  /**
+   * 更新条目状态
+   *
+   * @param id        主键
+   * @param status    状态
+   * @param error     失败原因
+   * @param updatedAt 更新时间戳（毫秒）
+   * @return 影响行数
+   */
+  int updateStatus(
+      @Param("id") Long id,
+      @Param("status") String status,
+      @Param("error") String error,
+      @Param("updatedAt") Long updatedAt);
+
+  /**
+   * 删除早于指定时间创建的日志
+   *
+   * @param createdBefore 创建时间戳（毫秒）
+   * @return 删除行数
+   */
+  int deleteCreatedBefore(@Param("createdBefore") Long createdBefore);
+}
@@ -0,0 +1,31 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.ScrapeStateEntry;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 目录刮削状态Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface ScrapeStateMapper {
+
+  /**
+   * 根据目录路径查询
+   *
+   * @param directoryPath 目录路径
+   * @return 刮削状态
+   */
+  ScrapeStateEntry selectByPath(@Param("directoryPath") String directoryPath);
+
+  /**
+   * 插入或更新刮削状态
+   *
+   * @param entry 刮削状态
+   * @return 影响行数
+   */
+  int upsert(ScrapeStateEntry entry);
+}
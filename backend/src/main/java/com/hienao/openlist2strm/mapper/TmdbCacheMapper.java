@@ -0,0 +1,64 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.TmdbCacheEntry;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * TMDB响应缓存Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface TmdbCacheMapper {
+
+  /**
+   * 根据缓存键查询
+   *
+   * @param cacheKey 缓存键
+   * @return 缓存条目
+   */
+  TmdbCacheEntry selectByKey(@Param("cacheKey") String cacheKey);
+
+  /**
+   * 按类型统计条目数
+   *
+   * @return 每行包含kind和count
+   */
+  List<Map<String, Object>> countByKind();
+
+  /**
+   * 插入或更新缓存
+   *
+   * @param entry 缓存条目
+   * @return 影响行数
+   */
+  int upsert(TmdbCacheEntry entry);
+
+  /**
+   * 按类型删除缓存
+   *
+   * @param kind 缓存类型，为空时删除全部
+   * @return 删除行数
+   */
+  int deleteByKind(@Param("kind") String kind);
+
+  /**
+   * 删除指定缓存键
+   *
+   * @param cacheKey 缓存键
+   * @return 删除行数
+   */
+  int deleteByKey(@Param("cacheKey") String cacheKey);
+
+  /**
+   * 删除早于指定时间的缓存
+   *
+   * @param fetchedAt 时间戳（毫秒）
+   * @return 删除行数
+   */
+  int deleteOlderThan(@Param("fetchedAt") Long fetchedAt);
+}
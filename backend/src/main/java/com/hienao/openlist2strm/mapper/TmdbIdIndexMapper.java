@@ -0,0 +1,71 @@
+package com.hienao.openlist2strm.mapper;
+
+import com.hienao.openlist2strm.entity.TmdbIdIndexEntry;
+import java.util.List;
+import java.util.Map;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * TMDB离线ID索引Mapper接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Mapper
+public interface TmdbIdIndexMapper {
+
+  /**
+   * 按规范化标题查询，按流行度降序
+   *
+   * @param kind  类型
+   * @param title 规范化标题
+   * @param limit 最多返回条数
+   * @return 索引条目
+   */
+  List<TmdbIdIndexEntry> selectByTitle(
+      @Param("kind") String kind, @Param("title") String title, @Param("limit") int limit);
+
+  /**
+   * 按类型统计条目数
+   *
+   * @return 每行包含kind和count
+   */
+  List<Map<String, Object>> countByKind();
+
+  /**
+   * 批量插入或更新，保留已回填的年份
+   *
+   * @param entries 索引条目
+   * @return 影响行数
+   */
+  int upsertBatch(@Param("entries") List<TmdbIdIndexEntry> entries);
+
+  /**
+   * 回填年份
+   *
+   * @param kind   类型
+   * @param tmdbId TMDB ID
+   * @param year   年份
+   * @return 影响行数
+   */
+  int updateYear(
+      @Param("kind") String kind, @Param("tmdbId") Integer tmdbId, @Param("year") String year);
+
+  /**
+   * 删除指定类型中早于指定导入时间的条目
+   *
+   * @param kind       类型
+   * @param importedAt 导入时间戳（毫秒）
+   * @return 删除行数
+   */
+  int deleteImportedBefore(@Param("kind") String kind, @Param("importedAt") Long importedAt);
+
+  /**
+   * 按类型删除索引
+   *
+   * @param kind 类型，为空时删除全部
+   * @return 删除行数
+   */
+  int deleteByKind(@Param("kind") String kind);
+}
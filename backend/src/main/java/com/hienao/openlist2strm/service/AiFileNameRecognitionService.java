@@ -3,12 +3,20 @@ package com.hienao.openlist2strm.service;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hienao.openlist2strm.dto.media.AiRecognitionResult;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import com.hienao.openlist2strm.entity.AiRecognitionCacheEntry;
+import com.hienao.openlist2strm.mapper.AiRecognitionCacheMapper;
+import com.hienao.openlist2strm.util.TokenBucketRateLimiter;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
@@ -17,11 +25,15 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
 /**
  * AI 文件名识别服务 使用 OpenAI 格式的接口来识别和标准化影视文件名
  *
+ * <p>支持把同一目录的多个文件名合并到一次请求中识别；识别成功的结果按规范化的文件名和目录上下文持久化缓存，
+ * 所有请求经过全局令牌桶限流
+ *
  * @author hienao
  * @since 2024-01-01
  */
@@ -30,13 +42,44 @@ import org.springframework.web.client.RestTemplate;
 @RequiredArgsConstructor
 public class AiFileNameRecognitionService {
 
+  private static final int DEFAULT_QPM_LIMIT = 60;
+  private static final int DEFAULT_BATCH_SIZE = 20;
+  private static final int MAX_BATCH_SIZE = 50;
+  private static final long DEFAULT_RETRY_AFTER_MILLIS = 60_000L;
+
+  /** 单次查询缓存的键数量上限（SQLite参数个数限制） */
+  private static final int CACHE_LOOKUP_CHUNK = 500;
+
+  /** 批量模式附加到提示词后的说明 */
+  private static final String BATCH_INSTRUCTION =
+      """
+
+      === 批量模式 ===
+      输入包含同一目录下的多个文件，每行格式为"编号. 文件名"。
+      对每个文件按上述规则分别解析，返回一个 JSON 对象，results 数组中每项是单个文件的结果，并带上对应的 index：
+      {"results": [{"index": 1, "success": true, "title": "盗梦空间", "year": "2010", "type": "movie"}]}
+      必须为每个编号返回一项，不要添加任何 JSON 之外的文字
+      """;
+
   private final SystemConfigService systemConfigService;
   private final RestTemplate restTemplate;
   private final ObjectMapper objectMapper;
+  private final NegativeMatchCacheService negativeMatchCacheService;
+  private final AiRecognitionCacheMapper aiRecognitionCacheMapper;
+
+  /** 全局AI请求限流器，所有线程共享 */
+  private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter();
 
-  // QPM 限制跟踪
-  private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
-  private final Map<String, LocalDateTime> lastResetTimes = new ConcurrentHashMap<>();
+  /** 上次清理缓存时使用的配置指纹 */
+  private volatile String lastConfigHash;
+
+  /** 可用的 AI 配置 */
+  private record AiSettings(
+      String baseUrl,
+      String apiKey,
+      String model,
+      Map<String, Object> aiConfig,
+      String configHash) {}
 
   /**
    * 使用 AI 识别文件名
@@ -47,111 +90,241 @@ public class AiFileNameRecognitionService {
    */
   public AiRecognitionResult recognizeFileName(String originalFileName, String directoryPath) {
     try {
-      Map<String, Object> aiConfig = systemConfigService.getAiConfig();
-
-      // 检查是否启用 AI 识别
-      boolean enabled = (Boolean) aiConfig.getOrDefault("enabled", false);
-      if (!enabled) {
-        log.debug("AI 识别功能未启用，跳过文件名识别: {}", originalFileName);
+      AiSettings settings = loadSettings(originalFileName);
+      if (settings == null) {
         return null;
       }
 
-      // 检查必要配置
-      String baseUrl = (String) aiConfig.get("baseUrl");
-      String apiKey = (String) aiConfig.get("apiKey");
-      String model = (String) aiConfig.getOrDefault("model", "gpt-3.5-turbo");
-
-      if (baseUrl == null
-          || baseUrl.trim().isEmpty()
-          || apiKey == null
-          || apiKey.trim().isEmpty()) {
-        log.warn(
-            "AI 识别配置不完整，跳过文件名识别: baseUrl={}, apiKey={}", baseUrl, apiKey != null ? "***" : null);
+      String cacheKey = buildCacheKey(originalFileName, directoryPath);
+      AiRecognitionResult cached = lookupCache(List.of(cacheKey), settings).get(cacheKey);
+      if (cached != null) {
+        log.debug("AI 识别命中缓存: {}", originalFileName);
+        return cached;
+      }
+
+      // 近期无法识别的文件名在重试时间前不再请求
+      NegativeMatchCacheService.State negativeState =
+          negativeMatchCacheService.check(
+              NegativeMatchCacheService.KIND_AI, originalFileName, null);
+      if (negativeState == NegativeMatchCacheService.State.SUPPRESSED) {
+        log.debug("AI 近期无法识别该文件名，跳过: {}", originalFileName);
         return null;
       }
 
-      // 等待 QPM 限制
-      waitForQpmLimit(aiConfig);
+      AiRecognitionResult result =
+          callAiApi(settings, buildInputText(originalFileName, directoryPath));
+      handleResult(settings, originalFileName, cacheKey, negativeState, result);
+      return result;
 
-      // 构建输入文本
-      String inputText = buildInputText(originalFileName, directoryPath);
+    } catch (Exception e) {
+      log.error("AI 文件名识别失败: {}", originalFileName, e);
+      return null;
+    }
+  }
 
-      // 调用 AI 接口
-      AiRecognitionResult result = callAiApi(baseUrl, apiKey, model, aiConfig, inputText);
+  /**
+   * 批量识别同一目录下的文件名，每次请求最多包含 batchSize 个文件
+   *
+   * @param fileNames 文件名列表
+   * @param directoryPath 目录路径（可选，用于提供上下文）
+   * @return 文件名到识别结果的映射，跳过或请求失败的文件不在结果中
+   */
+  public Map<String, AiRecognitionResult> recognizeFileNames(
+      List<String> fileNames, String directoryPath) {
+    Map<String, AiRecognitionResult> results = new LinkedHashMap<>();
+    if (fileNames == null || fileNames.isEmpty()) {
+      return results;
+    }
 
-      if (result != null && result.isSuccess()) {
-        log.info("AI 识别成功: {} -> {}", originalFileName, result);
-        return result;
-      } else {
-        log.info(
-            "AI 无法识别文件名: {} -> {}", originalFileName, result != null ? result.getReason() : "未知错误");
-        return result;
+    try {
+      AiSettings settings = loadSettings(directoryPath);
+      if (settings == null) {
+        return results;
+      }
+
+      Map<String, String> cacheKeys = new LinkedHashMap<>();
+      for (String fileName : fileNames) {
+        if (fileName != null && !fileName.isBlank()) {
+          cacheKeys.putIfAbsent(fileName, buildCacheKey(fileName, directoryPath));
+        }
+      }
+      Map<String, AiRecognitionResult> cached = lookupCache(cacheKeys.values(), settings);
+
+      List<String> pending = new ArrayList<>();
+      Map<String, NegativeMatchCacheService.State> negativeStates = new HashMap<>();
+      for (Map.Entry<String, String> entry : cacheKeys.entrySet()) {
+        String fileName = entry.getKey();
+        AiRecognitionResult cachedResult = cached.get(entry.getValue());
+        if (cachedResult != null) {
+          results.put(fileName, cachedResult);
+          continue;
+        }
+        NegativeMatchCacheService.State negativeState =
+            negativeMatchCacheService.check(NegativeMatchCacheService.KIND_AI, fileName, null);
+        if (negativeState != NegativeMatchCacheService.State.SUPPRESSED) {
+          negativeStates.put(fileName, negativeState);
+          pending.add(fileName);
+        }
+      }
+      log.info(
+          "AI 批量识别: {}, 文件数: {}, 缓存命中: {}, 待识别: {}",
+          directoryPath,
+          cacheKeys.size(),
+          results.size(),
+          pending.size());
+
+      int batchSize = getBatchSize(settings.aiConfig());
+      List<String> missing = new ArrayList<>();
+      for (int start = 0; start < pending.size(); start += batchSize) {
+        List<String> batch = pending.subList(start, Math.min(start + batchSize, pending.size()));
+        Map<Integer, AiRecognitionResult> batchResults =
+            callAiBatch(settings, batch, directoryPath);
+        if (batchResults == null) {
+          // 请求失败时不再逐个重试，留待下次识别
+          continue;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+          String fileName = batch.get(i);
+          AiRecognitionResult result = batchResults.get(i + 1);
+          if (result == null) {
+            missing.add(fileName);
+            continue;
+          }
+          handleResult(
+              settings, fileName, cacheKeys.get(fileName), negativeStates.get(fileName), result);
+          results.put(fileName, result);
+        }
+      }
+
+      // 批量响应中缺失的文件逐个识别
+      for (String fileName : missing) {
+        AiRecognitionResult result = callAiApi(settings, buildInputText(fileName, directoryPath));
+        handleResult(
+            settings, fileName, cacheKeys.get(fileName), negativeStates.get(fileName), result);
+        if (result != null) {
+          results.put(fileName, result);
+        }
       }
 
     } catch (Exception e) {
-      log.error("AI 文件名识别失败: {}", originalFileName, e);
-      return null;
+      log.error("AI 批量识别失败: {}", directoryPath, e);
     }
+    return results;
   }
 
-  /** 等待 QPM 限制，智能控制请求速度 */
-  private void waitForQpmLimit(Map<String, Object> aiConfig) {
-    int qpmLimit = (Integer) aiConfig.getOrDefault("qpmLimit", 60);
-    String key = "ai_requests";
+  /** 读取并检查 AI 配置，未启用或不完整时返回 null */
+  private AiSettings loadSettings(String context) {
+    Map<String, Object> aiConfig = systemConfigService.getAiConfig();
 
-    LocalDateTime now = LocalDateTime.now();
-    LocalDateTime lastReset = lastResetTimes.get(key);
+    // 检查是否启用 AI 识别
+    boolean enabled = (Boolean) aiConfig.getOrDefault("enabled", false);
+    if (!enabled) {
+      log.debug("AI 识别功能未启用，跳过文件名识别: {}", context);
+      return null;
+    }
 
-    // 如果超过一分钟，重置计数器
-    if (lastReset == null || ChronoUnit.MINUTES.between(lastReset, now) >= 1) {
-      requestCounts.put(key, new AtomicInteger(0));
-      lastResetTimes.put(key, now);
-      lastReset = now;
+    // 检查必要配置
+    String baseUrl = (String) aiConfig.get("baseUrl");
+    String apiKey = (String) aiConfig.get("apiKey");
+    String model = (String) aiConfig.getOrDefault("model", "gpt-3.5-turbo");
+
+    if (baseUrl == null
+        || baseUrl.trim().isEmpty()
+        || apiKey == null
+        || apiKey.trim().isEmpty()) {
+      log.warn(
+          "AI 识别配置不完整，跳过文件名识别: baseUrl={}, apiKey={}", baseUrl, apiKey != null ? "***" : null);
+      return null;
     }
 
-    AtomicInteger count = requestCounts.get(key);
-    long secondsElapsed = ChronoUnit.SECONDS.between(lastReset, now);
-
-    // 如果达到限制，等待到下一分钟
-    if (count.get() >= qpmLimit) {
-      long secondsToWait = 60 - secondsElapsed;
-      if (secondsToWait > 0) {
-        log.info("已达到 QPM 限制 ({}/{}), 等待 {} 秒后继续刮削", count.get(), qpmLimit, secondsToWait);
-        try {
-          Thread.sleep(secondsToWait * 1000);
-        } catch (InterruptedException e) {
-          Thread.currentThread().interrupt();
-          log.warn("等待 QPM 限制时被中断", e);
-          return;
-        }
+    String configHash =
+        sha256(baseUrl + "|" + model + "|" + aiConfig.get("prompt")).substring(0, 16);
+    return new AiSettings(baseUrl, apiKey, model, aiConfig, configHash);
+  }
 
-        // 重置计数器
-        requestCounts.put(key, new AtomicInteger(0));
-        lastResetTimes.put(key, LocalDateTime.now());
+  /** 记录识别结果：成功的结果写入缓存，明确无法识别的结果写入未匹配缓存 */
+  private void handleResult(
+      AiSettings settings,
+      String originalFileName,
+      String cacheKey,
+      NegativeMatchCacheService.State negativeState,
+      AiRecognitionResult result) {
+    if (result != null && result.isSuccess()) {
+      log.info("AI 识别成功: {} -> {}", originalFileName, result);
+      storeCache(cacheKey, settings, result);
+      if (negativeState == NegativeMatchCacheService.State.RETRY_DUE) {
+        negativeMatchCacheService.recordHit(
+            NegativeMatchCacheService.KIND_AI, originalFileName, null);
       }
     } else {
-      // 智能速度控制：如果请求过快，适当延迟
-      double expectedRate = (double) qpmLimit / 60.0; // 每秒期望请求数
-      double actualRate = secondsElapsed > 0 ? (double) count.get() / secondsElapsed : 0;
-
-      if (actualRate > expectedRate * 1.2) { // 如果超过期望速度的120%
-        long delayMs = (long) (1000 / expectedRate); // 计算延迟时间
-        if (delayMs > 100) { // 最小延迟100ms
-          log.debug("请求速度过快，延迟 {} ms 以控制速度", delayMs);
-          try {
-            Thread.sleep(delayMs);
-          } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            log.warn("速度控制延迟时被中断", e);
-            return;
+      log.info(
+          "AI 无法识别文件名: {} -> {}", originalFileName, result != null ? result.getReason() : "未知错误");
+      // 只记录AI明确无法识别的结果，请求失败（result为null）不缓存
+      if (result != null) {
+        negativeMatchCacheService.recordMiss(
+            NegativeMatchCacheService.KIND_AI, originalFileName, null);
+      }
+    }
+  }
+
+  /** 缓存键：规范化的文件名 + 最后两级目录 */
+  private String buildCacheKey(String originalFileName, String directoryPath) {
+    String context = "";
+    if (directoryPath != null) {
+      String[] segments = directoryPath.replace('\\', '/').split("/");
+      int from = Math.max(segments.length - 2, 0);
+      context = String.join("/", List.of(segments).subList(from, segments.length));
+    }
+    return NegativeMatchCacheService.normalize(originalFileName)
+        + "|"
+        + NegativeMatchCacheService.normalize(context);
+  }
+
+  /** 批量查询持久化缓存，配置指纹不一致的条目视为未命中 */
+  private Map<String, AiRecognitionResult> lookupCache(
+      Collection<String> cacheKeys, AiSettings settings) {
+    Map<String, AiRecognitionResult> cached = new HashMap<>();
+    if (cacheKeys.isEmpty()) {
+      return cached;
+    }
+
+    try {
+      if (!settings.configHash().equals(lastConfigHash)) {
+        lastConfigHash = settings.configHash();
+        int deleted = aiRecognitionCacheMapper.deleteByConfigHashNot(settings.configHash());
+        if (deleted > 0) {
+          log.info("AI 模型或提示词已变化，清除识别缓存 {} 条", deleted);
+        }
+      }
+
+      List<String> keys = new ArrayList<>(cacheKeys);
+      for (int start = 0; start < keys.size(); start += CACHE_LOOKUP_CHUNK) {
+        List<String> chunk = keys.subList(start, Math.min(start + CACHE_LOOKUP_CHUNK, keys.size()));
+        for (AiRecognitionCacheEntry entry : aiRecognitionCacheMapper.selectByKeys(chunk)) {
+          if (settings.configHash().equals(entry.getConfigHash())) {
+            cached.put(
+                entry.getCacheKey(),
+                objectMapper.readValue(entry.getResult(), AiRecognitionResult.class));
           }
         }
       }
+    } catch (Exception e) {
+      log.warn("读取 AI 识别缓存失败: {}", e.getMessage());
     }
+    return cached;
+  }
 
-    // 增加请求计数
-    count.incrementAndGet();
-    log.debug("AI 请求计数: {}/{}, 已用时: {}s", count.get(), qpmLimit, secondsElapsed);
+  private void storeCache(String cacheKey, AiSettings settings, AiRecognitionResult result) {
+    try {
+      aiRecognitionCacheMapper.upsert(
+          new AiRecognitionCacheEntry(
+              cacheKey,
+              settings.configHash(),
+              objectMapper.writeValueAsString(result),
+              System.currentTimeMillis()));
+    } catch (Exception e) {
+      log.warn("写入 AI 识别缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+    }
   }
 
   /** 构建输入文本 */
@@ -167,75 +340,188 @@ public class AiFileNameRecognitionService {
     return input.toString();
   }
 
-  /** 调用 AI API */
-  private AiRecognitionResult callAiApi(
-      String baseUrl, String apiKey, String model, Map<String, Object> aiConfig, String inputText) {
-    try {
-      // 构建请求 URL
-      String apiUrl =
-          baseUrl.endsWith("/") ? baseUrl + "chat/completions" : baseUrl + "/chat/completions";
+  /** 构建批量输入文本，编号从1开始 */
+  private String buildBatchInputText(List<String> fileNames, String directoryPath) {
+    StringBuilder input = new StringBuilder();
 
-      // 构建请求头
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentType(MediaType.APPLICATION_JSON);
-      headers.setBearerAuth(apiKey);
+    if (directoryPath != null && !directoryPath.trim().isEmpty()) {
+      input.append("目录路径: ").append(directoryPath).append("\n");
+    }
 
-      // 构建请求体
-      Map<String, Object> requestBody = new HashMap<>();
-      requestBody.put("model", model);
-      requestBody.put("max_tokens", 300); // 增加 token 数量以适应 JSON 格式
-      requestBody.put("temperature", 0.1);
-      requestBody.put("response_format", Map.of("type", "json_object")); // 强制 JSON 格式（如果模型支持）
+    input.append("文件列表:");
+    for (int i = 0; i < fileNames.size(); i++) {
+      input.append("\n").append(i + 1).append(". ").append(fileNames.get(i));
+    }
 
-      // 构建消息
-      Map<String, Object> systemMessage = new HashMap<>();
-      systemMessage.put("role", "system");
-      systemMessage.put("content", aiConfig.get("prompt"));
+    return input.toString();
+  }
 
-      Map<String, Object> userMessage = new HashMap<>();
-      userMessage.put("role", "user");
-      userMessage.put("content", inputText);
+  /** 调用 AI API 识别单个文件 */
+  private AiRecognitionResult callAiApi(AiSettings settings, String inputText) {
+    String content =
+        requestCompletion(settings, (String) settings.aiConfig().get("prompt"), inputText, 300);
+    if (content == null) {
+      return null;
+    }
 
-      requestBody.put("messages", new Object[] {systemMessage, userMessage});
+    // 解析 JSON 响应
+    AiRecognitionResult parsedResult = parseJsonResponse(content);
+    log.debug("AI API 解析后响应: {}", parsedResult);
+    return parsedResult;
+  }
 
-      // 发送请求
-      HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-      ResponseEntity<String> response =
-          restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+  /**
+   * 调用 AI API 批量识别
+   *
+   * @return 编号到识别结果的映射；请求失败时返回 null
+   */
+  private Map<Integer, AiRecognitionResult> callAiBatch(
+      AiSettings settings, List<String> fileNames, String directoryPath) {
+    String content =
+        requestCompletion(
+            settings,
+            settings.aiConfig().get("prompt") + BATCH_INSTRUCTION,
+            buildBatchInputText(fileNames, directoryPath),
+            200 + 120 * fileNames.size());
+    if (content == null) {
+      return null;
+    }
 
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        log.error("AI API 请求失败，状态码: {}, 响应: {}", response.getStatusCode(), response.getBody());
-        return null;
+    Map<Integer, AiRecognitionResult> results = new HashMap<>();
+    try {
+      String jsonContent = extractJsonFromResponse(content);
+      JsonNode items =
+          jsonContent != null ? objectMapper.readTree(jsonContent).get("results") : null;
+      if (items == null || !items.isArray()) {
+        log.warn("AI 批量响应缺少 results 数组: {}", content);
+        return results;
       }
+      for (JsonNode item : items) {
+        int index = item.path("index").asInt(0);
+        if (index < 1 || index > fileNames.size()) {
+          continue;
+        }
+        AiRecognitionResult result = parseResultNode(item, item.toString());
+        if (result != null) {
+          results.put(index, result);
+        }
+      }
+      log.debug("AI 批量识别返回 {}/{} 个结果", results.size(), fileNames.size());
+    } catch (Exception e) {
+      log.warn("解析 AI 批量响应失败: {}, 错误: {}", content, e.getMessage());
+    }
+    return results;
+  }
 
-      // 解析响应
-      JsonNode responseJson = objectMapper.readTree(response.getBody());
-      JsonNode choices = responseJson.get("choices");
-
-      if (choices != null && choices.isArray() && choices.size() > 0) {
-        JsonNode firstChoice = choices.get(0);
-        JsonNode message = firstChoice.get("message");
-        if (message != null) {
-          JsonNode content = message.get("content");
-          if (content != null) {
-            String result = content.asText().trim();
-            log.debug("AI API 原始响应: {}", result);
+  /**
+   * 发送 chat completion 请求并返回消息内容，请求前经过全局限流，429时按Retry-After暂停所有请求后重试一次
+   *
+   * @return 消息内容，请求失败时返回 null
+   */
+  private String requestCompletion(
+      AiSettings settings, String systemPrompt, String inputText, int maxTokens) {
+    // 构建请求 URL
+    String baseUrl = settings.baseUrl();
+    String apiUrl =
+        baseUrl.endsWith("/") ? baseUrl + "chat/completions" : baseUrl + "/chat/completions";
+
+    // 构建请求头
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    headers.setBearerAuth(settings.apiKey());
+
+    // 构建请求体
+    Map<String, Object> requestBody = new HashMap<>();
+    requestBody.put("model", settings.model());
+    requestBody.put("max_tokens", maxTokens);
+    requestBody.put("temperature", 0.1);
+    requestBody.put("response_format", Map.of("type", "json_object")); // 强制 JSON 格式（如果模型支持）
+
+    // 构建消息
+    Map<String, Object> systemMessage = new HashMap<>();
+    systemMessage.put("role", "system");
+    systemMessage.put("content", systemPrompt);
+
+    Map<String, Object> userMessage = new HashMap<>();
+    userMessage.put("role", "user");
+    userMessage.put("content", inputText);
+
+    requestBody.put("messages", new Object[] {systemMessage, userMessage});
+    HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
+
+    for (int attempt = 1; attempt <= 2; attempt++) {
+      acquirePermit(settings.aiConfig());
+      try {
+        ResponseEntity<String> response =
+            restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
 
-            // 解析 JSON 响应
-            AiRecognitionResult parsedResult = parseJsonResponse(result);
-            log.debug("AI API 解析后响应: {}", parsedResult);
+        if (!response.getStatusCode().is2xxSuccessful()) {
+          log.error("AI API 请求失败，状态码: {}, 响应: {}", response.getStatusCode(), response.getBody());
+          return null;
+        }
 
-            return parsedResult;
-          }
+        // 解析响应
+        JsonNode responseJson = objectMapper.readTree(response.getBody());
+        JsonNode content = responseJson.path("choices").path(0).path("message").path("content");
+        if (content.isMissingNode() || content.isNull()) {
+          log.warn("AI API 响应格式异常: {}", response.getBody());
+          return null;
         }
+        String result = content.asText().trim();
+        log.debug("AI API 原始响应: {}", result);
+        return result;
+
+      } catch (HttpClientErrorException.TooManyRequests e) {
+        long retryAfterMillis = parseRetryAfterMillis(e.getResponseHeaders());
+        rateLimiter.pauseFor(retryAfterMillis);
+        log.warn("AI API 返回429，暂停所有请求 {} ms（第{}次）", retryAfterMillis, attempt);
+      } catch (Exception e) {
+        log.error("调用 AI API 失败", e);
+        return null;
       }
+    }
+    return null;
+  }
 
-      log.warn("AI API 响应格式异常: {}", response.getBody());
-      return null;
+  /** 获取一个请求令牌：按 QPM 换算的令牌桶，不持有锁，等待只发生在需要等待的调用线程上 */
+  private void acquirePermit(Map<String, Object> aiConfig) {
+    int qpmLimit = getPositiveInt(aiConfig.get("qpmLimit"), DEFAULT_QPM_LIMIT);
+    long waitNanos = rateLimiter.acquire(qpmLimit / 60.0, Math.max(qpmLimit / 10, 1));
+    if (waitNanos > 0) {
+      log.debug("AI 请求限流等待 {} ms, QPM: {}", TimeUnit.NANOSECONDS.toMillis(waitNanos), qpmLimit);
+    }
+  }
 
-    } catch (Exception e) {
-      log.error("调用 AI API 失败", e);
-      return null;
+  /** 解析Retry-After头（秒数），缺失时使用默认值 */
+  private long parseRetryAfterMillis(HttpHeaders headers) {
+    String retryAfter = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+    if (retryAfter != null) {
+      try {
+        return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+      } catch (NumberFormatException e) {
+        log.debug("无法解析Retry-After: {}", retryAfter);
+      }
+    }
+    return DEFAULT_RETRY_AFTER_MILLIS;
+  }
+
+  private int getBatchSize(Map<String, Object> aiConfig) {
+    return Math.min(getPositiveInt(aiConfig.get("batchSize"), DEFAULT_BATCH_SIZE), MAX_BATCH_SIZE);
+  }
+
+  private int getPositiveInt(Object value, int defaultValue) {
+    if (value instanceof Number number && number.intValue() > 0) {
+      return number.intValue();
+    }
+    return defaultValue;
+  }
+
+  private static String sha256(String input) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(input.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256算法不可用", e);
     }
   }
 
@@ -264,72 +550,83 @@ public class AiFileNameRecognitionService {
       // 解析 JSON
       JsonNode jsonNode = objectMapper.readTree(jsonContent);
 
-      // 检查是否成功
-      JsonNode successNode = jsonNode.get("success");
-      if (successNode == null) {
-        log.warn("JSON 响应缺少 success 字段，跳过处理: {}", jsonContent);
-        return null;
-      }
+      return parseResultNode(jsonNode, jsonContent);
 
-      boolean success = successNode.asBoolean();
-      AiRecognitionResult result = new AiRecognitionResult().setSuccess(success);
+    } catch (Exception e) {
+      log.warn("解析 JSON 响应失败，跳过处理: {}, 错误: {}", response, e.getMessage());
+      return null;
+    }
+  }
 
-      // 提取type字段
-      JsonNode typeNode = jsonNode.get("type");
-      if (typeNode != null && !typeNode.isNull()) {
-        result.setType(typeNode.asText());
-      }
+  /**
+   * 解析单个识别结果节点
+   *
+   * @param jsonNode    结果节点
+   * @param jsonContent 原始JSON（用于日志）
+   * @return 识别结果，格式无效时返回 null
+   */
+  private AiRecognitionResult parseResultNode(JsonNode jsonNode, String jsonContent) {
+    // 检查是否成功
+    JsonNode successNode = jsonNode.get("success");
+    if (successNode == null) {
+      log.warn("JSON 响应缺少 success 字段，跳过处理: {}", jsonContent);
+      return null;
+    }
 
-      if (success) {
-        // 成功情况，检查是新格式还是旧格式
-        JsonNode titleNode = jsonNode.get("title");
-        if (titleNode != null && !titleNode.isNull() && !titleNode.asText().trim().isEmpty()) {
-          // 新格式：分离字段
-          result.setTitle(titleNode.asText().trim());
-
-          JsonNode yearNode = jsonNode.get("year");
-          if (yearNode != null && !yearNode.isNull()) {
-            result.setYear(yearNode.asText().trim());
-          }
+    boolean success = successNode.asBoolean();
+    AiRecognitionResult result = new AiRecognitionResult().setSuccess(success);
 
-          JsonNode seasonNode = jsonNode.get("season");
-          if (seasonNode != null && !seasonNode.isNull()) {
-            result.setSeason(seasonNode.asInt());
-          }
+    // 提取type字段
+    JsonNode typeNode = jsonNode.get("type");
+    if (typeNode != null && !typeNode.isNull()) {
+      result.setType(typeNode.asText());
+    }
 
-          JsonNode episodeNode = jsonNode.get("episode");
-          if (episodeNode != null && !episodeNode.isNull()) {
-            result.setEpisode(episodeNode.asInt());
-          }
+    if (success) {
+      // 成功情况，检查是新格式还是旧格式
+      JsonNode titleNode = jsonNode.get("title");
+      if (titleNode != null && !titleNode.isNull() && !titleNode.asText().trim().isEmpty()) {
+        // 新格式：分离字段
+        result.setTitle(titleNode.asText().trim());
 
-          log.debug("成功解析 JSON 响应（新格式）: {}", result);
-          return result;
-        } else {
-          // 旧格式：filename字段
-          JsonNode filenameNode = jsonNode.get("filename");
-          if (filenameNode != null && !filenameNode.isNull()) {
-            String filename = filenameNode.asText().trim();
-            if (!filename.isEmpty()) {
-              result.setFilename(filename);
-              log.debug("成功解析 JSON 响应（旧格式）: {}", result);
-              return result;
-            }
-          }
-          log.warn("JSON 响应标记成功但缺少有效的title或filename字段，跳过处理: {}", jsonContent);
-          return null;
+        JsonNode yearNode = jsonNode.get("year");
+        if (yearNode != null && !yearNode.isNull()) {
+          result.setYear(yearNode.asText().trim());
         }
-      } else {
-        // 失败情况，提取失败原因
-        JsonNode reasonNode = jsonNode.get("reason");
-        String reason = reasonNode != null ? reasonNode.asText() : "未知原因";
-        result.setReason(reason);
-        log.info("AI 无法解析文件名: {}", reason);
+
+        JsonNode seasonNode = jsonNode.get("season");
+        if (seasonNode != null && !seasonNode.isNull()) {
+          result.setSeason(seasonNode.asInt());
+        }
+
+        JsonNode episodeNode = jsonNode.get("episode");
+        if (episodeNode != null && !episodeNode.isNull()) {
+          result.setEpisode(episodeNode.asInt());
+        }
+
+        log.debug("成功解析 JSON 响应（新格式）: {}", result);
         return result;
+      } else {
+        // 旧格式：filename字段
+        JsonNode filenameNode = jsonNode.get("filename");
+        if (filenameNode != null && !filenameNode.isNull()) {
+          String filename = filenameNode.asText().trim();
+          if (!filename.isEmpty()) {
+            result.setFilename(filename);
+            log.debug("成功解析 JSON 响应（旧格式）: {}", result);
+            return result;
+          }
+        }
+        log.warn("JSON 响应标记成功但缺少有效的title或filename字段，跳过处理: {}", jsonContent);
+        return null;
       }
-
-    } catch (Exception e) {
-      log.warn("解析 JSON 响应失败，跳过处理: {}, 错误: {}", response, e.getMessage());
-      return null;
+    } else {
+      // 失败情况，提取失败原因
+      JsonNode reasonNode = jsonNode.get("reason");
+      String reason = reasonNode != null ? reasonNode.asText() : "未知原因";
+      result.setReason(reason);
+      log.info("AI 无法解析文件名: {}", reason);
+      return result;
     }
   }
 
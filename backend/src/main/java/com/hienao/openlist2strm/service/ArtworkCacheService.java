@@ -0,0 +1,414 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.config.PathConfiguration;
+import com.hienao.openlist2strm.constant.AppConstants;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * 刮削图片缓存服务
+ *
+ * <p>图片按TMDB路径和尺寸存入本地缓存目录，每张图片只下载一次（流式写入）；各目标位置通过硬链接（不支持时复制）获得图片。
+ * 缓存超过重新验证时间后使用 If-None-Match / If-Modified-Since 条件请求，未变化时不重新下载。多张图片并行下载，
+ * 同一图片的并发请求共享同一次下载
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArtworkCacheService {
+
+  private static final String CACHE_DIRECTORY = "cache/artwork";
+  private static final String META_SUFFIX = ".meta";
+  private static final long DEFAULT_REVALIDATE_HOURS = 720L;
+
+  /** 同时下载的图片数上限 */
+  private static final int MAX_CONCURRENT_DOWNLOADS = 8;
+
+  /** TMDB图片地址：.../t/p/{size}/{file} */
+  private static final Pattern TMDB_IMAGE_PATH = Pattern.compile("/t/p/([^/]+)/([^/]+)$");
+
+  /** 缓存文件名允许的字符 */
+  private static final Pattern UNSAFE_CHARS = Pattern.compile("[^A-Za-z0-9._-]");
+
+  private final RestTemplate restTemplate;
+  private final PathConfiguration pathConfiguration;
+  private final FileWriteService fileWriteService;
+  private final SystemConfigService systemConfigService;
+  private final ExecutorService scrapingExecutor;
+
+  private final Semaphore downloadPermits = new Semaphore(MAX_CONCURRENT_DOWNLOADS);
+
+  /** 正在下载的缓存文件 */
+  private final Map<Path, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+  private final AtomicLong cacheHits = new AtomicLong();
+  private final AtomicLong downloads = new AtomicLong();
+  private final AtomicLong notModified = new AtomicLong();
+
+  /** 单个图片放置请求 */
+  public record ArtworkRequest(String url, Path target) {}
+
+  /** 图片放置结果 */
+  public enum PlaceResult {
+    /** 已通过硬链接放置 */
+    LINKED,
+    /** 已复制 */
+    COPIED,
+    /** 目标文件与缓存内容一致，未改动 */
+    UNCHANGED,
+    /** 目标文件已存在且不允许覆盖 */
+    SKIPPED_EXISTING,
+    /** 下载或放置失败 */
+    FAILED
+  }
+
+  /**
+   * 并行放置多张图片，全部完成后返回
+   *
+   * @param requests 放置请求
+   * @param overwrite 目标文件已存在时是否覆盖
+   * @return 每个目标文件的放置结果
+   */
+  public Map<Path, PlaceResult> placeAll(List<ArtworkRequest> requests, boolean overwrite) {
+    Map<Path, CompletableFuture<PlaceResult>> futures = new LinkedHashMap<>();
+    for (ArtworkRequest request : requests) {
+      futures.computeIfAbsent(
+          request.target(),
+          target ->
+              CompletableFuture.supplyAsync(
+                  () -> placeQuietly(request.url(), target, overwrite), scrapingExecutor));
+    }
+
+    Map<Path, PlaceResult> results = new LinkedHashMap<>();
+    futures.forEach((target, future) -> results.put(target, future.join()));
+    return results;
+  }
+
+  /**
+   * 放置单张图片：确保图片已缓存，再硬链接或复制到目标位置
+   *
+   * @param url 图片URL
+   * @param target 目标文件
+   * @param overwrite 目标文件已存在时是否覆盖
+   * @return 放置结果
+   * @throws IOException 下载或写入失败
+   */
+  public PlaceResult place(String url, Path target, boolean overwrite) throws IOException {
+    if (Files.exists(target) && !overwrite) {
+      log.info("检测到同名图片文件已存在，跳过下载: {}", target);
+      return PlaceResult.SKIPPED_EXISTING;
+    }
+
+    Path cached = fetch(url);
+    if (Files.exists(target) && sameContent(target, cached)) {
+      log.debug("图片未变化，跳过覆盖: {}", target);
+      return PlaceResult.UNCHANGED;
+    }
+
+    fileWriteService.ensureDirectory(target.getParent());
+    if (isHardlinkEnabled() && link(cached, target)) {
+      fileWriteService.recordChange(target);
+      log.debug("图片已链接: {} -> {}", cached, target);
+      return PlaceResult.LINKED;
+    }
+    try (InputStream input = Files.newInputStream(cached)) {
+      fileWriteService.writeStream(target, input);
+    }
+    log.debug("图片已复制: {} -> {}", cached, target);
+    return PlaceResult.COPIED;
+  }
+
+  /**
+   * 并行预取多张图片到缓存，失败的图片忽略
+   *
+   * @param urls 图片URL
+   */
+  public void prefetch(List<String> urls) {
+    CompletableFuture<?>[] futures =
+        urls.stream()
+            .distinct()
+            .map(
+                url ->
+                    CompletableFuture.runAsync(
+                        () -> {
+                          try {
+                            fetch(url);
+                          } catch (IOException e) {
+                            log.warn("预取图片失败: {}, 错误: {}", url, e.getMessage());
+                          }
+                        },
+                        scrapingExecutor))
+            .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(futures).join();
+  }
+
+  /**
+   * 确保图片已缓存并返回缓存文件，同一图片同时只下载一次
+   *
+   * @param url 图片URL
+   * @return 缓存文件
+   * @throws IOException 下载失败
+   */
+  public Path fetch(String url) throws IOException {
+    Path cacheFile = resolveCacheFile(url);
+    CompletableFuture<Path> own = new CompletableFuture<>();
+    CompletableFuture<Path> running = inFlight.putIfAbsent(cacheFile, own);
+    if (running != null) {
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+      }
+    }
+
+    try {
+      refresh(url, cacheFile);
+      own.complete(cacheFile);
+      return cacheFile;
+    } catch (IOException | RuntimeException e) {
+      own.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(cacheFile, own);
+    }
+  }
+
+  /**
+   * 获取缓存统计
+   *
+   * @return 缓存命中、下载和未变化（304）次数
+   */
+  public Map<String, Long> getStats() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("cacheHits", cacheHits.get());
+    stats.put("downloads", downloads.get());
+    stats.put("notModified", notModified.get());
+    return stats;
+  }
+
+  /** 缓存未过期时直接使用，过期后发送条件请求，未缓存时下载 */
+  private void refresh(String url, Path cacheFile) throws IOException {
+    Path metaFile = cacheFile.resolveSibling(cacheFile.getFileName() + META_SUFFIX);
+    boolean exists = Files.isRegularFile(cacheFile);
+    Properties meta = exists ? readMeta(metaFile) : new Properties();
+    long fetchedAt = parseLong(meta.getProperty("fetchedAt"));
+    long revalidateMillis = TimeUnit.HOURS.toMillis(getRevalidateHours());
+
+    if (exists && System.currentTimeMillis() - fetchedAt < revalidateMillis) {
+      cacheHits.incrementAndGet();
+      return;
+    }
+
+    String etag = exists ? meta.getProperty("etag") : null;
+    String lastModified = exists ? meta.getProperty("lastModified") : null;
+    Properties updated = new Properties();
+
+    try {
+      downloadPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("等待下载图片时被中断: " + url, e);
+    }
+    try {
+      Boolean modified =
+          restTemplate.execute(
+              URI.create(url),
+              HttpMethod.GET,
+              request -> {
+                HttpHeaders headers = request.getHeaders();
+                headers.set("User-Agent", AppConstants.USER_AGENT);
+                headers.set("Accept", "image/*");
+                if (etag != null) {
+                  headers.set(HttpHeaders.IF_NONE_MATCH, etag);
+                }
+                if (lastModified != null) {
+                  headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                }
+              },
+              response -> {
+                if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                  return false;
+                }
+                if (!response.getStatusCode().is2xxSuccessful()) {
+                  throw new IOException("HTTP请求失败，状态码: " + response.getStatusCode());
+                }
+                long size = fileWriteService.writeStream(cacheFile, response.getBody());
+                if (size == 0) {
+                  throw new IOException("下载的图片数据为空");
+                }
+                copyHeader(response.getHeaders(), HttpHeaders.ETAG, updated, "etag");
+                copyHeader(
+                    response.getHeaders(), HttpHeaders.LAST_MODIFIED, updated, "lastModified");
+                return true;
+              });
+
+      if (Boolean.TRUE.equals(modified)) {
+        downloads.incrementAndGet();
+        log.debug("图片已下载到缓存: {} -> {}", url, cacheFile);
+      } else {
+        notModified.incrementAndGet();
+        updated = meta;
+        log.debug("图片未变化，沿用缓存: {}", url);
+      }
+    } catch (RuntimeException e) {
+      // RestTemplate把提取响应时的IOException包装为ResourceAccessException
+      throw e.getCause() instanceof IOException io ? io : new IOException(e.getMessage(), e);
+    } finally {
+      downloadPermits.release();
+    }
+
+    updated.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+    writeMeta(metaFile, updated);
+  }
+
+  /** 在目标目录创建指向缓存文件的硬链接，再原子替换目标文件 */
+  private boolean link(Path cached, Path target) {
+    Path temp =
+        target.resolveSibling(
+            target.getFileName() + "." + UUID.randomUUID() + FileWriteService.TEMP_SUFFIX);
+    try {
+      Files.createLink(temp, cached);
+      try {
+        Files.move(
+            temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      // 跨文件系统或不支持硬链接时回退到复制
+      log.debug("无法创建硬链接，改为复制: {}, 原因: {}", target, e.getMessage());
+      try {
+        Files.deleteIfExists(temp);
+      } catch (IOException ignored) {
+        // 临时文件清理失败不影响复制
+      }
+      return false;
+    }
+  }
+
+  private PlaceResult placeQuietly(String url, Path target, boolean overwrite) {
+    try {
+      return place(url, target, overwrite);
+    } catch (Exception e) {
+      log.error("下载图片失败: {} -> {}, 错误: {}", url, target, e.getMessage());
+      return PlaceResult.FAILED;
+    }
+  }
+
+  private boolean sameContent(Path target, Path cached) throws IOException {
+    return Files.isSameFile(target, cached)
+        || (Files.size(target) == Files.size(cached) && Files.mismatch(target, cached) == -1);
+  }
+
+  /** TMDB图片按 尺寸/文件名 存放，其他图片按URL的SHA-256存放 */
+  private Path resolveCacheFile(String url) {
+    Path root = Paths.get(pathConfiguration.getData(), CACHE_DIRECTORY);
+    String path = URI.create(url).getPath();
+    Matcher matcher = TMDB_IMAGE_PATH.matcher(path != null ? path : "");
+    if (matcher.find()) {
+      return root.resolve(safeName(matcher.group(1))).resolve(safeName(matcher.group(2)));
+    }
+    String extension =
+        path != null && path.contains(".") ? path.substring(path.lastIndexOf('.')) : "";
+    return root.resolve("other").resolve(sha256(url) + safeName(extension));
+  }
+
+  private String safeName(String name) {
+    return UNSAFE_CHARS.matcher(name).replaceAll("_");
+  }
+
+  private Properties readMeta(Path metaFile) {
+    Properties meta = new Properties();
+    if (Files.isRegularFile(metaFile)) {
+      try {
+        meta.load(new StringReader(Files.readString(metaFile, StandardCharsets.UTF_8)));
+      } catch (IOException e) {
+        log.debug("读取图片缓存元数据失败: {}", metaFile);
+      }
+    }
+    return meta;
+  }
+
+  private void writeMeta(Path metaFile, Properties meta) {
+    try {
+      StringWriter writer = new StringWriter();
+      meta.store(writer, null);
+      fileWriteService.writeString(metaFile, writer.toString());
+    } catch (IOException e) {
+      log.warn("写入图片缓存元数据失败: {}, 错误: {}", metaFile, e.getMessage());
+    }
+  }
+
+  private void copyHeader(HttpHeaders headers, String name, Properties meta, String key) {
+    String value = headers.getFirst(name);
+    if (value != null && !value.isBlank()) {
+      meta.setProperty(key, value);
+    }
+  }
+
+  private long parseLong(String value) {
+    try {
+      return value != null ? Long.parseLong(value) : 0L;
+    } catch (NumberFormatException e) {
+      return 0L;
+    }
+  }
+
+  private boolean isHardlinkEnabled() {
+    return !Boolean.FALSE.equals(systemConfigService.getScrapingConfig().get("artworkHardlink"));
+  }
+
+  private long getRevalidateHours() {
+    Object value = systemConfigService.getScrapingConfig().get("artworkRevalidateHours");
+    if (value instanceof Number number && number.longValue() >= 0) {
+      return number.longValue();
+    }
+    return DEFAULT_REVALIDATE_HOURS;
+  }
+
+  private static String sha256(String input) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(input.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256算法不可用", e);
+    }
+  }
+}
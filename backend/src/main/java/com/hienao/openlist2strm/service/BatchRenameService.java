@@ -0,0 +1,399 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.entity.RenameJournalEntry;
+import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.mapper.RenameJournalMapper;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 批量重命名服务
+ *
+ * <p>重命名按所在目录分组，不同目录按配置的并发数并行处理；同一目录内严格按序号顺序执行，回滚时按序号倒序执行，
+ * 保证链式重命名和借助临时名的互换不会互相覆盖。服务端支持且目录内的源名称与目标名称互不重叠时，
+ * 每个目录只调用一次批量重命名接口。每个条目的进度记录在重命名日志中，失败的批次可以继续执行或回滚；
+ * 结束后每个受影响的目录只刷新一次
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchRenameService {
+
+  public static final String STATUS_PENDING = "PENDING";
+  public static final String STATUS_DONE = "DONE";
+  public static final String STATUS_FAILED = "FAILED";
+  public static final String STATUS_ROLLED_BACK = "ROLLED_BACK";
+
+  private static final int DEFAULT_CONCURRENCY = 4;
+
+  /** 单次插入的日志条数，避免超过SQLite参数上限 */
+  private static final int INSERT_CHUNK_SIZE = 100;
+
+  /** 日志保留时间 */
+  private static final long JOURNAL_RETENTION_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+  private final OpenlistApiService openlistApiService;
+  private final RenameJournalMapper renameJournalMapper;
+  private final SystemConfigService systemConfigService;
+  private final ExecutorService scrapingExecutor;
+
+  /** 不支持批量重命名接口的OpenList地址 */
+  private final Set<String> batchApiUnsupported = ConcurrentHashMap.newKeySet();
+
+  /**
+   * 执行批量重命名
+   *
+   * @param config OpenList配置
+   * @param renameList 重命名列表，包含 srcPath 和 dstPath（相对于挂载目录）
+   * @return 重命名结果，包含批次ID、成功和失败的列表
+   */
+  public Map<String, Object> rename(OpenlistConfig config, List<Map<String, String>> renameList) {
+    String batchId = UUID.randomUUID().toString();
+    long now = System.currentTimeMillis();
+    renameJournalMapper.deleteCreatedBefore(now - JOURNAL_RETENTION_MILLIS);
+
+    List<RenameJournalEntry> entries = new ArrayList<>();
+    for (Map<String, String> item : renameList) {
+      entries.add(
+          new RenameJournalEntry()
+              .setBatchId(batchId)
+              .setConfigId(config.getId())
+              .setSeq(entries.size())
+              .setSrcPath(item.get("srcPath"))
+              .setDstPath(item.get("dstPath"))
+              .setStatus(STATUS_PENDING)
+              .setCreatedAt(now)
+              .setUpdatedAt(now));
+    }
+    for (int i = 0; i < entries.size(); i += INSERT_CHUNK_SIZE) {
+      renameJournalMapper.insertBatch(
+          entries.subList(i, Math.min(i + INSERT_CHUNK_SIZE, entries.size())));
+    }
+
+    log.info("开始批量重命名 - 批次: {}, 数量: {}", batchId, entries.size());
+    // 重新读取以获得自增主键
+    return execute(config, batchId, renameJournalMapper.selectByBatchId(batchId));
+  }
+
+  /**
+   * 继续执行批次中未完成和失败的条目
+   *
+   * @param config OpenList配置
+   * @param batchId 批次ID
+   * @return 重命名结果
+   */
+  public Map<String, Object> resume(OpenlistConfig config, String batchId) {
+    log.info("继续批量重命名 - 批次: {}", batchId);
+    return execute(config, batchId, loadBatch(config, batchId));
+  }
+
+  /**
+   * 回滚批次中已完成的条目，不同目录并行，同一目录内按序号倒序恢复原名
+   *
+   * @param config OpenList配置
+   * @param batchId 批次ID
+   * @return 回滚结果
+   */
+  public Map<String, Object> rollback(OpenlistConfig config, String batchId) {
+    List<RenameJournalEntry> entries = loadBatch(config, batchId);
+    List<RenameJournalEntry> done =
+        entries.stream()
+            .filter(entry -> STATUS_DONE.equals(entry.getStatus()))
+            .sorted(Comparator.comparing(RenameJournalEntry::getSeq).reversed())
+            .toList();
+    log.info("回滚批量重命名 - 批次: {}, 数量: {}", batchId, done.size());
+
+    List<Runnable> tasks = new ArrayList<>();
+    for (List<RenameJournalEntry> group : groupByDirectory(done).values()) {
+      tasks.add(
+          () -> {
+            Set<String> blocked = new HashSet<>();
+            for (RenameJournalEntry entry : group) {
+              if (dependsOn(entry, blocked)) {
+                // 后续条目依赖的回滚失败，保持已完成状态，可再次回滚
+                updateStatus(entry, STATUS_DONE, "依赖的回滚失败");
+              } else if (renameOne(config, entry.getDstPath(), entry.getSrcPath())) {
+                updateStatus(entry, STATUS_ROLLED_BACK, null);
+              } else {
+                // 保持已完成状态，可再次回滚
+                updateStatus(entry, STATUS_DONE, "回滚失败");
+                block(entry, blocked);
+              }
+            }
+          });
+    }
+    runBounded(tasks, getConcurrency());
+    refreshDirectories(config, done);
+    return summarize(batchId, entries);
+  }
+
+  /**
+   * 查询批次进度
+   *
+   * @param config OpenList配置
+   * @param batchId 批次ID
+   * @return 批次结果
+   */
+  public Map<String, Object> getBatch(OpenlistConfig config, String batchId) {
+    return summarize(batchId, loadBatch(config, batchId));
+  }
+
+  private Map<String, Object> execute(
+      OpenlistConfig config, String batchId, List<RenameJournalEntry> entries) {
+    List<RenameJournalEntry> pending =
+        entries.stream()
+            .filter(
+                entry ->
+                    STATUS_PENDING.equals(entry.getStatus())
+                        || STATUS_FAILED.equals(entry.getStatus()))
+            .sorted(Comparator.comparing(RenameJournalEntry::getSeq))
+            .toList();
+
+    // 不同目录并行，同一目录内按序号顺序执行
+    List<Runnable> directoryTasks = new ArrayList<>();
+    groupByDirectory(pending)
+        .forEach(
+            (directory, group) -> directoryTasks.add(() -> renameGroup(config, directory, group)));
+    runBounded(directoryTasks, getConcurrency());
+
+    refreshDirectories(
+        config, pending.stream().filter(entry -> STATUS_DONE.equals(entry.getStatus())).toList());
+    Map<String, Object> result = summarize(batchId, entries);
+    log.info(
+        "批量重命名结束 - 批次: {}, 成功: {}, 失败: {}",
+        batchId,
+        result.get("successCount"),
+        result.get("failedCount"));
+    return result;
+  }
+
+  /** 按序号顺序重命名同一目录下的条目，某个条目失败后跳过依赖它的后续条目 */
+  private void renameGroup(OpenlistConfig config, String directory, List<RenameJournalEntry> group) {
+    if (group.size() > 1 && !batchApiUnsupported.contains(config.getBaseUrl())) {
+      renameDirectory(config, directory, group);
+    }
+
+    Set<String> blocked = new HashSet<>();
+    for (RenameJournalEntry entry : group) {
+      if (STATUS_DONE.equals(entry.getStatus())) {
+        continue;
+      }
+      if (dependsOn(entry, blocked)) {
+        updateStatus(entry, STATUS_FAILED, "依赖的重命名失败");
+        block(entry, blocked);
+      } else if (renameOne(config, entry.getSrcPath(), entry.getDstPath())) {
+        updateStatus(entry, STATUS_DONE, null);
+      } else {
+        updateStatus(entry, STATUS_FAILED, "重命名失败");
+        block(entry, blocked);
+      }
+    }
+  }
+
+  /**
+   * 对同一目录下的条目调用批量重命名接口，失败时保留待处理状态交给逐个重命名。
+   * 源名称与目标名称有重叠（链式重命名或互换）时执行顺序无法由接口保证，同样交给逐个重命名
+   */
+  private void renameDirectory(
+      OpenlistConfig config, String directory, List<RenameJournalEntry> group) {
+    Map<String, String> renames = new LinkedHashMap<>();
+    Set<String> targets = new HashSet<>();
+    for (RenameJournalEntry entry : group) {
+      renames.put(nameOf(entry.getSrcPath()), nameOf(entry.getDstPath()));
+      targets.add(nameOf(entry.getDstPath()));
+    }
+    if (renames.size() != group.size()
+        || targets.size() != group.size()
+        || targets.stream().anyMatch(renames::containsKey)) {
+      return;
+    }
+
+    OpenlistApiService.BatchRenameOutcome outcome =
+        openlistApiService.batchRename(config, directory, renames);
+    switch (outcome) {
+      case SUCCESS -> group.forEach(entry -> updateStatus(entry, STATUS_DONE, null));
+      case UNSUPPORTED -> {
+        log.info("OpenList不支持批量重命名接口，改为逐个重命名: {}", config.getBaseUrl());
+        batchApiUnsupported.add(config.getBaseUrl());
+      }
+      case FAILED -> log.warn("目录批量重命名失败，改为逐个重命名: {}", directory);
+    }
+  }
+
+  /** 按所在目录分组，组内保持传入顺序 */
+  private static Map<String, List<RenameJournalEntry>> groupByDirectory(
+      List<RenameJournalEntry> entries) {
+    Map<String, List<RenameJournalEntry>> byDirectory = new LinkedHashMap<>();
+    for (RenameJournalEntry entry : entries) {
+      byDirectory.computeIfAbsent(parentOf(entry.getSrcPath()), dir -> new ArrayList<>()).add(entry);
+    }
+    return byDirectory;
+  }
+
+  /** 条目的源或目标是否涉及失败条目的路径 */
+  private static boolean dependsOn(RenameJournalEntry entry, Set<String> blocked) {
+    return blocked.contains(trimSlashes(entry.getSrcPath()))
+        || blocked.contains(trimSlashes(entry.getDstPath()));
+  }
+
+  private static void block(RenameJournalEntry entry, Set<String> blocked) {
+    blocked.add(trimSlashes(entry.getSrcPath()));
+    blocked.add(trimSlashes(entry.getDstPath()));
+  }
+
+  /** 重命名单个文件；请求失败但目标已存在且源文件不存在时视为已完成（接口部分执行或重复执行） */
+  private boolean renameOne(OpenlistConfig config, String srcPath, String dstPath) {
+    if (openlistApiService.renameFile(config, srcPath, dstPath)) {
+      return true;
+    }
+    return exists(config, dstPath) && !exists(config, srcPath);
+  }
+
+  private boolean exists(OpenlistConfig config, String path) {
+    try {
+      openlistApiService.getFileInfo(config, "/" + trimSlashes(path));
+      return true;
+    } catch (BusinessException e) {
+      return false;
+    }
+  }
+
+  /** 每个受影响的目录只刷新一次 */
+  private void refreshDirectories(OpenlistConfig config, List<RenameJournalEntry> changed) {
+    Set<String> directories = new LinkedHashSet<>();
+    for (RenameJournalEntry entry : changed) {
+      directories.add(parentOf(entry.getSrcPath()));
+      directories.add(parentOf(entry.getDstPath()));
+    }
+    for (String directory : directories) {
+      openlistApiService.refreshDirectory(config, "/" + directory);
+    }
+  }
+
+  private void updateStatus(RenameJournalEntry entry, String status, String error) {
+    entry.setStatus(status).setError(error).setUpdatedAt(System.currentTimeMillis());
+    try {
+      renameJournalMapper.updateStatus(entry.getId(), status, error, entry.getUpdatedAt());
+    } catch (Exception e) {
+      log.warn("写入重命名日志失败: {}, 错误: {}", entry.getSrcPath(), e.getMessage());
+    }
+  }
+
+  private List<RenameJournalEntry> loadBatch(OpenlistConfig config, String batchId) {
+    List<RenameJournalEntry> entries = renameJournalMapper.selectByBatchId(batchId);
+    if (entries.isEmpty() || !Objects.equals(entries.get(0).getConfigId(), config.getId())) {
+      throw new BusinessException("重命名批次不存在: " + batchId);
+    }
+    return entries;
+  }
+
+  /** 结果格式与逐个重命名时一致，额外包含批次ID和回滚数量 */
+  private Map<String, Object> summarize(String batchId, List<RenameJournalEntry> entries) {
+    List<Map<String, String>> successList = new ArrayList<>();
+    List<Map<String, String>> failedList = new ArrayList<>();
+    int pendingCount = 0;
+    int rolledBackCount = 0;
+    for (RenameJournalEntry entry : entries) {
+      Map<String, String> item = new HashMap<>();
+      item.put("srcPath", entry.getSrcPath());
+      item.put("dstPath", entry.getDstPath());
+      switch (entry.getStatus()) {
+        case STATUS_DONE -> successList.add(item);
+        case STATUS_FAILED -> {
+          item.put("error", entry.getError());
+          failedList.add(item);
+        }
+        case STATUS_ROLLED_BACK -> rolledBackCount++;
+        default -> pendingCount++;
+      }
+    }
+
+    Map<String, Object> result = new HashMap<>();
+    result.put("batchId", batchId);
+    result.put("success", successList);
+    result.put("failed", failedList);
+    result.put("total", entries.size());
+    result.put("successCount", successList.size());
+    result.put("failedCount", failedList.size());
+    result.put("pendingCount", pendingCount);
+    result.put("rolledBackCount", rolledBackCount);
+    return result;
+  }
+
+  /** 在刮削线程池中执行任务，同时执行的数量不超过并发数 */
+  private void runBounded(List<Runnable> tasks, int concurrency) {
+    if (concurrency <= 1 || tasks.size() <= 1) {
+      tasks.forEach(Runnable::run);
+      return;
+    }
+    Semaphore permits = new Semaphore(concurrency);
+    CompletableFuture<?>[] futures =
+        tasks.stream()
+            .map(
+                task ->
+                    CompletableFuture.runAsync(
+                        () -> {
+                          permits.acquireUninterruptibly();
+                          try {
+                            task.run();
+                          } finally {
+                            permits.release();
+                          }
+                        },
+                        scrapingExecutor))
+            .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(futures).join();
+  }
+
+  private int getConcurrency() {
+    Object value = systemConfigService.getScrapingConfig().get("renameConcurrency");
+    if (value instanceof Number number && number.intValue() > 0) {
+      return number.intValue();
+    }
+    return DEFAULT_CONCURRENCY;
+  }
+
+  /** 所在目录（不含首尾斜杠），位于根目录时为空字符串 */
+  static String parentOf(String path) {
+    String trimmed = trimSlashes(path);
+    int index = trimmed.lastIndexOf('/');
+    return index < 0 ? "" : trimmed.substring(0, index);
+  }
+
+  private static String nameOf(String path) {
+    String trimmed = trimSlashes(path);
+    return trimmed.substring(trimmed.lastIndexOf('/') + 1);
+  }
+
+  private static String trimSlashes(String path) {
+    String result = path == null ? "" : path;
+    while (result.startsWith("/")) {
+      result = result.substring(1);
+    }
+    while (result.endsWith("/")) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+}
@@ -1,19 +1,16 @@
 package com.hienao.openlist2strm.service;
 
-import com.hienao.openlist2strm.constant.AppConstants;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 /**
  * 封面图片下载服务 负责从 TMDB 下载封面图片并保存到指定位置
@@ -26,9 +23,9 @@ import org.springframework.web.client.RestTemplate;
 @RequiredArgsConstructor
 public class CoverImageService {
 
-  private final RestTemplate restTemplate;
   private final SystemConfigService systemConfigService;
-  private final OpenlistApiService openlistApiService;
+  private final ArtworkCacheService artworkCacheService;
+  private final OpenlistUploadService openlistUploadService;
 
   /**
    * 下载海报图片
@@ -112,56 +109,17 @@ public class CoverImageService {
   }
 
   /**
-   * 通用图片下载方法
+   * 通用图片下载方法：图片经本地缓存下载一次，再链接或复制到保存位置
    *
    * @param imageUrl 图片URL
    * @param saveFilePath 保存文件路径
    */
   private void downloadImage(String imageUrl, String saveFilePath) throws IOException {
-    Path savePath = Paths.get(saveFilePath);
-
-    // 确保目录存在
-    Path parentDir = savePath.getParent();
-    if (parentDir != null && !Files.exists(parentDir)) {
-      Files.createDirectories(parentDir);
-    }
-
-    // 检查同名文件是否已存在
-    if (Files.exists(savePath)) {
-      boolean overwriteExisting = systemConfigService.getOverwriteExistingNfoConfig();
-
-      if (!overwriteExisting) {
-        log.info("检测到同名图片文件已存在，跳过下载: {}", saveFilePath);
-        return;
-      } else {
-        log.info("同名图片文件已存在，但允许覆盖，继续下载: {}", saveFilePath);
-      }
-    }
-
     try {
-      // 设置请求头
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      headers.set("Accept", "image/*");
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      // 下载图片
-      ResponseEntity<byte[]> response =
-          restTemplate.exchange(imageUrl, HttpMethod.GET, entity, byte[].class);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new IOException("HTTP请求失败，状态码: " + response.getStatusCode());
-      }
-
-      byte[] imageData = response.getBody();
-      if (imageData == null || imageData.length == 0) {
-        throw new IOException("下载的图片数据为空");
-      }
-
-      // 保存图片
-      Files.write(savePath, imageData);
-
-      log.debug("图片下载完成: {} -> {}", imageUrl, saveFilePath);
+      boolean overwriteExisting = systemConfigService.getOverwriteExistingNfoConfig();
+      ArtworkCacheService.PlaceResult result =
+          artworkCacheService.place(imageUrl, Paths.get(saveFilePath), overwriteExisting);
+      log.debug("图片处理完成: {} -> {} ({})", imageUrl, saveFilePath, result);
 
     } catch (Exception e) {
       log.error("下载图片失败: {} -> {}", imageUrl, saveFilePath, e);
@@ -248,15 +206,33 @@ public class CoverImageService {
     boolean downloadPoster = (Boolean) scrapingConfig.getOrDefault("downloadPoster", true);
     boolean downloadBackdrop = (Boolean) scrapingConfig.getOrDefault("downloadBackdrop", false);
 
-    // 下载海报
+    // 海报和背景图片并行下载
+    List<ArtworkCacheService.ArtworkRequest> requests = new ArrayList<>();
     if (downloadPoster && posterUrl != null && !posterUrl.trim().isEmpty()) {
-      downloadPoster(posterUrl, saveDirectory, fileName);
+      requests.add(
+          new ArtworkCacheService.ArtworkRequest(
+              posterUrl, Paths.get(saveDirectory, fileName + "-poster.jpg")));
     }
-
-    // 下载背景图片
     if (downloadBackdrop && backdropUrl != null && !backdropUrl.trim().isEmpty()) {
-      downloadBackdrop(backdropUrl, saveDirectory, fileName);
+      requests.add(
+          new ArtworkCacheService.ArtworkRequest(
+              backdropUrl, Paths.get(saveDirectory, fileName + "-backdrop.jpg")));
     }
+    if (requests.isEmpty()) {
+      return;
+    }
+
+    boolean overwriteExisting = systemConfigService.getOverwriteExistingNfoConfig();
+    artworkCacheService
+        .placeAll(requests, overwriteExisting)
+        .forEach(
+            (target, result) -> {
+              if (result == ArtworkCacheService.PlaceResult.FAILED) {
+                log.error("下载图片失败: {}", target);
+              } else {
+                log.info("图片处理完成: {} ({})", target, result);
+              }
+            });
   }
 
   /**
@@ -301,34 +277,20 @@ public class CoverImageService {
     try {
       log.info("开始下载并保存图片: {} -> {}", imageUrl, saveFilePath);
 
-      // 下载图片数据
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      headers.set("Accept", "image/*");
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<byte[]> response =
-          restTemplate.exchange(imageUrl, HttpMethod.GET, entity, byte[].class);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        log.error("下载图片失败，HTTP状态码: {}", response.getStatusCode());
-        return false;
-      }
-
-      byte[] imageData = response.getBody();
-      if (imageData == null || imageData.length == 0) {
+      // 图片经本地缓存下载，多个库引用同一图片时只下载一次；上传时从缓存文件流式读取
+      Path cached = artworkCacheService.fetch(imageUrl);
+      if (Files.size(cached) == 0) {
         log.error("下载的图片数据为空");
         return false;
       }
 
-      // 通过OpenList API保存图片（直接保存字节数组，避免重复下载）
-      boolean success = openlistApiService.saveImageBytes(openlistConfig, imageData, saveFilePath);
-      
-      if (success) {
-        log.info("图片通过OpenList保存成功: {}", saveFilePath);
+      OpenlistUploadService.UploadResult result =
+          openlistUploadService.upload(
+              openlistConfig, saveFilePath, OpenlistUploadService.UploadSource.of(cached));
+      if (result != OpenlistUploadService.UploadResult.FAILED) {
+        log.info("图片通过OpenList保存成功: {} ({})", saveFilePath, result);
       }
-      
-      return success;
+      return result != OpenlistUploadService.UploadResult.FAILED;
 
     } catch (Exception e) {
       log.error("下载并保存图片失败: {} -> {}", imageUrl, saveFilePath, e);
@@ -375,23 +337,46 @@ public class CoverImageService {
       boolean downloadPoster,
       boolean downloadBackdrop,
       String stillUrl) {
-    
-    // 下载海报
+
+    // 远程路径 -> 图片URL
+    Map<String, String> images = new LinkedHashMap<>();
     if (downloadPoster && posterUrl != null && !posterUrl.trim().isEmpty()) {
-      String posterFilePath = baseFilePath + "-poster.jpg";
-      downloadAndSaveToOpenlist(posterUrl, openlistConfig, posterFilePath);
+      images.put(baseFilePath + "-poster.jpg", posterUrl);
     }
-
-    // 下载背景图片
     if (downloadBackdrop && backdropUrl != null && !backdropUrl.trim().isEmpty()) {
-      String backdropFilePath = baseFilePath + "-fanart.jpg";
-      downloadAndSaveToOpenlist(backdropUrl, openlistConfig, backdropFilePath);
+      images.put(baseFilePath + "-fanart.jpg", backdropUrl);
     }
-
-    // 下载剧集剧照
     if (stillUrl != null && !stillUrl.trim().isEmpty()) {
-      String stillFilePath = baseFilePath + "-thumb.jpg";
-      downloadAndSaveToOpenlist(stillUrl, openlistConfig, stillFilePath);
+      images.put(baseFilePath + "-thumb.jpg", stillUrl);
+    }
+    if (images.isEmpty()) {
+      return;
     }
+
+    // 先并行下载到本地缓存，再并行上传
+    artworkCacheService.prefetch(new ArrayList<>(images.values()));
+    List<OpenlistUploadService.UploadRequest> uploads = new ArrayList<>();
+    images.forEach(
+        (remotePath, url) -> {
+          try {
+            uploads.add(
+                new OpenlistUploadService.UploadRequest(
+                    remotePath,
+                    OpenlistUploadService.UploadSource.of(artworkCacheService.fetch(url))));
+          } catch (IOException e) {
+            log.error("下载图片失败: {} -> {}, 错误: {}", url, remotePath, e.getMessage());
+          }
+        });
+
+    openlistUploadService
+        .uploadAll(openlistConfig, uploads)
+        .forEach(
+            (remotePath, result) -> {
+              if (result == OpenlistUploadService.UploadResult.FAILED) {
+                log.error("图片上传失败: {}", remotePath);
+              } else {
+                log.info("图片通过OpenList保存完成: {} ({})", remotePath, result);
+              }
+            });
   }
 }
@@ -2,11 +2,16 @@ package com.hienao.openlist2strm.service;
 
 import com.hienao.openlist2strm.constant.AppConstants;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Emby API服务类
@@ -141,6 +146,109 @@ public class EmbyApiService {
     }
   }
 
+  /**
+   * 通知Emby指定路径下的媒体有变化，Emby只扫描这些路径
+   *
+   * @param embyServerUrl Emby服务器URL
+   * @param apiKey Emby API密钥
+   * @param paths Emby可访问的目录路径
+   * @return 是否通知成功
+   */
+  public boolean notifyMediaUpdated(String embyServerUrl, String apiKey, Collection<String> paths) {
+    try {
+      List<Map<String, String>> updates = new ArrayList<>();
+      for (String path : paths) {
+        updates.add(Map.of("Path", path, "UpdateType", "Modified"));
+      }
+
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.set("User-Agent", AppConstants.USER_AGENT);
+      HttpEntity<Map<String, Object>> entity = new HttpEntity<>(Map.of("Updates", updates), headers);
+
+      long startTime = System.currentTimeMillis();
+      ResponseEntity<String> response =
+          restTemplate.exchange(
+              buildApiUrl(embyServerUrl, "emby/Library/Media/Updated", apiKey),
+              HttpMethod.POST,
+              entity,
+              String.class);
+      log.info(
+          "Emby媒体变更通知请求耗时: {}ms, 路径数: {}",
+          System.currentTimeMillis() - startTime,
+          paths.size());
+
+      if (!response.getStatusCode().is2xxSuccessful()) {
+        log.error("Emby媒体变更通知失败，状态码: {}", response.getStatusCode());
+        return false;
+      }
+      return true;
+
+    } catch (Exception e) {
+      log.error("Emby媒体变更通知异常: {}", e.getMessage(), e);
+      return false;
+    }
+  }
+
+  /**
+   * 获取Emby媒体库列表
+   *
+   * @param embyServerUrl Emby服务器URL
+   * @param apiKey Emby API密钥
+   * @return 媒体库列表，包含 Name、ItemId、Locations
+   */
+  public List<Map<String, Object>> getVirtualFolders(String embyServerUrl, String apiKey) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("User-Agent", AppConstants.USER_AGENT);
+    ResponseEntity<List<Map<String, Object>>> response =
+        restTemplate.exchange(
+            buildApiUrl(embyServerUrl, "emby/Library/VirtualFolders", apiKey),
+            HttpMethod.GET,
+            new HttpEntity<>(headers),
+            new ParameterizedTypeReference<List<Map<String, Object>>>() {});
+    return response.getBody() != null ? response.getBody() : List.of();
+  }
+
+  /**
+   * 递归刷新单个媒体库
+   *
+   * @param embyServerUrl Emby服务器URL
+   * @param apiKey Emby API密钥
+   * @param itemId 媒体库ItemId
+   * @return 是否刷新成功
+   */
+  public boolean refreshLibraryItem(String embyServerUrl, String apiKey, String itemId) {
+    try {
+      HttpHeaders headers = new HttpHeaders();
+      headers.set("User-Agent", AppConstants.USER_AGENT);
+      String apiUrl =
+          buildApiUrl(embyServerUrl, "emby/Items/" + itemId + "/Refresh", apiKey)
+              + (apiKey != null && !apiKey.isEmpty() ? "&" : "?")
+              + "Recursive=true";
+      ResponseEntity<String> response =
+          restTemplate.exchange(apiUrl, HttpMethod.POST, new HttpEntity<>(headers), String.class);
+      if (!response.getStatusCode().is2xxSuccessful()) {
+        log.error("Emby媒体库刷新失败: {}, 状态码: {}", itemId, response.getStatusCode());
+        return false;
+      }
+      log.info("Emby媒体库刷新成功: {}", itemId);
+      return true;
+
+    } catch (Exception e) {
+      log.error("Emby媒体库刷新异常: {}, 错误: {}", itemId, e.getMessage(), e);
+      return false;
+    }
+  }
+
+  private String buildApiUrl(String embyServerUrl, String path, String apiKey) {
+    String apiUrl = embyServerUrl.endsWith("/") ? embyServerUrl : embyServerUrl + "/";
+    apiUrl += path;
+    if (apiKey != null && !apiKey.isEmpty()) {
+      apiUrl += "?api_key=" + apiKey;
+    }
+    return apiUrl;
+  }
+
   /**
    * 测试Emby服务器连接
    *
@@ -0,0 +1,203 @@
+package com.hienao.openlist2strm.service;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Emby刷新服务
+ *
+ * <p>任务结束后只通知Emby本次实际变更的STRM目录（Library/Media/Updated），不再触发整库扫描。
+ * 多个任务在防抖窗口内的通知合并为一次请求；变更目录过多或通知失败时改为刷新包含这些目录的媒体库，
+ * 全量执行或无法确定媒体库时刷新整个Emby
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EmbyRefreshService {
+
+  private static final long DEFAULT_DEBOUNCE_SECONDS = 30L;
+  private static final int DEFAULT_MAX_PATHS = 100;
+
+  private final EmbyApiService embyApiService;
+  private final SystemConfigService systemConfigService;
+
+  private final ScheduledExecutorService scheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          Thread.ofVirtual().name("emby-refresh-", 0).factory());
+
+  /** 等待通知的目录（本地路径） */
+  private final Set<String> pendingDirectories = new LinkedHashSet<>();
+
+  /** 是否需要刷新整个Emby */
+  private boolean pendingFullRefresh;
+
+  /** 已安排的通知 */
+  private ScheduledFuture<?> scheduledFlush;
+
+  /**
+   * 请求刷新，防抖窗口内的多次请求合并执行
+   *
+   * @param directories 变更的STRM目录
+   * @param fullRefresh 是否需要刷新整个Emby（如全量执行清空了STRM目录）
+   */
+  public synchronized void requestRefresh(Collection<Path> directories, boolean fullRefresh) {
+    if (!fullRefresh && directories.isEmpty()) {
+      log.info("本次执行没有变更STRM目录，跳过Emby刷新");
+      return;
+    }
+
+    pendingFullRefresh |= fullRefresh;
+    for (Path directory : directories) {
+      pendingDirectories.add(directory.toAbsolutePath().normalize().toString());
+    }
+
+    if (scheduledFlush == null) {
+      long debounceSeconds = getDebounceSeconds();
+      log.info(
+          "Emby刷新将在 {} 秒后执行，期间的变更合并通知 - 目录: {}, 全量: {}",
+          debounceSeconds,
+          pendingDirectories.size(),
+          pendingFullRefresh);
+      scheduledFlush = scheduler.schedule(this::flush, debounceSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void destroy() {
+    scheduler.shutdownNow();
+  }
+
+  private void flush() {
+    Set<String> directories;
+    boolean fullRefresh;
+    synchronized (this) {
+      directories = new LinkedHashSet<>(pendingDirectories);
+      fullRefresh = pendingFullRefresh;
+      pendingDirectories.clear();
+      pendingFullRefresh = false;
+      scheduledFlush = null;
+    }
+
+    try {
+      Map<String, Object> embyConfig = systemConfigService.getEmbyConfig();
+      String serverUrl = (String) embyConfig.getOrDefault("serverUrl", "http://localhost:8096");
+      String apiKey = (String) embyConfig.getOrDefault("apiKey", "");
+      if (serverUrl == null || serverUrl.isEmpty()) {
+        log.warn("未配置Emby服务器地址，跳过刷新");
+        return;
+      }
+
+      if (fullRefresh) {
+        log.info("执行Emby整库刷新");
+        embyApiService.refreshMediaLibrary(serverUrl, apiKey);
+        return;
+      }
+
+      List<String> embyPaths = new ArrayList<>();
+      for (String directory : directories) {
+        embyPaths.add(toEmbyPath(directory, embyConfig));
+      }
+
+      if (embyPaths.size() <= getMaxPaths(embyConfig)) {
+        log.info("通知Emby变更目录: {} 个", embyPaths.size());
+        if (embyApiService.notifyMediaUpdated(serverUrl, apiKey, embyPaths)) {
+          return;
+        }
+        log.warn("Emby变更通知失败，改为刷新相关媒体库");
+      } else {
+        log.info("变更目录过多（{} 个），改为刷新相关媒体库", embyPaths.size());
+      }
+      refreshLibraries(serverUrl, apiKey, embyPaths);
+    } catch (Exception e) {
+      log.error("Emby刷新失败: {}", e.getMessage(), e);
+    }
+  }
+
+  /** 刷新包含变更目录的媒体库，无法确定时刷新整个Emby */
+  private void refreshLibraries(String serverUrl, String apiKey, List<String> embyPaths) {
+    Set<String> libraryIds = new LinkedHashSet<>();
+    try {
+      for (Map<String, Object> folder : embyApiService.getVirtualFolders(serverUrl, apiKey)) {
+        if (!(folder.get("Locations") instanceof List<?> locations)
+            || folder.get("ItemId") == null) {
+          continue;
+        }
+        for (Object location : locations) {
+          String prefix = trimTrailingSlash(String.valueOf(location));
+          if (embyPaths.stream().anyMatch(path -> isUnder(path, prefix))) {
+            libraryIds.add(String.valueOf(folder.get("ItemId")));
+            break;
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.warn("获取Emby媒体库列表失败: {}", e.getMessage());
+    }
+
+    if (libraryIds.isEmpty()) {
+      log.info("未找到包含变更目录的Emby媒体库，执行整库刷新");
+      embyApiService.refreshMediaLibrary(serverUrl, apiKey);
+      return;
+    }
+    for (String libraryId : libraryIds) {
+      embyApiService.refreshLibraryItem(serverUrl, apiKey, libraryId);
+    }
+  }
+
+  /** 将本地STRM路径转换为Emby中的路径 */
+  private String toEmbyPath(String directory, Map<String, Object> embyConfig) {
+    String localPrefix = trimTrailingSlash((String) embyConfig.getOrDefault("localPathPrefix", ""));
+    String embyPrefix = trimTrailingSlash((String) embyConfig.getOrDefault("embyPathPrefix", ""));
+    if (localPrefix.isEmpty() || !isUnder(directory, localPrefix)) {
+      return directory;
+    }
+    return embyPrefix + directory.substring(localPrefix.length());
+  }
+
+  private static boolean isUnder(String path, String prefix) {
+    return path.equals(prefix) || path.startsWith(prefix + "/");
+  }
+
+  private static String trimTrailingSlash(String path) {
+    if (path == null) {
+      return "";
+    }
+    String result = path.replace('\\', '/');
+    while (result.length() > 1 && result.endsWith("/")) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+
+  private long getDebounceSeconds() {
+    Object value = systemConfigService.getEmbyConfig().get("refreshDebounceSeconds");
+    if (value instanceof Number number && number.longValue() >= 0) {
+      return number.longValue();
+    }
+    return DEFAULT_DEBOUNCE_SECONDS;
+  }
+
+  private int getMaxPaths(Map<String, Object> embyConfig) {
+    Object value = embyConfig.get("refreshMaxPaths");
+    if (value instanceof Number number && number.intValue() > 0) {
+      return number.intValue();
+    }
+    return DEFAULT_MAX_PATHS;
+  }
+}
@@ -4,16 +4,22 @@ import com.hienao.openlist2strm.dto.media.MediaInfo;
 import com.hienao.openlist2strm.dto.tmdb.TmdbMovieDetail;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSearchResponse;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail;
+import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonFetchResult;
 import com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail;
 import com.hienao.openlist2strm.util.MediaFileParser;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -23,8 +29,28 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class FileRenamingService {
 
+  /** 高置信度和低置信度匹配的最低得分 */
+  private static final double HIGH_CONFIDENCE_SCORE = 70.0;
+  private static final double LOW_CONFIDENCE_SCORE = 40.0;
+
+  /** 通过季号集号或播出日期直接匹配时记录的得分 */
+  private static final double DIRECT_MATCH_SCORE = 100.0;
+
+  /** 搜索结果的最低匹配得分，所有结果都低于此分数时记录为未匹配 */
+  private static final double MIN_SEARCH_MATCH_SCORE = 60.0;
+
+  /** 比较标题时忽略的字符 */
+  private static final Pattern TITLE_NOISE = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private static final Pattern SEASON_EPISODE_PATTERN =
+      Pattern.compile("S(\\d+)E(\\d+)", Pattern.CASE_INSENSITIVE);
+  private static final Pattern DATE_PATTERN =
+      Pattern.compile("(\\d{4})[-_.年](\\d{1,2})[-_.月](\\d{1,2})");
+
   private final TmdbApiService tmdbApiService;
+  private final TmdbIdIndexService tmdbIdIndexService;
   private final SystemConfigService systemConfigService;
+  private final NegativeMatchCacheService negativeMatchCacheService;
 
   public Map<String, Object> matchFileToTmdb(String fileName, String directoryPath) {
     Map<String, Object> result = new HashMap<>();
@@ -104,14 +130,17 @@ public class FileRenamingService {
     result.put("type", "movie");
 
     try {
-      TmdbSearchResponse searchResponse =
-          tmdbApiService.searchMovies(mediaInfo.getSearchQuery(), mediaInfo.getYear());
+      String searchQuery = mediaInfo.getSearchQuery();
+      String searchYear = mediaInfo.getYear();
+      TmdbSearchResponse searchResponse = tmdbIdIndexService.searchMovies(searchQuery, searchYear);
 
       if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
         log.info("使用完整搜索查询未找到结果，尝试简化搜索: {}", fileName);
-        String simpleQuery = extractSimpleTitle(mediaInfo.getSearchQuery());
-        if (!simpleQuery.equals(mediaInfo.getSearchQuery())) {
-          searchResponse = tmdbApiService.searchMovies(simpleQuery, null);
+        String simpleQuery = extractSimpleTitle(searchQuery);
+        if (!simpleQuery.equals(searchQuery)) {
+          searchQuery = simpleQuery;
+          searchYear = null;
+          searchResponse = tmdbIdIndexService.searchMovies(simpleQuery, null);
         }
       }
 
@@ -121,11 +150,17 @@ public class FileRenamingService {
         return result;
       }
 
-      TmdbSearchResponse.TmdbSearchResult bestMatch = selectBestMovieMatch(searchResponse.getResults(), mediaInfo);
-
+      TmdbSearchResponse.TmdbSearchResult bestMatch =
+          selectBestMatch(
+              NegativeMatchCacheService.KIND_MOVIE,
+              searchResponse.getResults(),
+              searchQuery,
+              searchYear,
+              mediaInfo.getYear());
       if (bestMatch == null) {
-        bestMatch = searchResponse.getResults().get(0);
-        log.info("使用默认匹配结果: {}", bestMatch.getTitle());
+        result.put("error", "未找到置信度足够的匹配电影");
+        result.put("matched", false);
+        return result;
       }
 
       TmdbMovieDetail movieDetail = tmdbApiService.getMovieDetail(bestMatch.getId());
@@ -164,14 +199,17 @@ public class FileRenamingService {
     result.put("type", "tv");
 
     try {
-      TmdbSearchResponse searchResponse =
-          tmdbApiService.searchTvShows(mediaInfo.getSearchQuery(), mediaInfo.getYear());
+      String searchQuery = mediaInfo.getSearchQuery();
+      String searchYear = mediaInfo.getYear();
+      TmdbSearchResponse searchResponse = tmdbIdIndexService.searchTvShows(searchQuery, searchYear);
 
       if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
         log.info("使用完整搜索查询未找到结果，尝试简化搜索: {}", fileName);
-        String simpleQuery = extractSimpleTitle(mediaInfo.getSearchQuery());
-        if (!simpleQuery.equals(mediaInfo.getSearchQuery())) {
-          searchResponse = tmdbApiService.searchTvShows(simpleQuery, null);
+        String simpleQuery = extractSimpleTitle(searchQuery);
+        if (!simpleQuery.equals(searchQuery)) {
+          searchQuery = simpleQuery;
+          searchYear = null;
+          searchResponse = tmdbIdIndexService.searchTvShows(simpleQuery, null);
         }
       }
 
@@ -181,11 +219,17 @@ public class FileRenamingService {
         return result;
       }
 
-      TmdbSearchResponse.TmdbSearchResult bestMatch = selectBestTvMatch(searchResponse.getResults(), mediaInfo);
-
+      TmdbSearchResponse.TmdbSearchResult bestMatch =
+          selectBestMatch(
+              NegativeMatchCacheService.KIND_TV,
+              searchResponse.getResults(),
+              searchQuery,
+              searchYear,
+              mediaInfo.getYear());
       if (bestMatch == null) {
-        bestMatch = searchResponse.getResults().get(0);
-        log.info("使用默认匹配结果: {}", bestMatch.getName());
+        result.put("error", "未找到置信度足够的匹配电视剧");
+        result.put("matched", false);
+        return result;
       }
 
       TmdbTvDetail tvDetail = tmdbApiService.getTvDetail(bestMatch.getId());
@@ -309,11 +353,11 @@ public class FileRenamingService {
           searchTitle, searchYear, files.size());
       
       String yearStr = searchYear != null ? String.valueOf(searchYear) : null;
-      TmdbSearchResponse searchResponse = tmdbApiService.searchTvShows(searchTitle, yearStr);
+      TmdbSearchResponse searchResponse = tmdbIdIndexService.searchTvShows(searchTitle, yearStr);
       
       if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
         log.warn("未找到匹配的电视剧，尝试电影搜索: {}", searchTitle);
-        searchResponse = tmdbApiService.searchMovies(searchTitle, yearStr);
+        searchResponse = tmdbIdIndexService.searchMovies(searchTitle, yearStr);
         
         if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
           log.error("未找到匹配的影视内容: {}", searchTitle);
@@ -363,10 +407,19 @@ public class FileRenamingService {
       
       log.info("成功获取剧集信息: {} (TMDB ID: {})", tvDetail.getName(), tvDetail.getId());
       
-      List<TmdbSeasonDetail.Episode> allEpisodes = getAllEpisodes(tvDetail);
+      TmdbSeasonFetchResult seasonResult = fetchAllSeasons(tvDetail);
+      List<TmdbSeasonDetail.Episode> allEpisodes = getAllEpisodes(seasonResult);
       log.info("获取到所有集数信息，共 {} 集", allEpisodes.size());
       
       results = smartMatchAllFiles(files, allEpisodes, tvDetail, searchResponse);
+
+      // 部分季获取失败时在每个结果中附带失败的季，便于前端提示
+      if (!seasonResult.getFailures().isEmpty()) {
+        log.warn("部分季详情获取失败: {}", seasonResult.getFailures());
+        for (Map<String, Object> result : results) {
+          result.put("seasonErrors", seasonResult.getFailures());
+        }
+      }
       
     } catch (Exception e) {
       log.error("批量匹配失败", e);
@@ -383,100 +436,98 @@ public class FileRenamingService {
     return results;
   }
   
+  /**
+   * 批量匹配文件到剧集
+   *
+   * <p>文件名中明确的 SxxEyy 或唯一的播出日期直接通过索引匹配；其余文件并行计算所有剧集的得分，
+   * 再按文件顺序依次认领未被占用的最高分剧集（先高置信度后低置信度），同分时按剧集顺序，结果稳定
+   */
   private List<Map<String, Object>> smartMatchAllFiles(
       List<Map<String, String>> files,
       List<TmdbSeasonDetail.Episode> allEpisodes,
       TmdbTvDetail tvDetail,
       TmdbSearchResponse searchResponse) {
-    
-    List<Map<String, Object>> results = new ArrayList<>();
+
+    EpisodeIndex index = new EpisodeIndex(allEpisodes);
     Set<String> matchedEpisodeKeys = new HashSet<>();
-    List<Map<String, Object>> unmatchedResults = new ArrayList<>();
-    
-    for (Map<String, String> file : files) {
-      String fileName = file.get("fileName");
-      String filePath = file.get("path");
-      
-      log.info("第一轮匹配（高置信度）: {}", fileName);
-      
-      Map<String, Object> result = new HashMap<>();
-      result.put("fileName", fileName);
-      result.put("type", "tv");
-      result.put("path", filePath);
-      
+    EpisodeMatch[] matches = new EpisodeMatch[files.size()];
+    boolean[] highConfidence = new boolean[files.size()];
+
+    // 第一步：明确的季号集号或播出日期直接查索引，同一剧集按文件顺序先到先得
+    for (int i = 0; i < files.size(); i++) {
+      TmdbSeasonDetail.Episode episode = findDirectEpisodeMatch(files.get(i).get("fileName"), index);
+      if (episode != null && matchedEpisodeKeys.add(episodeKey(episode))) {
+        matches[i] = new EpisodeMatch(episode, DIRECT_MATCH_SCORE);
+        highConfidence[i] = true;
+      }
+    }
+
+    // 第二步：其余文件并行计算候选剧集得分
+    List<Integer> pending =
+        IntStream.range(0, files.size()).filter(i -> matches[i] == null).boxed().toList();
+    Set<String> directKeys = Set.copyOf(matchedEpisodeKeys);
+    List<List<EpisodeMatch>> candidates =
+        pending.parallelStream()
+            .map(i -> rankEpisodeCandidates(files.get(i).get("fileName"), allEpisodes, directKeys))
+            .toList();
+
+    // 第三步：按文件顺序认领，先高置信度后低置信度
+    for (int p = 0; p < pending.size(); p++) {
+      int i = pending.get(p);
+      matches[i] = claimBestCandidate(candidates.get(p), matchedEpisodeKeys, HIGH_CONFIDENCE_SCORE);
+      highConfidence[i] = matches[i] != null;
+    }
+    for (int p = 0; p < pending.size(); p++) {
+      int i = pending.get(p);
+      if (matches[i] == null) {
+        matches[i] = claimBestCandidate(candidates.get(p), matchedEpisodeKeys, LOW_CONFIDENCE_SCORE);
+      }
+    }
+    log.info(
+        "剧集匹配完成 - 文件数: {}, 直接匹配: {}, 评分匹配: {}",
+        files.size(),
+        files.size() - pending.size(),
+        pending.size());
+
+    List<Map<String, Object>> results = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      if (!highConfidence[i]) {
+        continue;
+      }
+      Map<String, String> file = files.get(i);
+      Map<String, Object> result = newEpisodeResult(file);
       try {
-        EpisodeMatch bestMatch = findBestEpisodeMatch(fileName, allEpisodes, matchedEpisodeKeys, 70.0);
-        
-        if (bestMatch != null && bestMatch.episode != null) {
-          String episodeKey = bestMatch.episode.getSeasonNumber() + "_" + bestMatch.episode.getEpisodeNumber();
-          matchedEpisodeKeys.add(episodeKey);
-          
-          Integer season = bestMatch.episode.getSeasonNumber() != null ? bestMatch.episode.getSeasonNumber() : 1;
-          Integer episode = bestMatch.episode.getEpisodeNumber();
-          
-          log.info("高置信度匹配成功: {} -> S{}E{} (得分: {})", fileName, season, episode, bestMatch.score);
-          
-          MediaInfo mediaInfo = new MediaInfo();
-          mediaInfo.setSeason(season);
-          mediaInfo.setEpisode(episode);
-          
-          String newFileName = generateTvShowFileName(tvDetail, mediaInfo, fileName);
-          
-          result.put("matched", true);
-          result.put("tmdbId", tvDetail.getId());
-          result.put("title", tvDetail.getName());
-          result.put("originalTitle", tvDetail.getOriginalName());
-          result.put("year", tvDetail.getFirstAirDate() != null && tvDetail.getFirstAirDate().length() >= 4
-              ? tvDetail.getFirstAirDate().substring(0, 4)
-              : null);
-          result.put("overview", tvDetail.getOverview());
-          result.put("posterPath", tvDetail.getPosterPath());
-          result.put("posterUrl", tmdbApiService.buildPosterUrl(tvDetail.getPosterPath()));
-          result.put("backdropPath", tvDetail.getBackdropPath());
-          result.put("backdropUrl", tmdbApiService.buildBackdropUrl(tvDetail.getBackdropPath()));
-          result.put("voteAverage", tvDetail.getVoteAverage());
-          result.put("season", season);
-          result.put("episode", episode);
-          result.put("newFileName", newFileName);
-          result.put("searchResults", searchResponse.getResults());
-          result.put("apply", true);
-          result.put("matchScore", bestMatch.score);
-          
-          results.add(result);
-        } else {
-          unmatchedResults.add(result);
-        }
-        
+        TmdbSeasonDetail.Episode matched = matches[i].episode;
+        Integer season = matched.getSeasonNumber() != null ? matched.getSeasonNumber() : 1;
+        Integer episode = matched.getEpisodeNumber();
+        log.info("高置信度匹配成功: {} -> S{}E{} (得分: {})", file.get("fileName"), season, episode, matches[i].score);
+        fillEpisodeResult(result, tvDetail, searchResponse, season, episode, matches[i].score);
       } catch (Exception e) {
-        log.error("第一轮匹配失败: {}", fileName, e);
+        log.error("第一轮匹配失败: {}", file.get("fileName"), e);
         result.put("matched", false);
         result.put("error", e.getMessage());
-        unmatchedResults.add(result);
       }
+      results.add(result);
     }
-    
+
     int episodeCounter = 1;
-    for (Map<String, Object> result : unmatchedResults) {
-      String fileName = (String) result.get("fileName");
-      String filePath = (String) result.get("path");
-      
-      log.info("第二轮匹配（低置信度/提取）: {}", fileName);
-      
+    for (int i = 0; i < files.size(); i++) {
+      if (highConfidence[i]) {
+        continue;
+      }
+      Map<String, String> file = files.get(i);
+      String fileName = file.get("fileName");
+      Map<String, Object> result = newEpisodeResult(file);
       try {
-        EpisodeMatch bestMatch = findBestEpisodeMatch(fileName, allEpisodes, matchedEpisodeKeys, 40.0);
-        
         Integer season = 1;
         Integer episode = null;
         Double matchScore = null;
-        
-        if (bestMatch != null && bestMatch.episode != null) {
-          String episodeKey = bestMatch.episode.getSeasonNumber() + "_" + bestMatch.episode.getEpisodeNumber();
-          matchedEpisodeKeys.add(episodeKey);
-          
-          season = bestMatch.episode.getSeasonNumber() != null ? bestMatch.episode.getSeasonNumber() : 1;
-          episode = bestMatch.episode.getEpisodeNumber();
-          matchScore = bestMatch.score;
-          
+
+        if (matches[i] != null) {
+          TmdbSeasonDetail.Episode matched = matches[i].episode;
+          season = matched.getSeasonNumber() != null ? matched.getSeasonNumber() : 1;
+          episode = matched.getEpisodeNumber();
+          matchScore = matches[i].score;
           log.info("低置信度匹配成功: {} -> S{}E{} (得分: {})", fileName, season, episode, matchScore);
         } else {
           Map<String, Integer> extracted = extractSeasonAndEpisodeFromFileName(fileName);
@@ -491,87 +542,147 @@ public class FileRenamingService {
             log.info("无法提取，自动分配: {} -> S{}E{}", fileName, season, episode);
           }
         }
-        
-        MediaInfo mediaInfo = new MediaInfo();
-        mediaInfo.setSeason(season);
-        mediaInfo.setEpisode(episode);
-        
-        String newFileName = generateTvShowFileName(tvDetail, mediaInfo, fileName);
-        
-        result.put("matched", true);
-        result.put("tmdbId", tvDetail.getId());
-        result.put("title", tvDetail.getName());
-        result.put("originalTitle", tvDetail.getOriginalName());
-        result.put("year", tvDetail.getFirstAirDate() != null && tvDetail.getFirstAirDate().length() >= 4
-            ? tvDetail.getFirstAirDate().substring(0, 4)
-            : null);
-        result.put("overview", tvDetail.getOverview());
-        result.put("posterPath", tvDetail.getPosterPath());
-        result.put("posterUrl", tmdbApiService.buildPosterUrl(tvDetail.getPosterPath()));
-        result.put("backdropPath", tvDetail.getBackdropPath());
-        result.put("backdropUrl", tmdbApiService.buildBackdropUrl(tvDetail.getBackdropPath()));
-        result.put("voteAverage", tvDetail.getVoteAverage());
-        result.put("season", season);
-        result.put("episode", episode);
-        result.put("newFileName", newFileName);
-        result.put("searchResults", searchResponse.getResults());
-        result.put("apply", true);
-        if (matchScore != null) {
-          result.put("matchScore", matchScore);
-        }
-        
+
+        fillEpisodeResult(result, tvDetail, searchResponse, season, episode, matchScore);
         episodeCounter++;
-        
+
       } catch (Exception e) {
         log.error("第二轮匹配失败: {}", fileName, e);
         result.put("matched", false);
         result.put("error", e.getMessage());
       }
-      
       results.add(result);
     }
-    
+
     return results;
   }
-  
-  private EpisodeMatch findBestEpisodeMatch(
-      String fileName,
-      List<TmdbSeasonDetail.Episode> allEpisodes,
-      Set<String> matchedEpisodeKeys,
-      double minScore) {
-    
-    if (allEpisodes == null || allEpisodes.isEmpty()) {
-      return null;
+
+  private Map<String, Object> newEpisodeResult(Map<String, String> file) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("fileName", file.get("fileName"));
+    result.put("type", "tv");
+    result.put("path", file.get("path"));
+    return result;
+  }
+
+  private void fillEpisodeResult(
+      Map<String, Object> result,
+      TmdbTvDetail tvDetail,
+      TmdbSearchResponse searchResponse,
+      Integer season,
+      Integer episode,
+      Double matchScore) {
+    MediaInfo mediaInfo = new MediaInfo();
+    mediaInfo.setSeason(season);
+    mediaInfo.setEpisode(episode);
+
+    String newFileName = generateTvShowFileName(tvDetail, mediaInfo, (String) result.get("fileName"));
+
+    result.put("matched", true);
+    result.put("tmdbId", tvDetail.getId());
+    result.put("title", tvDetail.getName());
+    result.put("originalTitle", tvDetail.getOriginalName());
+    result.put("year", tvDetail.getFirstAirDate() != null && tvDetail.getFirstAirDate().length() >= 4
+        ? tvDetail.getFirstAirDate().substring(0, 4)
+        : null);
+    result.put("overview", tvDetail.getOverview());
+    result.put("posterPath", tvDetail.getPosterPath());
+    result.put("posterUrl", tmdbApiService.buildPosterUrl(tvDetail.getPosterPath()));
+    result.put("backdropPath", tvDetail.getBackdropPath());
+    result.put("backdropUrl", tmdbApiService.buildBackdropUrl(tvDetail.getBackdropPath()));
+    result.put("voteAverage", tvDetail.getVoteAverage());
+    result.put("season", season);
+    result.put("episode", episode);
+    result.put("newFileName", newFileName);
+    result.put("searchResults", searchResponse.getResults());
+    result.put("apply", true);
+    if (matchScore != null) {
+      result.put("matchScore", matchScore);
     }
-    
+  }
+
+  /** 通过文件名中的 SxxEyy 或播出日期直接查找剧集，日期对应多集时视为不明确 */
+  private TmdbSeasonDetail.Episode findDirectEpisodeMatch(String fileName, EpisodeIndex index) {
+    Matcher matcher = SEASON_EPISODE_PATTERN.matcher(removeFileExtension(fileName));
+    if (matcher.find()) {
+      try {
+        TmdbSeasonDetail.Episode episode =
+            index.byNumber.get(
+                Integer.parseInt(matcher.group(1)) + "_" + Integer.parseInt(matcher.group(2)));
+        if (episode != null) {
+          return episode;
+        }
+      } catch (NumberFormatException e) {
+        log.debug("季号集号超出范围: {}", fileName);
+      }
+    }
+
+    String fileDate = extractDateFromFileName(fileName);
+    if (fileDate != null) {
+      List<TmdbSeasonDetail.Episode> sameDay = index.byAirDate.get(fileDate);
+      if (sameDay != null && sameDay.size() == 1) {
+        return sameDay.get(0);
+      }
+    }
+    return null;
+  }
+
+  /** 计算文件与所有未直接匹配剧集的得分，返回不低于低置信度阈值的候选，按得分从高到低、同分按剧集顺序排列 */
+  private List<EpisodeMatch> rankEpisodeCandidates(
+      String fileName, List<TmdbSeasonDetail.Episode> allEpisodes, Set<String> excludedKeys) {
     String nameWithoutExt = removeFileExtension(fileName);
     String fileDate = extractDateFromFileName(fileName);
-    
-    TmdbSeasonDetail.Episode bestEpisode = null;
-    double bestScore = 0;
-    
+
+    List<EpisodeMatch> candidates = new ArrayList<>();
     for (TmdbSeasonDetail.Episode episode : allEpisodes) {
-      String episodeKey = episode.getSeasonNumber() + "_" + episode.getEpisodeNumber();
-      
-      if (matchedEpisodeKeys.contains(episodeKey)) {
+      if (excludedKeys.contains(episodeKey(episode))) {
         continue;
       }
-      
       double score = calculateMatchScore(nameWithoutExt, fileDate, episode);
-      
-      if (score > bestScore) {
-        bestScore = score;
-        bestEpisode = episode;
+      if (score >= LOW_CONFIDENCE_SCORE) {
+        candidates.add(new EpisodeMatch(episode, score));
       }
     }
-    
-    if (bestEpisode != null && bestScore >= minScore) {
-      return new EpisodeMatch(bestEpisode, bestScore);
+    // 稳定排序，同分时保持剧集原有顺序
+    candidates.sort(Comparator.comparingDouble((EpisodeMatch match) -> match.score).reversed());
+    return candidates;
+  }
+
+  /** 认领得分最高且未被占用的候选剧集 */
+  private EpisodeMatch claimBestCandidate(
+      List<EpisodeMatch> candidates, Set<String> matchedEpisodeKeys, double minScore) {
+    for (EpisodeMatch candidate : candidates) {
+      if (candidate.score < minScore) {
+        return null;
+      }
+      if (matchedEpisodeKeys.add(episodeKey(candidate.episode))) {
+        return candidate;
+      }
     }
-    
     return null;
   }
-  
+
+  private static String episodeKey(TmdbSeasonDetail.Episode episode) {
+    return episode.getSeasonNumber() + "_" + episode.getEpisodeNumber();
+  }
+
+  /** 剧集索引：按季号+集号和播出日期查找 */
+  private static class EpisodeIndex {
+    final Map<String, TmdbSeasonDetail.Episode> byNumber = new HashMap<>();
+    final Map<String, List<TmdbSeasonDetail.Episode>> byAirDate = new HashMap<>();
+
+    EpisodeIndex(List<TmdbSeasonDetail.Episode> episodes) {
+      for (TmdbSeasonDetail.Episode episode : episodes) {
+        if (episode.getSeasonNumber() != null && episode.getEpisodeNumber() != null) {
+          byNumber.putIfAbsent(episodeKey(episode), episode);
+        }
+        if (episode.getAirDate() != null && !episode.getAirDate().isEmpty()) {
+          byAirDate.computeIfAbsent(episode.getAirDate(), key -> new ArrayList<>()).add(episode);
+        }
+      }
+    }
+  }
+
   private static class EpisodeMatch {
     TmdbSeasonDetail.Episode episode;
     double score;
@@ -672,14 +783,18 @@ public class FileRenamingService {
     try {
       String query = searchTitle != null ? searchTitle : mediaInfo.getSearchQuery();
       String yearStr = searchYear != null ? String.valueOf(searchYear) : mediaInfo.getYear();
-      
-      TmdbSearchResponse searchResponse = tmdbApiService.searchMovies(query, yearStr);
+      String searchQuery = query;
+      String searchYearStr = yearStr;
+
+      TmdbSearchResponse searchResponse = tmdbIdIndexService.searchMovies(query, yearStr);
 
       if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
         log.info("使用完整搜索查询未找到结果，尝试简化搜索: {}", fileName);
         String simpleQuery = extractSimpleTitle(query);
         if (!simpleQuery.equals(query)) {
-          searchResponse = tmdbApiService.searchMovies(simpleQuery, null);
+          searchQuery = simpleQuery;
+          searchYearStr = null;
+          searchResponse = tmdbIdIndexService.searchMovies(simpleQuery, null);
         }
       }
 
@@ -689,11 +804,17 @@ public class FileRenamingService {
         return result;
       }
 
-      TmdbSearchResponse.TmdbSearchResult bestMatch = selectBestMovieMatch(searchResponse.getResults(), mediaInfo);
-
+      TmdbSearchResponse.TmdbSearchResult bestMatch =
+          selectBestMatch(
+              NegativeMatchCacheService.KIND_MOVIE,
+              searchResponse.getResults(),
+              searchQuery,
+              searchYearStr,
+              yearStr);
       if (bestMatch == null) {
-        bestMatch = searchResponse.getResults().get(0);
-        log.info("使用默认匹配结果: {}", bestMatch.getTitle());
+        result.put("error", "未找到置信度足够的匹配电影");
+        result.put("matched", false);
+        return result;
       }
 
       TmdbMovieDetail movieDetail = tmdbApiService.getMovieDetail(bestMatch.getId());
@@ -739,16 +860,16 @@ public class FileRenamingService {
 
     try {
       if ("movie".equals(type)) {
-        TmdbSearchResponse searchResponse = tmdbApiService.searchMovies(query, year);
+        TmdbSearchResponse searchResponse = tmdbApiService.searchMovies(query, year, true);
         result.put("type", "movie");
         result.put("results", searchResponse.getResults());
       } else if ("tv".equals(type)) {
-        TmdbSearchResponse searchResponse = tmdbApiService.searchTvShows(query, year);
+        TmdbSearchResponse searchResponse = tmdbApiService.searchTvShows(query, year, true);
         result.put("type", "tv");
         result.put("results", searchResponse.getResults());
       } else {
-        TmdbSearchResponse movieResponse = tmdbApiService.searchMovies(query, year);
-        TmdbSearchResponse tvResponse = tmdbApiService.searchTvShows(query, year);
+        TmdbSearchResponse movieResponse = tmdbApiService.searchMovies(query, year, true);
+        TmdbSearchResponse tvResponse = tmdbApiService.searchTvShows(query, year, true);
         result.put("type", "all");
         result.put("movieResults", movieResponse.getResults());
         result.put("tvResults", tvResponse.getResults());
@@ -853,52 +974,103 @@ public class FileRenamingService {
     }
   }
 
-  private TmdbSearchResponse.TmdbSearchResult selectBestMovieMatch(
-      List<TmdbSearchResponse.TmdbSearchResult> results, MediaInfo mediaInfo) {
-    if (results == null || results.isEmpty()) {
-      return null;
+  /**
+   * 选出得分最高且达到最低得分的搜索结果，同分时保留TMDB的排序；
+   * 没有可信结果时记录为未匹配，有结果时清除该查询的未匹配记录
+   *
+   * @param kind        未匹配缓存类型
+   * @param results     搜索结果
+   * @param searchQuery 实际使用的搜索词
+   * @param searchYear  实际使用的搜索年份
+   * @param year        文件的年份，用于评分
+   * @return 最佳匹配，没有可信结果时返回null
+   */
+  private TmdbSearchResponse.TmdbSearchResult selectBestMatch(
+      String kind,
+      List<TmdbSearchResponse.TmdbSearchResult> results,
+      String searchQuery,
+      String searchYear,
+      String year) {
+    List<TmdbSearchResponse.TmdbSearchResult> confidentResults =
+        filterConfidentMatches(results, searchQuery, year);
+    TmdbSearchResponse.TmdbSearchResult bestMatch = null;
+    double bestScore = 0;
+    for (TmdbSearchResponse.TmdbSearchResult result : confidentResults) {
+      double score = searchMatchScore(result, searchQuery, year);
+      if (bestMatch == null || score > bestScore) {
+        bestMatch = result;
+        bestScore = score;
+      }
     }
 
-    if (results.size() == 1) {
-      return results.get(0);
+    if (bestMatch == null) {
+      log.info("'{}' 的 {} 个搜索结果置信度均过低，记录为未匹配", searchQuery, results.size());
+      negativeMatchCacheService.recordMiss(kind, searchQuery, searchYear);
+      return null;
     }
+    negativeMatchCacheService.recordHit(kind, searchQuery, searchYear);
+    return bestMatch;
+  }
 
-    if (mediaInfo.isHasYear() && mediaInfo.getYear() != null) {
-      for (TmdbSearchResponse.TmdbSearchResult result : results) {
-        if (mediaInfo.getYear().equals(result.getReleaseYear())) {
-          return result;
-        }
+  /** 保留达到最低匹配得分的搜索结果，保持原有顺序 */
+  private List<TmdbSearchResponse.TmdbSearchResult> filterConfidentMatches(
+      List<TmdbSearchResponse.TmdbSearchResult> results, String query, String year) {
+    List<TmdbSearchResponse.TmdbSearchResult> confidentResults = new ArrayList<>();
+    for (TmdbSearchResponse.TmdbSearchResult result : results) {
+      if (searchMatchScore(result, query, year) >= MIN_SEARCH_MATCH_SCORE) {
+        confidentResults.add(result);
       }
     }
-
-    return results.stream()
-        .filter(r -> r.getVoteAverage() != null)
-        .max((r1, r2) -> Double.compare(r1.getVoteAverage(), r2.getVoteAverage()))
-        .orElse(results.get(0));
+    return confidentResults;
   }
 
-  private TmdbSearchResponse.TmdbSearchResult selectBestTvMatch(
-      List<TmdbSearchResponse.TmdbSearchResult> results, MediaInfo mediaInfo) {
-    if (results == null || results.isEmpty()) {
-      return null;
-    }
-
-    if (results.size() == 1) {
-      return results.get(0);
+  /**
+   * 计算搜索结果的匹配得分：任一标题与搜索词一致得60分、互相包含得40分；
+   * 已知年份时年份一致再加40分、相差一年加20分
+   */
+  private double searchMatchScore(
+      TmdbSearchResponse.TmdbSearchResult result, String query, String year) {
+    String normalizedQuery = normalizeTitle(query);
+    double score = 0;
+    if (!normalizedQuery.isEmpty()) {
+      for (String title :
+          new String[] {
+            result.getTitle(), result.getName(), result.getOriginalTitle(), result.getOriginalName()
+          }) {
+        String normalizedTitle = normalizeTitle(title);
+        if (normalizedTitle.isEmpty()) {
+          continue;
+        }
+        if (normalizedTitle.equals(normalizedQuery)) {
+          score = Math.max(score, 60);
+        } else if (normalizedTitle.contains(normalizedQuery)
+            || normalizedQuery.contains(normalizedTitle)) {
+          score = Math.max(score, 40);
+        }
+      }
     }
 
-    if (mediaInfo.isHasYear() && mediaInfo.getYear() != null) {
-      for (TmdbSearchResponse.TmdbSearchResult result : results) {
-        if (mediaInfo.getYear().equals(result.getReleaseYear())) {
-          return result;
+    String releaseYear = result.getReleaseYear();
+    if (year != null && !year.trim().isEmpty() && releaseYear != null) {
+      try {
+        int diff = Math.abs(Integer.parseInt(year.trim()) - Integer.parseInt(releaseYear));
+        if (diff == 0) {
+          score += 40;
+        } else if (diff == 1) {
+          score += 20;
         }
+      } catch (NumberFormatException e) {
+        log.debug("无法比较年份: {} / {}", year, releaseYear);
       }
     }
+    return score;
+  }
 
-    return results.stream()
-        .filter(r -> r.getVoteAverage() != null)
-        .max((r1, r2) -> Double.compare(r1.getVoteAverage(), r2.getVoteAverage()))
-        .orElse(results.get(0));
+  private static String normalizeTitle(String title) {
+    if (title == null) {
+      return "";
+    }
+    return TITLE_NOISE.matcher(title.toLowerCase(Locale.ROOT)).replaceAll("");
   }
 
   private String getFileExtension(String fileName) {
@@ -918,9 +1090,7 @@ public class FileRenamingService {
   }
 
   private String extractDateFromFileName(String fileName) {
-    java.util.regex.Pattern datePattern = java.util.regex.Pattern.compile(
-        "(\\d{4})[-_.年](\\d{1,2})[-_.月](\\d{1,2})");
-    java.util.regex.Matcher matcher = datePattern.matcher(fileName);
+    Matcher matcher = DATE_PATTERN.matcher(fileName);
     if (matcher.find()) {
       return String.format("%s-%02d-%02d", 
           matcher.group(1), 
@@ -1074,29 +1244,32 @@ public class FileRenamingService {
     return Math.min(score, 100);
   }
 
-  private List<TmdbSeasonDetail.Episode> getAllEpisodes(TmdbTvDetail tvDetail) {
-    List<TmdbSeasonDetail.Episode> allEpisodes = new ArrayList<>();
-    
-    if (tvDetail.getSeasons() == null) {
-      return allEpisodes;
-    }
-
-    for (TmdbTvDetail.Season season : tvDetail.getSeasons()) {
-      if (season.getSeasonNumber() != null) {
-        try {
-          TmdbSeasonDetail seasonDetail = 
-              tmdbApiService.getSeasonDetail(tvDetail.getId(), season.getSeasonNumber());
-          
-          if (seasonDetail.getEpisodes() != null) {
-            allEpisodes.addAll(seasonDetail.getEpisodes());
+  /** 并发获取所有季的详情，已缓存的季不再请求，整体失败时所有季记为失败 */
+  private TmdbSeasonFetchResult fetchAllSeasons(TmdbTvDetail tvDetail) {
+    try {
+      return tmdbApiService.fetchSeasonDetails(tvDetail);
+    } catch (Exception e) {
+      log.warn("获取季详情失败: TV ID={}", tvDetail.getId(), e);
+      TmdbSeasonFetchResult result = new TmdbSeasonFetchResult();
+      if (tvDetail.getSeasons() != null) {
+        for (TmdbTvDetail.Season season : tvDetail.getSeasons()) {
+          if (season.getSeasonNumber() != null) {
+            result.getFailures().put(season.getSeasonNumber(), e.getMessage());
           }
-        } catch (Exception e) {
-          log.warn("获取季详情失败: TV ID={}, Season={}", 
-              tvDetail.getId(), season.getSeasonNumber(), e);
         }
       }
+      return result;
     }
+  }
 
+  /** 按季顺序合并所有剧集 */
+  private List<TmdbSeasonDetail.Episode> getAllEpisodes(TmdbSeasonFetchResult seasonResult) {
+    List<TmdbSeasonDetail.Episode> allEpisodes = new ArrayList<>();
+    for (TmdbSeasonDetail seasonDetail : seasonResult.getSeasons().values()) {
+      if (seasonDetail.getEpisodes() != null) {
+        allEpisodes.addAll(seasonDetail.getEpisodes());
+      }
+    }
     return allEpisodes;
   }
 
@@ -1112,14 +1285,18 @@ public class FileRenamingService {
     try {
       String query = searchTitle != null ? searchTitle : mediaInfo.getSearchQuery();
       String yearStr = mediaInfo.getYear();
-      
-      TmdbSearchResponse searchResponse = tmdbApiService.searchTvShows(query, yearStr);
+      String searchQuery = query;
+      String searchYearStr = yearStr;
+
+      TmdbSearchResponse searchResponse = tmdbIdIndexService.searchTvShows(query, yearStr);
 
       if (searchResponse.getResults() == null || searchResponse.getResults().isEmpty()) {
         log.info("使用完整搜索查询未找到结果，尝试简化搜索: {}", fileName);
         String simpleQuery = extractSimpleTitle(query);
         if (!simpleQuery.equals(query)) {
-          searchResponse = tmdbApiService.searchTvShows(simpleQuery, null);
+          searchQuery = simpleQuery;
+          searchYearStr = null;
+          searchResponse = tmdbIdIndexService.searchTvShows(simpleQuery, null);
         }
       }
 
@@ -1141,12 +1318,24 @@ public class FileRenamingService {
         log.info("自动分配集数: {} -> E{}", fileName, episodeCounter);
       }
 
-      TmdbSearchResponse.TmdbSearchResult bestMatch = selectBestTvMatchEnhanced(
-          searchResponse.getResults(), mediaInfo, fileName, fileDate);
+      // 只在达到最低匹配得分的结果中评分，没有可信结果时记录为未匹配
+      List<TmdbSearchResponse.TmdbSearchResult> confidentResults =
+          filterConfidentMatches(searchResponse.getResults(), searchQuery, yearStr);
+      if (confidentResults.isEmpty()) {
+        log.info("电视剧 '{}' 的搜索结果置信度均过低，记录为未匹配", searchQuery);
+        negativeMatchCacheService.recordMiss(
+            NegativeMatchCacheService.KIND_TV, searchQuery, searchYearStr);
+        result.put("error", "未找到置信度足够的匹配电视剧");
+        result.put("matched", false);
+        return result;
+      }
+      negativeMatchCacheService.recordHit(
+          NegativeMatchCacheService.KIND_TV, searchQuery, searchYearStr);
 
+      TmdbSearchResponse.TmdbSearchResult bestMatch =
+          selectBestTvMatchEnhanced(confidentResults, mediaInfo, fileName, fileDate);
       if (bestMatch == null) {
-        bestMatch = searchResponse.getResults().get(0);
-        log.info("使用默认匹配结果: {}", bestMatch.getName());
+        bestMatch = confidentResults.get(0);
       }
 
       TmdbTvDetail tvDetail = tmdbApiService.getTvDetail(bestMatch.getId());
@@ -0,0 +1,470 @@
+package com.hienao.openlist2strm.service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 文件写入服务
+ *
+ * <p>STRM、NFO和图片文件统一通过临时文件+原子重命名写入，避免中断后留下不完整的文件。
+ * 已确认存在的目录缓存在每次执行的变更记录上，减少NAS上的元数据请求，并发执行的任务互不影响；
+ * 支持按目录批量写入和可配置的落盘策略
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileWriteService {
+
+  /** 临时文件后缀 */
+  public static final String TEMP_SUFFIX = ".tmp";
+
+  /** 流式写入时单次传输的字节数 */
+  private static final long TRANSFER_CHUNK_BYTES = 1024L * 1024;
+
+  private final SystemConfigService systemConfigService;
+  private final Executor fileWriteExecutor;
+
+  /** 落盘策略快照，开始新的执行时刷新 */
+  private volatile FsyncPolicy fsyncPolicy;
+
+  /** 正在记录变更的目录树 */
+  private final List<ChangeSet> changeSets = new CopyOnWriteArrayList<>();
+
+  /** 落盘策略 */
+  public enum FsyncPolicy {
+    /** 不强制落盘，由操作系统决定 */
+    NONE,
+    /** 重命名前同步文件内容 */
+    FILE,
+    /** 同步文件内容并在重命名后同步目录 */
+    FULL
+  }
+
+  /** 待写入的文件 */
+  @Getter
+  @AllArgsConstructor
+  public static class PendingWrite {
+    private final Path path;
+    private final byte[] content;
+
+    public static PendingWrite of(Path path, String content) {
+      return new PendingWrite(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  /** 一次执行期间在某个目录树下发生变更的目录及已确认存在的目录，关闭后停止记录 */
+  public class ChangeSet implements AutoCloseable {
+    private final Path root;
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+    private final Set<Path> knownDirectories = ConcurrentHashMap.newKeySet();
+
+    private ChangeSet(Path root) {
+      this.root = root;
+    }
+
+    /** 变更过的目录（写入或删除了文件的目录） */
+    public Set<Path> getDirectories() {
+      return Set.copyOf(directories);
+    }
+
+    @Override
+    public void close() {
+      changeSets.remove(this);
+    }
+  }
+
+  /** 向临时文件写入内容，返回写入的字节数 */
+  @FunctionalInterface
+  private interface ContentWriter {
+    long writeTo(FileChannel channel) throws IOException;
+  }
+
+  /** 向输出流写入内容（由调用方生成，例如流式XML） */
+  @FunctionalInterface
+  public interface StreamContent {
+    void writeTo(OutputStream out) throws IOException;
+  }
+
+  /**
+   * 目录被删除后移除对应的缓存
+   *
+   * @param root 被删除或清空的目录
+   */
+  public void forgetDirectories(Path root) {
+    Path normalizedRoot = root.toAbsolutePath().normalize();
+    for (ChangeSet changeSet : changeSets) {
+      changeSet.knownDirectories.removeIf(dir -> dir.startsWith(normalizedRoot));
+    }
+  }
+
+  /**
+   * 确保目录存在，位于执行中目录树下且已确认存在的目录不再访问文件系统
+   *
+   * @param directory 目录
+   * @throws IOException 创建失败
+   */
+  public void ensureDirectory(Path directory) throws IOException {
+    if (directory == null) {
+      return;
+    }
+    Path normalized = directory.toAbsolutePath().normalize();
+    List<ChangeSet> covering = new ArrayList<>(1);
+    for (ChangeSet changeSet : changeSets) {
+      if (normalized.startsWith(changeSet.root)) {
+        if (changeSet.knownDirectories.contains(normalized)) {
+          return;
+        }
+        covering.add(changeSet);
+      }
+    }
+    Files.createDirectories(normalized);
+    for (ChangeSet changeSet : covering) {
+      changeSet.knownDirectories.add(normalized);
+    }
+  }
+
+  /**
+   * 原子写入文本文件（UTF-8）
+   *
+   * @param path    目标文件
+   * @param content 文件内容
+   * @throws IOException 写入失败
+   */
+  public void writeString(Path path, String content) throws IOException {
+    write(path, content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * 开始一次执行：重新读取落盘策略，并记录目录树下的文件变更。通过本服务写入的文件会自动记录，
+   * 其他方式的写入和删除需调用 {@link #recordChange}。目录缓存随变更记录关闭而释放
+   *
+   * @param root 目录树根目录
+   * @return 变更记录，执行结束后关闭
+   */
+  public ChangeSet trackChanges(Path root) {
+    fsyncPolicy = loadFsyncPolicy();
+    ChangeSet changeSet = new ChangeSet(root.toAbsolutePath().normalize());
+    changeSets.add(changeSet);
+    return changeSet;
+  }
+
+  /**
+   * 记录文件或目录发生了变更（写入、删除），其所在目录计入包含它的变更记录
+   *
+   * @param path 变更的文件或目录
+   */
+  public void recordChange(Path path) {
+    if (changeSets.isEmpty() || path == null) {
+      return;
+    }
+    Path directory = path.toAbsolutePath().normalize().getParent();
+    if (directory == null) {
+      return;
+    }
+    for (ChangeSet changeSet : changeSets) {
+      if (directory.startsWith(changeSet.root)) {
+        changeSet.directories.add(directory);
+      }
+    }
+  }
+
+  /**
+   * 原子写入文件：先写入同目录下的临时文件，再重命名覆盖目标文件
+   *
+   * @param path    目标文件
+   * @param content 文件内容
+   * @throws IOException 写入失败
+   */
+  public void write(Path path, byte[] content) throws IOException {
+    FsyncPolicy policy = getFsyncPolicy();
+    ensureDirectory(path.getParent());
+    try {
+      writeAtomically(path, content, policy);
+    } catch (NoSuchFileException e) {
+      // 目录在执行期间被外部删除，重新创建后重试一次
+      forgetDirectories(path.getParent());
+      ensureDirectory(path.getParent());
+      writeAtomically(path, content, policy);
+    }
+  }
+
+  /**
+   * 流式原子写入：输入流直接写入临时文件，不在内存中缓存完整内容。内容为空时不创建目标文件
+   *
+   * @param path  目标文件
+   * @param input 输入流（由调用方关闭）
+   * @return 写入的字节数
+   * @throws IOException 写入失败
+   */
+  public long writeStream(Path path, InputStream input) throws IOException {
+    return writeStream(path, input, Long.MAX_VALUE);
+  }
+
+  /**
+   * 流式原子写入，超过大小上限时放弃写入。数据通过 {@link FileChannel#transferFrom} 直接写入临时文件
+   *
+   * @param path     目标文件
+   * @param input    输入流（由调用方关闭）
+   * @param maxBytes 大小上限
+   * @return 写入的字节数
+   * @throws IOException 写入失败或超过大小上限，目标文件保持不变
+   */
+  public long writeStream(Path path, InputStream input, long maxBytes) throws IOException {
+    ensureDirectory(path.getParent());
+    ReadableByteChannel source = Channels.newChannel(input);
+    return writeAtomically(
+        path,
+        channel -> {
+          long total = 0;
+          long transferred;
+          while ((transferred = channel.transferFrom(source, total, TRANSFER_CHUNK_BYTES)) > 0) {
+            total += transferred;
+            if (total > maxBytes) {
+              throw new IOException("文件超过大小上限: " + maxBytes + " bytes");
+            }
+          }
+          return total;
+        },
+        getFsyncPolicy(),
+        true);
+  }
+
+  /**
+   * 内容有变化时才替换目标文件：内容流式写入临时文件并同时计算摘要，与已有文件一致时直接丢弃临时文件
+   * （不做fsync），目标文件及其修改时间保持不变，避免媒体服务器重新读取；内容变化时才按同步策略落盘并原子替换
+   *
+   * @param path    目标文件
+   * @param content 文件内容
+   * @return 目标文件是否被写入
+   * @throws IOException 写入失败
+   */
+  public boolean writeIfChanged(Path path, StreamContent content) throws IOException {
+    FsyncPolicy policy = getFsyncPolicy();
+    ensureDirectory(path.getParent());
+    Path tempFile = tempFileFor(path);
+    try {
+      try (FileChannel channel =
+          FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        MessageDigest md = newDigest();
+        OutputStream out =
+            new DigestOutputStream(
+                new BufferedOutputStream(Channels.newOutputStream(channel)), md);
+        content.writeTo(out);
+        out.flush();
+        byte[] digest = md.digest();
+
+        // 先比较摘要，内容一致时不做fsync直接丢弃临时文件
+        if (Files.exists(path)
+            && Files.size(path) == channel.size()
+            && Arrays.equals(digest, digestOf(path))) {
+          channel.close();
+          Files.deleteIfExists(tempFile);
+          return false;
+        }
+
+        if (policy != FsyncPolicy.NONE) {
+          channel.force(true);
+        }
+      }
+
+      moveIntoPlace(tempFile, path);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+
+    if (policy == FsyncPolicy.FULL) {
+      syncDirectory(path.getParent());
+    }
+    recordChange(path);
+    return true;
+  }
+
+  /**
+   * 按目录分组后在I/O线程池中批量写入，同一目录的文件由同一线程顺序写入
+   *
+   * @param writes 待写入文件
+   * @return 全部写入结束后完成，结果为失败的文件数
+   */
+  public CompletableFuture<Integer> writeBatch(List<PendingWrite> writes) {
+    if (writes == null || writes.isEmpty()) {
+      return CompletableFuture.completedFuture(0);
+    }
+
+    Map<Path, List<PendingWrite>> byDirectory = new LinkedHashMap<>();
+    for (PendingWrite write : writes) {
+      byDirectory.computeIfAbsent(write.getPath().getParent(), key -> new ArrayList<>()).add(write);
+    }
+
+    List<CompletableFuture<Integer>> futures = new ArrayList<>(byDirectory.size());
+    for (List<PendingWrite> directoryWrites : byDirectory.values()) {
+      futures.add(
+          CompletableFuture.supplyAsync(() -> writeDirectory(directoryWrites), fileWriteExecutor));
+    }
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(ignored -> futures.stream().mapToInt(CompletableFuture::join).sum());
+  }
+
+  /** 顺序写入同一目录下的文件，返回失败数 */
+  private int writeDirectory(List<PendingWrite> writes) {
+    int failed = 0;
+    for (PendingWrite write : writes) {
+      try {
+        write(write.getPath(), write.getContent());
+        log.debug("写入文件: {}", write.getPath());
+      } catch (Exception e) {
+        failed++;
+        log.error("写入文件失败: {}, 错误: {}", write.getPath(), e.getMessage());
+      }
+    }
+    return failed;
+  }
+
+  private void writeAtomically(Path path, byte[] content, FsyncPolicy policy) throws IOException {
+    writeAtomically(
+        path,
+        channel -> {
+          ByteBuffer buffer = ByteBuffer.wrap(content);
+          while (buffer.hasRemaining()) {
+            channel.write(buffer);
+          }
+          return content.length;
+        },
+        policy,
+        false);
+  }
+
+  /** 写入临时文件后原子重命名，skipEmpty为true且内容为空时不创建目标文件 */
+  private long writeAtomically(
+      Path path, ContentWriter writer, FsyncPolicy policy, boolean skipEmpty) throws IOException {
+    Path tempFile = tempFileFor(path);
+    long size;
+    try {
+      try (FileChannel channel =
+          FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+        size = writer.writeTo(channel);
+        if (policy != FsyncPolicy.NONE) {
+          channel.force(true);
+        }
+      }
+
+      if (size == 0 && skipEmpty) {
+        Files.deleteIfExists(tempFile);
+        return 0;
+      }
+
+      moveIntoPlace(tempFile, path);
+    } catch (IOException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+
+    if (policy == FsyncPolicy.FULL) {
+      syncDirectory(path.getParent());
+    }
+    recordChange(path);
+    return size;
+  }
+
+  /** 同目录下的临时文件，随机后缀避免并发写入冲突 */
+  private Path tempFileFor(Path path) {
+    String suffix = "." + UUID.randomUUID().toString().substring(0, 8) + TEMP_SUFFIX;
+    return path.resolveSibling("." + path.getFileName() + suffix);
+  }
+
+  private void moveIntoPlace(Path tempFile, Path path) throws IOException {
+    try {
+      Files.move(
+          tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private byte[] digestOf(Path path) throws IOException {
+    MessageDigest md = newDigest();
+    try (InputStream in = new DigestInputStream(Files.newInputStream(path), md)) {
+      in.transferTo(OutputStream.nullOutputStream());
+    }
+    return md.digest();
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256算法不可用", e);
+    }
+  }
+
+  /** 同步目录元数据，部分平台不支持打开目录，忽略失败 */
+  private void syncDirectory(Path directory) {
+    if (directory == null) {
+      return;
+    }
+    try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      log.debug("同步目录失败: {}, 错误: {}", directory, e.getMessage());
+    }
+  }
+
+  private FsyncPolicy getFsyncPolicy() {
+    FsyncPolicy policy = fsyncPolicy;
+    if (policy == null) {
+      policy = loadFsyncPolicy();
+      fsyncPolicy = policy;
+    }
+    return policy;
+  }
+
+  private FsyncPolicy loadFsyncPolicy() {
+    try {
+      Object value = systemConfigService.getFileWriteConfig().get("fsyncPolicy");
+      if (value instanceof String text && !text.isBlank()) {
+        return FsyncPolicy.valueOf(text.trim().toUpperCase(Locale.ROOT));
+      }
+    } catch (Exception e) {
+      log.warn("读取落盘策略失败，使用默认策略: {}", e.getMessage());
+    }
+    return FsyncPolicy.NONE;
+  }
+}
@@ -4,19 +4,29 @@ import com.hienao.openlist2strm.dto.media.AiRecognitionResult;
 import com.hienao.openlist2strm.dto.media.MediaInfo;
 import com.hienao.openlist2strm.dto.tmdb.TmdbMovieDetail;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSearchResponse;
+import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail;
+import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonFetchResult;
 import com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail;
 import com.hienao.openlist2strm.entity.OpenlistConfig;
-import com.hienao.openlist2strm.util.MediaFileParser;
 import com.hienao.openlist2strm.util.TmdbIdExtractor;
-import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -32,13 +42,21 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class MediaScrapingService {
 
+  /** 季目录名称，例如 Season 1、S01、Specials、第一季 */
+  private static final Pattern SEASON_FOLDER_PATTERN =
+      Pattern.compile("(?i)^(season[ ._-]*\\d{1,4}|s\\d{1,4}|specials|第[0-9一二三四五六七八九十百零]+季)$");
+
   private final TmdbApiService tmdbApiService;
   private final NfoGeneratorService nfoGeneratorService;
   private final CoverImageService coverImageService;
+  private final ArtworkCacheService artworkCacheService;
   private final SystemConfigService systemConfigService;
   private final AiFileNameRecognitionService aiFileNameRecognitionService;
   private final OpenlistApiService openlistApiService;
   private final DataReportService dataReportService;
+  private final SidecarCopyService sidecarCopyService;
+  private final ScrapeStateService scrapeStateService;
+  private final ExecutorService scrapingExecutor;
 
   /**
    * 执行媒体刮削
@@ -49,7 +67,7 @@ public class MediaScrapingService {
    */
   public void scrapMedia(
       OpenlistConfig openlistConfig, String fileName, String strmDirectory, String relativePath) {
-    scrapMedia(openlistConfig, fileName, strmDirectory, relativePath, null, null);
+    scrapMedia(openlistConfig, fileName, strmDirectory, relativePath, null, null, null);
   }
 
   /**
@@ -60,6 +78,7 @@ public class MediaScrapingService {
    * @param relativePath   相对路径
    * @param directoryFiles 目录文件列表（可选，为null时不会调用API获取）
    * @param fullFilePath   完整的文件路径（用于上报）
+   * @param copyRun        本次执行的附属文件复制记录（可选，为null时不按目录去重）
    */
   public void scrapMedia(
       OpenlistConfig openlistConfig,
@@ -67,7 +86,8 @@ public class MediaScrapingService {
       String strmDirectory,
       String relativePath,
       List<OpenlistApiService.OpenlistFile> directoryFiles,
-      String fullFilePath) {
+      String fullFilePath,
+      SidecarCopyService.CopyRun copyRun) {
     try {
       log.info("开始处理媒体文件: {}", fileName);
 
@@ -78,24 +98,17 @@ public class MediaScrapingService {
       // 构建保存目录（在解析之前就需要知道保存位置）
       String saveDirectory = buildSaveDirectory(strmDirectory, relativePath);
 
-      // 处理字幕文件复制（在解析媒体之前执行）
-      // 处理字幕文件复制（在解析媒体之前执行）
-      if (keepSubtitleFiles) {
-        String[] subtitleExtensions = { ".srt", ".ass", ".vtt", ".ssa", ".sub", ".idx" };
-        copyRelatedFiles(openlistConfig, saveDirectory, directoryFiles, subtitleExtensions, "字幕文件");
-      }
-
-      // 复制已存在的刮削信息（NFO、图片）
-      if (useExistingScrapingInfo) {
-        boolean foundNfo = copyRelatedFiles(
-            openlistConfig, saveDirectory, directoryFiles, new String[]{".nfo"}, "NFO文件");
-        boolean foundImages = copyRelatedFiles(
-            openlistConfig, saveDirectory, directoryFiles, 
-            new String[]{".jpg", ".jpeg", ".png", ".webp", ".bmp", ".tiff"}, "刮削图片");
-            
-        if (foundNfo || foundImages) {
-          log.info("已复制现有刮削信息: {}", fileName);
-        }
+      // 复制字幕文件和已存在的刮削信息（NFO、图片），同一目录每次执行只处理一次
+      SidecarCopyService.CopyResult copyResult =
+          sidecarCopyService.copyDirectorySidecars(
+              copyRun,
+              openlistConfig,
+              saveDirectory,
+              directoryFiles,
+              keepSubtitleFiles,
+              useExistingScrapingInfo);
+      if (copyResult.firstPlan() && copyResult.copiedScrapingInfo()) {
+        log.info("已复制现有刮削信息: {}", fileName);
       }
 
       // 不进行TMDB刮削，已完成复制已存在刮削信息的处理
@@ -347,7 +360,7 @@ public class MediaScrapingService {
   /** 检查是否应该执行刮削 */
   public boolean shouldScrap(String fileName) {
     // 检查是否为视频文件
-    if (!MediaFileParser.isVideoFile(fileName)) {
+    if (!systemConfigService.getMediaExtensionMatcher().matches(fileName)) {
       return false;
     }
 
@@ -370,211 +383,13 @@ public class MediaScrapingService {
   }
 
   /**
-   * 检查文件是否已经被刮削过
-   *
-   * @param saveDirectory 保存目录
-   * @param baseFileName  基础文件名
-   * @param mediaInfo     媒体信息
-   * @return 是否已刮削
-   */
-  private boolean isAlreadyScraped(String saveDirectory, String baseFileName, MediaInfo mediaInfo) {
-    try {
-      Map<String, Object> scrapingConfig = systemConfigService.getScrapingConfig();
-      boolean generateNfo = (Boolean) scrapingConfig.getOrDefault("generateNfo", true);
-      boolean downloadPoster = (Boolean) scrapingConfig.getOrDefault("downloadPoster", true);
-      boolean downloadBackdrop = (Boolean) scrapingConfig.getOrDefault("downloadBackdrop", false);
-
-      // 确保保存目录存在
-      File saveDir = new File(saveDirectory);
-      if (!saveDir.exists()) {
-        log.debug("保存目录不存在，需要刮削: {}", saveDirectory);
-        return false;
-      }
-
-      // 检查单个文件的刮削文件
-      if (mediaInfo.isMovie()) {
-        return isMovieScraped(
-            saveDirectory, baseFileName, generateNfo, downloadPoster, downloadBackdrop);
-      } else if (mediaInfo.isTvShow()) {
-        return isTvShowEpisodeScraped(
-            saveDirectory, baseFileName, generateNfo, downloadPoster, downloadBackdrop);
-      }
-
-      return false;
-
-    } catch (Exception e) {
-      log.warn("检查刮削状态时出错，继续刮削: {}", baseFileName, e);
-      return false;
-    }
-  }
-
-  /** 检查电影是否已刮削 */
-  private boolean isMovieScraped(
-      String saveDirectory,
-      String baseFileName,
-      boolean generateNfo,
-      boolean downloadPoster,
-      boolean downloadBackdrop) {
-    // 检查 NFO 文件 - 如果目录中存在任何NFO文件就视为已刮削
-    if (generateNfo) {
-      File saveDir = new File(saveDirectory);
-      if (saveDir.exists() && saveDir.isDirectory()) {
-        File[] nfoFiles = saveDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".nfo"));
-        if (nfoFiles == null || nfoFiles.length == 0) {
-          log.debug("目录中没有NFO文件，需要刮削: {}", saveDirectory);
-          return false;
-        }
-        log.debug("目录中存在NFO文件，视为已刮削: {}", saveDirectory);
-      } else {
-        log.debug("保存目录不存在，需要刮削: {}", saveDirectory);
-        return false;
-      }
-    }
-
-    // 检查海报文件
-    if (downloadPoster) {
-      String posterPath = saveDirectory + "/" + baseFileName + "-poster.jpg";
-      if (!new File(posterPath).exists()) {
-        log.debug("电影海报文件不存在，需要刮削: {}", posterPath);
-        return false;
-      }
-    }
-
-    // 检查背景图文件
-    if (downloadBackdrop) {
-      String backdropPath = saveDirectory + "/" + baseFileName + "-fanart.jpg";
-      if (!new File(backdropPath).exists()) {
-        log.debug("电影背景图文件不存在，需要刮削: {}", backdropPath);
-        return false;
-      }
-    }
-
-    log.debug("电影所有刮削文件都已存在，跳过刮削: {}", baseFileName);
-    return true;
-  }
-
-  /** 检查电视剧集是否已刮削 */
-  private boolean isTvShowEpisodeScraped(
-      String saveDirectory,
-      String baseFileName,
-      boolean generateNfo,
-      boolean downloadPoster,
-      boolean downloadBackdrop) {
-    // 检查NFO文件 - 如果目录中存在任何NFO文件就视为已刮削
-    if (generateNfo) {
-      File saveDir = new File(saveDirectory);
-      if (saveDir.exists() && saveDir.isDirectory()) {
-        File[] nfoFiles = saveDir.listFiles((dir, name) -> name.toLowerCase().endsWith(".nfo"));
-        if (nfoFiles == null || nfoFiles.length == 0) {
-          log.debug("目录中没有NFO文件，需要刮削: {}", saveDirectory);
-          return false;
-        }
-        log.debug("目录中存在NFO文件，视为已刮削: {}", saveDirectory);
-      } else {
-        log.debug("保存目录不存在，需要刮削: {}", saveDirectory);
-        return false;
-      }
-    }
-
-    // 检查剧集海报文件
-    if (downloadPoster) {
-      String episodePosterPath = saveDirectory + "/" + baseFileName + "-thumb.jpg";
-      if (!new File(episodePosterPath).exists()) {
-        log.debug("剧集海报文件不存在，需要刮削: {}", episodePosterPath);
-        return false;
-      }
-    }
-
-    // 检查电视剧海报和背景图（在剧集目录的父目录或当前目录）
-    if (downloadPoster) {
-      String tvShowPosterPath = saveDirectory + "/poster.jpg";
-      if (!new File(tvShowPosterPath).exists()) {
-        log.debug("电视剧海报文件不存在，需要刮削: {}", tvShowPosterPath);
-        return false;
-      }
-    }
-
-    if (downloadBackdrop) {
-      String tvShowBackdropPath = saveDirectory + "/fanart.jpg";
-      if (!new File(tvShowBackdropPath).exists()) {
-        log.debug("电视剧背景图文件不存在，需要刮削: {}", tvShowBackdropPath);
-        return false;
-      }
-    }
-
-    log.debug("电视剧集所有刮削文件都已存在，跳过刮削: {}", baseFileName);
-    return true;
-  }
-
-  /**
-   * 检查目录是否已完全刮削 用于批量处理时的目录级别检查
+   * 检查目录是否已完全刮削 用于批量处理时的目录级别检查，结果由刮削状态索引按目录缓存
    *
    * @param directoryPath 目录路径
    * @return 是否已完全刮削
    */
   public boolean isDirectoryFullyScraped(String directoryPath) {
-    try {
-      File directory = new File(directoryPath);
-      if (!directory.exists() || !directory.isDirectory()) {
-        return false;
-      }
-
-      // 获取刮削正则配置
-      Map<String, Object> regexConfig = systemConfigService.getScrapingRegexConfig();
-      @SuppressWarnings("unchecked")
-      List<String> movieRegexps = (List<String>) regexConfig.getOrDefault("movieRegexps", Collections.emptyList());
-      @SuppressWarnings("unchecked")
-      List<String> tvDirRegexps = (List<String>) regexConfig.getOrDefault("tvDirRegexps", Collections.emptyList());
-      @SuppressWarnings("unchecked")
-      List<String> tvFileRegexps = (List<String>) regexConfig.getOrDefault("tvFileRegexps", Collections.emptyList());
-
-      File[] files = directory.listFiles();
-      if (files == null || files.length == 0) {
-        return false;
-      }
-
-      boolean hasVideoFiles = false;
-      boolean allVideoFilesScraped = true;
-
-      for (File file : files) {
-        if (file.isFile() && MediaFileParser.isVideoFile(file.getName())) {
-          hasVideoFiles = true;
-
-          // 使用新的解析器
-          MediaInfo mediaInfo = MediaFileParser.parse(
-              file.getName(), directoryPath, movieRegexps, tvDirRegexps, tvFileRegexps);
-
-          if (mediaInfo.getConfidence() >= 70) {
-            String baseFileName = coverImageService.getStandardizedFileName(file.getName());
-            if (!isAlreadyScraped(directoryPath, baseFileName, mediaInfo)) {
-              allVideoFilesScraped = false;
-              break;
-            }
-          } else {
-            // 如果任何一个文件解析失败，则认为目录没有完全刮削
-            allVideoFilesScraped = false;
-            break;
-          }
-        }
-      }
-
-      boolean result = hasVideoFiles && allVideoFilesScraped;
-      if (result) {
-        log.debug("目录已完全刮削: {}", directoryPath);
-      } else {
-        log.debug(
-            "目录需要刮削: {} (hasVideoFiles: {}, allScraped: {})",
-            directoryPath,
-            hasVideoFiles,
-            allVideoFilesScraped);
-      }
-
-      return result;
-
-    } catch (Exception e) {
-      log.warn("检查目录刮削状态时出错: {}", directoryPath, e);
-      return false;
-    }
+    return scrapeStateService.isDirectoryFullyScraped(directoryPath);
   }
 
   /** 获取刮削统计信息 */
@@ -591,88 +406,8 @@ public class MediaScrapingService {
     return Map.of(
         "enabled", scrapingEnabled,
         "tmdbConfigured", tmdbConfigured,
-        "canScrap", scrapingEnabled && tmdbConfigured);
-  }
-
-  /**
-   * 复制字幕文件到STRM目录
-   *
-   * @param fileName       媒体文件名
-   * @param relativePath   相对路径
-   * @param saveDirectory  保存目录
-   * @param directoryFiles 目录文件列表（可选，为null时不会调用API获取）
-   */
-  /**
-   * 复制目录中的相关文件（字幕、NFO、图片等）
-   *
-   * @param openlistConfig    OpenList配置
-   * @param saveDirectory     保存目录
-   * @param directoryFiles    目录文件列表
-   * @param allowedExtensions 允许的文件后缀数组
-   * @param fileTypeDescription 文件类型描述（用于日志）
-   * @return 是否成功复制了至少一个文件
-   */
-  private boolean copyRelatedFiles(
-      OpenlistConfig openlistConfig,
-      String saveDirectory,
-      List<OpenlistApiService.OpenlistFile> directoryFiles,
-      String[] allowedExtensions,
-      String fileTypeDescription) {
-    try {
-      if (directoryFiles == null || directoryFiles.isEmpty()) {
-        return false;
-      }
-
-      boolean foundAndCopied = false;
-
-      // 遍历目录文件
-      for (OpenlistApiService.OpenlistFile file : directoryFiles) {
-        if ("file".equals(file.getType())) {
-          String fileName_lower = file.getName().toLowerCase();
-          boolean isMatch = false;
-          for (String ext : allowedExtensions) {
-            if (fileName_lower.endsWith(ext)) {
-              isMatch = true;
-              break;
-            }
-          }
-
-          if (isMatch) {
-            Path targetFile = Paths.get(saveDirectory, file.getName());
-            
-            // 检查目标文件是否已存在，避免重复下载
-            if (Files.exists(targetFile)) {
-              log.debug("{}已存在，跳过复制: {}", fileTypeDescription, targetFile);
-              continue;
-            }
-
-            log.debug("准备复制{}文件: {}", fileTypeDescription, file.getName());
-
-            // 下载文件内容 (不使用URL编码)
-            byte[] content = openlistApiService.getFileContent(openlistConfig, file, false);
-
-            if (content != null && content.length > 0) {
-              Files.createDirectories(targetFile.getParent());
-              Files.write(targetFile, content);
-
-              log.info(
-                  "已复制{}: {} -> {} (大小: {} bytes)",
-                  fileTypeDescription,
-                  file.getName(),
-                  targetFile,
-                  content.length);
-              foundAndCopied = true;
-            } else {
-              log.debug("{}内容为空: {}", fileTypeDescription, file.getName());
-            }
-          }
-        }
-      }
-      return foundAndCopied;
-    } catch (Exception e) {
-      log.warn("复制{}失败: {}", fileTypeDescription, e.getMessage());
-      return false;
-    }
+        "canScrap", scrapingEnabled && tmdbConfigured,
+        "artworkCache", artworkCacheService.getStats());
   }
 
   /**
@@ -797,6 +532,289 @@ public class MediaScrapingService {
     return fullPath;
   }
 
+  /** 文件浏览器刮削目标 */
+  public record ScrapTarget(
+      String filePath,
+      Integer tmdbId,
+      String type,
+      Integer season,
+      Integer episode,
+      String targetFileName) {}
+
+  /** 同一剧集目录下单集共用的电视剧详情和季详情 */
+  private record SeriesContext(TmdbTvDetail tvDetail, Map<Integer, TmdbSeasonDetail> seasons) {}
+
+  /** 剧集分组键：剧集目录（无法确定时为单集所在目录）+ TMDB ID，seriesFolder 表示是否为真正的剧集目录 */
+  private record SeriesKey(String folder, Integer tmdbId, boolean seriesFolder) {}
+
+  /** 批量刮削进度回调 */
+  public interface BatchScrapListener {
+
+    /** 是否已取消，取消后尚未开始的条目不再处理 */
+    boolean isCancelled();
+
+    /**
+     * 单个条目处理结束
+     *
+     * @param index 条目下标
+     * @param result 刮削结果
+     */
+    void onItemDone(int index, Map<String, Object> result);
+  }
+
+  /**
+   * 批量执行文件浏览器刮削（顺序执行）
+   *
+   * @param openlistConfig OpenList配置
+   * @param targets 刮削目标
+   * @param options 刮削选项
+   * @return 刮削结果，与刮削目标顺序一致
+   */
+  public List<Map<String, Object>> batchScrapFromTmdbMatch(
+      OpenlistConfig openlistConfig, List<ScrapTarget> targets, Map<String, Boolean> options) {
+    return batchScrapFromTmdbMatch(openlistConfig, targets, options, 1, null);
+  }
+
+  /**
+   * 批量执行文件浏览器刮削，电视剧单集按剧集目录分组
+   *
+   * <p>同一剧集目录中的单集只查询一次电视剧详情和所需的季详情，再逐集生成单集NFO和剧照。
+   * 能确定剧集目录（带 {tmdbid-xxx} 的目录或季目录的上级目录）时，tvshow.nfo、poster.jpg、fanart.jpg
+   * 每个目录只生成一次；单集直接放在普通目录中时不生成剧集级文件，避免同目录的不同剧集互相覆盖。
+   * 未指定TMDB ID时从路径中的 {tmdbid-xxx} 提取。
+   * 先并行解析各剧集，再并行处理所有条目，同时执行的数量不超过并发数
+   *
+   * @param openlistConfig OpenList配置
+   * @param targets 刮削目标
+   * @param options 刮削选项
+   * @param concurrency 并发数，不大于1时顺序执行
+   * @param listener 进度回调（可选）
+   * @return 刮削结果，与刮削目标顺序一致
+   */
+  public List<Map<String, Object>> batchScrapFromTmdbMatch(
+      OpenlistConfig openlistConfig,
+      List<ScrapTarget> targets,
+      Map<String, Boolean> options,
+      int concurrency,
+      BatchScrapListener listener) {
+    List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(targets.size(), null));
+    Integer[] tmdbIds = new Integer[targets.size()];
+    SeriesKey[] seriesKeys = new SeriesKey[targets.size()];
+    Map<SeriesKey, Set<Integer>> seriesSeasons = new LinkedHashMap<>();
+
+    for (int i = 0; i < targets.size(); i++) {
+      ScrapTarget target = targets.get(i);
+      String relativeFilePath =
+          stripBasePathFromFilePath(target.filePath(), openlistConfig.getBasePath());
+      tmdbIds[i] =
+          target.tmdbId() != null
+              ? target.tmdbId()
+              : TmdbIdExtractor.extractTmdbIdFromPath(relativeFilePath);
+
+      if ("tv".equals(target.type())
+          && tmdbIds[i] != null
+          && target.season() != null
+          && target.episode() != null) {
+        String directoryPath = extractDirectoryFromPath(relativeFilePath);
+        String seriesFolder = resolveSeriesFolder(directoryPath);
+        seriesKeys[i] =
+            seriesFolder != null
+                ? new SeriesKey(seriesFolder, tmdbIds[i], true)
+                : new SeriesKey(directoryPath, tmdbIds[i], false);
+        seriesSeasons.computeIfAbsent(seriesKeys[i], k -> new LinkedHashSet<>()).add(target.season());
+      }
+    }
+
+    // 第一步：每个剧集目录只解析一次
+    Map<SeriesKey, SeriesContext> seriesContexts = new ConcurrentHashMap<>();
+    Map<SeriesKey, String> seriesErrors = new ConcurrentHashMap<>();
+    List<Runnable> seriesTasks = new ArrayList<>();
+    for (Map.Entry<SeriesKey, Set<Integer>> group : seriesSeasons.entrySet()) {
+      SeriesKey key = group.getKey();
+      seriesTasks.add(
+          () -> {
+            if (listener != null && listener.isCancelled()) {
+              return;
+            }
+            try {
+              SeriesContext series = resolveSeries(key.tmdbId(), group.getValue());
+              log.info(
+                  "按剧集目录刮削: {} ({}), 目录: {}, 季数: {}",
+                  series.tvDetail().getName(),
+                  key.tmdbId(),
+                  key.folder(),
+                  series.seasons().size());
+              if (key.seriesFolder()) {
+                scrapSeriesFolder(openlistConfig, key.folder(), series.tvDetail(), options);
+              }
+              seriesContexts.put(key, series);
+            } catch (Exception e) {
+              log.error("获取电视剧详情失败: 目录={}, tmdbId={}", key.folder(), key.tmdbId(), e);
+              seriesErrors.put(key, "获取电视剧详情失败: " + e.getMessage());
+            }
+          });
+    }
+    runBounded(seriesTasks, concurrency);
+
+    // 第二步：并行处理所有条目
+    List<Runnable> itemTasks = new ArrayList<>();
+    for (int i = 0; i < targets.size(); i++) {
+      int index = i;
+      itemTasks.add(
+          () -> {
+            ScrapTarget target = targets.get(index);
+            Map<String, Object> result;
+            if (listener != null && listener.isCancelled()) {
+              result = failedResult(target.filePath(), "任务已取消");
+              result.put("cancelled", true);
+            } else if (seriesKeys[index] != null
+                && !seriesContexts.containsKey(seriesKeys[index])) {
+              result =
+                  failedResult(
+                      target.filePath(),
+                      seriesErrors.getOrDefault(seriesKeys[index], "获取电视剧详情失败"));
+            } else {
+              result =
+                  scrapFromTmdbMatch(
+                      openlistConfig,
+                      target.filePath(),
+                      tmdbIds[index],
+                      target.type(),
+                      target.season(),
+                      target.episode(),
+                      target.targetFileName(),
+                      options,
+                      seriesKeys[index] != null ? seriesContexts.get(seriesKeys[index]) : null);
+            }
+            results.set(index, result);
+            if (listener != null) {
+              listener.onItemDone(index, result);
+            }
+          });
+    }
+    runBounded(itemTasks, concurrency);
+    return results;
+  }
+
+  /** 在刮削线程池中执行任务，同时执行的数量不超过并发数 */
+  private void runBounded(List<Runnable> tasks, int concurrency) {
+    if (concurrency <= 1 || tasks.size() <= 1) {
+      tasks.forEach(Runnable::run);
+      return;
+    }
+    Semaphore permits = new Semaphore(concurrency);
+    CompletableFuture<?>[] futures =
+        tasks.stream()
+            .map(
+                task ->
+                    CompletableFuture.runAsync(
+                        () -> {
+                          permits.acquireUninterruptibly();
+                          try {
+                            task.run();
+                          } finally {
+                            permits.release();
+                          }
+                        },
+                        scrapingExecutor))
+            .toArray(CompletableFuture[]::new);
+    CompletableFuture.allOf(futures).join();
+  }
+
+  private Map<String, Object> failedResult(String filePath, String error) {
+    Map<String, Object> result = new HashMap<>();
+    result.put("success", false);
+    result.put("filePath", filePath);
+    result.put("error", error);
+    return result;
+  }
+
+  /** 查询一次电视剧详情，季详情通过合并请求批量获取，单季失败时对应单集回退为电视剧NFO */
+  private SeriesContext resolveSeries(Integer tmdbId, Set<Integer> seasonNumbers) {
+    TmdbTvDetail tvDetail = tmdbApiService.getTvDetail(tmdbId);
+    if (tvDetail == null) {
+      throw new IllegalStateException("电视剧详情为空");
+    }
+    Map<Integer, TmdbSeasonDetail> seasons = new HashMap<>();
+    try {
+      TmdbSeasonFetchResult fetchResult = tmdbApiService.fetchSeasonDetails(tvDetail);
+      for (Integer seasonNumber : seasonNumbers) {
+        TmdbSeasonDetail seasonDetail = fetchResult.getSeasons().get(seasonNumber);
+        if (seasonDetail != null) {
+          seasons.put(seasonNumber, seasonDetail);
+        } else {
+          log.warn(
+              "获取季详情失败，该季继续使用电视剧信息: Season={}, 错误: {}",
+              seasonNumber,
+              fetchResult.getFailures().getOrDefault(seasonNumber, "季列表中不存在"));
+        }
+      }
+    } catch (Exception e) {
+      log.warn("获取季详情失败，各季继续使用电视剧信息: TV ID={}, 错误: {}", tmdbId, e.getMessage());
+    }
+    return new SeriesContext(tvDetail, seasons);
+  }
+
+  /** 在剧集目录生成 tvshow.nfo、poster.jpg、fanart.jpg，每个目录只执行一次，只对真正的剧集目录调用 */
+  private void scrapSeriesFolder(
+      OpenlistConfig openlistConfig,
+      String seriesFolder,
+      TmdbTvDetail tvDetail,
+      Map<String, Boolean> options) {
+    if (options.getOrDefault("generateNfo", true)) {
+      MediaInfo mediaInfo = new MediaInfo();
+      mediaInfo.setType(MediaInfo.MediaType.TV_SHOW);
+      mediaInfo.setTitle(tvDetail.getName());
+      mediaInfo.setYear(
+          tvDetail.getFirstAirDate() != null && tvDetail.getFirstAirDate().length() >= 4
+              ? tvDetail.getFirstAirDate().substring(0, 4)
+              : null);
+      mediaInfo.setHasYear(tvDetail.getFirstAirDate() != null);
+      mediaInfo.setConfidence(100);
+      nfoGeneratorService.generateTvShowNfoAndSaveToOpenlist(
+          openlistConfig, tvDetail, mediaInfo, seriesFolder + "/tvshow.nfo");
+    }
+    if (options.getOrDefault("downloadPoster", true) && tvDetail.getPosterPath() != null) {
+      coverImageService.downloadAndSaveToOpenlist(
+          tmdbApiService.buildPosterUrl(tvDetail.getPosterPath()),
+          openlistConfig,
+          seriesFolder + "/poster.jpg");
+    }
+    if (options.getOrDefault("downloadBackdrop", false) && tvDetail.getBackdropPath() != null) {
+      coverImageService.downloadAndSaveToOpenlist(
+          tmdbApiService.buildBackdropUrl(tvDetail.getBackdropPath()),
+          openlistConfig,
+          seriesFolder + "/fanart.jpg");
+    }
+  }
+
+  /**
+   * 确定单集所属的剧集目录：路径中带 {tmdbid-xxx} 的目录，否则为季目录的上级目录
+   *
+   * @param directoryPath 单集所在目录（相对于挂载目录）
+   * @return 剧集目录，无法确定（单集位于普通目录或挂载根目录）时返回null
+   */
+  static String resolveSeriesFolder(String directoryPath) {
+    if (directoryPath == null || directoryPath.isEmpty()) {
+      return null;
+    }
+
+    String[] segments = directoryPath.split("/");
+    for (int i = 0; i < segments.length; i++) {
+      if (TmdbIdExtractor.containsTmdbId(segments[i])) {
+        return String.join("/", Arrays.copyOfRange(segments, 0, i + 1));
+      }
+    }
+
+    int lastSlashIndex = directoryPath.lastIndexOf('/');
+    String lastSegment = directoryPath.substring(lastSlashIndex + 1).trim();
+    if (SEASON_FOLDER_PATTERN.matcher(lastSegment).matches() && lastSlashIndex > 0) {
+      String parent = directoryPath.substring(0, lastSlashIndex);
+      return parent.isEmpty() || "/".equals(parent) ? null : parent;
+    }
+    return null;
+  }
+
   /**
    * 执行文件浏览器刮削（从TMDB匹配结果直接刮削）
    *
@@ -818,6 +836,21 @@ public class MediaScrapingService {
       Integer episode,
       String targetFileName,
       Map<String, Boolean> options) {
+    return scrapFromTmdbMatch(
+        openlistConfig, filePath, tmdbId, type, season, episode, targetFileName, options, null);
+  }
+
+  /** 执行文件浏览器刮削，series 不为空时复用已查询的电视剧详情和季详情 */
+  private Map<String, Object> scrapFromTmdbMatch(
+      com.hienao.openlist2strm.entity.OpenlistConfig openlistConfig,
+      String filePath,
+      Integer tmdbId,
+      String type,
+      Integer season,
+      Integer episode,
+      String targetFileName,
+      Map<String, Boolean> options,
+      SeriesContext series) {
     Map<String, Object> result = new HashMap<>();
     result.put("success", false);
     result.put("filePath", filePath);
@@ -882,7 +915,8 @@ public class MediaScrapingService {
 
       } else if ("tv".equals(type)) {
         // 刮削电视剧
-        com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail tvDetail = tmdbApiService.getTvDetail(tmdbId);
+        com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail tvDetail =
+            series != null ? series.tvDetail() : tmdbApiService.getTvDetail(tmdbId);
         if (tvDetail == null) {
           result.put("error", "获取电视剧详情失败");
           return result;
@@ -904,8 +938,10 @@ public class MediaScrapingService {
         com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail.Episode episodeDetail = null;
         if (season != null && episode != null) {
           try {
-            com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail seasonDetail = 
-                tmdbApiService.getSeasonDetail(tmdbId, season);
+            com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail seasonDetail =
+                series != null
+                    ? series.seasons().get(season)
+                    : tmdbApiService.getSeasonDetail(tmdbId, season);
             if (seasonDetail != null && seasonDetail.getEpisodes() != null) {
               for (com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail.Episode ep : seasonDetail.getEpisodes()) {
                 if (ep.getEpisodeNumber() != null && ep.getEpisodeNumber().equals(episode)) {
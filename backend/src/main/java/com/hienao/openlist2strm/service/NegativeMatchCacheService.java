@@ -0,0 +1,292 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.dto.tmdb.NegativeMatchStats;
+import com.hienao.openlist2strm.entity.NegativeMatchEntry;
+import com.hienao.openlist2strm.mapper.NegativeMatchMapper;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 未匹配结果缓存服务
+ *
+ * <p>记录TMDB搜索和AI识别都没有结果的查询（按规范化查询词和年份），在重试时间之前直接跳过。
+ * 每次未匹配后重试间隔翻倍直到上限；刮削正则或AI配置变化后旧条目失效，也可通过管理接口清除
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class NegativeMatchCacheService {
+
+  public static final String KIND_MOVIE = "movie";
+  public static final String KIND_TV = "tv";
+  public static final String KIND_AI = "ai";
+
+  private static final long DEFAULT_BASE_HOURS = 24L;
+  private static final long DEFAULT_MAX_HOURS = 720L;
+
+  /** 规范化时合并的分隔符 */
+  private static final Pattern SEPARATORS = Pattern.compile("[._\\-\\s]+");
+
+  private final NegativeMatchMapper negativeMatchMapper;
+  private final SystemConfigService systemConfigService;
+
+  /** 按配置版本缓存的配置指纹，配置保存后重新计算 */
+  private volatile ConfigHash cachedConfigHash;
+
+  private final AtomicLong suppressed = new AtomicLong();
+  private final AtomicLong retries = new AtomicLong();
+  private final AtomicLong recordedMisses = new AtomicLong();
+  private final AtomicLong recoveries = new AtomicLong();
+
+  /** 配置指纹及其对应的配置版本 */
+  private record ConfigHash(long version, String hash) {}
+
+  /** 查询状态 */
+  public enum State {
+    /** 没有记录，正常查询 */
+    NONE,
+    /** 未到重试时间，跳过查询 */
+    SUPPRESSED,
+    /** 已到重试时间，需要绕过已有的空结果缓存重新查询 */
+    RETRY_DUE
+  }
+
+  /**
+   * 规范化查询词：小写、合并分隔符
+   *
+   * @param query 查询词
+   * @return 规范化后的查询词
+   */
+  public static String normalize(String query) {
+    if (query == null) {
+      return "";
+    }
+    return SEPARATORS.matcher(query.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+  }
+
+  /**
+   * 构建缓存键
+   *
+   * @param kind  类型
+   * @param query 查询词
+   * @param year  年份（可选）
+   * @return 缓存键
+   */
+  public static String buildKey(String kind, String query, String year) {
+    StringBuilder key = new StringBuilder(kind).append(':').append(normalize(query));
+    if (year != null && !year.trim().isEmpty()) {
+      key.append('|').append(year.trim());
+    }
+    return key.toString();
+  }
+
+  /**
+   * 查询缓存状态
+   *
+   * @param kind  类型
+   * @param query 查询词
+   * @param year  年份（可选）
+   * @return 缓存状态
+   */
+  public State check(String kind, String query, String year) {
+    if (!isEnabled() || normalize(query).isEmpty()) {
+      return State.NONE;
+    }
+
+    String cacheKey = buildKey(kind, query, year);
+    try {
+      NegativeMatchEntry entry = negativeMatchMapper.selectByKey(cacheKey);
+      if (entry == null) {
+        return State.NONE;
+      }
+      if (!currentConfigHash().equals(entry.getConfigHash())) {
+        negativeMatchMapper.deleteByKey(cacheKey);
+        return State.NONE;
+      }
+      if (System.currentTimeMillis() < entry.getNextRetryAt()) {
+        suppressed.incrementAndGet();
+        log.debug("跳过未匹配的查询: {}, 连续未匹配次数: {}", cacheKey, entry.getFailureCount());
+        return State.SUPPRESSED;
+      }
+      retries.incrementAndGet();
+      return State.RETRY_DUE;
+    } catch (Exception e) {
+      log.warn("读取未匹配缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+      return State.NONE;
+    }
+  }
+
+  /**
+   * 记录一次未匹配，重试间隔按连续次数指数增长
+   *
+   * @param kind  类型
+   * @param query 查询词
+   * @param year  年份（可选）
+   */
+  public void recordMiss(String kind, String query, String year) {
+    if (!isEnabled() || normalize(query).isEmpty()) {
+      return;
+    }
+
+    String cacheKey = buildKey(kind, query, year);
+    try {
+      String configHash = currentConfigHash();
+      NegativeMatchEntry previous = negativeMatchMapper.selectByKey(cacheKey);
+      int failureCount =
+          previous != null && configHash.equals(previous.getConfigHash())
+              ? previous.getFailureCount() + 1
+              : 1;
+      long now = System.currentTimeMillis();
+      long delayHours = getRetryDelayHours(failureCount);
+      negativeMatchMapper.upsert(
+          new NegativeMatchEntry(
+              cacheKey,
+              kind,
+              normalize(query),
+              year != null && !year.trim().isEmpty() ? year.trim() : null,
+              configHash,
+              failureCount,
+              now,
+              now + TimeUnit.HOURS.toMillis(delayHours)));
+      recordedMisses.incrementAndGet();
+      log.debug("记录未匹配: {}, 连续次数: {}, {} 小时后重试", cacheKey, failureCount, delayHours);
+    } catch (Exception e) {
+      log.warn("写入未匹配缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+    }
+  }
+
+  /**
+   * 记录一次匹配成功，移除对应的未匹配条目
+   *
+   * @param kind  类型
+   * @param query 查询词
+   * @param year  年份（可选）
+   */
+  public void recordHit(String kind, String query, String year) {
+    if (normalize(query).isEmpty()) {
+      return;
+    }
+    String cacheKey = buildKey(kind, query, year);
+    try {
+      if (negativeMatchMapper.deleteByKey(cacheKey) > 0) {
+        recoveries.incrementAndGet();
+        log.info("重新查询后匹配成功，移除未匹配记录: {}", cacheKey);
+      }
+    } catch (Exception e) {
+      log.warn("删除未匹配缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+    }
+  }
+
+  /**
+   * 获取统计信息
+   *
+   * @return 统计信息
+   */
+  public NegativeMatchStats getStats() {
+    String configHash = currentConfigHash();
+    Map<String, Long> entries = new LinkedHashMap<>();
+    for (Map<String, Object> row : negativeMatchMapper.countByKind()) {
+      Object count = row.get("count");
+      entries.put(
+          String.valueOf(row.get("kind")), count instanceof Number number ? number.longValue() : 0L);
+    }
+    return new NegativeMatchStats()
+        .setEnabled(isEnabled())
+        .setConfigHash(configHash)
+        .setSuppressed(suppressed.get())
+        .setRetries(retries.get())
+        .setRecordedMisses(recordedMisses.get())
+        .setRecoveries(recoveries.get())
+        .setEntries(entries);
+  }
+
+  /**
+   * 清除缓存
+   *
+   * @param kind 类型，为空时清除全部
+   * @return 删除的条目数
+   */
+  public int purge(String kind) {
+    int deleted = negativeMatchMapper.deleteByKind(kind);
+    log.info("已清除未匹配缓存 - 类型: {}, 条目: {}", kind == null ? "全部" : kind, deleted);
+    return deleted;
+  }
+
+  /** 当前刮削正则和AI配置的指纹，配置未保存过时直接使用缓存；指纹变化时清理旧条目 */
+  private String currentConfigHash() {
+    // 先读取版本号，计算期间配置被保存时下次会重新计算
+    long version = systemConfigService.getConfigVersion();
+    ConfigHash cached = cachedConfigHash;
+    if (cached != null && cached.version() == version) {
+      return cached.hash();
+    }
+
+    Map<String, Object> aiConfig = systemConfigService.getAiConfig();
+    String source =
+        systemConfigService.getScrapingRegexConfig()
+            + "|" + aiConfig.get("enabled")
+            + "|" + aiConfig.get("baseUrl")
+            + "|" + aiConfig.get("model")
+            + "|" + aiConfig.get("prompt");
+    String configHash = sha256(source).substring(0, 16);
+
+    if (cached == null || !configHash.equals(cached.hash())) {
+      try {
+        int deleted = negativeMatchMapper.deleteByConfigHashNot(configHash);
+        if (deleted > 0) {
+          log.info("刮削正则或AI配置已变化，清除未匹配缓存 {} 条", deleted);
+        }
+      } catch (Exception e) {
+        log.warn("清理过期的未匹配缓存失败: {}", e.getMessage());
+      }
+    }
+    cachedConfigHash = new ConfigHash(version, configHash);
+    return configHash;
+  }
+
+  private long getRetryDelayHours(int failureCount) {
+    Map<String, Object> scrapingConfig = systemConfigService.getScrapingConfig();
+    long baseHours =
+        getPositiveLong(scrapingConfig.get("negativeCacheBaseHours"), DEFAULT_BASE_HOURS);
+    long maxHours =
+        getPositiveLong(scrapingConfig.get("negativeCacheMaxHours"), DEFAULT_MAX_HOURS);
+    // 位移上限避免溢出
+    int shift = Math.min(failureCount - 1, 20);
+    return Math.min(baseHours << shift, Math.max(maxHours, baseHours));
+  }
+
+  private boolean isEnabled() {
+    return !Boolean.FALSE.equals(
+        systemConfigService.getScrapingConfig().get("negativeCacheEnabled"));
+  }
+
+  private long getPositiveLong(Object value, long defaultValue) {
+    if (value instanceof Number number && number.longValue() > 0) {
+      return number.longValue();
+    }
+    return defaultValue;
+  }
+
+  private static String sha256(String input) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(input.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256算法不可用", e);
+    }
+  }
+}
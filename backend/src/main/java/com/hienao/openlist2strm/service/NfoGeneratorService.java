@@ -4,12 +4,17 @@ import com.hienao.openlist2strm.dto.media.MediaInfo;
 import com.hienao.openlist2strm.dto.tmdb.TmdbMovieDetail;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail;
 import com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail;
+import com.hienao.openlist2strm.util.NfoXmlWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -18,6 +23,8 @@ import org.springframework.stereotype.Service;
 /**
  * NFO 文件生成服务 生成兼容 Kodi/Jellyfin/Emby 的标准 NFO 格式文件
  *
+ * <p>NFO 通过流式XML写入临时文件，内容与已有文件一致时保留原文件，元数据未变化不会改变修改时间
+ *
  * @author hienao
  * @since 2024-01-01
  */
@@ -29,6 +36,14 @@ public class NfoGeneratorService {
   private final SystemConfigService systemConfigService;
   private final TmdbApiService tmdbApiService;
   private final OpenlistApiService openlistApiService;
+  private final OpenlistUploadService openlistUploadService;
+  private final FileWriteService fileWriteService;
+
+  /** NFO内容，dateAdded 为写入的添加时间 */
+  @FunctionalInterface
+  private interface NfoContent {
+    void writeTo(NfoXmlWriter nfo, String dateAdded) throws IOException;
+  }
 
   /**
    * 为电影生成NFO文件
@@ -40,8 +55,9 @@ public class NfoGeneratorService {
   public void generateMovieNfo(
       TmdbMovieDetail movieDetail, MediaInfo mediaInfo, String nfoFilePath) {
     try {
-      String nfoContent = buildMovieNfoContent(movieDetail, mediaInfo);
-      writeNfoFile(nfoFilePath, nfoContent);
+      writeNfoFile(
+          nfoFilePath,
+          (nfo, dateAdded) -> writeMovieNfoContent(nfo, movieDetail, mediaInfo, dateAdded));
       log.info("电影NFO文件生成成功: {}", nfoFilePath);
     } catch (Exception e) {
       log.error("生成电影NFO文件失败: {}", e.getMessage(), e);
@@ -58,8 +74,9 @@ public class NfoGeneratorService {
    */
   public void generateTvShowNfo(TmdbTvDetail tvDetail, MediaInfo mediaInfo, String nfoFilePath) {
     try {
-      String nfoContent = buildTvShowNfoContent(tvDetail, mediaInfo);
-      writeNfoFile(nfoFilePath, nfoContent);
+      writeNfoFile(
+          nfoFilePath,
+          (nfo, dateAdded) -> writeTvShowNfoContent(nfo, tvDetail, mediaInfo, dateAdded));
       log.info("电视剧NFO文件生成成功: {}", nfoFilePath);
     } catch (Exception e) {
       log.error("生成电视剧NFO文件失败: {}", e.getMessage(), e);
@@ -67,190 +84,150 @@ public class NfoGeneratorService {
     }
   }
 
-  /** 构建电影NFO内容 */
-  private String buildMovieNfoContent(TmdbMovieDetail movieDetail, MediaInfo mediaInfo) {
-    StringBuilder nfo = new StringBuilder();
-
-    nfo.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
-    nfo.append("<movie>\n");
+  /** 写入电影NFO内容 */
+  private void writeMovieNfoContent(
+      NfoXmlWriter nfo, TmdbMovieDetail movieDetail, MediaInfo mediaInfo, String dateAdded)
+      throws IOException {
+    nfo.start("movie");
 
     // 基本信息
-    appendElement(nfo, "title", movieDetail.getTitle());
-    appendElement(nfo, "originaltitle", movieDetail.getOriginalTitle());
-    appendElement(nfo, "plot", movieDetail.getOverview());
-    appendElement(nfo, "tagline", movieDetail.getTagline());
-    appendElement(nfo, "runtime", movieDetail.getRuntime());
+    nfo.element("title", movieDetail.getTitle());
+    nfo.element("originaltitle", movieDetail.getOriginalTitle());
+    nfo.element("plot", movieDetail.getOverview());
+    nfo.element("tagline", movieDetail.getTagline());
+    nfo.element("runtime", movieDetail.getRuntime());
 
     // 评分信息
     if (movieDetail.getVoteAverage() != null) {
-      nfo.append("  <rating>\n");
-      appendElement(nfo, "value", movieDetail.getVoteAverage(), 2);
-      appendElement(nfo, "votes", movieDetail.getVoteCount(), 2);
-      nfo.append("  </rating>\n");
+      nfo.start("rating");
+      nfo.element("value", movieDetail.getVoteAverage());
+      nfo.element("votes", movieDetail.getVoteCount());
+      nfo.end();
     }
 
     // 日期信息
-    appendElement(nfo, "year", movieDetail.getReleaseYear());
-    appendElement(nfo, "releasedate", movieDetail.getReleaseDate());
+    nfo.element("year", movieDetail.getReleaseYear());
+    nfo.element("releasedate", movieDetail.getReleaseDate());
 
     // 类型
     if (movieDetail.getGenres() != null) {
       for (TmdbMovieDetail.Genre genre : movieDetail.getGenres()) {
-        appendElement(nfo, "genre", genre.getName());
+        nfo.element("genre", genre.getName());
       }
     }
 
     // 制作公司
     if (movieDetail.getProductionCompanies() != null) {
       for (TmdbMovieDetail.ProductionCompany company : movieDetail.getProductionCompanies()) {
-        appendElement(nfo, "studio", company.getName());
+        nfo.element("studio", company.getName());
       }
     }
 
     // 图片信息
     if (movieDetail.getPosterPath() != null) {
       String posterUrl = tmdbApiService.buildPosterUrl(movieDetail.getPosterPath());
-      appendElement(nfo, "thumb", posterUrl);
+      nfo.element("thumb", posterUrl);
     }
 
     if (movieDetail.getBackdropPath() != null) {
       String backdropUrl = tmdbApiService.buildBackdropUrl(movieDetail.getBackdropPath());
-      appendElement(nfo, "fanart", backdropUrl);
+      nfo.element("fanart", backdropUrl);
     }
 
     // 外部ID
-    appendElement(nfo, "tmdbid", movieDetail.getId());
-    appendElement(nfo, "imdbid", movieDetail.getImdbId());
+    nfo.element("tmdbid", movieDetail.getId());
+    nfo.element("imdbid", movieDetail.getImdbId());
 
     // 其他信息
-    appendElement(nfo, "country", getFirstProductionCountry(movieDetail));
-    appendElement(nfo, "language", movieDetail.getOriginalLanguage());
-    appendElement(nfo, "status", movieDetail.getStatus());
+    nfo.element("country", getFirstProductionCountry(movieDetail));
+    nfo.element("language", movieDetail.getOriginalLanguage());
+    nfo.element("status", movieDetail.getStatus());
 
     // 生成信息
-    appendElement(nfo, "dateadded", getCurrentDateTime());
-
-    nfo.append("</movie>\n");
+    nfo.element("dateadded", dateAdded);
 
-    return nfo.toString();
+    nfo.end();
   }
 
-  /** 构建电视剧NFO内容 */
-  private String buildTvShowNfoContent(TmdbTvDetail tvDetail, MediaInfo mediaInfo) {
-    StringBuilder nfo = new StringBuilder();
-
-    nfo.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
-    nfo.append("<tvshow>\n");
+  /** 写入电视剧NFO内容 */
+  private void writeTvShowNfoContent(
+      NfoXmlWriter nfo, TmdbTvDetail tvDetail, MediaInfo mediaInfo, String dateAdded)
+      throws IOException {
+    nfo.start("tvshow");
 
     // 基本信息
-    appendElement(nfo, "title", tvDetail.getName());
-    appendElement(nfo, "originaltitle", tvDetail.getOriginalName());
-    appendElement(nfo, "plot", tvDetail.getOverview());
+    nfo.element("title", tvDetail.getName());
+    nfo.element("originaltitle", tvDetail.getOriginalName());
+    nfo.element("plot", tvDetail.getOverview());
 
     // 评分信息
     if (tvDetail.getVoteAverage() != null) {
-      nfo.append("  <rating>\n");
-      appendElement(nfo, "value", tvDetail.getVoteAverage(), 2);
-      appendElement(nfo, "votes", tvDetail.getVoteCount(), 2);
-      nfo.append("  </rating>\n");
+      nfo.start("rating");
+      nfo.element("value", tvDetail.getVoteAverage());
+      nfo.element("votes", tvDetail.getVoteCount());
+      nfo.end();
     }
 
     // 日期信息
-    appendElement(nfo, "year", tvDetail.getFirstAirYear());
-    appendElement(nfo, "premiered", tvDetail.getFirstAirDate());
+    nfo.element("year", tvDetail.getFirstAirYear());
+    nfo.element("premiered", tvDetail.getFirstAirDate());
 
     // 季集信息
-    appendElement(nfo, "season", tvDetail.getNumberOfSeasons());
-    appendElement(nfo, "episode", tvDetail.getNumberOfEpisodes());
+    nfo.element("season", tvDetail.getNumberOfSeasons());
+    nfo.element("episode", tvDetail.getNumberOfEpisodes());
 
     // 类型
     if (tvDetail.getGenres() != null) {
       for (TmdbMovieDetail.Genre genre : tvDetail.getGenres()) {
-        appendElement(nfo, "genre", genre.getName());
+        nfo.element("genre", genre.getName());
       }
     }
 
     // 制作公司/网络
     if (tvDetail.getNetworks() != null) {
       for (TmdbTvDetail.Network network : tvDetail.getNetworks()) {
-        appendElement(nfo, "studio", network.getName());
+        nfo.element("studio", network.getName());
       }
     }
 
     // 创作者
     if (tvDetail.getCreatedBy() != null) {
       for (TmdbTvDetail.Creator creator : tvDetail.getCreatedBy()) {
-        appendElement(nfo, "creator", creator.getName());
+        nfo.element("creator", creator.getName());
       }
     }
 
     // 图片信息
     if (tvDetail.getPosterPath() != null) {
       String posterUrl = tmdbApiService.buildPosterUrl(tvDetail.getPosterPath());
-      appendElement(nfo, "thumb", posterUrl);
+      nfo.element("thumb", posterUrl);
     }
 
     if (tvDetail.getBackdropPath() != null) {
       String backdropUrl = tmdbApiService.buildBackdropUrl(tvDetail.getBackdropPath());
-      appendElement(nfo, "fanart", backdropUrl);
+      nfo.element("fanart", backdropUrl);
     }
 
     // 外部ID
-    appendElement(nfo, "tmdbid", tvDetail.getId());
+    nfo.element("tmdbid", tvDetail.getId());
 
     // 其他信息
     if (tvDetail.getOriginCountry() != null && !tvDetail.getOriginCountry().isEmpty()) {
-      appendElement(nfo, "country", tvDetail.getOriginCountry().get(0));
+      nfo.element("country", tvDetail.getOriginCountry().get(0));
     }
-    appendElement(nfo, "language", tvDetail.getOriginalLanguage());
-    appendElement(nfo, "status", tvDetail.getStatus());
+    nfo.element("language", tvDetail.getOriginalLanguage());
+    nfo.element("status", tvDetail.getStatus());
 
     // 运行时间
     Integer avgRuntime = tvDetail.getAverageEpisodeRuntime();
     if (avgRuntime != null) {
-      appendElement(nfo, "runtime", avgRuntime);
+      nfo.element("runtime", avgRuntime);
     }
 
     // 生成信息
-    appendElement(nfo, "dateadded", getCurrentDateTime());
-
-    nfo.append("</tvshow>\n");
-
-    return nfo.toString();
-  }
-
-  /** 添加XML元素 */
-  private void appendElement(StringBuilder sb, String tagName, Object value) {
-    appendElement(sb, tagName, value, 1);
-  }
+    nfo.element("dateadded", dateAdded);
 
-  /** 添加XML元素（指定缩进级别） */
-  private void appendElement(StringBuilder sb, String tagName, Object value, int indentLevel) {
-    if (value == null || (value instanceof String && ((String) value).isEmpty())) {
-      return;
-    }
-
-    String indent = "  ".repeat(indentLevel);
-    sb.append(indent)
-        .append("<")
-        .append(tagName)
-        .append(">")
-        .append(escapeXml(value.toString()))
-        .append("</")
-        .append(tagName)
-        .append(">\n");
-  }
-
-  /** XML转义 */
-  private String escapeXml(String text) {
-    if (text == null) {
-      return "";
-    }
-    return text.replace("&", "&amp;")
-        .replace("<", "&lt;")
-        .replace(">", "&gt;")
-        .replace("\"", "&quot;")
-        .replace("'", "&apos;");
+    nfo.end();
   }
 
   /** 获取第一个制作国家 */
@@ -267,15 +244,73 @@ public class NfoGeneratorService {
     return LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
   }
 
-  /** 写入NFO文件 */
-  private void writeNfoFile(String nfoFilePath, String content) throws IOException {
-    Path path = Paths.get(nfoFilePath);
+  /**
+   * 生成NFO并流式上传到OpenList，沿用远程已有NFO的添加时间；元数据未变化时生成的内容与远程文件一致，跳过上传
+   */
+  private boolean saveNfoToOpenlist(
+      com.hienao.openlist2strm.entity.OpenlistConfig openlistConfig,
+      String nfoFilePath,
+      NfoContent content)
+      throws IOException {
+    byte[] existing = readRemoteNfo(openlistConfig, nfoFilePath);
+    String dateAdded = readDateAdded(existing, nfoFilePath);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (NfoXmlWriter nfo = new NfoXmlWriter(out)) {
+      content.writeTo(nfo, dateAdded != null ? dateAdded : getCurrentDateTime());
+    }
+    byte[] generated = out.toByteArray();
+    if (existing != null && Arrays.equals(existing, generated)) {
+      log.info("NFO内容未变化，保留远程文件: {}", nfoFilePath);
+      return true;
+    }
+    OpenlistUploadService.UploadResult result =
+        openlistUploadService.upload(
+            openlistConfig, nfoFilePath, OpenlistUploadService.UploadSource.of(generated));
+    if (result == OpenlistUploadService.UploadResult.UNCHANGED) {
+      log.info("NFO内容未变化，保留远程文件: {}", nfoFilePath);
+    }
+    return result != OpenlistUploadService.UploadResult.FAILED;
+  }
+
+  /** 读取远程已有NFO，文件不存在或读取失败时返回null */
+  private byte[] readRemoteNfo(
+      com.hienao.openlist2strm.entity.OpenlistConfig openlistConfig, String nfoFilePath) {
+    try {
+      byte[] existing = openlistApiService.getFileContent(openlistConfig, nfoFilePath);
+      return existing == null || existing.length == 0 ? null : existing;
+    } catch (Exception e) {
+      log.debug("远程NFO不存在或读取失败: {}, 错误: {}", nfoFilePath, e.getMessage());
+      return null;
+    }
+  }
+
+  /** 读取远程NFO内容中的添加时间 */
+  private String readDateAdded(byte[] existing, String nfoFilePath) {
+    if (existing == null) {
+      return null;
+    }
+    try {
+      return NfoXmlWriter.readFirstElementText(new ByteArrayInputStream(existing), "dateadded");
+    } catch (Exception e) {
+      log.debug("读取远程NFO添加时间失败: {}, 错误: {}", nfoFilePath, e.getMessage());
+      return null;
+    }
+  }
 
-    // 确保目录存在
-    Path parentDir = path.getParent();
-    if (parentDir != null && !Files.exists(parentDir)) {
-      Files.createDirectories(parentDir);
+  /** 读取已有NFO的添加时间 */
+  private String readDateAdded(Path path) {
+    try (InputStream in = Files.newInputStream(path)) {
+      return NfoXmlWriter.readFirstElementText(in, "dateadded");
+    } catch (IOException e) {
+      log.debug("读取NFO添加时间失败: {}, 错误: {}", path, e.getMessage());
+      return null;
     }
+  }
+
+  /** 写入NFO文件，内容未变化时保留原文件 */
+  private void writeNfoFile(String nfoFilePath, NfoContent content) throws IOException {
+    Path path = Paths.get(nfoFilePath);
+    String dateAdded = null;
 
     // 检查同名NFO文件是否已存在
     if (Files.exists(path)) {
@@ -287,10 +322,23 @@ public class NfoGeneratorService {
       } else {
         log.info("同名NFO文件已存在，但允许覆盖，继续生成: {}", nfoFilePath);
       }
+      // 沿用已有文件的添加时间，元数据未变化时生成的内容与原文件完全一致
+      dateAdded = readDateAdded(path);
     }
 
-    // 写入文件
-    Files.writeString(path, content);
+    String effectiveDateAdded = dateAdded != null ? dateAdded : getCurrentDateTime();
+    // 流式写入临时文件，内容有变化时才原子替换，目录不存在时自动创建
+    boolean written =
+        fileWriteService.writeIfChanged(
+            path,
+            out -> {
+              try (NfoXmlWriter nfo = new NfoXmlWriter(out)) {
+                content.writeTo(nfo, effectiveDateAdded);
+              }
+            });
+    if (!written) {
+      log.info("NFO内容未变化，保留原文件: {}", nfoFilePath);
+    }
   }
 
   /**
@@ -308,8 +356,11 @@ public class NfoGeneratorService {
       MediaInfo mediaInfo, 
       String nfoFilePath) {
     try {
-      String nfoContent = buildMovieNfoContent(movieDetail, mediaInfo);
-      boolean success = openlistApiService.writeTextFile(openlistConfig, nfoFilePath, nfoContent);
+      boolean success =
+          saveNfoToOpenlist(
+              openlistConfig,
+              nfoFilePath,
+              (nfo, dateAdded) -> writeMovieNfoContent(nfo, movieDetail, mediaInfo, dateAdded));
       if (success) {
         log.info("电影NFO文件通过OpenList保存成功: {}", nfoFilePath);
       }
@@ -335,8 +386,11 @@ public class NfoGeneratorService {
       MediaInfo mediaInfo, 
       String nfoFilePath) {
     try {
-      String nfoContent = buildTvShowNfoContent(tvDetail, mediaInfo);
-      boolean success = openlistApiService.writeTextFile(openlistConfig, nfoFilePath, nfoContent);
+      boolean success =
+          saveNfoToOpenlist(
+              openlistConfig,
+              nfoFilePath,
+              (nfo, dateAdded) -> writeTvShowNfoContent(nfo, tvDetail, mediaInfo, dateAdded));
       if (success) {
         log.info("电视剧NFO文件通过OpenList保存成功: {}", nfoFilePath);
       }
@@ -347,60 +401,58 @@ public class NfoGeneratorService {
     }
   }
 
-  /** 构建单集NFO内容 */
-  private String buildEpisodeNfoContent(
-      TmdbTvDetail tvDetail, 
-      TmdbSeasonDetail.Episode episode, 
-      MediaInfo mediaInfo) {
-    StringBuilder nfo = new StringBuilder();
-
-    nfo.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
-    nfo.append("<episodedetails>\n");
+  /** 写入单集NFO内容 */
+  private void writeEpisodeNfoContent(
+      NfoXmlWriter nfo,
+      TmdbTvDetail tvDetail,
+      TmdbSeasonDetail.Episode episode,
+      MediaInfo mediaInfo,
+      String dateAdded)
+      throws IOException {
+    nfo.start("episodedetails");
 
     // 基本信息
-    appendElement(nfo, "title", episode.getName());
-    appendElement(nfo, "showtitle", tvDetail.getName());
-    appendElement(nfo, "plot", episode.getOverview());
+    nfo.element("title", episode.getName());
+    nfo.element("showtitle", tvDetail.getName());
+    nfo.element("plot", episode.getOverview());
 
     // 评分信息
     if (episode.getVoteAverage() != null) {
-      nfo.append("  <rating>\n");
-      appendElement(nfo, "value", episode.getVoteAverage(), 2);
-      appendElement(nfo, "votes", episode.getVoteCount(), 2);
-      nfo.append("  </rating>\n");
+      nfo.start("rating");
+      nfo.element("value", episode.getVoteAverage());
+      nfo.element("votes", episode.getVoteCount());
+      nfo.end();
     }
 
     // 季集信息
-    appendElement(nfo, "season", episode.getSeasonNumber());
-    appendElement(nfo, "episode", episode.getEpisodeNumber());
+    nfo.element("season", episode.getSeasonNumber());
+    nfo.element("episode", episode.getEpisodeNumber());
 
     // 日期信息
-    appendElement(nfo, "aired", episode.getAirDate());
+    nfo.element("aired", episode.getAirDate());
 
     // 时长
-    appendElement(nfo, "runtime", episode.getRuntime());
+    nfo.element("runtime", episode.getRuntime());
 
     // 图片信息
     if (episode.getStillPath() != null) {
       String stillUrl = tmdbApiService.buildPosterUrl(episode.getStillPath());
-      appendElement(nfo, "thumb", stillUrl);
+      nfo.element("thumb", stillUrl);
     }
 
     if (tvDetail.getPosterPath() != null) {
       String posterUrl = tmdbApiService.buildPosterUrl(tvDetail.getPosterPath());
-      appendElement(nfo, "tvshowthumb", posterUrl);
+      nfo.element("tvshowthumb", posterUrl);
     }
 
     // 外部ID
-    appendElement(nfo, "tmdbid", tvDetail.getId());
-    appendElement(nfo, "episodeid", episode.getId());
+    nfo.element("tmdbid", tvDetail.getId());
+    nfo.element("episodeid", episode.getId());
 
     // 生成信息
-    appendElement(nfo, "dateadded", getCurrentDateTime());
-
-    nfo.append("</episodedetails>\n");
+    nfo.element("dateadded", dateAdded);
 
-    return nfo.toString();
+    nfo.end();
   }
 
   /**
@@ -417,8 +469,10 @@ public class NfoGeneratorService {
       MediaInfo mediaInfo, 
       String nfoFilePath) {
     try {
-      String nfoContent = buildEpisodeNfoContent(tvDetail, episode, mediaInfo);
-      writeNfoFile(nfoFilePath, nfoContent);
+      writeNfoFile(
+          nfoFilePath,
+          (nfo, dateAdded) ->
+              writeEpisodeNfoContent(nfo, tvDetail, episode, mediaInfo, dateAdded));
       log.info("剧集NFO文件生成成功: {}", nfoFilePath);
     } catch (Exception e) {
       log.error("生成剧集NFO文件失败: {}", e.getMessage(), e);
@@ -443,8 +497,12 @@ public class NfoGeneratorService {
       MediaInfo mediaInfo, 
       String nfoFilePath) {
     try {
-      String nfoContent = buildEpisodeNfoContent(tvDetail, episode, mediaInfo);
-      boolean success = openlistApiService.writeTextFile(openlistConfig, nfoFilePath, nfoContent);
+      boolean success =
+          saveNfoToOpenlist(
+              openlistConfig,
+              nfoFilePath,
+              (nfo, dateAdded) ->
+                  writeEpisodeNfoContent(nfo, tvDetail, episode, mediaInfo, dateAdded));
       if (success) {
         log.info("剧集NFO文件通过OpenList保存成功: {}", nfoFilePath);
       }
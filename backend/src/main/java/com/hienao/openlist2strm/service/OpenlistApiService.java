@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hienao.openlist2strm.constant.AppConstants;
 import com.hienao.openlist2strm.entity.OpenlistConfig;
 import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.util.OpenlistSigner;
 import com.hienao.openlist2strm.util.UrlEncoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
@@ -31,8 +32,13 @@ import org.springframework.web.util.UriComponentsBuilder;
 @RequiredArgsConstructor
 public class OpenlistApiService {
 
+  /** 默认下载大小上限（MB） */
+  private static final long DEFAULT_MAX_DOWNLOAD_MB = 2048L;
+
   private final RestTemplate restTemplate;
+  private final FileWriteService fileWriteService;
   private final ObjectMapper objectMapper;
+  private final SystemConfigService systemConfigService;
 
   /** OpenList API响应数据结构 */
   @Data
@@ -323,6 +329,58 @@ public class OpenlistApiService {
     }
   }
 
+  /**
+   * 获取单个文件信息（包含最新的sign和raw_url）
+   *
+   * @param config OpenList配置
+   * @param filePath 文件路径
+   * @return 文件信息
+   */
+  public FsGetData getFileInfo(OpenlistConfig config, String filePath) {
+    try {
+      String apiUrl = config.getBaseUrl();
+      if (!apiUrl.endsWith("/")) {
+        apiUrl += "/";
+      }
+      apiUrl += "api/fs/get";
+
+      HttpHeaders headers = new HttpHeaders();
+      headers.setContentType(MediaType.APPLICATION_JSON);
+      headers.set("User-Agent", AppConstants.USER_AGENT);
+      headers.set("Authorization", config.getToken());
+
+      Map<String, Object> body = new HashMap<>();
+      body.put("path", filePath);
+      body.put("password", "");
+      String requestBody = objectMapper.writeValueAsString(body);
+
+      HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
+      ResponseEntity<String> response =
+          restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+
+      if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+        throw new BusinessException("OpenList API请求失败，状态码: " + response.getStatusCode());
+      }
+
+      FsGetApiResponse fsResponse =
+          objectMapper.readValue(response.getBody(), FsGetApiResponse.class);
+      if (fsResponse.getCode() == null || !fsResponse.getCode().equals(200)) {
+        throw new BusinessException("获取文件信息失败: " + fsResponse.getMessage());
+      }
+      if (fsResponse.getData() == null) {
+        throw new BusinessException("文件不存在: " + filePath);
+      }
+
+      return fsResponse.getData();
+
+    } catch (BusinessException e) {
+      throw e;
+    } catch (Exception e) {
+      log.error("获取文件信息失败: {}, 错误: {}", filePath, e.getMessage(), e);
+      throw new BusinessException("获取文件信息失败: " + e.getMessage(), e);
+    }
+  }
+
   /**
    * 获取文件内容（使用OpenlistFile对象，包含sign参数）
    *
@@ -511,6 +569,135 @@ public class OpenlistApiService {
     }
   }
 
+  /**
+   * 流式下载文件到本地（不进行URL编码，适用于刮削文件下载场景）
+   *
+   * <p>响应体直接写入目标目录下的临时文件后原子替换目标文件，不在内存中缓存完整内容；302重定向最多跟随一次。
+   * 超过下载大小上限的文件不会写入
+   *
+   * @param config OpenList配置
+   * @param file   OpenlistFile对象
+   * @param target 本地目标文件
+   * @return 写入的字节数，下载失败或内容为空时返回0
+   */
+  public long downloadFile(OpenlistConfig config, OpenlistFile file, java.nio.file.Path target) {
+    long maxBytes = getMaxDownloadBytes();
+    try {
+      Long bytes =
+          streamFile(
+              config,
+              file,
+              null,
+              (status, headers, body) -> {
+                if (headers.getContentLength() > maxBytes) {
+                  log.warn(
+                      "文件超过下载大小上限，跳过: {}, 大小: {} bytes",
+                      file.getName(),
+                      headers.getContentLength());
+                  return 0L;
+                }
+                return fileWriteService.writeStream(target, body, maxBytes);
+              });
+
+      if (bytes == null || bytes <= 0) {
+        log.warn("文件下载失败或内容为空: {}", file.getName());
+        return 0;
+      }
+      log.debug("文件下载成功 - 文件名: {}, 大小: {} bytes", file.getName(), bytes);
+      return bytes;
+    } catch (Exception e) {
+      log.error("下载文件异常: {}, 错误: {}", file.getName(), e.getMessage());
+      return 0;
+    }
+  }
+
+  /** 流式下载响应处理器，在连接关闭前读取响应体 */
+  @FunctionalInterface
+  public interface DownloadHandler<T> {
+    T handle(HttpStatusCode status, HttpHeaders headers, java.io.InputStream body)
+        throws java.io.IOException;
+  }
+
+  /**
+   * 流式下载文件（不进行URL编码），响应体交给处理器直接读取，不在内存中缓存完整内容
+   *
+   * <p>302重定向最多跟随一次，只有重定向到同一域名时才发送认证头
+   *
+   * @param config  OpenList配置
+   * @param file    OpenlistFile对象
+   * @param range   请求头 Range，可为空
+   * @param handler 响应处理器，处理2xx响应；4xx/5xx由RestTemplate抛出 HttpStatusCodeException
+   * @return 处理器的返回值，重定向无法完成时返回null
+   */
+  public <T> T streamFile(
+      OpenlistConfig config, OpenlistFile file, String range, DownloadHandler<T> handler) {
+    String fileUrl = buildFileUrl(config.getBaseUrl(), file.getPath());
+    if (file.getSign() != null && !file.getSign().isEmpty()) {
+      fileUrl = fileUrl + "?sign=" + file.getSign();
+    }
+
+    StreamResult<T> result =
+        openStream(java.net.URI.create(fileUrl), config.getToken(), range, handler);
+    if (result.redirectUrl() != null) {
+      String redirectUrl = result.redirectUrl();
+      // 只有重定向到同一域名时才发送认证头
+      boolean isExternalRedirect = !redirectUrl.contains(config.getBaseUrl());
+      log.debug("下载文件跟随302重定向: {}, 外部地址: {}", file.getName(), isExternalRedirect);
+      result =
+          openStream(
+              java.net.URI.create(redirectUrl),
+              isExternalRedirect ? null : config.getToken(),
+              range,
+              handler);
+    }
+    return result.redirectUrl() != null ? null : result.value();
+  }
+
+  /**
+   * 获取下载大小上限
+   *
+   * @return 大小上限（字节）
+   */
+  public long getMaxDownloadBytes() {
+    Object value = systemConfigService.getDownloadConfig().get("maxSizeMb");
+    long maxSizeMb =
+        value instanceof Number number && number.longValue() > 0
+            ? number.longValue()
+            : DEFAULT_MAX_DOWNLOAD_MB;
+    return maxSizeMb * 1024 * 1024;
+  }
+
+  /** 流式下载结果：处理器的返回值，或需要跟随的重定向地址 */
+  private record StreamResult<T>(T value, String redirectUrl) {}
+
+  private <T> StreamResult<T> openStream(
+      java.net.URI uri, String token, String range, DownloadHandler<T> handler) {
+    return restTemplate.execute(
+        uri,
+        HttpMethod.GET,
+        request -> {
+          if (token != null && !token.isEmpty()) {
+            request.getHeaders().set("Authorization", token);
+          }
+          if (range != null && !range.isEmpty()) {
+            request.getHeaders().set(HttpHeaders.RANGE, range);
+          }
+        },
+        response -> {
+          if (response.getStatusCode().is3xxRedirection()) {
+            java.net.URI location = response.getHeaders().getLocation();
+            if (location == null) {
+              return new StreamResult<>(null, null);
+            }
+            return new StreamResult<>(null, uri.resolve(location).toString());
+          }
+          try (java.io.InputStream body = response.getBody()) {
+            return new StreamResult<>(
+                handler.handle(response.getStatusCode(), response.getHeaders(), body), null);
+          }
+        });
+  }
+
   /**
    * 获取文件内容（使用文件路径）
    *
@@ -1139,193 +1326,106 @@ public class OpenlistApiService {
     return cleanPath;
   }
 
-  /**
-   * 批量重命名文件
-   *
-   * @param config OpenList配置
-   * @param renameList 重命名列表，包含源路径和目标路径
-   * @return 重命名结果，包含成功和失败的列表
-   */
-  public Map<String, Object> batchRenameFiles(OpenlistConfig config, List<Map<String, String>> renameList) {
-    Map<String, Object> result = new HashMap<>();
-    List<Map<String, String>> successList = new ArrayList<>();
-    List<Map<String, String>> failedList = new ArrayList<>();
-
-    for (Map<String, String> renameItem : renameList) {
-      String srcPath = renameItem.get("srcPath");
-      String dstPath = renameItem.get("dstPath");
-
-      try {
-        boolean success = renameFile(config, srcPath, dstPath);
-        Map<String, String> item = new HashMap<>();
-        item.put("srcPath", srcPath);
-        item.put("dstPath", dstPath);
-
-        if (success) {
-          successList.add(item);
-        } else {
-          failedList.add(item);
-        }
-      } catch (Exception e) {
-        log.error("批量重命名项失败: {} -> {}", srcPath, dstPath, e);
-        Map<String, String> item = new HashMap<>();
-        item.put("srcPath", srcPath);
-        item.put("dstPath", dstPath);
-        item.put("error", e.getMessage());
-        failedList.add(item);
-      }
-    }
-
-    result.put("success", successList);
-    result.put("failed", failedList);
-    result.put("total", renameList.size());
-    result.put("successCount", successList.size());
-    result.put("failedCount", failedList.size());
-
-    return result;
+  /** 批量重命名接口的执行结果 */
+  public enum BatchRenameOutcome {
+    /** 全部重命名成功 */
+    SUCCESS,
+    /** 服务端不支持批量重命名接口 */
+    UNSUPPORTED,
+    /** 接口返回失败，可能已部分执行 */
+    FAILED
   }
 
   /**
-   * 写入文本文件内容
+   * 使用 api/fs/batch_rename 在同一目录下批量重命名
    *
    * @param config OpenList配置
-   * @param filePath 文件路径（相对于挂载目录）
-   * @param content 文件内容
-   * @return 是否写入成功
+   * @param srcDir 所在目录（相对于挂载目录）
+   * @param renames 原文件名 -> 新文件名
+   * @return 执行结果
    */
-  public boolean writeTextFile(OpenlistConfig config, String filePath, String content) {
+  public BatchRenameOutcome batchRename(
+      OpenlistConfig config, String srcDir, Map<String, String> renames) {
     try {
-      log.info("开始写入文本文件: {}", filePath);
-
       String apiUrl = config.getBaseUrl();
       if (!apiUrl.endsWith("/")) {
         apiUrl += "/";
       }
-      apiUrl += "api/fs/put";
-
-      String requestUrl = UriComponentsBuilder.fromHttpUrl(apiUrl).toUriString();
-      log.debug("写入文件请求URL: {}", requestUrl);
+      apiUrl += "api/fs/batch_rename";
 
       HttpHeaders headers = new HttpHeaders();
       headers.setContentType(MediaType.APPLICATION_JSON);
       headers.set("User-Agent", AppConstants.USER_AGENT);
       headers.set("Authorization", config.getToken());
-      headers.set("File-Path", filePath);
-
-      HttpEntity<String> entity = new HttpEntity<>(content, headers);
 
+      List<Map<String, String>> renameObjects = new ArrayList<>();
+      renames.forEach(
+          (srcName, newName) -> {
+            Map<String, String> item = new HashMap<>();
+            item.put("src_name", srcName);
+            item.put("new_name", newName);
+            renameObjects.add(item);
+          });
+      Map<String, Object> body = new HashMap<>();
+      body.put("src_dir", "/" + cleanPathForAlist(srcDir));
+      body.put("rename_objects", renameObjects);
+
+      HttpEntity<String> entity = new HttpEntity<>(objectMapper.writeValueAsString(body), headers);
       long startTime = System.currentTimeMillis();
-      ResponseEntity<String> response = restTemplate.exchange(requestUrl, HttpMethod.PUT, entity, String.class);
-      long endTime = System.currentTimeMillis();
-
-      log.info("写入文件请求耗时: {}ms", endTime - startTime);
+      ResponseEntity<String> response =
+          restTemplate.exchange(apiUrl, HttpMethod.POST, entity, String.class);
+      log.info("批量重命名请求耗时: {}ms, 目录: {}, 数量: {}",
+          System.currentTimeMillis() - startTime, srcDir, renames.size());
 
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        log.error("写入文件失败，状态码: {}", response.getStatusCode());
-        return false;
+      AlistApiResponse apiResponse;
+      try {
+        apiResponse = objectMapper.readValue(response.getBody(), AlistApiResponse.class);
+      } catch (Exception e) {
+        // 旧版本没有该接口时可能返回前端页面
+        return BatchRenameOutcome.UNSUPPORTED;
       }
-
-      String responseBody = response.getBody();
-      log.debug("写入文件响应: {}", responseBody);
-
-      AlistApiResponse apiResponse = objectMapper.readValue(responseBody, AlistApiResponse.class);
-
       if (apiResponse.getCode() == null || !apiResponse.getCode().equals(200)) {
-        log.error("写入文件失败: {}", apiResponse.getMessage());
-        return false;
+        log.warn("批量重命名失败: {}, 目录: {}", apiResponse.getMessage(), srcDir);
+        return BatchRenameOutcome.FAILED;
       }
+      return BatchRenameOutcome.SUCCESS;
 
-      log.info("写入文件成功: {}", filePath);
-      return true;
-
+    } catch (org.springframework.web.client.HttpClientErrorException.NotFound
+        | org.springframework.web.client.HttpClientErrorException.MethodNotAllowed e) {
+      return BatchRenameOutcome.UNSUPPORTED;
     } catch (Exception e) {
-      log.error("写入文件异常: {}, 错误: {}", filePath, e.getMessage(), e);
-      return false;
+      log.error("批量重命名异常: {}, 错误: {}", srcDir, e.getMessage());
+      return BatchRenameOutcome.FAILED;
     }
   }
 
   /**
-   * 下载并保存图片
+   * 是否配置了本地签名
    *
    * @param config OpenList配置
-   * @param imageUrl 图片URL
-   * @param filePath 保存路径（相对于挂载目录）
-   * @return 是否保存成功
+   * @return 配置了签名密钥时返回true
    */
-  public boolean downloadAndSaveImage(OpenlistConfig config, String imageUrl, String filePath) {
-    try {
-      log.info("开始下载并保存图片: {} -> {}", imageUrl, filePath);
-
-      byte[] imageBytes = restTemplate.getForObject(imageUrl, byte[].class);
-      
-      if (imageBytes == null || imageBytes.length == 0) {
-        log.error("下载图片失败: 图片为空");
-        return false;
-      }
-
-      return saveImageBytes(config, imageBytes, filePath);
-
-    } catch (Exception e) {
-      log.error("下载并保存图片异常: {}, 错误: {}", filePath, e.getMessage(), e);
-      return false;
-    }
+  public boolean hasLocalSigner(OpenlistConfig config) {
+    return config != null && config.getSignSecret() != null && !config.getSignSecret().isEmpty();
   }
 
   /**
-   * 保存图片字节数组到OpenList
+   * 获取文件签名 配置了本地签名密钥时在本地计算，否则使用列表接口返回的sign
    *
    * @param config OpenList配置
-   * @param imageBytes 图片字节数组
-   * @param filePath 保存路径（相对于挂载目录）
-   * @return 是否保存成功
+   * @param filePath 文件路径
+   * @param listingSign 列表接口返回的sign，可为空
+   * @return 签名字符串，可能为空
    */
-  public boolean saveImageBytes(OpenlistConfig config, byte[] imageBytes, String filePath) {
-    try {
-      log.info("开始保存图片字节数组: {}", filePath);
-
-      if (imageBytes == null || imageBytes.length == 0) {
-        log.error("保存图片失败: 图片为空");
-        return false;
-      }
-
-      String apiUrl = config.getBaseUrl();
-      if (!apiUrl.endsWith("/")) {
-        apiUrl += "/";
-      }
-      apiUrl += "api/fs/put";
-
-      String requestUrl = UriComponentsBuilder.fromHttpUrl(apiUrl).toUriString();
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      headers.set("Authorization", config.getToken());
-      headers.set("File-Path", filePath);
-
-      HttpEntity<byte[]> entity = new HttpEntity<>(imageBytes, headers);
-
-      ResponseEntity<String> response = restTemplate.exchange(requestUrl, HttpMethod.PUT, entity, String.class);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        log.error("保存图片失败，状态码: {}", response.getStatusCode());
-        return false;
-      }
-
-      String responseBody = response.getBody();
-      AlistApiResponse apiResponse = objectMapper.readValue(responseBody, AlistApiResponse.class);
-
-      if (apiResponse.getCode() == null || !apiResponse.getCode().equals(200)) {
-        log.error("保存图片失败: {}", apiResponse.getMessage());
-        return false;
-      }
-
-      log.info("保存图片成功: {}", filePath);
-      return true;
-
-    } catch (Exception e) {
-      log.error("保存图片异常: {}, 错误: {}", filePath, e.getMessage(), e);
-      return false;
+  public String resolveFileSign(OpenlistConfig config, String filePath, String listingSign) {
+    if (!hasLocalSigner(config)) {
+      return listingSign;
     }
+    return OpenlistSigner.signWithHours(
+        config.getSignSecret(),
+        filePath,
+        config.getSignExpireHours(),
+        System.currentTimeMillis() / 1000);
   }
 
   /**
@@ -1337,7 +1437,7 @@ public class OpenlistApiService {
    * @param filePath 文件路径
    * @return 完整的文件URL
    */
-  private String buildFileUrl(String baseUrl, String filePath) {
+  public String buildFileUrl(String baseUrl, String filePath) {
     try {
       // 确保baseUrl以/结尾
       if (!baseUrl.endsWith("/")) {
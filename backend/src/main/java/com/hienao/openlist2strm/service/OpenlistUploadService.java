@@ -0,0 +1,352 @@
+package com.hienao.openlist2strm.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hienao.openlist2strm.constant.AppConstants;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriUtils;
+
+/**
+ * OpenList上传服务
+ *
+ * <p>通过 api/fs/put 流式上传请求体，不在内存中缓存完整文件；每个OpenList配置的并发上传数受配置限制，
+ * 失败后按指数退避重试。远程文件大小和哈希与本地一致时跳过上传
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OpenlistUploadService {
+
+  private static final int DEFAULT_CONCURRENCY = 4;
+  private static final int DEFAULT_RETRIES = 3;
+  private static final long RETRY_BASE_DELAY_MILLIS = 1_000L;
+
+  /** OpenList哈希类型与本地摘要算法的对应关系 */
+  private static final Map<String, String> HASH_ALGORITHMS =
+      Map.of("md5", "MD5", "sha1", "SHA-1", "sha256", "SHA-256");
+
+  private final OpenlistApiService openlistApiService;
+  private final SystemConfigService systemConfigService;
+  private final ObjectMapper objectMapper;
+  private final ExecutorService scrapingExecutor;
+
+  /** 上传专用客户端：不带拦截器，请求体不会被缓存 */
+  private final RestTemplate uploadRestTemplate = createRestTemplate();
+
+  /** 每个OpenList配置的并发上传限制 */
+  private final Map<Long, UploadLimiter> limiters = new ConcurrentHashMap<>();
+
+  /** 上传内容：长度已知，可重复打开（重试和计算哈希时重新读取） */
+  public interface UploadSource {
+    long size() throws IOException;
+
+    InputStream open() throws IOException;
+
+    static UploadSource of(Path file) {
+      return new UploadSource() {
+        @Override
+        public long size() throws IOException {
+          return Files.size(file);
+        }
+
+        @Override
+        public InputStream open() throws IOException {
+          return Files.newInputStream(file);
+        }
+      };
+    }
+
+    static UploadSource of(byte[] content) {
+      return new UploadSource() {
+        @Override
+        public long size() {
+          return content.length;
+        }
+
+        @Override
+        public InputStream open() {
+          return new ByteArrayInputStream(content);
+        }
+      };
+    }
+  }
+
+  /** 单个上传请求 */
+  public record UploadRequest(String remotePath, UploadSource source) {}
+
+  /** 上传结果 */
+  public enum UploadResult {
+    /** 已上传 */
+    UPLOADED,
+    /** 远程文件与本地一致，未上传 */
+    UNCHANGED,
+    /** 重试后仍失败 */
+    FAILED
+  }
+
+  /** 并发限制及其对应的配置值，配置变化时重建 */
+  private record UploadLimiter(int permits, Semaphore semaphore) {}
+
+  /**
+   * 上传单个文件，受该配置的并发上传数限制
+   *
+   * @param config OpenList配置
+   * @param remotePath 远程路径（相对于挂载目录）
+   * @param source 上传内容
+   * @return 上传结果
+   */
+  public UploadResult upload(OpenlistConfig config, String remotePath, UploadSource source) {
+    Semaphore semaphore = limiterFor(config);
+    try {
+      semaphore.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return UploadResult.FAILED;
+    }
+    try {
+      if (isRemoteUnchanged(config, remotePath, source)) {
+        log.info("远程文件与本地一致，跳过上传: {}", remotePath);
+        return UploadResult.UNCHANGED;
+      }
+      return uploadWithRetry(config, remotePath, source);
+    } finally {
+      semaphore.release();
+    }
+  }
+
+  /**
+   * 并行上传多个文件，全部完成后返回
+   *
+   * @param config OpenList配置
+   * @param requests 上传请求
+   * @return 每个远程路径的上传结果
+   */
+  public Map<String, UploadResult> uploadAll(OpenlistConfig config, List<UploadRequest> requests) {
+    Map<String, CompletableFuture<UploadResult>> futures = new LinkedHashMap<>();
+    for (UploadRequest request : requests) {
+      futures.computeIfAbsent(
+          request.remotePath(),
+          remotePath ->
+              CompletableFuture.supplyAsync(
+                  () -> upload(config, remotePath, request.source()), scrapingExecutor));
+    }
+
+    Map<String, UploadResult> results = new LinkedHashMap<>();
+    futures.forEach((remotePath, future) -> results.put(remotePath, future.join()));
+    return results;
+  }
+
+  private UploadResult uploadWithRetry(
+      OpenlistConfig config, String remotePath, UploadSource source) {
+    int retries = getPositiveInt("uploadRetries", DEFAULT_RETRIES);
+    for (int attempt = 0; ; attempt++) {
+      try {
+        put(config, remotePath, source);
+        log.info("上传文件成功: {}", remotePath);
+        return UploadResult.UPLOADED;
+      } catch (Exception e) {
+        if (attempt >= retries) {
+          log.error("上传文件失败: {}, 已重试 {} 次, 错误: {}", remotePath, retries, e.getMessage());
+          return UploadResult.FAILED;
+        }
+        long delay = RETRY_BASE_DELAY_MILLIS << attempt;
+        log.warn("上传文件失败: {}, {}ms 后重试, 错误: {}", remotePath, delay, e.getMessage());
+        try {
+          Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+          Thread.currentThread().interrupt();
+          return UploadResult.FAILED;
+        }
+      }
+    }
+  }
+
+  /** 发送 PUT 请求，请求体直接从数据源写入连接 */
+  private void put(OpenlistConfig config, String remotePath, UploadSource source)
+      throws IOException {
+    String apiUrl = config.getBaseUrl();
+    if (!apiUrl.endsWith("/")) {
+      apiUrl += "/";
+    }
+    apiUrl += "api/fs/put";
+    long size = source.size();
+
+    String responseBody =
+        uploadRestTemplate.execute(
+            URI.create(apiUrl),
+            HttpMethod.PUT,
+            request -> {
+              request.getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+              request.getHeaders().setContentLength(size);
+              request.getHeaders().set("User-Agent", AppConstants.USER_AGENT);
+              request.getHeaders().set("Authorization", config.getToken());
+              // 服务端会对 File-Path 做路径解码，中文等字符需要编码后才能放入请求头
+              request
+                  .getHeaders()
+                  .set("File-Path", UriUtils.encodePath(remotePath, StandardCharsets.UTF_8));
+              if (request instanceof StreamingHttpOutputMessage streaming) {
+                streaming.setBody(out -> copy(source, out));
+              } else {
+                copy(source, request.getBody());
+              }
+            },
+            response -> {
+              if (!response.getStatusCode().is2xxSuccessful()) {
+                throw new BusinessException("上传请求失败，状态码: " + response.getStatusCode());
+              }
+              return StreamUtils.copyToString(response.getBody(), StandardCharsets.UTF_8);
+            });
+
+    OpenlistApiService.AlistApiResponse apiResponse =
+        objectMapper.readValue(responseBody, OpenlistApiService.AlistApiResponse.class);
+    if (apiResponse.getCode() == null || !apiResponse.getCode().equals(200)) {
+      throw new BusinessException("上传失败: " + apiResponse.getMessage());
+    }
+  }
+
+  private static void copy(UploadSource source, OutputStream out) throws IOException {
+    try (InputStream in = source.open()) {
+      in.transferTo(out);
+    }
+  }
+
+  /** 远程文件大小一致，且至少有一种哈希与本地一致时视为未变化；远程未提供哈希时不跳过 */
+  private boolean isRemoteUnchanged(
+      OpenlistConfig config, String remotePath, UploadSource source) {
+    OpenlistApiService.FsGetData remote;
+    try {
+      remote = openlistApiService.getFileInfo(config, remotePath);
+    } catch (BusinessException e) {
+      // 文件不存在或无法获取信息时直接上传
+      return false;
+    }
+
+    try {
+      if (remote.getSize() == null || remote.getSize() != source.size()) {
+        return false;
+      }
+      Map<String, String> remoteHashes = parseHashes(remote);
+      if (remoteHashes.isEmpty()) {
+        return false;
+      }
+      Map<String, String> localHashes = digest(source, remoteHashes.keySet());
+      return remoteHashes.entrySet().stream()
+          .anyMatch(entry -> entry.getValue().equalsIgnoreCase(localHashes.get(entry.getKey())));
+    } catch (Exception e) {
+      log.debug("比较远程文件失败: {}, 错误: {}", remotePath, e.getMessage());
+      return false;
+    }
+  }
+
+  /** 解析 hash_info / hashinfo 中支持的哈希 */
+  @SuppressWarnings("unchecked")
+  private Map<String, String> parseHashes(OpenlistApiService.FsGetData remote) throws IOException {
+    Object hashInfo = remote.getHashInfo();
+    if (!(hashInfo instanceof Map) && remote.getHashinfo() != null) {
+      String text = remote.getHashinfo().trim();
+      hashInfo = text.startsWith("{") ? objectMapper.readValue(text, Map.class) : null;
+    }
+
+    Map<String, String> hashes = new LinkedHashMap<>();
+    if (hashInfo instanceof Map<?, ?> map) {
+      map.forEach(
+          (key, value) -> {
+            String type = String.valueOf(key).toLowerCase(Locale.ROOT);
+            if (HASH_ALGORITHMS.containsKey(type)
+                && value instanceof String hash
+                && !hash.isEmpty()) {
+              hashes.put(type, hash);
+            }
+          });
+    }
+    return hashes;
+  }
+
+  /** 一次读取同时计算所需的摘要 */
+  private static Map<String, String> digest(UploadSource source, Iterable<String> types)
+      throws IOException {
+    Map<String, MessageDigest> digests = new LinkedHashMap<>();
+    for (String type : types) {
+      try {
+        digests.put(type, MessageDigest.getInstance(HASH_ALGORITHMS.get(type)));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(HASH_ALGORITHMS.get(type) + "算法不可用", e);
+      }
+    }
+
+    byte[] buffer = new byte[8192];
+    try (InputStream in = source.open()) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        for (MessageDigest md : digests.values()) {
+          md.update(buffer, 0, read);
+        }
+      }
+    }
+
+    Map<String, String> result = new LinkedHashMap<>();
+    digests.forEach((type, md) -> result.put(type, HexFormat.of().formatHex(md.digest())));
+    return result;
+  }
+
+  private Semaphore limiterFor(OpenlistConfig config) {
+    int permits = getPositiveInt("uploadConcurrency", DEFAULT_CONCURRENCY);
+    Long key = config.getId() != null ? config.getId() : 0L;
+    return limiters
+        .compute(
+            key,
+            (id, current) ->
+                current != null && current.permits() == permits
+                    ? current
+                    : new UploadLimiter(permits, new Semaphore(permits)))
+        .semaphore();
+  }
+
+  private int getPositiveInt(String key, int defaultValue) {
+    Object value = systemConfigService.getScrapingConfig().get(key);
+    if (value instanceof Number number && number.intValue() > 0) {
+      return number.intValue();
+    }
+    return defaultValue;
+  }
+
+  private static RestTemplate createRestTemplate() {
+    SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+    factory.setConnectTimeout((int) Duration.ofSeconds(30).toMillis());
+    // 大文件上传后服务端可能需要较长时间转存到云盘
+    factory.setReadTimeout((int) Duration.ofMinutes(10).toMillis());
+    return new RestTemplate(factory);
+  }
+}
@@ -0,0 +1,241 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.dto.media.MediaInfo;
+import com.hienao.openlist2strm.entity.ScrapeStateEntry;
+import com.hienao.openlist2strm.mapper.ScrapeStateMapper;
+import com.hienao.openlist2strm.util.MediaExtensionMatcher;
+import com.hienao.openlist2strm.util.MediaFileParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 刮削状态索引服务
+ *
+ * <p>按目录缓存"是否已完全刮削"的判断结果并持久化到数据库。每次检查只列出一次目录，
+ * 由目录内每个文件的名称、大小和修改时间计算指纹；指纹和刮削配置都未变化时直接复用上次的结果，
+ * 任一文件增删或修改（包括执行过程中）都会重新判断，重启后同样有效
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScrapeStateService {
+
+  private final SystemConfigService systemConfigService;
+  private final CoverImageService coverImageService;
+  private final ScrapeStateMapper scrapeStateMapper;
+
+  /** 判断所需的刮削配置快照 */
+  private record ScrapeSettings(
+      boolean generateNfo,
+      boolean downloadPoster,
+      boolean downloadBackdrop,
+      List<String> movieRegexps,
+      List<String> tvDirRegexps,
+      List<String> tvFileRegexps,
+      MediaExtensionMatcher extensionMatcher) {
+
+    String signature() {
+      return generateNfo
+          + "|" + downloadPoster
+          + "|" + downloadBackdrop
+          + "|" + movieRegexps
+          + "|" + tvDirRegexps
+          + "|" + tvFileRegexps
+          + "|" + extensionMatcher.getExtensions();
+    }
+  }
+
+  /**
+   * 检查目录是否已完全刮削
+   *
+   * @param directoryPath 目录路径
+   * @return 是否已完全刮削
+   */
+  public boolean isDirectoryFullyScraped(String directoryPath) {
+    try {
+      Path directory = Paths.get(directoryPath);
+      if (!Files.isDirectory(directory)) {
+        return false;
+      }
+
+      Map<String, BasicFileAttributes> files = listFiles(directory);
+      String fingerprint = fingerprint(files);
+      ScrapeSettings settings = loadSettings();
+      String signature = sha256(settings.signature());
+
+      ScrapeStateEntry cached = loadState(directoryPath);
+      if (cached != null
+          && fingerprint.equals(cached.getFingerprint())
+          && signature.equals(cached.getConfigSignature())) {
+        return Boolean.TRUE.equals(cached.getFullyScraped());
+      }
+
+      boolean fullyScraped = computeFullyScraped(files.keySet(), directoryPath, settings);
+      saveState(
+          new ScrapeStateEntry(
+              directoryPath, fingerprint, signature, fullyScraped, System.currentTimeMillis()));
+      return fullyScraped;
+
+    } catch (Exception e) {
+      log.warn("检查目录刮削状态时出错: {}", directoryPath, e);
+      return false;
+    }
+  }
+
+  /** 列出目录中的普通文件及其属性，按文件名排序 */
+  private Map<String, BasicFileAttributes> listFiles(Path directory) throws IOException {
+    Map<String, BasicFileAttributes> files = new TreeMap<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      for (Path entry : stream) {
+        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+        if (attributes.isRegularFile()) {
+          files.put(entry.getFileName().toString(), attributes);
+        }
+      }
+    }
+    return files;
+  }
+
+  /** 由文件名、大小和修改时间计算目录指纹 */
+  private static String fingerprint(Map<String, BasicFileAttributes> files) {
+    StringBuilder content = new StringBuilder();
+    files.forEach(
+        (name, attributes) ->
+            content
+                .append(name)
+                .append('|')
+                .append(attributes.size())
+                .append('|')
+                .append(attributes.lastModifiedTime().toMillis())
+                .append('\n'));
+    return sha256(content.toString());
+  }
+
+  private ScrapeStateEntry loadState(String directoryPath) {
+    try {
+      return scrapeStateMapper.selectByPath(directoryPath);
+    } catch (Exception e) {
+      log.warn("读取刮削状态失败: {}, 错误: {}", directoryPath, e.getMessage());
+      return null;
+    }
+  }
+
+  private void saveState(ScrapeStateEntry entry) {
+    try {
+      scrapeStateMapper.upsert(entry);
+    } catch (Exception e) {
+      log.warn("保存刮削状态失败: {}, 错误: {}", entry.getDirectoryPath(), e.getMessage());
+    }
+  }
+
+  /** 基于一次目录列表完成所有视频文件的检查 */
+  private boolean computeFullyScraped(
+      Set<String> fileNames, String directoryPath, ScrapeSettings settings) {
+    boolean hasNfo =
+        fileNames.stream().anyMatch(name -> name.toLowerCase(Locale.ROOT).endsWith(".nfo"));
+
+    boolean hasVideoFiles = false;
+    boolean allVideoFilesScraped = true;
+    for (String fileName : fileNames) {
+      if (!settings.extensionMatcher().matches(fileName)) {
+        continue;
+      }
+      hasVideoFiles = true;
+
+      MediaInfo mediaInfo =
+          MediaFileParser.parse(
+              fileName,
+              directoryPath,
+              settings.movieRegexps(),
+              settings.tvDirRegexps(),
+              settings.tvFileRegexps());
+      // 任何一个文件解析失败，则认为目录没有完全刮削
+      if (mediaInfo.getConfidence() < 70
+          || !isFileScraped(fileNames, hasNfo, fileName, mediaInfo, settings)) {
+        allVideoFilesScraped = false;
+        break;
+      }
+    }
+
+    boolean result = hasVideoFiles && allVideoFilesScraped;
+    if (result) {
+      log.debug("目录已完全刮削: {}", directoryPath);
+    } else {
+      log.debug(
+          "目录需要刮削: {} (hasVideoFiles: {}, allScraped: {})",
+          directoryPath,
+          hasVideoFiles,
+          allVideoFilesScraped);
+    }
+    return result;
+  }
+
+  /** 基于目录文件列表检查单个视频的刮削文件 */
+  private boolean isFileScraped(
+      Set<String> fileNames,
+      boolean hasNfo,
+      String fileName,
+      MediaInfo mediaInfo,
+      ScrapeSettings settings) {
+    if (!mediaInfo.isMovie() && !mediaInfo.isTvShow()) {
+      return false;
+    }
+    // 目录中存在任何NFO文件就视为已生成NFO
+    if (settings.generateNfo() && !hasNfo) {
+      return false;
+    }
+
+    String baseFileName = coverImageService.getStandardizedFileName(fileName);
+    if (mediaInfo.isMovie()) {
+      return (!settings.downloadPoster() || fileNames.contains(baseFileName + "-poster.jpg"))
+          && (!settings.downloadBackdrop() || fileNames.contains(baseFileName + "-fanart.jpg"));
+    }
+    return (!settings.downloadPoster()
+            || (fileNames.contains(baseFileName + "-thumb.jpg")
+                && fileNames.contains("poster.jpg")))
+        && (!settings.downloadBackdrop() || fileNames.contains("fanart.jpg"));
+  }
+
+  @SuppressWarnings("unchecked")
+  private ScrapeSettings loadSettings() {
+    Map<String, Object> scrapingConfig = systemConfigService.getScrapingConfig();
+    Map<String, Object> regexConfig = systemConfigService.getScrapingRegexConfig();
+    return new ScrapeSettings(
+        (Boolean) scrapingConfig.getOrDefault("generateNfo", true),
+        (Boolean) scrapingConfig.getOrDefault("downloadPoster", true),
+        (Boolean) scrapingConfig.getOrDefault("downloadBackdrop", false),
+        (List<String>) regexConfig.getOrDefault("movieRegexps", Collections.emptyList()),
+        (List<String>) regexConfig.getOrDefault("tvDirRegexps", Collections.emptyList()),
+        (List<String>) regexConfig.getOrDefault("tvFileRegexps", Collections.emptyList()),
+        systemConfigService.getMediaExtensionMatcher());
+  }
+
+  private static String sha256(String input) {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(md.digest(input.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256算法不可用", e);
+    }
+  }
+}
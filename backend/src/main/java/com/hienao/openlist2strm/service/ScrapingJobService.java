@@ -0,0 +1,287 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.dto.media.ScrapingJobStatus;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 批量刮削任务服务
+ *
+ * <p>文件浏览器的批量刮削在后台执行，不占用HTTP请求线程。条目按配置的并发数并行处理，
+ * 可查询进度、取消任务，结束后可下载全部结果。查询进度时只返回客户端偏移量之后新完成的结果，
+ * 轮询不会重复传输已取得的结果。已结束的任务保留一段时间后清除
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScrapingJobService {
+
+  private static final int DEFAULT_CONCURRENCY = 4;
+  private static final int MAX_CONCURRENCY = 32;
+
+  /** 已结束任务的保留时间 */
+  private static final long FINISHED_RETENTION_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final MediaScrapingService mediaScrapingService;
+  private final SystemConfigService systemConfigService;
+  private final ExecutorService scrapingExecutor;
+
+  /** 任务ID -> 刮削任务 */
+  private final Map<String, ScrapingJob> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * 提交批量刮削任务
+   *
+   * @param openlistConfig OpenList配置
+   * @param targets 刮削目标
+   * @param options 刮削选项
+   * @param concurrency 并发数，为空时使用系统配置
+   * @return 任务状态
+   */
+  public ScrapingJobStatus submit(
+      OpenlistConfig openlistConfig,
+      List<MediaScrapingService.ScrapTarget> targets,
+      Map<String, Boolean> options,
+      Integer concurrency) {
+    if (targets == null || targets.isEmpty()) {
+      throw new BusinessException("刮削条目不能为空");
+    }
+    purgeFinished();
+
+    int threads = resolveConcurrency(concurrency);
+    ScrapingJob job =
+        new ScrapingJob(
+            UUID.randomUUID().toString().replace("-", "").substring(0, 12),
+            openlistConfig.getId(),
+            targets.size(),
+            threads);
+    jobs.put(job.jobId, job);
+
+    try {
+      scrapingExecutor.execute(() -> runJob(job, openlistConfig, targets, options));
+    } catch (RejectedExecutionException e) {
+      job.finish("FAILED", "刮削任务提交失败，请稍后重试");
+      throw new BusinessException("刮削任务提交失败，请稍后重试");
+    }
+
+    log.info(
+        "已提交批量刮削任务 - 任务ID: {}, 配置ID: {}, 条目数: {}, 并发数: {}",
+        job.jobId,
+        job.configId,
+        targets.size(),
+        threads);
+    return job.toStatus();
+  }
+
+  /**
+   * 获取刮削任务进度
+   *
+   * @param configId OpenList配置ID
+   * @param jobId 任务ID
+   * @param offset 客户端已取得的结果数，只返回之后完成的结果
+   * @return 任务进度（含新完成条目的结果和下次查询的偏移量），不存在时返回null
+   */
+  public ScrapingJobStatus getStatus(Long configId, String jobId, int offset) {
+    ScrapingJob job = findJob(configId, jobId);
+    return job != null ? job.toStatus().setResults(job.completedSince(offset)) : null;
+  }
+
+  /**
+   * 获取刮削任务的全部结果
+   *
+   * @param configId OpenList配置ID
+   * @param jobId 任务ID
+   * @return 任务状态（含全部已处理条目的结果，按提交顺序排列），不存在时返回null
+   */
+  public ScrapingJobStatus getResults(Long configId, String jobId) {
+    ScrapingJob job = findJob(configId, jobId);
+    return job != null ? job.toStatus().setResults(job.resultsInOrder()) : null;
+  }
+
+  /**
+   * 取消刮削任务，正在处理的条目会执行完毕
+   *
+   * @param configId OpenList配置ID
+   * @param jobId 任务ID
+   * @return 是否存在正在执行的任务
+   */
+  public boolean cancel(Long configId, String jobId) {
+    ScrapingJob job = findJob(configId, jobId);
+    if (job == null || !job.isRunning()) {
+      return false;
+    }
+    job.cancelled.set(true);
+    log.info("已请求取消批量刮削任务 - 任务ID: {}", jobId);
+    return true;
+  }
+
+  private void runJob(
+      ScrapingJob job,
+      OpenlistConfig openlistConfig,
+      List<MediaScrapingService.ScrapTarget> targets,
+      Map<String, Boolean> options) {
+    try {
+      mediaScrapingService.batchScrapFromTmdbMatch(
+          openlistConfig,
+          targets,
+          options,
+          job.concurrency,
+          new MediaScrapingService.BatchScrapListener() {
+            @Override
+            public boolean isCancelled() {
+              return job.cancelled.get();
+            }
+
+            @Override
+            public void onItemDone(int index, Map<String, Object> result) {
+              job.record(index, result);
+            }
+          });
+      job.finish(job.cancelled.get() ? "CANCELLED" : "COMPLETED", null);
+      log.info(
+          "批量刮削任务结束 - 任务ID: {}, 状态: {}, 成功: {}, 失败: {}, 取消: {}",
+          job.jobId,
+          job.state,
+          job.success.get(),
+          job.failed.get(),
+          job.cancelledItems.get());
+    } catch (Exception e) {
+      log.error("批量刮削任务失败 - 任务ID: {}, 错误: {}", job.jobId, e.getMessage(), e);
+      job.finish("FAILED", e.getMessage());
+    }
+  }
+
+  private ScrapingJob findJob(Long configId, String jobId) {
+    ScrapingJob job = jobId != null ? jobs.get(jobId) : null;
+    return job != null && Objects.equals(job.configId, configId) ? job : null;
+  }
+
+  private int resolveConcurrency(Integer concurrency) {
+    if (concurrency != null && concurrency > 0) {
+      return Math.min(concurrency, MAX_CONCURRENCY);
+    }
+    Object configured = systemConfigService.getScrapingConfig().get("batchConcurrency");
+    if (configured instanceof Number number && number.intValue() > 0) {
+      return Math.min(number.intValue(), MAX_CONCURRENCY);
+    }
+    return DEFAULT_CONCURRENCY;
+  }
+
+  /** 清除超过保留时间的已结束任务 */
+  private void purgeFinished() {
+    long expireBefore = System.currentTimeMillis() - FINISHED_RETENTION_MILLIS;
+    jobs.values().removeIf(job -> !job.isRunning() && job.endTime < expireBefore);
+  }
+
+  /** 单个刮削任务的运行状态 */
+  private static class ScrapingJob {
+    private final String jobId;
+    private final Long configId;
+    private final int total;
+    private final int concurrency;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger success = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger cancelledItems = new AtomicInteger();
+    private final AtomicReferenceArray<Map<String, Object>> results;
+
+    /** 按完成顺序排列的结果，作为进度查询的偏移量基准 */
+    private final List<Map<String, Object>> completed = new ArrayList<>();
+    private volatile String state = "RUNNING";
+    private volatile String message;
+    private volatile long endTime;
+
+    ScrapingJob(String jobId, Long configId, int total, int concurrency) {
+      this.jobId = jobId;
+      this.configId = configId;
+      this.total = total;
+      this.concurrency = concurrency;
+      this.results = new AtomicReferenceArray<>(total);
+    }
+
+    boolean isRunning() {
+      return "RUNNING".equals(state);
+    }
+
+    void record(int index, Map<String, Object> result) {
+      results.set(index, result);
+      synchronized (completed) {
+        completed.add(result);
+      }
+      if (Boolean.TRUE.equals(result.get("cancelled"))) {
+        cancelledItems.incrementAndGet();
+      } else if (Boolean.TRUE.equals(result.get("success"))) {
+        success.incrementAndGet();
+      } else {
+        failed.incrementAndGet();
+      }
+      processed.incrementAndGet();
+    }
+
+    void finish(String finalState, String finalMessage) {
+      this.endTime = System.currentTimeMillis();
+      this.message = finalMessage;
+      this.state = finalState;
+    }
+
+    List<Map<String, Object>> completedSince(int offset) {
+      synchronized (completed) {
+        int from = Math.min(Math.max(offset, 0), completed.size());
+        return new ArrayList<>(completed.subList(from, completed.size()));
+      }
+    }
+
+    List<Map<String, Object>> resultsInOrder() {
+      List<Map<String, Object>> done = new ArrayList<>();
+      for (int i = 0; i < total; i++) {
+        Map<String, Object> result = results.get(i);
+        if (result != null) {
+          done.add(result);
+        }
+      }
+      return done;
+    }
+
+    ScrapingJobStatus toStatus() {
+      long elapsed = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+      ScrapingJobStatus status =
+          new ScrapingJobStatus()
+              .setJobId(jobId)
+              .setConfigId(configId)
+              .setState(state)
+              .setConcurrency(concurrency)
+              .setTotal(total)
+              .setProcessed(processed.get())
+              .setSuccessCount(success.get())
+              .setFailedCount(failed.get())
+              .setCancelledCount(cancelledItems.get())
+              .setStartTime(startTime)
+              .setElapsedMillis(elapsed)
+              .setMessage(message);
+      synchronized (completed) {
+        status.setNextOffset(completed.size());
+      }
+      return status;
+    }
+  }
+}
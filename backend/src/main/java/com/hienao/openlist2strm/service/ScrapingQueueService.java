@@ -0,0 +1,206 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.exception.BusinessException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 刮削队列服务
+ *
+ * <p>刮削从STRM生成中分离，按目录提交到独立的虚拟线程池执行，同一目录下的文件由同一个任务依次处理。
+ * 并发目录数和排队目录数可配置，由所有批次共享（与TMDB限流器一样是进程级限制），同时执行的多个任务合计不超过配置值；
+ * 队列满时提交方阻塞（背压）。每次执行创建一个批次，执行结束前等待批次内的刮削全部完成
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScrapingQueueService {
+
+  private static final int DEFAULT_WORKER_COUNT = 4;
+  private static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+  /** 并发目录数上限 */
+  private static final int MAX_WORKER_COUNT = 64;
+
+  /** 排队目录数上限，受Phaser参与方数量限制 */
+  private static final int MAX_QUEUE_CAPACITY = 10000;
+
+  private final SystemConfigService systemConfigService;
+  private final ExecutorService scrapingExecutor;
+
+  /** 所有批次共享的并发目录数限制 */
+  private final ResizableSemaphore workers = new ResizableSemaphore(DEFAULT_WORKER_COUNT);
+
+  /** 所有批次共享的目录数限制（执行中 + 排队中） */
+  private final ResizableSemaphore queueSlots =
+      new ResizableSemaphore(DEFAULT_WORKER_COUNT + DEFAULT_QUEUE_CAPACITY);
+
+  /** 单个待刮削文件 */
+  public record ScrapJob(String fileKey, Runnable action) {}
+
+  /**
+   * 创建一个刮削批次，并按当前配置调整共享的并发数和队列容量
+   *
+   * @param name 批次名称（用于日志）
+   * @return 刮削批次
+   */
+  public ScrapingBatch newBatch(String name) {
+    Map<String, Object> scrapingConfig = systemConfigService.getScrapingConfig();
+    int workerCount =
+        Math.min(
+            getPositiveInt(scrapingConfig.get("workerCount"), DEFAULT_WORKER_COUNT),
+            MAX_WORKER_COUNT);
+    int queueCapacity =
+        Math.min(
+            getPositiveInt(scrapingConfig.get("queueCapacity"), DEFAULT_QUEUE_CAPACITY),
+            MAX_QUEUE_CAPACITY);
+    workers.resize(workerCount);
+    queueSlots.resize(workerCount + queueCapacity);
+    log.info("创建刮削批次: {}, 并发目录数: {}, 队列容量: {}", name, workerCount, queueCapacity);
+    return new ScrapingBatch(name);
+  }
+
+  private int getPositiveInt(Object value, int defaultValue) {
+    if (value instanceof Number number && number.intValue() > 0) {
+      return number.intValue();
+    }
+    return defaultValue;
+  }
+
+  /** 刮削批次，对应一次任务执行 */
+  public class ScrapingBatch {
+
+    private final String name;
+    private final Phaser pending = new Phaser(1);
+    private final Set<String> submittedFiles = ConcurrentHashMap.newKeySet();
+    private final AtomicLong submittedDirectories = new AtomicLong();
+    private final AtomicLong completedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong duplicateFiles = new AtomicLong();
+
+    private ScrapingBatch(String name) {
+      this.name = name;
+    }
+
+    /**
+     * 提交一个目录的刮削任务，队列已满时阻塞等待
+     *
+     * @param directory 目录（用于日志）
+     * @param jobs      目录下的待刮削文件，同一批次内重复提交的文件会被忽略
+     */
+    public void submitDirectory(String directory, List<ScrapJob> jobs) {
+      List<ScrapJob> newJobs =
+          jobs.stream().filter(job -> submittedFiles.add(job.fileKey())).toList();
+      duplicateFiles.addAndGet(jobs.size() - newJobs.size());
+      if (newJobs.isEmpty()) {
+        return;
+      }
+
+      try {
+        queueSlots.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new BusinessException("提交刮削任务被中断: " + directory);
+      }
+
+      pending.register();
+      submittedDirectories.incrementAndGet();
+      try {
+        scrapingExecutor.execute(() -> runDirectory(directory, newJobs));
+      } catch (RejectedExecutionException e) {
+        queueSlots.release();
+        pending.arriveAndDeregister();
+        throw new BusinessException("刮削线程池已关闭: " + directory);
+      }
+    }
+
+    /**
+     * 文件是否已在本批次中提交过
+     *
+     * @param fileKey 文件标识
+     * @return 已提交时返回true
+     */
+    public boolean isSubmitted(String fileKey) {
+      return submittedFiles.contains(fileKey);
+    }
+
+    private void runDirectory(String directory, List<ScrapJob> jobs) {
+      boolean acquired = false;
+      try {
+        workers.acquire();
+        acquired = true;
+        log.debug("开始刮削目录: {}, 文件数: {}", directory, jobs.size());
+        for (ScrapJob job : jobs) {
+          try {
+            job.action().run();
+            completedFiles.incrementAndGet();
+          } catch (Exception e) {
+            failedFiles.incrementAndGet();
+            log.error("刮削文件失败: {}, 错误: {}", job.fileKey(), e.getMessage(), e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("刮削目录被中断: {}", directory);
+      } finally {
+        if (acquired) {
+          workers.release();
+        }
+        queueSlots.release();
+        pending.arriveAndDeregister();
+      }
+    }
+
+    /** 等待批次内所有刮削完成 */
+    public void awaitCompletion() {
+      int phase = pending.arrive();
+      try {
+        pending.awaitAdvanceInterruptibly(phase);
+        log.info(
+            "刮削批次完成: {}, 目录数: {}, 文件数: {}, 失败: {}, 重复提交: {}",
+            name,
+            submittedDirectories.get(),
+            completedFiles.get(),
+            failedFiles.get(),
+            duplicateFiles.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        log.warn("等待刮削批次被中断: {}, 未完成目录数: {}", name, pending.getUnarrivedParties());
+      }
+    }
+  }
+
+  /** 可调整许可总数的信号量，减少许可时已借出的许可归还后才生效 */
+  private static class ResizableSemaphore extends Semaphore {
+
+    private int limit;
+
+    ResizableSemaphore(int limit) {
+      super(limit);
+      this.limit = limit;
+    }
+
+    synchronized void resize(int newLimit) {
+      int delta = newLimit - limit;
+      if (delta > 0) {
+        release(delta);
+      } else if (delta < 0) {
+        reducePermits(-delta);
+      }
+      limit = newLimit;
+    }
+  }
+}
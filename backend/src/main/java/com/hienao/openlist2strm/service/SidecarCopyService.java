@@ -0,0 +1,237 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.util.MediaExtensionMatcher;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * 附属文件复制服务
+ *
+ * <p>字幕、NFO、图片等附属文件按目录复制：每次执行通过 {@link #beginRun()} 获得自己的复制记录，
+ * 同一次执行中同一目录只生成一次复制计划，同时执行的任务互不影响；
+ * 每个目标文件只下载一次（流式写入），并发请求同一目标文件时共享同一次下载
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SidecarCopyService {
+
+  private static final MediaExtensionMatcher SUBTITLE_EXTENSIONS =
+      MediaExtensionMatcher.of(List.of(".srt", ".ass", ".vtt", ".ssa", ".sub", ".idx"));
+  private static final MediaExtensionMatcher NFO_EXTENSIONS =
+      MediaExtensionMatcher.of(List.of(".nfo"));
+  private static final MediaExtensionMatcher IMAGE_EXTENSIONS =
+      MediaExtensionMatcher.of(List.of(".jpg", ".jpeg", ".png", ".webp", ".bmp", ".tiff"));
+
+  private final OpenlistApiService openlistApiService;
+
+  /** 正在下载的目标文件 */
+  private final Map<Path, CompletableFuture<Boolean>> inFlightTargets = new ConcurrentHashMap<>();
+
+  /** 附属文件类型 */
+  public enum SidecarType {
+    SUBTITLE("字幕文件"),
+    NFO("NFO文件"),
+    IMAGE("刮削图片");
+
+    private final String description;
+
+    SidecarType(String description) {
+      this.description = description;
+    }
+
+    public String getDescription() {
+      return description;
+    }
+  }
+
+  /** 单个附属文件的复制计划 */
+  public record SidecarCopy(OpenlistApiService.OpenlistFile source, Path target, SidecarType type) {}
+
+  /** 目录复制结果 */
+  public record CopyResult(int subtitles, int nfos, int images, boolean firstPlan) {
+
+    static final CopyResult EMPTY = new CopyResult(0, 0, 0, false);
+
+    /** 是否复制了已存在的刮削信息（NFO或图片） */
+    public boolean copiedScrapingInfo() {
+      return nfos > 0 || images > 0;
+    }
+  }
+
+  /** 一次执行中已规划的目录及其复制结果，随执行结束释放 */
+  public static class CopyRun {
+    private final Map<String, CompletableFuture<CopyResult>> plannedDirectories =
+        new ConcurrentHashMap<>();
+
+    private CopyRun() {}
+  }
+
+  /**
+   * 开始一次执行
+   *
+   * @return 本次执行的复制记录，执行中的刮削调用都传入同一个记录
+   */
+  public CopyRun beginRun() {
+    return new CopyRun();
+  }
+
+  /**
+   * 复制目录中的附属文件，同一次执行中每个目录只处理一次，重复调用返回首次的结果
+   *
+   * @param run                 本次执行的复制记录，为null时不去重
+   * @param openlistConfig      OpenList配置
+   * @param saveDirectory       保存目录
+   * @param directoryFiles      源目录文件列表
+   * @param includeSubtitles    是否复制字幕文件
+   * @param includeScrapingInfo 是否复制NFO和图片
+   * @return 复制结果
+   */
+  public CopyResult copyDirectorySidecars(
+      CopyRun run,
+      OpenlistConfig openlistConfig,
+      String saveDirectory,
+      List<OpenlistApiService.OpenlistFile> directoryFiles,
+      boolean includeSubtitles,
+      boolean includeScrapingInfo) {
+    if (directoryFiles == null
+        || directoryFiles.isEmpty()
+        || (!includeSubtitles && !includeScrapingInfo)) {
+      return CopyResult.EMPTY;
+    }
+
+    Map<String, CompletableFuture<CopyResult>> plannedDirectories =
+        run != null ? run.plannedDirectories : new ConcurrentHashMap<>();
+    String planKey = saveDirectory + "|" + includeSubtitles + "|" + includeScrapingInfo;
+    CompletableFuture<CopyResult> ownPlan = new CompletableFuture<>();
+    CompletableFuture<CopyResult> existingPlan = plannedDirectories.putIfAbsent(planKey, ownPlan);
+    if (existingPlan != null) {
+      CopyResult result = existingPlan.join();
+      return new CopyResult(result.subtitles(), result.nfos(), result.images(), false);
+    }
+
+    try {
+      List<SidecarCopy> plan =
+          plan(saveDirectory, directoryFiles, includeSubtitles, includeScrapingInfo);
+      CopyResult result = execute(openlistConfig, plan);
+      ownPlan.complete(result);
+      return result;
+    } catch (RuntimeException e) {
+      // 规划失败时允许后续调用重新规划
+      plannedDirectories.remove(planKey, ownPlan);
+      ownPlan.complete(CopyResult.EMPTY);
+      log.warn("复制附属文件失败: {}, 错误: {}", saveDirectory, e.getMessage());
+      return CopyResult.EMPTY;
+    }
+  }
+
+  /**
+   * 生成目录的复制计划，每个目标文件只出现一次
+   *
+   * @param saveDirectory       保存目录
+   * @param directoryFiles      源目录文件列表
+   * @param includeSubtitles    是否包含字幕文件
+   * @param includeScrapingInfo 是否包含NFO和图片
+   * @return 复制计划
+   */
+  public List<SidecarCopy> plan(
+      String saveDirectory,
+      List<OpenlistApiService.OpenlistFile> directoryFiles,
+      boolean includeSubtitles,
+      boolean includeScrapingInfo) {
+    Map<Path, SidecarCopy> byTarget = new LinkedHashMap<>();
+    for (OpenlistApiService.OpenlistFile file : directoryFiles) {
+      if (!"file".equals(file.getType()) || file.getName() == null) {
+        continue;
+      }
+      SidecarType type = classify(file.getName(), includeSubtitles, includeScrapingInfo);
+      if (type != null) {
+        Path target = Paths.get(saveDirectory, file.getName());
+        byTarget.putIfAbsent(target, new SidecarCopy(file, target, type));
+      }
+    }
+    return new ArrayList<>(byTarget.values());
+  }
+
+  private SidecarType classify(
+      String fileName, boolean includeSubtitles, boolean includeScrapingInfo) {
+    if (includeSubtitles && SUBTITLE_EXTENSIONS.matches(fileName)) {
+      return SidecarType.SUBTITLE;
+    }
+    if (includeScrapingInfo && NFO_EXTENSIONS.matches(fileName)) {
+      return SidecarType.NFO;
+    }
+    if (includeScrapingInfo && IMAGE_EXTENSIONS.matches(fileName)) {
+      return SidecarType.IMAGE;
+    }
+    return null;
+  }
+
+  private CopyResult execute(OpenlistConfig openlistConfig, List<SidecarCopy> plan) {
+    int subtitles = 0;
+    int nfos = 0;
+    int images = 0;
+    for (SidecarCopy copy : plan) {
+      // 检查目标文件是否已存在，避免重复下载
+      if (Files.exists(copy.target())) {
+        log.debug("{}已存在，跳过复制: {}", copy.type().getDescription(), copy.target());
+        continue;
+      }
+      if (copyOnce(openlistConfig, copy)) {
+        switch (copy.type()) {
+          case SUBTITLE -> subtitles++;
+          case NFO -> nfos++;
+          case IMAGE -> images++;
+        }
+      }
+    }
+    return new CopyResult(subtitles, nfos, images, true);
+  }
+
+  /** 下载单个文件，同一目标文件正在下载时等待其完成，不重复下载 */
+  private boolean copyOnce(OpenlistConfig openlistConfig, SidecarCopy copy) {
+    CompletableFuture<Boolean> ownDownload = new CompletableFuture<>();
+    CompletableFuture<Boolean> running = inFlightTargets.putIfAbsent(copy.target(), ownDownload);
+    if (running != null) {
+      running.join();
+      return false;
+    }
+
+    boolean copied = false;
+    try {
+      long size = openlistApiService.downloadFile(openlistConfig, copy.source(), copy.target());
+      copied = size > 0;
+      if (copied) {
+        log.info(
+            "已复制{}: {} -> {} (大小: {} bytes)",
+            copy.type().getDescription(),
+            copy.source().getName(),
+            copy.target(),
+            size);
+      } else {
+        log.debug("{}内容为空: {}", copy.type().getDescription(), copy.source().getName());
+      }
+    } catch (Exception e) {
+      log.warn(
+          "复制{}失败: {}, 错误: {}", copy.type().getDescription(), copy.source().getName(), e.getMessage());
+    } finally {
+      ownDownload.complete(copied);
+      inFlightTargets.remove(copy.target(), ownDownload);
+    }
+    return copied;
+  }
+}
@@ -2,17 +2,15 @@ package com.hienao.openlist2strm.service;
 
 import com.hienao.openlist2strm.entity.OpenlistConfig;
 import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.util.MediaExtensionMatcher;
 import com.hienao.openlist2strm.util.UrlEncoder;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +32,7 @@ public class StrmFileService {
 
   private final SystemConfigService systemConfigService;
   private final OpenlistApiService openlistApiService;
+  private final FileWriteService fileWriteService;
 
   /**
    * 生成STRM文件
@@ -54,53 +53,130 @@ public class StrmFileService {
       boolean forceRegenerate,
       String renameRegex,
       OpenlistConfig openlistConfig) {
+    generateStrmFile(
+        strmBasePath,
+        relativePath,
+        fileName,
+        fileUrl,
+        forceRegenerate,
+        renameRegex,
+        openlistConfig,
+        false);
+  }
+
+  /**
+   * 生成STRM文件
+   *
+   * @param strmBasePath    STRM文件基础路径
+   * @param relativePath    相对路径（相对于任务配置的path）
+   * @param fileName        文件名
+   * @param fileUrl         文件URL
+   * @param forceRegenerate 是否强制重新生成已存在的文件
+   * @param renameRegex     重命名正则表达式（可选）
+   * @param openlistConfig  OpenList配置（用于baseUrl替换）
+   * @param urlFinalized    URL是否已是最终内容（如链接解析地址），为true时不再做baseUrl替换和编码
+   */
+  public void generateStrmFile(
+      String strmBasePath,
+      String relativePath,
+      String fileName,
+      String fileUrl,
+      boolean forceRegenerate,
+      String renameRegex,
+      OpenlistConfig openlistConfig,
+      boolean urlFinalized) {
     try {
-      // 处理文件名重命名
-      String finalFileName = processFileName(fileName, renameRegex);
+      FileWriteService.PendingWrite pendingWrite =
+          prepareStrmWrite(
+              strmBasePath,
+              relativePath,
+              fileName,
+              fileUrl,
+              forceRegenerate,
+              renameRegex,
+              openlistConfig,
+              urlFinalized);
+      if (pendingWrite == null) {
+        return;
+      }
 
-      // 构建STRM文件路径
-      Path strmFilePath = buildStrmFilePath(strmBasePath, relativePath, finalFileName);
+      // 原子写入STRM文件内容（直接写入已处理的finalUrl，避免重复编码）
+      writeStrmFileDirectly(pendingWrite.getPath(), pendingWrite.getContent());
 
-      // 处理baseUrl替换
-      String processedUrl = processUrlWithBaseUrlReplacement(fileUrl, openlistConfig);
+      log.info("生成STRM文件成功: {}", pendingWrite.getPath());
 
-      // 计算最终写入的URL（考虑编码配置）
-      String finalUrl = processedUrl;
-      if (shouldEncodeUrl(openlistConfig)) {
-        finalUrl = encodeUrlForStrm(processedUrl);
-      }
+    } catch (Exception e) {
+      log.error("生成STRM文件失败: {}" + ERROR_SUFFIX + "{}", fileName, e.getMessage(), e);
+      throw new BusinessException("生成STRM文件失败: " + fileName + ERROR_SUFFIX + e.getMessage(), e);
+    }
+  }
 
-      // 检查文件是否已存在
-      if (Files.exists(strmFilePath)) {
-        if (!forceRegenerate) {
-          log.info("STRM文件已存在，跳过生成: {}", strmFilePath);
-          return;
-        }
-        // forceRegenerate=true时（增量模式），比较内容是否相同
-        try {
-          String existingContent = Files.readString(strmFilePath, StandardCharsets.UTF_8).trim();
-          if (existingContent.equals(finalUrl)) {
-            log.debug("STRM链接未变化，跳过更新: {}", strmFilePath);
-            return;
-          }
-          log.info("STRM链接已变化，更新文件: {}", strmFilePath);
-        } catch (IOException e) {
-          log.warn("读取现有STRM文件失败，将重新生成: {}, 错误: {}", strmFilePath, e.getMessage());
-        }
-      }
+  /**
+   * 计算STRM文件的写入内容但不写入，用于按目录批量写入
+   *
+   * @param strmBasePath    STRM文件基础路径
+   * @param relativePath    相对路径（相对于任务配置的path）
+   * @param fileName        文件名
+   * @param fileUrl         文件URL
+   * @param forceRegenerate 是否强制重新生成已存在的文件
+   * @param renameRegex     重命名正则表达式（可选）
+   * @param openlistConfig  OpenList配置（用于baseUrl替换）
+   * @param urlFinalized    URL是否已是最终内容（如链接解析地址），为true时不再做baseUrl替换和编码
+   * @return 待写入的文件，无需写入时返回null
+   */
+  public FileWriteService.PendingWrite prepareStrmWrite(
+      String strmBasePath,
+      String relativePath,
+      String fileName,
+      String fileUrl,
+      boolean forceRegenerate,
+      String renameRegex,
+      OpenlistConfig openlistConfig,
+      boolean urlFinalized) {
+    // 处理文件名重命名
+    String finalFileName = processFileName(fileName, renameRegex);
 
-      // 确保目录存在
-      createDirectoriesIfNotExists(strmFilePath.getParent());
+    // 构建STRM文件路径
+    Path strmFilePath = buildStrmFilePath(strmBasePath, relativePath, finalFileName);
 
-      // 写入STRM文件内容（直接写入已处理的finalUrl，避免重复编码）
-      writeStrmFileDirectly(strmFilePath, finalUrl);
+    // 计算最终写入的URL（考虑baseUrl替换和编码配置）
+    String finalUrl = urlFinalized ? fileUrl : buildStrmContentUrl(fileUrl, openlistConfig);
 
-      log.info("生成STRM文件成功: {}", strmFilePath);
+    // 检查文件是否已存在
+    if (Files.exists(strmFilePath)) {
+      if (!forceRegenerate) {
+        log.info("STRM文件已存在，跳过生成: {}", strmFilePath);
+        return null;
+      }
+      // forceRegenerate=true时（增量模式），比较内容是否相同
+      try {
+        String existingContent = Files.readString(strmFilePath, StandardCharsets.UTF_8).trim();
+        if (existingContent.equals(finalUrl)) {
+          log.debug("STRM链接未变化，跳过更新: {}", strmFilePath);
+          return null;
+        }
+        log.info("STRM链接已变化，更新文件: {}", strmFilePath);
+      } catch (IOException e) {
+        log.warn("读取现有STRM文件失败，将重新生成: {}, 错误: {}", strmFilePath, e.getMessage());
+      }
+    }
 
-    } catch (Exception e) {
-      log.error("生成STRM文件失败: {}" + ERROR_SUFFIX + "{}", fileName, e.getMessage(), e);
-      throw new BusinessException("生成STRM文件失败: " + fileName + ERROR_SUFFIX + e.getMessage(), e);
+    return FileWriteService.PendingWrite.of(strmFilePath, finalUrl);
+  }
+
+  /**
+   * 计算写入STRM文件的最终URL（baseUrl替换 + 按配置编码）
+   *
+   * @param fileUrl        文件URL
+   * @param openlistConfig OpenList配置
+   * @return 最终URL
+   */
+  public String buildStrmContentUrl(String fileUrl, OpenlistConfig openlistConfig) {
+    String processedUrl = processUrlWithBaseUrlReplacement(fileUrl, openlistConfig);
+    if (shouldEncodeUrl(openlistConfig)) {
+      return encodeUrlForStrm(processedUrl);
     }
+    return processedUrl;
   }
 
   /**
@@ -175,36 +251,16 @@ public class StrmFileService {
   }
 
   /**
-   * 创建目录（如果不存在）
-   *
-   * @param directoryPath 目录路径
-   */
-  private void createDirectoriesIfNotExists(Path directoryPath) {
-    try {
-      if (directoryPath != null && !Files.exists(directoryPath)) {
-        Files.createDirectories(directoryPath);
-        log.debug("创建目录: {}", directoryPath);
-      }
-    } catch (IOException e) {
-      throw new BusinessException("创建目录失败: " + directoryPath + ERROR_SUFFIX + e.getMessage(), e);
-    }
-  }
-
-  /**
-   * 直接写入STRM文件内容（不做额外编码处理）
+   * 原子写入STRM文件内容（不做额外编码处理），目录存在性由写入服务缓存
    * 用于已经完成URL编码处理的场景
    *
    * @param strmFilePath STRM文件路径
-   * @param finalUrl     已处理完成的最终URL
+   * @param content      已处理完成的最终URL
    */
-  private void writeStrmFileDirectly(Path strmFilePath, String finalUrl) {
+  private void writeStrmFileDirectly(Path strmFilePath, byte[] content) {
     try {
-      Files.writeString(
-          strmFilePath,
-          finalUrl,
-          StandardOpenOption.CREATE,
-          StandardOpenOption.TRUNCATE_EXISTING);
-      log.debug("写入STRM文件: {} -> {}", strmFilePath, finalUrl);
+      fileWriteService.write(strmFilePath, content);
+      log.debug("写入STRM文件: {}", strmFilePath);
     } catch (IOException e) {
       throw new BusinessException("写入STRM文件失败: " + strmFilePath + ERROR_SUFFIX + e.getMessage(), e);
     }
@@ -297,51 +353,7 @@ public class StrmFileService {
     if (!StringUtils.hasText(fileName)) {
       return false;
     }
-
-    try {
-      // 从系统配置获取媒体文件后缀
-      Map<String, Object> systemConfig = systemConfigService.getSystemConfig();
-      @SuppressWarnings("unchecked")
-      List<String> mediaExtensions = (List<String>) systemConfig.get("mediaExtensions");
-
-      if (mediaExtensions == null || mediaExtensions.isEmpty()) {
-        log.warn("系统配置中未找到媒体文件后缀配置，使用默认配置");
-        return isVideoFileWithDefaultExtensions(fileName);
-      }
-
-      String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
-
-      for (String extension : mediaExtensions) {
-        if (extension != null && lowerCaseFileName.endsWith(extension.toLowerCase(Locale.ROOT))) {
-          return true;
-        }
-      }
-
-      return false;
-
-    } catch (Exception e) {
-      log.error("检查文件后缀时发生错误，使用默认配置: {}", e.getMessage());
-      return isVideoFileWithDefaultExtensions(fileName);
-    }
-  }
-
-  /**
-   * 使用默认扩展名检查文件是否为视频文件（备用方法）
-   *
-   * @param fileName 文件名
-   * @return 是否为视频文件
-   */
-  private boolean isVideoFileWithDefaultExtensions(String fileName) {
-    String lowerCaseFileName = fileName.toLowerCase(Locale.ROOT);
-    String[] defaultVideoExtensions = { ".mp4", ".avi", ".mkv", ".rmvb" };
-
-    for (String extension : defaultVideoExtensions) {
-      if (lowerCaseFileName.endsWith(extension)) {
-        return true;
-      }
-    }
-
-    return false;
+    return systemConfigService.getMediaExtensionMatcher().matches(fileName);
   }
 
   /**
@@ -388,6 +400,7 @@ public class StrmFileService {
                 });
       }
 
+      fileWriteService.forgetDirectories(strmPath);
       log.info("STRM目录清理完成: {}", strmPath);
 
     } catch (Exception e) {
@@ -513,6 +526,7 @@ public class StrmFileService {
       // 检查是否需要删除电视剧公共文件（当目录中没有其他视频文件时）
       try {
         boolean hasOtherVideoFiles;
+        MediaExtensionMatcher mediaExtensionMatcher = systemConfigService.getMediaExtensionMatcher();
         try (java.util.stream.Stream<Path> stream = Files.list(parentDir)) {
           hasOtherVideoFiles = stream
               .anyMatch(
@@ -520,7 +534,7 @@ public class StrmFileService {
                     String fileName = path.getFileName().toString().toLowerCase();
                     return !fileName.equals(strmFileName.toLowerCase())
                         && (fileName.endsWith(".strm")
-                            || isVideoFileWithDefaultExtensions(fileName));
+                            || mediaExtensionMatcher.matches(fileName));
                   });
         }
 
@@ -563,6 +577,7 @@ public class StrmFileService {
           try {
             if (isDirectoryEmpty(parentDir)) {
               Files.delete(parentDir);
+              fileWriteService.recordChange(parentDir);
               log.info("删除空目录: {}", parentDir);
             }
           } catch (Exception e) {
@@ -597,6 +612,7 @@ public class StrmFileService {
                     try (java.util.stream.Stream<Path> listStream = Files.list(dir)) {
                       if (listStream.findAny().isEmpty()) {
                         Files.delete(dir);
+                        fileWriteService.recordChange(dir);
                         log.debug("删除空目录: {}", dir);
                       }
                     }
@@ -633,6 +649,7 @@ public class StrmFileService {
               file -> {
                 try {
                   Files.delete(file);
+                  fileWriteService.recordChange(file);
                   log.info("删除多余的刮削文件: {}", file);
                 } catch (IOException e) {
                   log.warn("删除多余刮削文件失败: {}, 错误: {}", file, e.getMessage());
@@ -784,6 +801,7 @@ public class StrmFileService {
                   try {
                     // 删除孤立的STRM文件
                     Files.delete(strmFile);
+                    fileWriteService.recordChange(strmFile);
                     log.info("删除孤立的STRM文件: {} (OpenList中不存在对应文件)", strmFile);
                     cleanedCount.incrementAndGet();
 
@@ -817,6 +835,7 @@ public class StrmFileService {
           if (remainingFiles.isEmpty()) {
             // 删除空目录
             Files.delete(directoryPath);
+            fileWriteService.recordChange(directoryPath);
             log.info("删除空目录: {}", directoryPath);
           } else {
             log.warn("目录不为空，跳过删除: {} (包含文件: {})", directoryPath, remainingFiles);
@@ -936,6 +955,7 @@ public class StrmFileService {
                 }
               });
 
+      fileWriteService.recordChange(directoryPath);
       log.info("递归删除目录完成: {}", directoryPath);
 
     } catch (IOException e) {
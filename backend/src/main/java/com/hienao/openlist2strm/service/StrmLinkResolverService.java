@@ -0,0 +1,303 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.config.cache.CacheConfig;
+import com.hienao.openlist2strm.dto.strm.ResolvedStrmLink;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.entity.TaskConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.util.OpenlistSigner;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * STRM链接解析服务
+ *
+ * <p>解析模式下STRM文件中写入稳定的ostrm地址 /api/s/{taskId}/{id}，播放时再解析为最新签名的OpenList链接或网盘直链，
+ * 签名或strmBaseUrl变化后无需重写STRM文件
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StrmLinkResolverService {
+
+  /** 解析路径前缀 */
+  public static final String RESOLVER_PATH = "/api/s/";
+
+  /** 签名过期前预留的安全时间（毫秒） */
+  private static final long SIGN_EXPIRE_MARGIN_MILLIS = 60_000L;
+
+  /** 链接校验码长度（字节） */
+  private static final int TAG_LENGTH = 12;
+
+  private final SystemConfigService systemConfigService;
+  private final TaskConfigService taskConfigService;
+  private final OpenlistConfigService openlistConfigService;
+  private final OpenlistApiService openlistApiService;
+  private final StrmFileService strmFileService;
+  private final CacheManager cacheManager;
+
+  /**
+   * 是否启用解析模式
+   *
+   * @return 启用解析模式且配置了公开地址时返回true
+   */
+  public boolean isResolverEnabled() {
+    Map<String, Object> linkConfig = systemConfigService.getStrmLinkConfig();
+    if (!"resolver".equals(linkConfig.get("mode"))) {
+      return false;
+    }
+    if (!StringUtils.hasText((String) linkConfig.get("publicBaseUrl"))) {
+      log.warn("STRM链接解析模式未配置publicBaseUrl，使用直接链接模式");
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * 构建写入STRM文件的解析地址
+   *
+   * @param taskConfig 任务配置
+   * @param filePath   文件在OpenList中的完整路径
+   * @return 解析地址
+   */
+  public String buildResolverUrl(TaskConfig taskConfig, String filePath) {
+    String publicBaseUrl = (String) systemConfigService.getStrmLinkConfig().get("publicBaseUrl");
+    if (publicBaseUrl.endsWith("/")) {
+      publicBaseUrl = publicBaseUrl.substring(0, publicBaseUrl.length() - 1);
+    }
+
+    String secret;
+    try {
+      secret = systemConfigService.getOrCreateStrmLinkSecret();
+    } catch (Exception e) {
+      throw new BusinessException("STRM链接签名密钥不可用，无法生成解析地址: " + e.getMessage(), e);
+    }
+
+    String relativePath = toRelativePath(taskConfig.getPath(), filePath);
+    String encodedPath =
+        Base64.getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(relativePath.getBytes(StandardCharsets.UTF_8));
+
+    return publicBaseUrl
+        + RESOLVER_PATH
+        + taskConfig.getId()
+        + "/"
+        + encodedPath
+        + "."
+        + computeTag(secret, taskConfig.getId(), relativePath);
+  }
+
+  /**
+   * 解析链接ID为跳转地址，结果按签名有效期缓存
+   *
+   * @param taskId 任务ID
+   * @param linkId 链接ID
+   * @return 跳转地址
+   */
+  public String resolve(Long taskId, String linkId) {
+    String relativePath = decodeLinkId(taskId, linkId);
+
+    Cache cache = cacheManager.getCache(CacheConfig.STRM_LINK);
+    if (cache == null) {
+      return loadLink(taskId, relativePath).getUrl();
+    }
+
+    try {
+      ResolvedStrmLink link =
+          cache.get(taskId + ":" + relativePath, () -> loadLink(taskId, relativePath));
+      return link.getUrl();
+    } catch (Cache.ValueRetrievalException e) {
+      if (e.getCause() instanceof BusinessException businessException) {
+        throw businessException;
+      }
+      throw new BusinessException("解析STRM链接失败: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 从解析地址中还原文件在OpenList中的完整路径
+   *
+   * @param taskConfig 任务配置
+   * @param url        STRM中的解析地址
+   * @return 文件完整路径，不是当前任务的解析地址时返回null
+   */
+  public String extractFilePath(TaskConfig taskConfig, String url) {
+    String marker = RESOLVER_PATH + taskConfig.getId() + "/";
+    int index = url != null ? url.indexOf(marker) : -1;
+    if (index < 0) {
+      return null;
+    }
+    String linkId = url.substring(index + marker.length());
+    int queryIndex = linkId.indexOf('?');
+    if (queryIndex >= 0) {
+      linkId = linkId.substring(0, queryIndex);
+    }
+    try {
+      return toFullPath(taskConfig.getPath(), decodeLinkId(taskConfig.getId(), linkId));
+    } catch (BusinessException e) {
+      return null;
+    }
+  }
+
+  /**
+   * 清除指定任务的解析缓存
+   *
+   * @param taskId 任务ID，为空时清除全部
+   */
+  public void evict(Long taskId) {
+    Cache cache = cacheManager.getCache(CacheConfig.STRM_LINK);
+    if (cache == null) {
+      return;
+    }
+    if (taskId == null) {
+      cache.clear();
+      return;
+    }
+    Object nativeCache = cache.getNativeCache();
+    if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+      caffeineCache.asMap().keySet().removeIf(key -> key.toString().startsWith(taskId + ":"));
+    }
+  }
+
+  /** 请求OpenList获取最新签名并生成跳转地址 */
+  private ResolvedStrmLink loadLink(Long taskId, String relativePath) {
+    TaskConfig taskConfig = taskConfigService.getById(taskId);
+    if (taskConfig == null) {
+      throw new BusinessException("任务配置不存在，ID: " + taskId);
+    }
+    OpenlistConfig openlistConfig = openlistConfigService.getById(taskConfig.getOpenlistConfigId());
+    if (openlistConfig == null) {
+      throw new BusinessException("OpenList配置不存在，ID: " + taskConfig.getOpenlistConfigId());
+    }
+
+    String filePath = toFullPath(taskConfig.getPath(), relativePath);
+    Map<String, Object> linkConfig = systemConfigService.getStrmLinkConfig();
+    boolean redirectToRaw = "raw".equals(linkConfig.get("redirectTarget"));
+
+    String sign;
+    String rawUrl = null;
+    if (!redirectToRaw && openlistApiService.hasLocalSigner(openlistConfig)) {
+      // 本地签名，无需请求OpenList
+      sign = openlistApiService.resolveFileSign(openlistConfig, filePath, null);
+    } else {
+      OpenlistApiService.FsGetData fileInfo = openlistApiService.getFileInfo(openlistConfig, filePath);
+      if (Boolean.TRUE.equals(fileInfo.getIsDir())) {
+        throw new BusinessException("指定路径不是文件: " + filePath);
+      }
+      sign = openlistApiService.resolveFileSign(openlistConfig, filePath, fileInfo.getSign());
+      rawUrl = fileInfo.getRawUrl();
+    }
+
+    long ttlMillis = getCacheTtlSeconds(linkConfig) * 1000L;
+    long now = System.currentTimeMillis();
+    long expireAt = now + ttlMillis;
+
+    // 签名格式为 xxx:过期时间戳（秒），0表示永不过期
+    long signExpireAt = OpenlistSigner.parseExpireEpochSeconds(sign) * 1000L;
+    if (signExpireAt > 0) {
+      expireAt = Math.min(expireAt, signExpireAt - SIGN_EXPIRE_MARGIN_MILLIS);
+    }
+
+    String url;
+    if (redirectToRaw && StringUtils.hasText(rawUrl)) {
+      url = rawUrl;
+    } else {
+      url = openlistApiService.buildFileUrl(openlistConfig.getBaseUrl(), filePath);
+      if (StringUtils.hasText(sign)) {
+        url = url + "?sign=" + sign;
+      }
+      url = strmFileService.buildStrmContentUrl(url, openlistConfig);
+    }
+
+    log.debug("解析STRM链接: {} -> {}, 缓存 {}ms", filePath, url, Math.max(expireAt - now, 0));
+    return new ResolvedStrmLink(url, expireAt);
+  }
+
+  /** 解码并校验链接ID */
+  private String decodeLinkId(Long taskId, String linkId) {
+    int dotIndex = linkId != null ? linkId.lastIndexOf('.') : -1;
+    if (taskId == null || dotIndex <= 0) {
+      throw new BusinessException("无效的STRM链接");
+    }
+
+    String relativePath;
+    try {
+      relativePath =
+          new String(
+              Base64.getUrlDecoder().decode(linkId.substring(0, dotIndex)), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new BusinessException("无效的STRM链接");
+    }
+
+    String secret = systemConfigService.getStrmLinkSecret();
+    if (secret == null) {
+      throw new BusinessException("STRM链接签名密钥未生成");
+    }
+
+    String expectedTag = computeTag(secret, taskId, relativePath);
+    if (!MessageDigest.isEqual(
+        expectedTag.getBytes(StandardCharsets.UTF_8),
+        linkId.substring(dotIndex + 1).getBytes(StandardCharsets.UTF_8))) {
+      throw new BusinessException("STRM链接校验失败");
+    }
+
+    if (Arrays.asList(relativePath.split("/")).contains("..")) {
+      throw new BusinessException("无效的STRM链接");
+    }
+    return relativePath;
+  }
+
+  /** 计算链接校验码，防止构造任意路径访问 */
+  private String computeTag(String secret, Long taskId, String relativePath) {
+    try {
+      Mac mac = Mac.getInstance("HmacSHA256");
+      mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+      byte[] digest = mac.doFinal((taskId + ":" + relativePath).getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder()
+          .withoutPadding()
+          .encodeToString(Arrays.copyOf(digest, TAG_LENGTH));
+    } catch (Exception e) {
+      throw new BusinessException("计算STRM链接校验码失败: " + e.getMessage(), e);
+    }
+  }
+
+  /** 任务路径下的文件记录相对路径，任务路径之外的文件保留绝对路径 */
+  private String toRelativePath(String taskPath, String filePath) {
+    String normalizedTaskPath = taskPath == null ? "" : taskPath.replaceAll("/+$", "");
+    if (filePath.startsWith(normalizedTaskPath + "/")) {
+      return filePath.substring(normalizedTaskPath.length() + 1);
+    }
+    return filePath.startsWith("/") ? filePath : "/" + filePath;
+  }
+
+  private String toFullPath(String taskPath, String relativePath) {
+    if (relativePath.startsWith("/")) {
+      return relativePath;
+    }
+    String normalizedTaskPath = taskPath == null ? "" : taskPath.replaceAll("/+$", "");
+    return normalizedTaskPath + "/" + relativePath;
+  }
+
+  private long getCacheTtlSeconds(Map<String, Object> linkConfig) {
+    Object value = linkConfig.get("cacheTtlSeconds");
+    if (value instanceof Number number && number.longValue() > 0) {
+      return number.longValue();
+    }
+    return 600;
+  }
+}
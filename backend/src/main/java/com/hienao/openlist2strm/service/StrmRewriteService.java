@@ -0,0 +1,473 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.dto.strm.StrmRewriteStatus;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.entity.TaskConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * STRM批量重写服务
+ *
+ * <p>修改strmBaseUrl、URL编码、签名密钥或链接模式后，直接遍历已生成的STRM文件并就地重写链接，
+ * 不调用OpenList接口。每个文件通过临时文件+原子重命名写入，可随时取消，重复执行结果一致。
+ * 解析模式的链接中没有签名，未配置本地签名密钥时无法改回直接链接，这些文件保持不变并计为跳过
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StrmRewriteService {
+
+  private static final String STRM_SUFFIX = ".strm";
+
+  private final TaskConfigService taskConfigService;
+  private final OpenlistConfigService openlistConfigService;
+  private final OpenlistApiService openlistApiService;
+  private final StrmFileService strmFileService;
+  private final StrmLinkResolverService strmLinkResolverService;
+  private final FileWriteService fileWriteService;
+  private final Executor strmRewriteExecutor;
+  private final ExecutorService scrapingExecutor;
+
+  /** 任务ID -> 重写任务 */
+  private final Map<Long, RewriteJob> jobs = new ConcurrentHashMap<>();
+
+  /**
+   * 提交批量重写任务
+   *
+   * @param taskId      任务ID
+   * @param parallelism 并行度，为空时使用默认值
+   * @return 任务状态
+   */
+  public StrmRewriteStatus submitRewrite(Long taskId, Integer parallelism) {
+    TaskConfig taskConfig = taskConfigService.getById(taskId);
+    if (taskConfig == null) {
+      throw new BusinessException("任务配置不存在，ID: " + taskId);
+    }
+    if (!StringUtils.hasText(taskConfig.getStrmPath())) {
+      throw new BusinessException("任务未配置STRM路径，ID: " + taskId);
+    }
+    OpenlistConfig openlistConfig = openlistConfigService.getById(taskConfig.getOpenlistConfigId());
+    if (openlistConfig == null) {
+      throw new BusinessException("OpenList配置不存在，ID: " + taskConfig.getOpenlistConfigId());
+    }
+
+    int threads =
+        parallelism != null && parallelism > 0
+            ? Math.min(parallelism, 64)
+            : Math.min(Runtime.getRuntime().availableProcessors() * 2, 16);
+
+    RewriteJob job = new RewriteJob(taskId);
+    RewriteJob existing = jobs.compute(
+        taskId, (id, current) -> current != null && current.isRunning() ? current : job);
+    if (existing != job) {
+      throw new BusinessException("该任务已有正在执行的STRM重写，ID: " + taskId);
+    }
+
+    try {
+      strmRewriteExecutor.execute(() -> runRewrite(job, taskConfig, openlistConfig, threads));
+    } catch (RejectedExecutionException e) {
+      job.finish("FAILED", "重写队列已满，请稍后重试");
+      throw new BusinessException("重写队列已满，请稍后重试");
+    }
+
+    log.info("已提交STRM批量重写 - 任务ID: {}, 并行度: {}", taskId, threads);
+    return job.toStatus();
+  }
+
+  /**
+   * 获取重写任务状态
+   *
+   * @param taskId 任务ID
+   * @return 任务状态，不存在时返回null
+   */
+  public StrmRewriteStatus getStatus(Long taskId) {
+    RewriteJob job = jobs.get(taskId);
+    return job != null ? job.toStatus() : null;
+  }
+
+  /**
+   * 取消重写任务
+   *
+   * @param taskId 任务ID
+   * @return 是否存在正在执行的任务
+   */
+  public boolean cancel(Long taskId) {
+    RewriteJob job = jobs.get(taskId);
+    if (job == null || !job.isRunning()) {
+      return false;
+    }
+    job.cancelled.set(true);
+    log.info("已请求取消STRM批量重写 - 任务ID: {}", taskId);
+    return true;
+  }
+
+  private void runRewrite(
+      RewriteJob job, TaskConfig taskConfig, OpenlistConfig openlistConfig, int threads) {
+    Path root = Paths.get(taskConfig.getStrmPath());
+    if (!Files.isDirectory(root)) {
+      job.finish("COMPLETED", "STRM目录不存在: " + root);
+      return;
+    }
+
+    boolean useResolver = strmLinkResolverService.isResolverEnabled();
+    List<String> basePrefixes = buildBasePrefixes(openlistConfig);
+    // 文件在共享的虚拟线程池中处理，按并行度限制同时处理的文件数
+    Semaphore permits = new Semaphore(threads);
+    try (FileWriteService.ChangeSet ignored = fileWriteService.trackChanges(root)) {
+      List<Path> strmFiles;
+      try (Stream<Path> stream = Files.walk(root)) {
+        strmFiles =
+            stream
+                .filter(Files::isRegularFile)
+                .filter(path -> isStrmOrLeftoverTemp(path))
+                .collect(Collectors.toList());
+      }
+      job.total.set(strmFiles.size());
+      log.info("开始STRM批量重写 - 任务ID: {}, 文件数: {}", job.taskId, strmFiles.size());
+
+      try {
+        for (Path file : strmFiles) {
+          if (job.cancelled.get()) {
+            break;
+          }
+          permits.acquire();
+          try {
+            scrapingExecutor.execute(
+                () -> {
+                  try {
+                    rewriteFile(job, file, taskConfig, openlistConfig, basePrefixes, useResolver);
+                  } finally {
+                    permits.release();
+                  }
+                });
+          } catch (RejectedExecutionException e) {
+            permits.release();
+            throw e;
+          }
+        }
+      } finally {
+        // 等待已提交的文件处理完成
+        permits.acquireUninterruptibly(threads);
+      }
+
+      StrmRewriteStatus status = job.toStatus();
+      job.finish(job.cancelled.get() ? "CANCELLED" : "COMPLETED", null);
+      log.info(
+          "STRM批量重写结束 - 任务ID: {}, 已处理: {}/{}, 重写: {}, 未变化: {}, 跳过: {}, 失败: {}, 速度: {} 个/秒",
+          job.taskId,
+          status.getProcessed(),
+          status.getTotal(),
+          status.getRewritten(),
+          status.getUnchanged(),
+          status.getSkipped(),
+          status.getFailed(),
+          String.format("%.1f", status.getFilesPerSecond()));
+
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      job.finish("CANCELLED", "重写被中断");
+    } catch (Exception e) {
+      log.error("STRM批量重写失败 - 任务ID: {}, 错误: {}", job.taskId, e.getMessage(), e);
+      job.finish("FAILED", e.getMessage());
+    }
+  }
+
+  private boolean isStrmOrLeftoverTemp(Path path) {
+    String name = path.getFileName().toString();
+    if (name.startsWith(".")
+        && name.endsWith(FileWriteService.TEMP_SUFFIX)
+        && name.contains(STRM_SUFFIX + ".")) {
+      // 上次中断遗留的临时文件
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        log.debug("删除遗留临时文件失败: {}", path);
+      }
+      return false;
+    }
+    return name.endsWith(STRM_SUFFIX);
+  }
+
+  private void rewriteFile(
+      RewriteJob job,
+      Path file,
+      TaskConfig taskConfig,
+      OpenlistConfig openlistConfig,
+      List<String> basePrefixes,
+      boolean useResolver) {
+    try {
+      String content = Files.readString(file, StandardCharsets.UTF_8).trim();
+      String filePath = strmLinkResolverService.extractFilePath(taskConfig, content);
+      boolean fromResolver = filePath != null;
+      String sign = null;
+      if (filePath == null) {
+        filePath = extractOpenlistPath(content, basePrefixes);
+        sign = extractQueryParam(content, "sign");
+      }
+      if (filePath == null) {
+        log.debug("无法识别STRM链接，跳过: {}", file);
+        job.skipped.incrementAndGet();
+        return;
+      }
+
+      String newUrl;
+      if (useResolver) {
+        newUrl = strmLinkResolverService.buildResolverUrl(taskConfig, filePath);
+      } else {
+        newUrl = openlistApiService.buildFileUrl(openlistConfig.getBaseUrl(), filePath);
+        String newSign = openlistApiService.resolveFileSign(openlistConfig, filePath, sign);
+        if (fromResolver
+            && !StringUtils.hasText(newSign)
+            && !openlistApiService.hasLocalSigner(openlistConfig)) {
+          // 没有可沿用的签名，写入未签名的链接在开启签名的服务器上无法播放
+          log.debug("解析链接无法改为带签名的直接链接（未配置本地签名密钥），跳过: {}", file);
+          job.skipped.incrementAndGet();
+          return;
+        }
+        if (StringUtils.hasText(newSign)) {
+          newUrl = newUrl + "?sign=" + newSign;
+        }
+        newUrl = strmFileService.buildStrmContentUrl(newUrl, openlistConfig);
+      }
+
+      if (newUrl.equals(content)) {
+        job.unchanged.incrementAndGet();
+        return;
+      }
+
+      fileWriteService.writeString(file, newUrl);
+      job.rewritten.incrementAndGet();
+
+    } catch (Exception e) {
+      log.warn("重写STRM文件失败: {}, 错误: {}", file, e.getMessage());
+      job.failed.incrementAndGet();
+    } finally {
+      job.processed.incrementAndGet();
+    }
+  }
+
+  /**
+   * 可能出现在STRM链接中的地址前缀，依次为 strmBaseUrl+OpenList路径前缀、OpenList地址、strmBaseUrl、OpenList路径前缀
+   *
+   * <p>strmBaseUrl替换时保留了OpenList地址中的路径部分，因此需要组合后再匹配
+   */
+  private List<String> buildBasePrefixes(OpenlistConfig openlistConfig) {
+    List<String> prefixes = new ArrayList<>();
+    String baseUrl = trimTrailingSlash(openlistConfig.getBaseUrl());
+    String strmBaseUrl = trimTrailingSlash(openlistConfig.getStrmBaseUrl());
+    String basePath = "";
+    int schemeIndex = baseUrl.indexOf("://");
+    int pathIndex = schemeIndex >= 0 ? baseUrl.indexOf('/', schemeIndex + 3) : -1;
+    if (pathIndex >= 0) {
+      basePath = baseUrl.substring(pathIndex);
+    }
+
+    if (!strmBaseUrl.isEmpty()) {
+      prefixes.add(strmBaseUrl + basePath);
+    }
+    if (!baseUrl.isEmpty()) {
+      prefixes.add(baseUrl);
+    }
+    if (!strmBaseUrl.isEmpty() && !basePath.isEmpty()) {
+      prefixes.add(strmBaseUrl);
+    }
+    if (!basePath.isEmpty()) {
+      prefixes.add(basePath);
+    }
+    return prefixes;
+  }
+
+  private static String trimTrailingSlash(String url) {
+    if (url == null) {
+      return "";
+    }
+    String result = url.trim();
+    while (result.endsWith("/")) {
+      result = result.substring(0, result.length() - 1);
+    }
+    return result;
+  }
+
+  /**
+   * 从OpenList下载链接中提取文件路径，支持 /d/ 和 /p/ 链接
+   *
+   * <p>先去掉已知的地址前缀再匹配 /d/、/p/，前缀本身包含 /d/ 或 /p/ 时也能正确识别；都不匹配时（如已修改strmBaseUrl）
+   * 取域名后的第一个 /d/ 或 /p/。只有按URL编码写入的链接才会解码，未编码的链接按原样保留路径中的 %、? 和 #
+   *
+   * @param url          STRM中的链接
+   * @param basePrefixes 已知的地址前缀（完整地址或域名后的路径，不以/结尾）
+   * @return 文件路径，无法识别时返回null
+   */
+  static String extractOpenlistPath(String url, List<String> basePrefixes) {
+    if (!StringUtils.hasText(url)) {
+      return null;
+    }
+
+    boolean encoded = isPercentEncoded(url);
+    String path = url;
+    if (encoded) {
+      // 编码后的路径中不会出现 ? 和 #
+      int queryIndex = path.indexOf('?');
+      if (queryIndex >= 0) {
+        path = path.substring(0, queryIndex);
+      }
+      int hashIndex = path.indexOf('#');
+      if (hashIndex >= 0) {
+        path = path.substring(0, hashIndex);
+      }
+    } else {
+      // 未编码的链接只去掉末尾追加的签名参数
+      int signIndex = path.lastIndexOf("?sign=");
+      if (signIndex >= 0 && path.indexOf('/', signIndex) < 0) {
+        path = path.substring(0, signIndex);
+      }
+    }
+
+    int schemeIndex = path.indexOf("://");
+    int hostEnd = schemeIndex >= 0 ? path.indexOf('/', schemeIndex + 3) : 0;
+    if (hostEnd < 0) {
+      return null;
+    }
+
+    String rawPath = null;
+    for (String prefix : basePrefixes) {
+      String remainder = stripPrefix(path, hostEnd, prefix);
+      if (remainder != null && (remainder.startsWith("/d/") || remainder.startsWith("/p/"))) {
+        rawPath = remainder.substring(2);
+        break;
+      }
+    }
+
+    if (rawPath == null) {
+      int markerIndex = path.indexOf("/d/", hostEnd);
+      if (markerIndex < 0) {
+        markerIndex = path.indexOf("/p/", hostEnd);
+      }
+      if (markerIndex < 0) {
+        return null;
+      }
+      rawPath = path.substring(markerIndex + 2);
+    }
+
+    if (!encoded) {
+      return rawPath;
+    }
+    // 保留字面量'+'，URL中的空格均已编码为%20
+    return URLDecoder.decode(rawPath.replace("+", "%2B"), StandardCharsets.UTF_8);
+  }
+
+  /** 去掉完整地址前缀或域名后的路径前缀，不匹配时返回null */
+  private static String stripPrefix(String url, int hostEnd, String prefix) {
+    if (prefix.contains("://")) {
+      return url.startsWith(prefix + "/") ? url.substring(prefix.length()) : null;
+    }
+    String path = url.substring(hostEnd);
+    return path.startsWith(prefix + "/") ? path.substring(prefix.length()) : null;
+  }
+
+  /** 链接是否按URL编码写入：不含空白和非ASCII字符，且每个%后都是两位十六进制数 */
+  static boolean isPercentEncoded(String url) {
+    for (int i = 0; i < url.length(); i++) {
+      char c = url.charAt(i);
+      if (c <= ' ' || c >= 0x7F) {
+        return false;
+      }
+      if (c == '%'
+          && (i + 2 >= url.length()
+              || Character.digit(url.charAt(i + 1), 16) < 0
+              || Character.digit(url.charAt(i + 2), 16) < 0)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** 提取并解码查询参数 */
+  static String extractQueryParam(String url, String name) {
+    int queryIndex = url.indexOf('?');
+    if (queryIndex < 0) {
+      return null;
+    }
+    for (String pair : url.substring(queryIndex + 1).split("&")) {
+      int eqIndex = pair.indexOf('=');
+      if (eqIndex > 0 && pair.substring(0, eqIndex).equals(name)) {
+        return URLDecoder.decode(
+            pair.substring(eqIndex + 1).replace("+", "%2B"), StandardCharsets.UTF_8);
+      }
+    }
+    return null;
+  }
+
+  /** 单个重写任务的运行状态 */
+  private static class RewriteJob {
+    private final Long taskId;
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rewritten = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String state = "RUNNING";
+    private volatile String message;
+    private volatile long endTime;
+
+    RewriteJob(Long taskId) {
+      this.taskId = taskId;
+    }
+
+    boolean isRunning() {
+      return "RUNNING".equals(state);
+    }
+
+    void finish(String finalState, String finalMessage) {
+      this.endTime = System.currentTimeMillis();
+      this.message = finalMessage;
+      this.state = finalState;
+    }
+
+    StrmRewriteStatus toStatus() {
+      long elapsed = (endTime > 0 ? endTime : System.currentTimeMillis()) - startTime;
+      long done = processed.get();
+      return new StrmRewriteStatus()
+          .setTaskId(taskId)
+          .setState(state)
+          .setTotal(total.get())
+          .setProcessed(done)
+          .setRewritten(rewritten.get())
+          .setUnchanged(unchanged.get())
+          .setSkipped(skipped.get())
+          .setFailed(failed.get())
+          .setStartTime(startTime)
+          .setElapsedMillis(elapsed)
+          .setFilesPerSecond(elapsed > 0 ? done * 1000.0 / elapsed : 0)
+          .setMessage(message);
+    }
+  }
+}
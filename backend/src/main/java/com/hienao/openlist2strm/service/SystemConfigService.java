@@ -2,14 +2,18 @@ package com.hienao.openlist2strm.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hienao.openlist2strm.config.PathConfiguration;
+import com.hienao.openlist2strm.util.MediaExtensionMatcher;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -30,6 +34,19 @@ public class SystemConfigService {
 
   private static final String CONFIG_FILE = "systemconf.json";
 
+  /** STRM解析链接签名密钥的配置键，不通过系统配置接口读写 */
+  public static final String STRM_LINK_SECRET_KEY = "strmLinkSecret";
+
+  private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+  /** 配置版本号，每次保存配置后递增，供依赖配置的缓存判断是否需要重新计算 */
+  private final AtomicLong configVersion = new AtomicLong();
+
+  /** 按配置预编译的媒体后缀匹配器及构建时的配置版本，版本变化后重建 */
+  private volatile VersionedMatcher mediaExtensionMatcher;
+
+  private record VersionedMatcher(long version, MediaExtensionMatcher matcher) {}
+
   /** 获取配置目录路径 */
   private String getConfigDirectoryPath() {
     return pathConfiguration.getConfig();
@@ -111,6 +128,14 @@ public class SystemConfigService {
             log.info("系统配置中缺少emby字段，添加默认配置");
             needSave = true;
           }
+          if (!config.containsKey("strmLink")) {
+            log.info("系统配置中缺少strmLink字段，添加默认配置");
+            needSave = true;
+          }
+          if (!config.containsKey("fileWrite")) {
+            log.info("系统配置中缺少fileWrite字段，添加默认配置");
+            needSave = true;
+          }
           if (!config.containsKey("copyExistingScrapingInfo")) {
             // 向后兼容：从旧的 scraping.useExistingScrapingInfo 迁移
             @SuppressWarnings("unchecked")
@@ -195,6 +220,51 @@ public class SystemConfigService {
     String jsonContent = objectMapper.writerWithDefaultPrettyPrinter().writeValueAsString(config);
 
     Files.writeString(Paths.get(getConfigFilePath()), jsonContent);
+    configVersion.incrementAndGet();
+  }
+
+  /**
+   * 获取配置版本号
+   *
+   * @return 配置版本号，配置保存后变化
+   */
+  public long getConfigVersion() {
+    return configVersion.get();
+  }
+
+  /**
+   * 获取媒体文件后缀匹配器
+   *
+   * <p>按当前配置构建并连同配置版本一起缓存，版本变化后重建，避免每次判断都读取配置文件。
+   * 先读取版本再读取配置，构建期间配置被保存时缓存的版本已过期，下次调用会重新构建
+   *
+   * @return 媒体文件后缀匹配器
+   */
+  public MediaExtensionMatcher getMediaExtensionMatcher() {
+    long version = configVersion.get();
+    VersionedMatcher cached = mediaExtensionMatcher;
+    if (cached != null && cached.version() == version) {
+      return cached.matcher();
+    }
+
+    MediaExtensionMatcher matcher = null;
+    try {
+      Object mediaExtensions = getSystemConfig().get("mediaExtensions");
+      if (mediaExtensions instanceof List<?> list && !list.isEmpty()) {
+        matcher =
+            MediaExtensionMatcher.of(
+                list.stream().filter(String.class::isInstance).map(String.class::cast).toList());
+      }
+    } catch (Exception e) {
+      log.error("读取媒体文件后缀配置失败，使用默认配置: {}", e.getMessage());
+    }
+
+    if (matcher == null || matcher.isEmpty()) {
+      log.warn("系统配置中未找到媒体文件后缀配置，使用默认配置");
+      matcher = MediaExtensionMatcher.DEFAULT;
+    }
+    mediaExtensionMatcher = new VersionedMatcher(version, matcher);
+    return matcher;
   }
 
   /**
@@ -206,12 +276,7 @@ public class SystemConfigService {
     Map<String, Object> defaultConfig = new HashMap<>();
 
     // 默认媒体文件后缀（包含所有支持的格式）
-    defaultConfig.put(
-        "mediaExtensions",
-        List.of(
-            ".mp4", ".avi", ".mkv", ".mov", ".wmv", ".flv", ".webm", ".m4v", ".3gp", ".3g2", ".asf",
-            ".divx", ".f4v", ".m2ts", ".m2v", ".mts", ".ogv", ".rm", ".rmvb", ".ts", ".vob",
-            ".xvid"));
+    defaultConfig.put("mediaExtensions", MediaExtensionMatcher.DEFAULT_EXTENSIONS);
 
     // TMDB API 配置
     Map<String, Object> tmdbConfig = new HashMap<>();
@@ -222,10 +287,21 @@ public class SystemConfigService {
     tmdbConfig.put("region", "CN"); // 默认地区
     tmdbConfig.put("timeout", 30); // API 请求超时时间（秒）
     tmdbConfig.put("retryCount", 3); // 重试次数
+    tmdbConfig.put("rateLimitPerSecond", 20); // 全局每秒请求数上限，0表示不限流
+    tmdbConfig.put("rateLimitBurst", 20); // 允许的突发请求数
     tmdbConfig.put("posterSize", "w500"); // 海报图片尺寸
     tmdbConfig.put("backdropSize", "w1280"); // 背景图片尺寸
     tmdbConfig.put("proxyHost", ""); // HTTP代理主机地址
     tmdbConfig.put("proxyPort", ""); // HTTP代理端口
+    tmdbConfig.put("cacheEnabled", true); // 是否缓存TMDB响应（内存+数据库）
+    Map<String, Object> cacheTtlHours = new HashMap<>();
+    cacheTtlHours.put("search", 168); // 搜索结果缓存时间（小时）
+    cacheTtlHours.put("movie", 720); // 电影详情缓存时间（小时）
+    cacheTtlHours.put("tv", 168); // 电视剧详情缓存时间（小时）
+    cacheTtlHours.put("season", 72); // 季详情缓存时间（小时）
+    tmdbConfig.put("cacheTtlHours", cacheTtlHours);
+    tmdbConfig.put("cacheStaleHours", 720); // 过期后仍可先返回旧数据并后台刷新的时间（小时）
+    tmdbConfig.put("localIndexEnabled", true); // 匹配时优先使用导入的离线ID索引
     defaultConfig.put("tmdb", tmdbConfig);
 
     // 刮削配置
@@ -238,6 +314,17 @@ public class SystemConfigService {
     scrapConfig.put("keepSubtitleFiles", false); // 是否保留字幕文件
     scrapConfig.put("useExistingScrapingInfo", false); // 是否优先使用已存在的刮削信息
     scrapConfig.put("overwriteExisting", false); // 是否覆盖已存在的NFO和图片文件
+    scrapConfig.put("workerCount", 4); // 同时刮削的目录数
+    scrapConfig.put("queueCapacity", 100); // 等待刮削的目录数上限，超出时暂停生成STRM
+    scrapConfig.put("negativeCacheEnabled", true); // 是否缓存未匹配的查询，避免重复请求
+    scrapConfig.put("negativeCacheBaseHours", 24); // 首次未匹配后的重试间隔（小时），之后逐次翻倍
+    scrapConfig.put("negativeCacheMaxHours", 720); // 重试间隔上限（小时）
+    scrapConfig.put("artworkHardlink", true); // 图片从本地缓存硬链接到目标位置，不支持时复制
+    scrapConfig.put("artworkRevalidateHours", 720); // 图片缓存超过该时间后发送条件请求确认是否变化（小时）
+    scrapConfig.put("batchConcurrency", 4); // 文件浏览器批量刮削的并发数
+    scrapConfig.put("uploadConcurrency", 4); // 每个OpenList配置同时上传的文件数（刮削结果写回OpenList时）
+    scrapConfig.put("uploadRetries", 3); // 上传失败后的重试次数
+    scrapConfig.put("renameConcurrency", 4); // 批量重命名时同时执行的重命名请求数
     defaultConfig.put("scraping", scrapConfig);
 
     // AI 识别配置
@@ -247,6 +334,7 @@ public class SystemConfigService {
     aiConfig.put("apiKey", ""); // OpenAI API Key
     aiConfig.put("model", "gpt-3.5-turbo"); // 使用的模型
     aiConfig.put("qpmLimit", 60); // 每分钟请求限制
+    aiConfig.put("batchSize", 20); // 批量识别时每次请求包含的文件数
     aiConfig.put("prompt", getDefaultAiPrompt()); // 默认提示词
     defaultConfig.put("ai", aiConfig);
 
@@ -274,8 +362,30 @@ public class SystemConfigService {
     Map<String, Object> embyConfig = new HashMap<>();
     embyConfig.put("serverUrl", ""); // Emby 服务器地址
     embyConfig.put("apiKey", ""); // Emby API Key
+    embyConfig.put("refreshDebounceSeconds", 30); // 刷新防抖窗口（秒），窗口内多个任务的变更合并通知
+    embyConfig.put("refreshMaxPaths", 100); // 单次通知的最大目录数，超出时改为刷新相关媒体库
+    embyConfig.put("localPathPrefix", ""); // 本地STRM路径前缀，与embyPathPrefix配合做路径映射
+    embyConfig.put("embyPathPrefix", ""); // Emby中对应的路径前缀
     defaultConfig.put("emby", embyConfig);
 
+    // STRM链接配置
+    Map<String, Object> strmLinkConfig = new HashMap<>();
+    strmLinkConfig.put("mode", "direct"); // 链接模式：direct-直接写入OpenList链接，resolver-写入ostrm解析地址
+    strmLinkConfig.put("publicBaseUrl", ""); // 播放器可访问的ostrm地址，如 http://192.168.1.2:3111
+    strmLinkConfig.put("redirectTarget", "sign"); // 跳转目标：sign-OpenList签名链接，raw-网盘直链
+    strmLinkConfig.put("cacheTtlSeconds", 600); // 解析结果缓存时间（秒），不超过签名有效期
+    defaultConfig.put("strmLink", strmLinkConfig);
+
+    // 文件写入配置
+    Map<String, Object> fileWriteConfig = new HashMap<>();
+    fileWriteConfig.put("fsyncPolicy", "none"); // 落盘策略：none-不强制落盘，file-重命名前同步文件，full-同时同步目录
+    defaultConfig.put("fileWrite", fileWriteConfig);
+
+    // 文件下载配置
+    Map<String, Object> downloadConfig = new HashMap<>();
+    downloadConfig.put("maxSizeMb", 2048); // 单个文件下载/代理的大小上限（MB）
+    defaultConfig.put("download", downloadConfig);
+
     // 文件复制配置（独立配置项）
     defaultConfig.put("copyExistingScrapingInfo", false); // 是否复制已存在的刮削信息
     defaultConfig.put("keepSubtitleFiles", false); // 是否保留字幕文件
@@ -350,6 +460,76 @@ public class SystemConfigService {
     return (Map<String, Object>) systemConfig.getOrDefault("emby", new HashMap<>());
   }
 
+  /**
+   * 获取STRM链接配置
+   *
+   * @return STRM链接配置Map
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getStrmLinkConfig() {
+    Map<String, Object> systemConfig = getSystemConfig();
+    return (Map<String, Object>) systemConfig.getOrDefault("strmLink", new HashMap<>());
+  }
+
+  /**
+   * 获取STRM解析链接签名密钥
+   *
+   * @return 签名密钥，未生成时返回null
+   */
+  public String getStrmLinkSecret() {
+    Object secret = getSystemConfig().get(STRM_LINK_SECRET_KEY);
+    return secret instanceof String value && !value.isEmpty() ? value : null;
+  }
+
+  /**
+   * 获取STRM解析链接签名密钥，不存在时随机生成并持久化
+   *
+   * <p>密钥与JWT密钥相互独立，轮换JWT密钥不会使已生成的STRM文件失效
+   *
+   * @return 签名密钥
+   * @throws IllegalStateException 密钥无法持久化
+   */
+  public synchronized String getOrCreateStrmLinkSecret() {
+    String secret = getStrmLinkSecret();
+    if (secret != null) {
+      return secret;
+    }
+
+    byte[] bytes = new byte[32];
+    SECURE_RANDOM.nextBytes(bytes);
+    secret = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    saveSystemConfig(Map.of(STRM_LINK_SECRET_KEY, secret));
+
+    // 确认已写入配置文件，避免重启后密钥变化导致已生成的链接失效
+    if (!secret.equals(getStrmLinkSecret())) {
+      throw new IllegalStateException("STRM链接签名密钥保存失败");
+    }
+    log.info("已生成STRM解析链接签名密钥");
+    return secret;
+  }
+
+  /**
+   * 获取文件写入配置
+   *
+   * @return 文件写入配置Map
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getFileWriteConfig() {
+    Map<String, Object> systemConfig = getSystemConfig();
+    return (Map<String, Object>) systemConfig.getOrDefault("fileWrite", new HashMap<>());
+  }
+
+  /**
+   * 获取文件下载配置
+   *
+   * @return 文件下载配置Map
+   */
+  @SuppressWarnings("unchecked")
+  public Map<String, Object> getDownloadConfig() {
+    Map<String, Object> systemConfig = getSystemConfig();
+    return (Map<String, Object>) systemConfig.getOrDefault("download", new HashMap<>());
+  }
+
   /**
    * 获取复制已存在刮削信息配置
    *
@@ -21,12 +21,17 @@ package com.hienao.openlist2strm.service;
 import com.hienao.openlist2strm.entity.OpenlistConfig;
 import com.hienao.openlist2strm.entity.TaskConfig;
 import com.hienao.openlist2strm.exception.BusinessException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Async;
@@ -46,10 +51,13 @@ public class TaskExecutionService {
   private final TaskConfigService taskConfigService;
   private final OpenlistConfigService openlistConfigService;
   private final OpenlistApiService openlistApiService;
-  private final EmbyApiService embyApiService;
+  private final EmbyRefreshService embyRefreshService;
   private final StrmFileService strmFileService;
   private final MediaScrapingService mediaScrapingService;
-  private final SystemConfigService systemConfigService;
+  private final StrmLinkResolverService strmLinkResolverService;
+  private final FileWriteService fileWriteService;
+  private final ScrapingQueueService scrapingQueueService;
+  private final SidecarCopyService sidecarCopyService;
   private final Executor taskSubmitExecutor;
 
   /**
@@ -186,7 +194,7 @@ public class TaskExecutionService {
    * 执行具体的任务逻辑 1. 根据任务配置获取OpenList配置 2. 执行OpenList数据刷新 3. 如果是全量执行，先清空STRM目录 4. 通过OpenList
    * API递归获取所有文件 5. 对视频文件生成STRM文件
    * 6. 保持目录结构一致 7. 如果是增量执行，清理孤立的STRM文件
-   * 8. 执行Emby媒体库刷新
+   * 8. 通知Emby刷新本次变更的目录
    *
    * @param taskConfig  任务配置
    * @param isIncrement 是否增量执行
@@ -194,6 +202,9 @@ public class TaskExecutionService {
   private void executeTaskLogic(TaskConfig taskConfig, boolean isIncrement) {
     log.info("开始执行任务逻辑: {}, 增量模式: {}", taskConfig.getTaskName(), isIncrement);
 
+    // 本次执行的写入上下文：缓存已确认存在的目录，并记录变更的STRM目录用于Emby定向刷新
+    FileWriteService.ChangeSet changeSet =
+        fileWriteService.trackChanges(Paths.get(taskConfig.getStrmPath()));
     try {
       // 1. 获取OpenList配置
       OpenlistConfig openlistConfig = getOpenlistConfig(taskConfig);
@@ -220,98 +231,80 @@ public class TaskExecutionService {
 
       // 4. 使用内存优化的文件处理方式
       log.info("开始处理文件，使用内存优化策略");
+      SidecarCopyService.CopyRun sidecarRun = sidecarCopyService.beginRun();
+      boolean useResolver = strmLinkResolverService.isResolverEnabled();
+      if (useResolver) {
+        log.info("STRM链接解析模式已启用，STRM文件将写入ostrm解析地址");
+      }
+
+      // 刮削按目录提交到独立的刮削队列，与STRM生成并行
+      ScrapingQueueService.ScrapingBatch scrapingBatch =
+          scrapingQueueService.newBatch(taskConfig.getTaskName());
 
-      // 使用分批处理减少内存占用
+      // 使用分批处理减少内存占用，首轮和补充处理共用视频文件计数
+      AtomicInteger processedCount = new AtomicInteger();
       List<OpenlistApiService.OpenlistFile> allFiles = processFilesWithMemoryOptimization(openlistConfig, taskConfig,
-          isIncrement, true);
+          isIncrement, true, useResolver, scrapingBatch, sidecarRun, processedCount);
 
       log.info("处理完成，共处理 {} 个文件/目录", allFiles.size());
 
-      // 5. 过滤并处理视频文件
-      int processedCount = 0;
-      int scrapSkippedCount = 0;
-
+      // 5. 补充处理首轮未处理的视频文件（降级处理时），首轮已处理的文件跳过，STRM同样按目录批量写入
+      int supplementedCount = 0;
+      List<CompletableFuture<Integer>> strmWrites = new ArrayList<>();
+      Map<String, List<OpenlistApiService.OpenlistFile>> filesByDirectory = new LinkedHashMap<>();
       for (OpenlistApiService.OpenlistFile file : allFiles) {
-        if ("file".equals(file.getType()) && strmFileService.isVideoFile(file.getName())) {
-          try {
-            // 计算相对路径
-            String relativePath = strmFileService.calculateRelativePath(taskConfig.getPath(), file.getPath());
-
-            // 构建包含sign参数的文件URL
-            String fileUrlWithSign = buildFileUrlWithSign(file.getUrl(), file.getSign());
-
-            // 生成STRM文件（增量模式下强制重新生成）
-            strmFileService.generateStrmFile(
-                taskConfig.getStrmPath(),
-                relativePath,
-                file.getName(),
-                fileUrlWithSign,
-                isIncrement, // 增量模式下强制重新生成
-                taskConfig.getRenameRegex(),
-                openlistConfig);
+        String filePath = file.getPath();
+        if (filePath != null) {
+          filesByDirectory
+              .computeIfAbsent(filePath.substring(0, filePath.lastIndexOf('/') + 1), key -> new ArrayList<>())
+              .add(file);
+        }
+      }
 
-            // 执行媒体刮削（包括复制已存在刮削信息）
+      for (Map.Entry<String, List<OpenlistApiService.OpenlistFile>> directory : filesByDirectory.entrySet()) {
+        List<OpenlistApiService.OpenlistFile> currentDirFiles = directory.getValue();
+        List<FileWriteService.PendingWrite> pendingWrites = new ArrayList<>();
+        List<ScrapingQueueService.ScrapJob> scrapJobs = new ArrayList<>();
+        for (OpenlistApiService.OpenlistFile file : currentDirFiles) {
+          if ("file".equals(file.getType())
+              && strmFileService.isVideoFile(file.getName())
+              && !scrapingBatch.isSubmitted(file.getPath())) {
             try {
-              // 构建完整的保存目录路径
-              String saveDirectory = buildScrapSaveDirectory(taskConfig.getStrmPath(), relativePath);
-
-              // 检查是否需要刮削（在增量模式下检查NFO文件是否已存在）
-              boolean needScrapFile = needScrapFile(
-                  file.getName(),
-                  taskConfig.getRenameRegex(),
-                  taskConfig.getStrmPath(),
-                  relativePath,
-                  isIncrement);
-
-              if (needScrapFile) {
-                // 检查目录是否已完全刮削（仅在增量模式下进行目录级别检查）
-                if (isIncrement && mediaScrapingService.isDirectoryFullyScraped(saveDirectory)) {
-                  log.debug("目录已完全刮削，跳过: {}", saveDirectory);
-                  scrapSkippedCount++;
-                } else {
-                  // 过滤出当前视频文件所在目录的文件
-                  String currentDirectory = file.getPath().substring(0, file.getPath().lastIndexOf('/') + 1);
-                  List<OpenlistApiService.OpenlistFile> currentDirFiles = allFiles.stream()
-                      .filter(
-                          f -> f.getPath().startsWith(currentDirectory)
-                              && f.getPath()
-                                  .substring(currentDirectory.length())
-                                  .indexOf('/') == -1)
-                      .collect(java.util.stream.Collectors.toList());
-
-                  mediaScrapingService.scrapMedia(
-                      openlistConfig,
-                      file.getName(),
-                      taskConfig.getStrmPath(),
-                      relativePath,
-                      currentDirFiles,
-                      file.getPath());
-                }
-              } else {
-                log.debug("NFO文件已存在，跳过刮削: {}", file.getName());
-                scrapSkippedCount++;
+              // 计算STRM文件内容（增量模式下强制重新生成）
+              FileWriteService.PendingWrite pendingWrite =
+                  prepareStrmWrite(openlistConfig, taskConfig, file, isIncrement, useResolver);
+              if (pendingWrite != null) {
+                pendingWrites.add(pendingWrite);
               }
-            } catch (Exception scrapException) {
-              log.error(
-                  "刮削文件失败: {}, 错误: {}",
-                  file.getName(),
-                  scrapException.getMessage(),
-                  scrapException);
-              // 刮削失败不影响STRM文件生成，继续处理
-            }
 
-            processedCount++;
+              // 刮削提交到刮削队列，失败不影响STRM文件生成
+              scrapJobs.add(buildScrapJob(
+                  openlistConfig, taskConfig, file, isIncrement, currentDirFiles, sidecarRun));
+              supplementedCount++;
 
-          } catch (Exception e) {
-            log.error("处理文件失败: {}, 错误: {}", file.getName(), e.getMessage(), e);
-            // 继续处理其他文件，不中断整个任务
+            } catch (Exception e) {
+              log.error("处理文件失败: {}, 错误: {}", file.getName(), e.getMessage(), e);
+              // 继续处理其他文件，不中断整个任务
+            }
           }
         }
+        if (!pendingWrites.isEmpty()) {
+          strmWrites.add(fileWriteService.writeBatch(pendingWrites));
+        }
+        if (!scrapJobs.isEmpty()) {
+          scrapingBatch.submitDirectory(directory.getKey(), scrapJobs);
+        }
       }
-
-      if (scrapSkippedCount > 0) {
-        log.info("跳过了 {} 个已刮削目录中的文件", scrapSkippedCount);
+      int failedWrites =
+          strmWrites.stream().map(CompletableFuture::join).mapToInt(Integer::intValue).sum();
+      if (failedWrites > 0) {
+        log.warn("有 {} 个STRM文件写入失败", failedWrites);
       }
+      processedCount.addAndGet(supplementedCount);
+      log.info("补充处理视频文件完成，共 {} 个", supplementedCount);
+
+      // 等待刮削队列完成后再清理孤立文件和刷新媒体库
+      scrapingBatch.awaitCompletion();
 
       // 6. 如果是增量执行，清理孤立的STRM文件（源文件已不存在的STRM文件）
       if (isIncrement) {
@@ -325,39 +318,23 @@ public class TaskExecutionService {
         log.info("清理了 {} 个孤立的STRM文件", cleanedCount);
       }
 
-      // 7. 执行Emby媒体库刷新（如果启用）
+      // 7. 执行Emby媒体库刷新（如果启用），只通知本次变更的目录，全量执行时刷新整库
       boolean embyRefreshEnabled = Boolean.TRUE.equals(taskConfig.getEnableEmbyRefresh());
       if (embyRefreshEnabled) {
-        log.info("执行Emby媒体库刷新");
-        
-        // 只使用全局Emby配置
-        Map<String, Object> globalEmbyConfig = systemConfigService.getEmbyConfig();
-        String embyServerUrl = (String) globalEmbyConfig.getOrDefault("serverUrl", "http://localhost:8096");
-        String embyApiKey = (String) globalEmbyConfig.getOrDefault("apiKey", "");
-        log.info("使用全局Emby配置");
-        
-        log.debug("Emby服务器配置: URL={}, API Key={}", 
-            embyServerUrl, 
-            embyApiKey != null && !embyApiKey.isEmpty() ? "***" : "");
-        
-        boolean embyRefreshSuccess = embyApiService.refreshMediaLibrary(
-            embyServerUrl,
-            embyApiKey
-        );
-        if (embyRefreshSuccess) {
-          log.info("Emby媒体库刷新成功");
-        } else {
-          log.warn("Emby媒体库刷新失败，任务已完成");
-        }
+        Set<Path> changedDirectories = changeSet.getDirectories();
+        log.info("请求Emby媒体库刷新，变更目录: {} 个", changedDirectories.size());
+        embyRefreshService.requestRefresh(changedDirectories, !isIncrement);
       } else {
         log.info("Emby媒体库刷新已禁用");
       }
 
-      log.info("任务执行完成: {}, 处理了 {} 个视频文件", taskConfig.getTaskName(), processedCount);
+      log.info("任务执行完成: {}, 处理了 {} 个视频文件", taskConfig.getTaskName(), processedCount.get());
 
     } catch (Exception e) {
       log.error("任务执行失败: {}, 错误: {}", taskConfig.getTaskName(), e.getMessage(), e);
       throw new BusinessException("任务执行失败: " + e.getMessage(), e);
+    } finally {
+      changeSet.close();
     }
   }
 
@@ -384,6 +361,48 @@ public class TaskExecutionService {
     return openlistConfig;
   }
 
+  /**
+   * 计算单个视频文件的STRM写入内容，由调用方按目录批量写入
+   *
+   * @param openlistConfig OpenList配置
+   * @param taskConfig     任务配置
+   * @param file           视频文件
+   * @param isIncrement    是否增量执行
+   * @param useResolver    是否使用链接解析模式
+   * @return 待写入的文件，无需写入时返回null
+   */
+  private FileWriteService.PendingWrite prepareStrmWrite(
+      OpenlistConfig openlistConfig,
+      TaskConfig taskConfig,
+      OpenlistApiService.OpenlistFile file,
+      boolean isIncrement,
+      boolean useResolver) {
+    String relativePath = strmFileService.calculateRelativePath(taskConfig.getPath(), file.getPath());
+    return strmFileService.prepareStrmWrite(
+        taskConfig.getStrmPath(),
+        relativePath,
+        file.getName(),
+        buildStrmFileUrl(openlistConfig, taskConfig, file, useResolver),
+        isIncrement, // 增量模式下强制重新生成
+        taskConfig.getRenameRegex(),
+        openlistConfig,
+        useResolver);
+  }
+
+  /** 构建写入STRM文件的链接 */
+  private String buildStrmFileUrl(
+      OpenlistConfig openlistConfig,
+      TaskConfig taskConfig,
+      OpenlistApiService.OpenlistFile file,
+      boolean useResolver) {
+    if (useResolver) {
+      return strmLinkResolverService.buildResolverUrl(taskConfig, file.getPath());
+    }
+    return buildFileUrlWithSign(
+        file.getUrl(),
+        openlistApiService.resolveFileSign(openlistConfig, file.getPath(), file.getSign()));
+  }
+
   /**
    * 构建包含sign参数的文件URL，并处理baseUrl替换
    *
@@ -504,34 +523,43 @@ public class TaskExecutionService {
     return strmDirectory + "/" + directoryPath;
   }
 
-  /** 内存优化的文件处理方法 分批处理文件，避免一次性加载所有文件到内存 */
+  /** 内存优化的文件处理方法 分批处理文件，避免一次性加载所有文件到内存，处理的视频文件数累加到processedCount */
   private List<OpenlistApiService.OpenlistFile> processFilesWithMemoryOptimization(
       OpenlistConfig openlistConfig,
       TaskConfig taskConfig,
       boolean isIncrement,
-      boolean needScrap) {
+      boolean needScrap,
+      boolean useResolver,
+      ScrapingQueueService.ScrapingBatch scrapingBatch,
+      SidecarCopyService.CopyRun sidecarRun,
+      AtomicInteger processedCount) {
 
     List<OpenlistApiService.OpenlistFile> allFiles = new ArrayList<>();
-    int processedCount = 0;
-    int scrapSkippedCount = 0;
 
     try {
-      // 分批处理目录，每次只处理一个目录的文件
+      // 分批处理目录，每次只处理一个目录的文件，STRM文件按目录提交到写入线程池
+      List<CompletableFuture<Integer>> strmWrites = new ArrayList<>();
       processDirectoryBatch(
           openlistConfig,
           taskConfig.getPath(),
           taskConfig,
           isIncrement,
           needScrap,
+          useResolver,
           allFiles,
-          processedCount,
-          scrapSkippedCount);
-
-      log.info("文件处理完成 - 处理了 {} 个视频文件", processedCount);
-      if (needScrap && scrapSkippedCount > 0) {
-        log.info("跳过了 {} 个已刮削目录中的文件", scrapSkippedCount);
+          strmWrites,
+          scrapingBatch,
+          sidecarRun,
+          processedCount);
+
+      int failedWrites =
+          strmWrites.stream().map(CompletableFuture::join).mapToInt(Integer::intValue).sum();
+      if (failedWrites > 0) {
+        log.warn("有 {} 个STRM文件写入失败", failedWrites);
       }
 
+      log.info("文件处理完成 - 处理了 {} 个视频文件", processedCount.get());
+
     } catch (Exception e) {
       log.error("内存优化文件处理失败: {}", e.getMessage(), e);
       // 降级到原始方法
@@ -549,12 +577,17 @@ public class TaskExecutionService {
       TaskConfig taskConfig,
       boolean isIncrement,
       boolean needScrap,
+      boolean useResolver,
       List<OpenlistApiService.OpenlistFile> allFiles,
-      int processedCount,
-      int scrapSkippedCount) {
+      List<CompletableFuture<Integer>> strmWrites,
+      ScrapingQueueService.ScrapingBatch scrapingBatch,
+      SidecarCopyService.CopyRun sidecarRun,
+      AtomicInteger processedCount) {
 
     try {
       List<OpenlistApiService.OpenlistFile> files = openlistApiService.getDirectoryContents(openlistConfig, path);
+      List<FileWriteService.PendingWrite> pendingWrites = new ArrayList<>();
+      List<ScrapingQueueService.ScrapJob> scrapJobs = new ArrayList<>();
 
       for (OpenlistApiService.OpenlistFile file : files) {
         allFiles.add(file);
@@ -567,9 +600,12 @@ public class TaskExecutionService {
               taskConfig,
               isIncrement,
               needScrap,
+              useResolver,
               files,
-              processedCount,
-              scrapSkippedCount);
+              pendingWrites,
+              scrapJobs,
+              sidecarRun,
+              processedCount);
         } else if ("folder".equals(file.getType())) {
           // 递归处理子目录
           String subPath = file.getPath();
@@ -582,12 +618,23 @@ public class TaskExecutionService {
               taskConfig,
               isIncrement,
               needScrap,
+              useResolver,
               allFiles,
-              processedCount,
-              scrapSkippedCount);
+              strmWrites,
+              scrapingBatch,
+              sidecarRun,
+              processedCount);
         }
       }
 
+      // 当前目录的STRM文件批量写入
+      strmWrites.add(fileWriteService.writeBatch(pendingWrites));
+
+      // 当前目录的刮削提交到刮削队列，队列已满时在此等待
+      if (needScrap) {
+        scrapingBatch.submitDirectory(path, scrapJobs);
+      }
+
       // 处理完一个目录后，清理局部变量引用（由JVM自动管理GC）
       // 移除显式 System.gc() 调用以提升性能
 
@@ -603,43 +650,72 @@ public class TaskExecutionService {
       TaskConfig taskConfig,
       boolean isIncrement,
       boolean needScrap,
+      boolean useResolver,
       List<OpenlistApiService.OpenlistFile> directoryFiles,
-      int processedCount,
-      int scrapSkippedCount) {
+      List<FileWriteService.PendingWrite> pendingWrites,
+      List<ScrapingQueueService.ScrapJob> scrapJobs,
+      SidecarCopyService.CopyRun sidecarRun,
+      AtomicInteger processedCount) {
 
     try {
       // 计算相对路径
       String relativePath = strmFileService.calculateRelativePath(taskConfig.getPath(), file.getPath());
 
-      // 构建包含sign参数的文件URL
-      String fileUrlWithSign = buildFileUrlWithSign(file.getUrl(), file.getSign());
+      // 计算STRM文件内容（增量模式下强制重新生成），由目录批量写入
+      FileWriteService.PendingWrite pendingWrite =
+          prepareStrmWrite(openlistConfig, taskConfig, file, isIncrement, useResolver);
+      if (pendingWrite != null) {
+        pendingWrites.add(pendingWrite);
+      }
 
-      // 生成STRM文件（增量模式下强制重新生成）
-      strmFileService.generateStrmFile(
-          taskConfig.getStrmPath(),
-          relativePath,
-          file.getName(),
-          fileUrlWithSign,
-          isIncrement, // 增量模式下强制重新生成
-          taskConfig.getRenameRegex(),
-          openlistConfig);
+      // 刮削由刮削队列按目录异步执行
+      scrapJobs.add(
+          buildScrapJob(openlistConfig, taskConfig, file, isIncrement, directoryFiles, sidecarRun));
 
-      // 执行媒体刮削（包括复制已存在刮削信息）
-      try {
-        String saveDirectory = buildScrapSaveDirectory(taskConfig.getStrmPath(), relativePath);
+      processedCount.incrementAndGet();
 
-        // 检查是否需要刮削（在增量模式下检查NFO文件是否已存在）
-        boolean needScrapFile = needScrapFile(
-            file.getName(),
-            taskConfig.getRenameRegex(),
-            taskConfig.getStrmPath(),
-            relativePath,
-            isIncrement);
+    } catch (Exception e) {
+      log.error("处理文件失败: {}, 错误: {}", file.getName(), e.getMessage(), e);
+    }
+  }
 
-        if (needScrapFile) {
-          if (isIncrement && mediaScrapingService.isDirectoryFullyScraped(saveDirectory)) {
+  /**
+   * 构建单个文件的刮削任务（包括复制已存在刮削信息），在刮削线程中执行
+   *
+   * @param openlistConfig OpenList配置
+   * @param taskConfig     任务配置
+   * @param file           视频文件
+   * @param isIncrement    是否增量模式
+   * @param directoryFiles 视频文件所在目录的文件列表
+   * @param sidecarRun     本次执行的附属文件复制记录
+   * @return 刮削任务
+   */
+  private ScrapingQueueService.ScrapJob buildScrapJob(
+      OpenlistConfig openlistConfig,
+      TaskConfig taskConfig,
+      OpenlistApiService.OpenlistFile file,
+      boolean isIncrement,
+      List<OpenlistApiService.OpenlistFile> directoryFiles,
+      SidecarCopyService.CopyRun sidecarRun) {
+    return new ScrapingQueueService.ScrapJob(
+        file.getPath(),
+        () -> {
+          String relativePath =
+              strmFileService.calculateRelativePath(taskConfig.getPath(), file.getPath());
+          String saveDirectory = buildScrapSaveDirectory(taskConfig.getStrmPath(), relativePath);
+
+          // 检查是否需要刮削（在增量模式下检查NFO文件是否已存在）
+          boolean needScrapFile = needScrapFile(
+              file.getName(),
+              taskConfig.getRenameRegex(),
+              taskConfig.getStrmPath(),
+              relativePath,
+              isIncrement);
+
+          if (!needScrapFile) {
+            log.debug("NFO文件已存在，跳过刮削: {}", file.getName());
+          } else if (isIncrement && mediaScrapingService.isDirectoryFullyScraped(saveDirectory)) {
             log.debug("目录已完全刮削，跳过: {}", saveDirectory);
-            scrapSkippedCount++;
           } else {
             mediaScrapingService.scrapMedia(
                 openlistConfig,
@@ -647,22 +723,10 @@ public class TaskExecutionService {
                 taskConfig.getStrmPath(),
                 relativePath,
                 directoryFiles,
-                file.getPath());
+                file.getPath(),
+                sidecarRun);
           }
-        } else {
-          log.debug("NFO文件已存在，跳过刮削: {}", file.getName());
-          scrapSkippedCount++;
-        }
-      } catch (Exception scrapException) {
-        log.error(
-            "刮削文件失败: {}, 错误: {}", file.getName(), scrapException.getMessage(), scrapException);
-      }
-
-      processedCount++;
-
-    } catch (Exception e) {
-      log.error("处理文件失败: {}, 错误: {}", file.getName(), e.getMessage(), e);
-    }
+        });
   }
 
   /**
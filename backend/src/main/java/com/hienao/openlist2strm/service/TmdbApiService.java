@@ -1,15 +1,31 @@
 package com.hienao.openlist2strm.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hienao.openlist2strm.constant.AppConstants;
 import com.hienao.openlist2strm.dto.tmdb.TmdbMovieDetail;
+import com.hienao.openlist2strm.dto.tmdb.TmdbRateLimitStats;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSearchResponse;
 import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonDetail;
+import com.hienao.openlist2strm.dto.tmdb.TmdbSeasonFetchResult;
 import com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail;
 import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.util.TokenBucketRateLimiter;
 import java.net.InetSocketAddress;
 import java.net.Proxy;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpEntity;
@@ -18,6 +34,9 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
@@ -32,8 +51,28 @@ import org.springframework.web.util.UriComponentsBuilder;
 @RequiredArgsConstructor
 public class TmdbApiService {
 
+  private static final int DEFAULT_RETRY_COUNT = 3;
+  private static final int DEFAULT_RATE_LIMIT = 20;
+  private static final int DEFAULT_RATE_LIMIT_BURST = 20;
+  private static final long RETRY_BASE_DELAY_MILLIS = 1000L;
+  private static final long RETRY_JITTER_MILLIS = 500L;
+  private static final long DEFAULT_RETRY_AFTER_MILLIS = 2000L;
+  private static final long MAX_RETRY_AFTER_MILLIS = 60_000L;
+
+  /** append_to_response 单次最多附加的子请求数 */
+  private static final int MAX_APPENDED_SEASONS = 20;
+
   private final ObjectMapper objectMapper;
   private final SystemConfigService systemConfigService;
+  private final TmdbCacheService tmdbCacheService;
+  private final NegativeMatchCacheService negativeMatchCacheService;
+  private final ExecutorService scrapingExecutor;
+
+  /** 全局TMDB请求限流器，所有线程共享 */
+  private final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter();
+
+  /** 重试次数统计 */
+  private final AtomicLong retryTotal = new AtomicLong();
 
   /** 创建配置了代理的RestTemplate */
   private RestTemplate createRestTemplate() {
@@ -97,6 +136,145 @@ public class TmdbApiService {
     log.error("TMDB API 错误堆栈:", e);
   }
 
+  /**
+   * 请求TMDB并返回响应体，请求前经过全局限流，429时按Retry-After暂停所有请求后重试，
+   * 服务端错误和网络错误按指数退避加随机抖动重试
+   *
+   * @param url           请求URL
+   * @param requestParams 用于日志的请求参数
+   * @return 响应体JSON
+   */
+  private String fetchResponseBody(String url, Map<String, String> requestParams) {
+    Map<String, Object> tmdbConfig = systemConfigService.getTmdbConfig();
+    int maxRetries = getIntConfig(tmdbConfig, "retryCount", DEFAULT_RETRY_COUNT);
+    double rateLimit = getIntConfig(tmdbConfig, "rateLimitPerSecond", DEFAULT_RATE_LIMIT);
+    int rateLimitBurst = getIntConfig(tmdbConfig, "rateLimitBurst", DEFAULT_RATE_LIMIT_BURST);
+    RestTemplate restTemplate = createRestTemplate();
+
+    for (int attempt = 0; ; attempt++) {
+      rateLimiter.acquire(rateLimit, rateLimitBurst);
+      try {
+        return doFetchResponseBody(restTemplate, url, requestParams);
+      } catch (HttpClientErrorException.TooManyRequests e) {
+        long retryAfterMillis = parseRetryAfterMillis(e.getResponseHeaders());
+        rateLimiter.pauseFor(retryAfterMillis);
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        log.warn(
+            "TMDB API 请求过于频繁(429)，暂停 {}ms 后重试 ({}/{}): {}",
+            retryAfterMillis,
+            attempt + 1,
+            maxRetries,
+            requestParams);
+        retryTotal.incrementAndGet();
+        sleepWithJitter(0);
+      } catch (HttpServerErrorException | ResourceAccessException e) {
+        if (attempt >= maxRetries) {
+          throw e;
+        }
+        long backoffMillis = RETRY_BASE_DELAY_MILLIS << Math.min(attempt, 5);
+        log.warn(
+            "TMDB API 请求失败，{}ms 后重试 ({}/{}): {}",
+            backoffMillis,
+            attempt + 1,
+            maxRetries,
+            e.getMessage());
+        retryTotal.incrementAndGet();
+        sleepWithJitter(backoffMillis);
+      }
+    }
+  }
+
+  private String doFetchResponseBody(
+      RestTemplate restTemplate, String url, Map<String, String> requestParams) {
+    logRequestDetails("GET", url, requestParams);
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set("User-Agent", AppConstants.USER_AGENT);
+    HttpEntity<String> entity = new HttpEntity<>(headers);
+
+    ResponseEntity<String> response =
+        restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    String responseBody = response.getBody();
+
+    // 记录响应详情
+    logResponseDetails("GET", response.getStatusCode().value(), responseBody);
+
+    if (!response.getStatusCode().is2xxSuccessful()) {
+      throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
+    }
+
+    if (responseBody == null || responseBody.isEmpty()) {
+      throw new BusinessException("TMDB API 返回空响应");
+    }
+    return responseBody;
+  }
+
+  /** 解析Retry-After头（秒数或HTTP日期），缺失时使用默认值 */
+  private long parseRetryAfterMillis(HttpHeaders headers) {
+    String retryAfter = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+    long millis = DEFAULT_RETRY_AFTER_MILLIS;
+    if (retryAfter != null && !retryAfter.isBlank()) {
+      try {
+        millis = TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+      } catch (NumberFormatException e) {
+        try {
+          ZonedDateTime retryAt =
+              ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+          millis = Duration.between(ZonedDateTime.now(), retryAt).toMillis();
+        } catch (DateTimeParseException ignored) {
+          log.debug("无法解析Retry-After: {}", retryAfter);
+        }
+      }
+    }
+    return Math.min(Math.max(millis, 0), MAX_RETRY_AFTER_MILLIS);
+  }
+
+  /** 等待指定时间并加上随机抖动，避免多个线程同时重试 */
+  private void sleepWithJitter(long baseMillis) {
+    long jitterMillis = ThreadLocalRandom.current().nextLong(RETRY_JITTER_MILLIS + 1);
+    try {
+      TimeUnit.MILLISECONDS.sleep(baseMillis + jitterMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new BusinessException("TMDB API 重试等待被中断");
+    }
+  }
+
+  private int getIntConfig(Map<String, Object> tmdbConfig, String key, int defaultValue) {
+    Object value = tmdbConfig.get(key);
+    if (value instanceof Number number) {
+      return number.intValue();
+    }
+    if (value instanceof String text && !text.isBlank()) {
+      try {
+        return Integer.parseInt(text.trim());
+      } catch (NumberFormatException e) {
+        log.warn("TMDB配置 {} 无效: {}, 使用默认值 {}", key, text, defaultValue);
+      }
+    }
+    return defaultValue;
+  }
+
+  /**
+   * 获取限流统计
+   *
+   * @return 限流统计
+   */
+  public TmdbRateLimitStats getRateLimitStats() {
+    Map<String, Object> tmdbConfig = systemConfigService.getTmdbConfig();
+    return new TmdbRateLimitStats()
+        .setRateLimitPerSecond(getIntConfig(tmdbConfig, "rateLimitPerSecond", DEFAULT_RATE_LIMIT))
+        .setRateLimitBurst(getIntConfig(tmdbConfig, "rateLimitBurst", DEFAULT_RATE_LIMIT_BURST))
+        .setRequests(rateLimiter.getAcquiredCount())
+        .setThrottled(rateLimiter.getThrottledCount())
+        .setTotalWaitMillis(rateLimiter.getTotalWaitMillis())
+        .setMaxWaitMillis(rateLimiter.getMaxWaitMillis())
+        .setTooManyRequests(rateLimiter.getPauseCount())
+        .setRetries(retryTotal.get());
+  }
+
   /** 记录搜索结果为空的情况（刮削失败） */
   private void logEmptySearchResult(String method, String query, String year, int resultCount) {
     log.warn(
@@ -108,13 +286,25 @@ public class TmdbApiService {
   }
 
   /**
-   * 搜索电影
+   * 搜索电影（自动刮削使用，近期未匹配的查询直接返回空结果）
    *
    * @param query 搜索关键词
    * @param year 年份（可选）
    * @return 搜索结果
    */
   public TmdbSearchResponse searchMovies(String query, String year) {
+    return searchMovies(query, year, false);
+  }
+
+  /**
+   * 搜索电影
+   *
+   * @param query 搜索关键词
+   * @param year 年份（可选）
+   * @param interactive 是否为用户手动搜索，手动搜索不受未匹配缓存影响，并直接请求TMDB
+   * @return 搜索结果
+   */
+  public TmdbSearchResponse searchMovies(String query, String year, boolean interactive) {
     Map<String, Object> tmdbConfig = systemConfigService.getTmdbConfig();
     String apiKey = (String) tmdbConfig.get("apiKey");
 
@@ -122,7 +312,6 @@ public class TmdbApiService {
       throw new BusinessException("TMDB API Key 未配置");
     }
 
-    RestTemplate restTemplate = createRestTemplate();
     String responseBody = null;
     String url = null;
 
@@ -149,26 +338,42 @@ public class TmdbApiService {
       if (year != null && !year.trim().isEmpty()) {
         requestParams.put("year", year);
       }
-      logRequestDetails("GET", url, requestParams);
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<String> response =
-          restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-      responseBody = response.getBody();
-
-      // 记录响应详情
-      logResponseDetails("GET", response.getStatusCode().value(), responseBody);
 
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
+      // 优先读取缓存，未命中时请求TMDB
+      String requestUrl = url;
+      String cacheKey =
+          TmdbCacheService.buildKey(
+              TmdbCacheService.KIND_SEARCH, "/search/movie", language, query, year);
+
+      // 手动搜索直接请求TMDB并回写缓存，不受未匹配缓存和已缓存的空结果影响
+      if (interactive) {
+        responseBody = fetchResponseBody(requestUrl, requestParams);
+        tmdbCacheService.put(TmdbCacheService.KIND_SEARCH, cacheKey, tmdbConfig, responseBody);
+        TmdbSearchResponse searchResponse =
+            objectMapper.readValue(responseBody, TmdbSearchResponse.class);
+        if (searchResponse.getResults() != null && !searchResponse.getResults().isEmpty()) {
+          negativeMatchCacheService.recordHit(NegativeMatchCacheService.KIND_MOVIE, query, year);
+        }
+        return searchResponse;
       }
 
-      if (responseBody == null || responseBody.isEmpty()) {
-        throw new BusinessException("TMDB API 返回空响应");
+      // 近期未匹配的查询在重试时间前直接返回空结果；到期后绕过缓存的空结果重新请求
+      NegativeMatchCacheService.State negativeState =
+          negativeMatchCacheService.check(NegativeMatchCacheService.KIND_MOVIE, query, year);
+      if (negativeState == NegativeMatchCacheService.State.SUPPRESSED) {
+        log.debug("电影 '{}' 近期未匹配，跳过搜索", query);
+        return emptySearchResponse();
       }
+      if (negativeState == NegativeMatchCacheService.State.RETRY_DUE) {
+        tmdbCacheService.evict(cacheKey);
+      }
+
+      responseBody =
+          tmdbCacheService.getOrFetch(
+              TmdbCacheService.KIND_SEARCH,
+              cacheKey,
+              tmdbConfig,
+              () -> fetchResponseBody(requestUrl, requestParams));
 
       TmdbSearchResponse searchResponse =
           objectMapper.readValue(responseBody, TmdbSearchResponse.class);
@@ -177,7 +382,9 @@ public class TmdbApiService {
 
       if (resultCount == 0) {
         logEmptySearchResult("searchMovies", query, year, resultCount);
+        negativeMatchCacheService.recordMiss(NegativeMatchCacheService.KIND_MOVIE, query, year);
       } else {
+        // 有结果不代表匹配可信，由调用方选出匹配后清除或更新未匹配记录
         log.info("搜索电影 '{}' 找到 {} 个结果", query, resultCount);
       }
 
@@ -190,13 +397,25 @@ public class TmdbApiService {
   }
 
   /**
-   * 搜索电视剧
+   * 搜索电视剧（自动刮削使用，近期未匹配的查询直接返回空结果）
    *
    * @param query 搜索关键词
    * @param year 年份（可选）
    * @return 搜索结果
    */
   public TmdbSearchResponse searchTvShows(String query, String year) {
+    return searchTvShows(query, year, false);
+  }
+
+  /**
+   * 搜索电视剧
+   *
+   * @param query 搜索关键词
+   * @param year 年份（可选）
+   * @param interactive 是否为用户手动搜索，手动搜索不受未匹配缓存影响，并直接请求TMDB
+   * @return 搜索结果
+   */
+  public TmdbSearchResponse searchTvShows(String query, String year, boolean interactive) {
     Map<String, Object> tmdbConfig = systemConfigService.getTmdbConfig();
     String apiKey = (String) tmdbConfig.get("apiKey");
 
@@ -204,7 +423,6 @@ public class TmdbApiService {
       throw new BusinessException("TMDB API Key 未配置");
     }
 
-    RestTemplate restTemplate = createRestTemplate();
     String responseBody = null;
     String url = null;
 
@@ -231,26 +449,42 @@ public class TmdbApiService {
       if (year != null && !year.trim().isEmpty()) {
         requestParams.put("first_air_date_year", year);
       }
-      logRequestDetails("GET", url, requestParams);
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<String> response =
-          restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-      responseBody = response.getBody();
-
-      // 记录响应详情
-      logResponseDetails("GET", response.getStatusCode().value(), responseBody);
 
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
+      // 优先读取缓存，未命中时请求TMDB
+      String requestUrl = url;
+      String cacheKey =
+          TmdbCacheService.buildKey(
+              TmdbCacheService.KIND_SEARCH, "/search/tv", language, query, year);
+
+      // 手动搜索直接请求TMDB并回写缓存，不受未匹配缓存和已缓存的空结果影响
+      if (interactive) {
+        responseBody = fetchResponseBody(requestUrl, requestParams);
+        tmdbCacheService.put(TmdbCacheService.KIND_SEARCH, cacheKey, tmdbConfig, responseBody);
+        TmdbSearchResponse searchResponse =
+            objectMapper.readValue(responseBody, TmdbSearchResponse.class);
+        if (searchResponse.getResults() != null && !searchResponse.getResults().isEmpty()) {
+          negativeMatchCacheService.recordHit(NegativeMatchCacheService.KIND_TV, query, year);
+        }
+        return searchResponse;
       }
 
-      if (responseBody == null || responseBody.isEmpty()) {
-        throw new BusinessException("TMDB API 返回空响应");
+      // 近期未匹配的查询在重试时间前直接返回空结果；到期后绕过缓存的空结果重新请求
+      NegativeMatchCacheService.State negativeState =
+          negativeMatchCacheService.check(NegativeMatchCacheService.KIND_TV, query, year);
+      if (negativeState == NegativeMatchCacheService.State.SUPPRESSED) {
+        log.debug("电视剧 '{}' 近期未匹配，跳过搜索", query);
+        return emptySearchResponse();
       }
+      if (negativeState == NegativeMatchCacheService.State.RETRY_DUE) {
+        tmdbCacheService.evict(cacheKey);
+      }
+
+      responseBody =
+          tmdbCacheService.getOrFetch(
+              TmdbCacheService.KIND_SEARCH,
+              cacheKey,
+              tmdbConfig,
+              () -> fetchResponseBody(requestUrl, requestParams));
 
       TmdbSearchResponse searchResponse =
           objectMapper.readValue(responseBody, TmdbSearchResponse.class);
@@ -259,7 +493,9 @@ public class TmdbApiService {
 
       if (resultCount == 0) {
         logEmptySearchResult("searchTvShows", query, year, resultCount);
+        negativeMatchCacheService.recordMiss(NegativeMatchCacheService.KIND_TV, query, year);
       } else {
+        // 有结果不代表匹配可信，由调用方选出匹配后清除或更新未匹配记录
         log.info("搜索电视剧 '{}' 找到 {} 个结果", query, resultCount);
       }
 
@@ -271,6 +507,16 @@ public class TmdbApiService {
     }
   }
 
+  /** 构建空的搜索结果 */
+  private TmdbSearchResponse emptySearchResponse() {
+    TmdbSearchResponse response = new TmdbSearchResponse();
+    response.setPage(1);
+    response.setResults(new ArrayList<>());
+    response.setTotalResults(0);
+    response.setTotalPages(0);
+    return response;
+  }
+
   /**
    * 获取电影详情
    *
@@ -285,7 +531,6 @@ public class TmdbApiService {
       throw new BusinessException("TMDB API Key 未配置");
     }
 
-    RestTemplate restTemplate = createRestTemplate();
     String responseBody = null;
     String url = null;
 
@@ -303,26 +548,18 @@ public class TmdbApiService {
       Map<String, String> requestParams = new java.util.HashMap<>();
       requestParams.put("movieId", String.valueOf(movieId));
       requestParams.put("language", language);
-      logRequestDetails("GET", url, requestParams);
-
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<String> response =
-          restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-      responseBody = response.getBody();
-
-      // 记录响应详情
-      logResponseDetails("GET", response.getStatusCode().value(), responseBody);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
-      }
 
-      if (responseBody == null || responseBody.isEmpty()) {
-        throw new BusinessException("TMDB API 返回空响应");
-      }
+      // 优先读取缓存，未命中时请求TMDB
+      String requestUrl = url;
+      String cacheKey =
+          TmdbCacheService.buildKey(
+              TmdbCacheService.KIND_MOVIE, "/movie/" + movieId, language, null, null);
+      responseBody =
+          tmdbCacheService.getOrFetch(
+              TmdbCacheService.KIND_MOVIE,
+              cacheKey,
+              tmdbConfig,
+              () -> fetchResponseBody(requestUrl, requestParams));
 
       TmdbMovieDetail movieDetail = objectMapper.readValue(responseBody, TmdbMovieDetail.class);
       log.info("获取电影详情成功: {} ({})", movieDetail.getTitle(), movieDetail.getId());
@@ -349,7 +586,6 @@ public class TmdbApiService {
       throw new BusinessException("TMDB API Key 未配置");
     }
 
-    RestTemplate restTemplate = createRestTemplate();
     String responseBody = null;
     String url = null;
 
@@ -367,26 +603,18 @@ public class TmdbApiService {
       Map<String, String> requestParams = new java.util.HashMap<>();
       requestParams.put("tvId", String.valueOf(tvId));
       requestParams.put("language", language);
-      logRequestDetails("GET", url, requestParams);
 
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<String> response =
-          restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-      responseBody = response.getBody();
-
-      // 记录响应详情
-      logResponseDetails("GET", response.getStatusCode().value(), responseBody);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
-      }
-
-      if (responseBody == null || responseBody.isEmpty()) {
-        throw new BusinessException("TMDB API 返回空响应");
-      }
+      // 优先读取缓存，未命中时请求TMDB
+      String requestUrl = url;
+      String cacheKey =
+          TmdbCacheService.buildKey(
+              TmdbCacheService.KIND_TV, "/tv/" + tvId, language, null, null);
+      responseBody =
+          tmdbCacheService.getOrFetch(
+              TmdbCacheService.KIND_TV,
+              cacheKey,
+              tmdbConfig,
+              () -> fetchResponseBody(requestUrl, requestParams));
 
       TmdbTvDetail tvDetail = objectMapper.readValue(responseBody, TmdbTvDetail.class);
       log.info("获取电视剧详情成功: {} ({})", tvDetail.getName(), tvDetail.getId());
@@ -462,7 +690,6 @@ public class TmdbApiService {
       throw new BusinessException("TMDB API Key 未配置");
     }
 
-    RestTemplate restTemplate = createRestTemplate();
     String responseBody = null;
     String url = null;
 
@@ -480,25 +707,16 @@ public class TmdbApiService {
       requestParams.put("tvId", String.valueOf(tvId));
       requestParams.put("seasonNumber", String.valueOf(seasonNumber));
       requestParams.put("language", language);
-      logRequestDetails("GET", url, requestParams);
 
-      HttpHeaders headers = new HttpHeaders();
-      headers.set("User-Agent", AppConstants.USER_AGENT);
-      HttpEntity<String> entity = new HttpEntity<>(headers);
-
-      ResponseEntity<String> response =
-          restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-      responseBody = response.getBody();
-
-      logResponseDetails("GET", response.getStatusCode().value(), responseBody);
-
-      if (!response.getStatusCode().is2xxSuccessful()) {
-        throw new BusinessException("TMDB API 请求失败，状态码: " + response.getStatusCode());
-      }
-
-      if (responseBody == null || responseBody.isEmpty()) {
-        throw new BusinessException("TMDB API 返回空响应");
-      }
+      // 优先读取缓存，未命中时请求TMDB
+      String requestUrl = url;
+      String cacheKey = buildSeasonCacheKey(tvId, seasonNumber, language);
+      responseBody =
+          tmdbCacheService.getOrFetch(
+              TmdbCacheService.KIND_SEASON,
+              cacheKey,
+              tmdbConfig,
+              () -> fetchResponseBody(requestUrl, requestParams));
 
       TmdbSeasonDetail seasonDetail = objectMapper.readValue(responseBody, TmdbSeasonDetail.class);
       log.info("获取剧集季详情成功: TV ID={}, Season={}, Episode Count={}", 
@@ -513,6 +731,180 @@ public class TmdbApiService {
     }
   }
 
+  /**
+   * 获取电视剧所有季的详情
+   *
+   * @param tvDetail 电视剧详情（提供季列表）
+   * @return 季号到季详情的映射，按季列表顺序排列，获取失败的季不包含在内
+   * @see #fetchSeasonDetails(TmdbTvDetail)
+   */
+  public Map<Integer, TmdbSeasonDetail> getSeasonDetails(TmdbTvDetail tvDetail) {
+    return fetchSeasonDetails(tvDetail).getSeasons();
+  }
+
+  /**
+   * 获取电视剧所有季的详情，并记录获取失败的季
+   *
+   * <p>未缓存的季通过 append_to_response 合并请求（每次最多20季），结果按季写入缓存，后续 getSeasonDetail 可直接命中；
+   * 合并请求中缺失的季回退为单独请求。各请求并发执行，请求速率受全局TMDB限流器约束，结果按季列表顺序合并
+   *
+   * @param tvDetail 电视剧详情（提供季列表）
+   * @return 季详情和获取失败的季
+   */
+  public TmdbSeasonFetchResult fetchSeasonDetails(TmdbTvDetail tvDetail) {
+    TmdbSeasonFetchResult result = new TmdbSeasonFetchResult();
+    if (tvDetail == null || tvDetail.getId() == null || tvDetail.getSeasons() == null) {
+      return result;
+    }
+
+    Map<String, Object> tmdbConfig = systemConfigService.getTmdbConfig();
+    String apiKey = (String) tmdbConfig.get("apiKey");
+    if (apiKey == null || apiKey.trim().isEmpty()) {
+      throw new BusinessException("TMDB API Key 未配置");
+    }
+    String baseUrl = (String) tmdbConfig.getOrDefault("baseUrl", "https://api.themoviedb.org/3");
+    String language = (String) tmdbConfig.getOrDefault("language", "zh-CN");
+    Integer tvId = tvDetail.getId();
+
+    // 先读取缓存，剩下的季合并请求
+    List<Integer> seasonOrder = new ArrayList<>();
+    List<Integer> missingSeasons = new ArrayList<>();
+    Map<Integer, TmdbSeasonDetail> fetched = new ConcurrentHashMap<>();
+    Map<Integer, String> failures = new ConcurrentHashMap<>();
+    for (TmdbTvDetail.Season season : tvDetail.getSeasons()) {
+      Integer seasonNumber = season.getSeasonNumber();
+      if (seasonNumber == null || seasonOrder.contains(seasonNumber)) {
+        continue;
+      }
+      seasonOrder.add(seasonNumber);
+      String cached =
+          tmdbCacheService.peek(
+              TmdbCacheService.KIND_SEASON,
+              buildSeasonCacheKey(tvId, seasonNumber, language),
+              tmdbConfig);
+      TmdbSeasonDetail seasonDetail = cached != null ? readSeasonDetail(cached) : null;
+      if (seasonDetail != null) {
+        fetched.put(seasonNumber, seasonDetail);
+      } else {
+        missingSeasons.add(seasonNumber);
+      }
+    }
+
+    List<CompletableFuture<Void>> chunkFutures = new ArrayList<>();
+    for (int start = 0; start < missingSeasons.size(); start += MAX_APPENDED_SEASONS) {
+      List<Integer> chunk =
+          missingSeasons.subList(start, Math.min(start + MAX_APPENDED_SEASONS, missingSeasons.size()));
+      chunkFutures.add(
+          CompletableFuture.runAsync(
+              () -> fetchAppendedSeasons(tvId, chunk, baseUrl, apiKey, language, tmdbConfig, fetched),
+              scrapingExecutor));
+    }
+    CompletableFuture.allOf(chunkFutures.toArray(CompletableFuture[]::new)).join();
+
+    // 合并请求中缺失的季单独请求
+    List<CompletableFuture<Void>> singleFutures = new ArrayList<>();
+    for (Integer seasonNumber : missingSeasons) {
+      if (fetched.containsKey(seasonNumber)) {
+        continue;
+      }
+      singleFutures.add(
+          CompletableFuture.runAsync(
+              () -> {
+                try {
+                  TmdbSeasonDetail seasonDetail = getSeasonDetail(tvId, seasonNumber);
+                  if (seasonDetail != null) {
+                    fetched.put(seasonNumber, seasonDetail);
+                  } else {
+                    failures.put(seasonNumber, "季详情为空");
+                  }
+                } catch (Exception e) {
+                  failures.put(seasonNumber, e.getMessage() != null ? e.getMessage() : e.toString());
+                  log.warn("获取季详情失败: TV ID={}, Season={}, 错误: {}", tvId, seasonNumber, e.getMessage());
+                }
+              },
+              scrapingExecutor));
+    }
+    CompletableFuture.allOf(singleFutures.toArray(CompletableFuture[]::new)).join();
+
+    for (Integer seasonNumber : seasonOrder) {
+      TmdbSeasonDetail seasonDetail = fetched.get(seasonNumber);
+      if (seasonDetail != null) {
+        result.getSeasons().put(seasonNumber, seasonDetail);
+      } else if (failures.containsKey(seasonNumber)) {
+        result.getFailures().put(seasonNumber, failures.get(seasonNumber));
+      }
+    }
+    log.info(
+        "获取电视剧季详情完成: TV ID={}, 季数: {}, 合并请求的季数: {}, 失败的季数: {}",
+        tvId,
+        result.getSeasons().size(),
+        missingSeasons.size(),
+        result.getFailures().size());
+    return result;
+  }
+
+  /** 通过 append_to_response 一次请求多个季，解析后按季写入缓存 */
+  private void fetchAppendedSeasons(
+      Integer tvId,
+      List<Integer> seasonNumbers,
+      String baseUrl,
+      String apiKey,
+      String language,
+      Map<String, Object> tmdbConfig,
+      Map<Integer, TmdbSeasonDetail> seasonDetails) {
+    String appendToResponse =
+        seasonNumbers.stream()
+            .map(seasonNumber -> "season/" + seasonNumber)
+            .collect(java.util.stream.Collectors.joining(","));
+    String url =
+        UriComponentsBuilder.fromHttpUrl(baseUrl + "/tv/" + tvId)
+            .queryParam("api_key", apiKey)
+            .queryParam("language", language)
+            .queryParam("append_to_response", appendToResponse)
+            .toUriString();
+
+    Map<String, String> requestParams = new java.util.HashMap<>();
+    requestParams.put("tvId", String.valueOf(tvId));
+    requestParams.put("appendToResponse", appendToResponse);
+    requestParams.put("language", language);
+
+    String responseBody = null;
+    try {
+      responseBody = fetchResponseBody(url, requestParams);
+      JsonNode root = objectMapper.readTree(responseBody);
+      for (Integer seasonNumber : seasonNumbers) {
+        JsonNode seasonNode = root.get("season/" + seasonNumber);
+        if (seasonNode == null || !seasonNode.isObject()) {
+          continue;
+        }
+        String seasonBody = seasonNode.toString();
+        seasonDetails.put(seasonNumber, objectMapper.treeToValue(seasonNode, TmdbSeasonDetail.class));
+        tmdbCacheService.put(
+            TmdbCacheService.KIND_SEASON,
+            buildSeasonCacheKey(tvId, seasonNumber, language),
+            tmdbConfig,
+            seasonBody);
+      }
+    } catch (Exception e) {
+      logErrorDetails("GET", url, e, responseBody);
+      log.warn("合并请求季详情失败，改为逐季请求: TV ID={}, 季: {}", tvId, seasonNumbers);
+    }
+  }
+
+  private TmdbSeasonDetail readSeasonDetail(String body) {
+    try {
+      return objectMapper.readValue(body, TmdbSeasonDetail.class);
+    } catch (Exception e) {
+      log.debug("解析缓存的季详情失败: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private String buildSeasonCacheKey(Integer tvId, Integer seasonNumber, String language) {
+    return TmdbCacheService.buildKey(
+        TmdbCacheService.KIND_SEASON, "/tv/" + tvId + "/season/" + seasonNumber, language, null, null);
+  }
+
   /**
    * 验证TMDB API Key是否有效
    *
@@ -0,0 +1,330 @@
+package com.hienao.openlist2strm.service;
+
+import com.hienao.openlist2strm.config.cache.CacheConfig;
+import com.hienao.openlist2strm.dto.tmdb.TmdbCacheStats;
+import com.hienao.openlist2strm.entity.TmdbCacheEntry;
+import com.hienao.openlist2strm.mapper.TmdbCacheMapper;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+/**
+ * TMDB响应缓存服务
+ *
+ * <p>两级缓存：内存（Caffeine）在前，SQLite持久化在后，重启后仍可命中。 按类型设置有效期，过期后在容忍期内先返回旧数据并后台刷新，
+ * 请求失败时也回退到旧数据
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TmdbCacheService {
+
+  public static final String KIND_SEARCH = "search";
+  public static final String KIND_MOVIE = "movie";
+  public static final String KIND_TV = "tv";
+  public static final String KIND_SEASON = "season";
+
+  private static final Map<String, Long> DEFAULT_TTL_HOURS =
+      Map.of(KIND_SEARCH, 168L, KIND_MOVIE, 720L, KIND_TV, 168L, KIND_SEASON, 72L);
+  private static final long DEFAULT_STALE_HOURS = 720L;
+
+  private final TmdbCacheMapper tmdbCacheMapper;
+  private final CacheManager cacheManager;
+  private final Executor tmdbRefreshExecutor;
+
+  /** 正在后台刷新的缓存键，避免重复刷新 */
+  private final Set<String> refreshingKeys = ConcurrentHashMap.newKeySet();
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong databaseHits = new AtomicLong();
+  private final AtomicLong staleHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong refreshes = new AtomicLong();
+  private final AtomicLong fetchErrors = new AtomicLong();
+
+  /**
+   * 构建缓存键
+   *
+   * @param kind     缓存类型
+   * @param endpoint 接口路径，如 /movie/123
+   * @param language 语言
+   * @param query    查询关键词（可选）
+   * @param year     年份（可选）
+   * @return 缓存键
+   */
+  public static String buildKey(
+      String kind, String endpoint, String language, String query, String year) {
+    StringBuilder key = new StringBuilder(kind).append(':').append(endpoint);
+    key.append('|').append(language != null ? language : "");
+    if (query != null) {
+      key.append('|').append(query.trim());
+    }
+    if (year != null && !year.trim().isEmpty()) {
+      key.append('|').append(year.trim());
+    }
+    return key.toString();
+  }
+
+  /**
+   * 读取缓存，未命中或过期时调用fetcher请求TMDB并写入缓存
+   *
+   * @param kind       缓存类型
+   * @param cacheKey   缓存键
+   * @param tmdbConfig TMDB配置（读取缓存开关和有效期）
+   * @param fetcher    请求TMDB并返回原始JSON
+   * @return 原始JSON
+   */
+  public String getOrFetch(
+      String kind, String cacheKey, Map<String, Object> tmdbConfig, Supplier<String> fetcher) {
+    if (!isEnabled(tmdbConfig)) {
+      return fetcher.get();
+    }
+
+    TmdbCacheEntry entry = lookup(cacheKey);
+    long now = System.currentTimeMillis();
+
+    if (entry != null) {
+      long age = now - entry.getFetchedAt();
+      long ttlMillis = TimeUnit.HOURS.toMillis(getTtlHours(tmdbConfig, kind));
+      if (age < ttlMillis) {
+        return entry.getBody();
+      }
+      long staleMillis = TimeUnit.HOURS.toMillis(getStaleHours(tmdbConfig));
+      if (age < ttlMillis + staleMillis) {
+        staleHits.incrementAndGet();
+        scheduleRefresh(kind, cacheKey, fetcher);
+        return entry.getBody();
+      }
+    }
+
+    misses.incrementAndGet();
+    try {
+      String body = fetcher.get();
+      store(kind, cacheKey, body);
+      return body;
+    } catch (RuntimeException e) {
+      fetchErrors.incrementAndGet();
+      if (entry != null) {
+        log.warn("请求TMDB失败，使用已过期的缓存: {}, 错误: {}", cacheKey, e.getMessage());
+        return entry.getBody();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * 读取未过期的缓存，不触发请求和后台刷新
+   *
+   * @param kind       缓存类型
+   * @param cacheKey   缓存键
+   * @param tmdbConfig TMDB配置
+   * @return 原始JSON，未命中或已过期时返回null
+   */
+  public String peek(String kind, String cacheKey, Map<String, Object> tmdbConfig) {
+    if (!isEnabled(tmdbConfig)) {
+      return null;
+    }
+    TmdbCacheEntry entry = lookup(cacheKey);
+    if (entry == null) {
+      return null;
+    }
+    long ttlMillis = TimeUnit.HOURS.toMillis(getTtlHours(tmdbConfig, kind));
+    return System.currentTimeMillis() - entry.getFetchedAt() < ttlMillis ? entry.getBody() : null;
+  }
+
+  /**
+   * 写入缓存，用于合并请求返回的子资源（如 append_to_response 中的季详情）
+   *
+   * @param kind       缓存类型
+   * @param cacheKey   缓存键
+   * @param tmdbConfig TMDB配置
+   * @param body       原始JSON
+   */
+  public void put(String kind, String cacheKey, Map<String, Object> tmdbConfig, String body) {
+    if (isEnabled(tmdbConfig)) {
+      store(kind, cacheKey, body);
+    }
+  }
+
+  /**
+   * 获取缓存统计
+   *
+   * @param tmdbConfig TMDB配置
+   * @return 统计信息
+   */
+  public TmdbCacheStats getStats(Map<String, Object> tmdbConfig) {
+    Map<String, Long> databaseEntries = new LinkedHashMap<>();
+    for (Map<String, Object> row : tmdbCacheMapper.countByKind()) {
+      Object count = row.get("count");
+      databaseEntries.put(
+          String.valueOf(row.get("kind")), count instanceof Number number ? number.longValue() : 0L);
+    }
+
+    long memoryEntries = 0;
+    Cache cache = cacheManager.getCache(CacheConfig.TMDB_RESPONSE);
+    if (cache != null
+        && cache.getNativeCache()
+            instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+      memoryEntries = caffeineCache.estimatedSize();
+    }
+
+    return new TmdbCacheStats()
+        .setEnabled(isEnabled(tmdbConfig))
+        .setMemoryHits(memoryHits.get())
+        .setDatabaseHits(databaseHits.get())
+        .setStaleHits(staleHits.get())
+        .setMisses(misses.get())
+        .setRefreshes(refreshes.get())
+        .setFetchErrors(fetchErrors.get())
+        .setMemoryEntries(memoryEntries)
+        .setDatabaseEntries(databaseEntries);
+  }
+
+  /**
+   * 清除缓存
+   *
+   * @param kind 缓存类型，为空时清除全部
+   * @return 删除的数据库条目数
+   */
+  public int purge(String kind) {
+    int deleted = tmdbCacheMapper.deleteByKind(kind);
+    Cache cache = cacheManager.getCache(CacheConfig.TMDB_RESPONSE);
+    if (cache != null) {
+      if (kind == null || kind.isEmpty()) {
+        cache.clear();
+      } else if (cache.getNativeCache()
+          instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+        caffeineCache.asMap().keySet().removeIf(key -> key.toString().startsWith(kind + ":"));
+      }
+    }
+    log.info("已清除TMDB缓存 - 类型: {}, 数据库条目: {}", kind == null ? "全部" : kind, deleted);
+    return deleted;
+  }
+
+  /**
+   * 删除已超过有效期和容忍期的持久化缓存，按各类型中最长的有效期计算，这些条目不会再被读取
+   *
+   * @param tmdbConfig TMDB配置
+   * @return 删除的数据库条目数
+   */
+  public int purgeExpired(Map<String, Object> tmdbConfig) {
+    long maxTtlHours = 0;
+    for (String kind : DEFAULT_TTL_HOURS.keySet()) {
+      maxTtlHours = Math.max(maxTtlHours, getTtlHours(tmdbConfig, kind));
+    }
+    long retentionHours = maxTtlHours + getStaleHours(tmdbConfig);
+    long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(retentionHours);
+    int deleted = tmdbCacheMapper.deleteOlderThan(cutoff);
+    log.info("已清理过期TMDB缓存 - 数据库条目: {}, 保留时长: {} 小时", deleted, retentionHours);
+    return deleted;
+  }
+
+  /**
+   * 清除单个缓存键
+   *
+   * @param cacheKey 缓存键
+   */
+  public void evict(String cacheKey) {
+    tmdbCacheMapper.deleteByKey(cacheKey);
+    Cache cache = cacheManager.getCache(CacheConfig.TMDB_RESPONSE);
+    if (cache != null) {
+      cache.evict(cacheKey);
+    }
+  }
+
+  /** 依次查询内存和数据库，数据库命中后回填内存 */
+  private TmdbCacheEntry lookup(String cacheKey) {
+    Cache cache = cacheManager.getCache(CacheConfig.TMDB_RESPONSE);
+    if (cache != null) {
+      TmdbCacheEntry cached = cache.get(cacheKey, TmdbCacheEntry.class);
+      if (cached != null) {
+        memoryHits.incrementAndGet();
+        return cached;
+      }
+    }
+
+    try {
+      TmdbCacheEntry entry = tmdbCacheMapper.selectByKey(cacheKey);
+      if (entry != null) {
+        databaseHits.incrementAndGet();
+        if (cache != null) {
+          cache.put(cacheKey, entry);
+        }
+      }
+      return entry;
+    } catch (Exception e) {
+      log.warn("读取TMDB缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+      return null;
+    }
+  }
+
+  private void store(String kind, String cacheKey, String body) {
+    TmdbCacheEntry entry = new TmdbCacheEntry(cacheKey, kind, body, System.currentTimeMillis());
+    Cache cache = cacheManager.getCache(CacheConfig.TMDB_RESPONSE);
+    if (cache != null) {
+      cache.put(cacheKey, entry);
+    }
+    try {
+      tmdbCacheMapper.upsert(entry);
+    } catch (Exception e) {
+      log.warn("写入TMDB缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+    }
+  }
+
+  private void scheduleRefresh(String kind, String cacheKey, Supplier<String> fetcher) {
+    if (!refreshingKeys.add(cacheKey)) {
+      return;
+    }
+    try {
+      tmdbRefreshExecutor.execute(
+          () -> {
+            try {
+              store(kind, cacheKey, fetcher.get());
+              refreshes.incrementAndGet();
+              log.debug("后台刷新TMDB缓存成功: {}", cacheKey);
+            } catch (Exception e) {
+              fetchErrors.incrementAndGet();
+              log.warn("后台刷新TMDB缓存失败: {}, 错误: {}", cacheKey, e.getMessage());
+            } finally {
+              refreshingKeys.remove(cacheKey);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      refreshingKeys.remove(cacheKey);
+      log.debug("TMDB缓存刷新队列已满，稍后再刷新: {}", cacheKey);
+    }
+  }
+
+  private boolean isEnabled(Map<String, Object> tmdbConfig) {
+    return !Boolean.FALSE.equals(tmdbConfig.get("cacheEnabled"));
+  }
+
+  private long getTtlHours(Map<String, Object> tmdbConfig, String kind) {
+    Object ttlConfig = tmdbConfig.get("cacheTtlHours");
+    if (ttlConfig instanceof Map<?, ?> ttlMap && ttlMap.get(kind) instanceof Number number) {
+      return Math.max(number.longValue(), 0);
+    }
+    return DEFAULT_TTL_HOURS.getOrDefault(kind, 24L);
+  }
+
+  private long getStaleHours(Map<String, Object> tmdbConfig) {
+    if (tmdbConfig.get("cacheStaleHours") instanceof Number number) {
+      return Math.max(number.longValue(), 0);
+    }
+    return DEFAULT_STALE_HOURS;
+  }
+}
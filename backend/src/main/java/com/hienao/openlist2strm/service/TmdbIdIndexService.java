@@ -0,0 +1,495 @@
+package com.hienao.openlist2strm.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hienao.openlist2strm.dto.tmdb.TmdbIdIndexImportResult;
+import com.hienao.openlist2strm.dto.tmdb.TmdbIdIndexStats;
+import com.hienao.openlist2strm.dto.tmdb.TmdbMovieDetail;
+import com.hienao.openlist2strm.dto.tmdb.TmdbSearchResponse;
+import com.hienao.openlist2strm.dto.tmdb.TmdbTvDetail;
+import com.hienao.openlist2strm.entity.TmdbIdIndexEntry;
+import com.hienao.openlist2strm.exception.BusinessException;
+import com.hienao.openlist2strm.mapper.TmdbIdIndexMapper;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * TMDB离线ID索引服务
+ *
+ * <p>从TMDB每日ID导出文件（gzip压缩的JSON Lines，包含id、原始标题和流行度）在后台导入本地索引。
+ * 按规范化标题取流行度最高的若干候选，用（有缓存的）详情补全年份、海报、简介和本地化标题，
+ * 指定年份时只保留详情中年份一致的候选；详情中得到的年份回填到索引，之后年份不符的候选不再获取详情。
+ * 本地没有候选或年份都不符时回退到在线搜索，并用在线结果回填索引中的年份
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TmdbIdIndexService {
+
+  public static final String KIND_MOVIE = "movie";
+  public static final String KIND_TV = "tv";
+
+  /** 每次批量写入的条目数 */
+  private static final int IMPORT_BATCH_SIZE = 500;
+
+  /** 单个标题最多读取的候选数 */
+  private static final int MAX_CANDIDATES = 10;
+
+  /** 单次查询最多获取详情的候选数 */
+  private static final int MAX_DETAIL_CANDIDATES = 3;
+
+  /** 标题规范化时替换为空格的字符：非字母数字 */
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final TmdbIdIndexMapper tmdbIdIndexMapper;
+  private final TmdbApiService tmdbApiService;
+  private final SystemConfigService systemConfigService;
+  private final ObjectMapper objectMapper;
+  private final Executor tmdbIndexImportExecutor;
+
+  /** 各类型是否已有索引条目，导入或清除后重新统计 */
+  private final Map<String, Boolean> populatedKinds = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean importing = new AtomicBoolean();
+  private volatile TmdbIdIndexImportResult lastImport;
+  private final AtomicLong localHits = new AtomicLong();
+  private final AtomicLong onlineFallbacks = new AtomicLong();
+  private final AtomicLong yearsFilled = new AtomicLong();
+
+  /**
+   * 规范化标题：Unicode兼容分解、小写、非字母数字字符合并为单个空格
+   *
+   * @param title 标题
+   * @return 规范化后的标题
+   */
+  public static String normalizeTitle(String title) {
+    if (title == null) {
+      return "";
+    }
+    String normalized = Normalizer.normalize(title, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    return NON_ALPHANUMERIC.matcher(normalized).replaceAll(" ").trim();
+  }
+
+  /**
+   * 搜索电影，优先使用本地索引
+   *
+   * @param query 搜索关键词
+   * @param year 年份（可选）
+   * @return 搜索结果
+   */
+  public TmdbSearchResponse searchMovies(String query, String year) {
+    TmdbSearchResponse local = searchLocal(KIND_MOVIE, query, year);
+    if (local != null) {
+      return local;
+    }
+    TmdbSearchResponse online = tmdbApiService.searchMovies(query, year);
+    fillYears(KIND_MOVIE, online);
+    return online;
+  }
+
+  /**
+   * 搜索电视剧，优先使用本地索引
+   *
+   * @param query 搜索关键词
+   * @param year 年份（可选）
+   * @return 搜索结果
+   */
+  public TmdbSearchResponse searchTvShows(String query, String year) {
+    TmdbSearchResponse local = searchLocal(KIND_TV, query, year);
+    if (local != null) {
+      return local;
+    }
+    TmdbSearchResponse online = tmdbApiService.searchTvShows(query, year);
+    fillYears(KIND_TV, online);
+    return online;
+  }
+
+  /**
+   * 提交后台导入任务，支持gzip压缩或未压缩的JSON Lines；导入完成后删除本次导出中已不存在的条目
+   *
+   * @param kind 类型：movie/tv
+   * @param file 导出文件路径（服务器本地）
+   * @return 导入状态
+   */
+  public TmdbIdIndexImportResult submitImport(String kind, Path file) {
+    if (!KIND_MOVIE.equals(kind) && !KIND_TV.equals(kind)) {
+      throw new BusinessException("不支持的索引类型: " + kind);
+    }
+    if (file == null || !Files.isRegularFile(file)) {
+      throw new BusinessException("导出文件不存在: " + file);
+    }
+    if (!importing.compareAndSet(false, true)) {
+      throw new BusinessException("已有索引正在导入，请稍后再试");
+    }
+
+    long startedAt = System.currentTimeMillis();
+    TmdbIdIndexImportResult status =
+        new TmdbIdIndexImportResult()
+            .setKind(kind)
+            .setFile(file.toString())
+            .setState("RUNNING")
+            .setStartTime(startedAt)
+            .setLines(0L);
+    lastImport = status;
+
+    try {
+      tmdbIndexImportExecutor.execute(() -> runImport(kind, file, startedAt));
+    } catch (RejectedExecutionException e) {
+      importing.set(false);
+      lastImport = finished(status, "FAILED", "导入线程繁忙，请稍后重试");
+      throw new BusinessException("导入线程繁忙，请稍后重试");
+    }
+
+    log.info("已提交TMDB ID索引导入 - 类型: {}, 文件: {}", kind, file);
+    return status;
+  }
+
+  /**
+   * 获取最近一次导入的状态
+   *
+   * @return 导入状态，从未导入时返回null
+   */
+  public TmdbIdIndexImportResult getImportStatus() {
+    return lastImport;
+  }
+
+  private void runImport(String kind, Path file, long startedAt) {
+    String titleField = KIND_MOVIE.equals(kind) ? "original_title" : "original_name";
+    long lines = 0;
+    long imported = 0;
+    long skipped = 0;
+    List<TmdbIdIndexEntry> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+
+    log.info("开始导入TMDB ID索引 - 类型: {}, 文件: {}", kind, file);
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(openDump(file), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isBlank()) {
+          continue;
+        }
+        lines++;
+        TmdbIdIndexEntry entry = parseLine(kind, titleField, line, startedAt);
+        if (entry == null) {
+          skipped++;
+          continue;
+        }
+        batch.add(entry);
+        if (batch.size() >= IMPORT_BATCH_SIZE) {
+          imported += flush(batch);
+        }
+        if (lines % 100_000 == 0) {
+          log.info("导入TMDB ID索引中 - 类型: {}, 已读取: {} 行", kind, lines);
+          lastImport = progress(lastImport, lines, imported, skipped);
+        }
+      }
+      imported += flush(batch);
+
+      long removed = tmdbIdIndexMapper.deleteImportedBefore(kind, startedAt);
+      long elapsed = System.currentTimeMillis() - startedAt;
+      log.info(
+          "TMDB ID索引导入完成 - 类型: {}, 行数: {}, 导入: {}, 跳过: {}, 删除: {}, 耗时: {} ms",
+          kind,
+          lines,
+          imported,
+          skipped,
+          removed,
+          elapsed);
+      lastImport =
+          finished(progress(lastImport, lines, imported, skipped), "COMPLETED", null)
+              .setRemoved(removed);
+
+    } catch (Exception e) {
+      log.error("导入TMDB ID索引失败: {}", file, e);
+      lastImport =
+          finished(progress(lastImport, lines, imported, skipped), "FAILED", e.getMessage());
+    } finally {
+      populatedKinds.remove(kind);
+      importing.set(false);
+    }
+  }
+
+  private static TmdbIdIndexImportResult progress(
+      TmdbIdIndexImportResult current, long lines, long imported, long skipped) {
+    return new TmdbIdIndexImportResult()
+        .setKind(current.getKind())
+        .setFile(current.getFile())
+        .setState(current.getState())
+        .setStartTime(current.getStartTime())
+        .setLines(lines)
+        .setImported(imported)
+        .setSkipped(skipped)
+        .setElapsedMillis(System.currentTimeMillis() - current.getStartTime());
+  }
+
+  private static TmdbIdIndexImportResult finished(
+      TmdbIdIndexImportResult current, String state, String message) {
+    return current
+        .setState(state)
+        .setMessage(message)
+        .setElapsedMillis(System.currentTimeMillis() - current.getStartTime());
+  }
+
+  /**
+   * 获取索引统计
+   *
+   * @return 统计信息
+   */
+  public TmdbIdIndexStats getStats() {
+    Map<String, Long> entries = new LinkedHashMap<>();
+    for (Map<String, Object> row : tmdbIdIndexMapper.countByKind()) {
+      Object count = row.get("count");
+      entries.put(
+          String.valueOf(row.get("kind")), count instanceof Number number ? number.longValue() : 0L);
+    }
+    return new TmdbIdIndexStats()
+        .setEnabled(isEnabled())
+        .setImporting(importing.get())
+        .setLastImport(lastImport)
+        .setLocalHits(localHits.get())
+        .setOnlineFallbacks(onlineFallbacks.get())
+        .setYearsFilled(yearsFilled.get())
+        .setEntries(entries);
+  }
+
+  /**
+   * 清除索引
+   *
+   * @param kind 类型，为空时清除全部
+   * @return 删除的条目数
+   */
+  public int purge(String kind) {
+    int deleted = tmdbIdIndexMapper.deleteByKind(kind);
+    populatedKinds.clear();
+    log.info("已清除TMDB ID索引 - 类型: {}, 条目: {}", kind == null ? "全部" : kind, deleted);
+    return deleted;
+  }
+
+  /** 查本地索引，无法确定候选时返回null */
+  private TmdbSearchResponse searchLocal(String kind, String query, String year) {
+    if (!isEnabled() || !isPopulated(kind)) {
+      return null;
+    }
+    String title = normalizeTitle(query);
+    if (title.isEmpty()) {
+      return null;
+    }
+
+    List<TmdbIdIndexEntry> candidates;
+    try {
+      candidates = tmdbIdIndexMapper.selectByTitle(kind, title, MAX_CANDIDATES);
+    } catch (Exception e) {
+      log.warn("查询TMDB ID索引失败: {}, 错误: {}", title, e.getMessage());
+      return null;
+    }
+
+    List<TmdbIdIndexEntry> chosen = chooseCandidates(candidates, year);
+    if (chosen.isEmpty()) {
+      onlineFallbacks.incrementAndGet();
+      return null;
+    }
+
+    String targetYear = year != null ? year.trim() : "";
+    List<TmdbSearchResponse.TmdbSearchResult> results = new ArrayList<>();
+    try {
+      for (TmdbIdIndexEntry entry : chosen) {
+        TmdbSearchResponse.TmdbSearchResult result = toSearchResult(kind, entry);
+        String releaseYear = result.getReleaseYear();
+        if (entry.getYear() == null && releaseYear != null) {
+          fillYear(kind, entry.getTmdbId(), releaseYear);
+        }
+        if (targetYear.isEmpty() || targetYear.equals(releaseYear)) {
+          results.add(result);
+        }
+      }
+    } catch (Exception e) {
+      log.debug("补全本地索引候选详情失败: {}, 错误: {}", query, e.getMessage());
+      results.clear();
+    }
+    if (results.isEmpty()) {
+      onlineFallbacks.incrementAndGet();
+      return null;
+    }
+
+    localHits.incrementAndGet();
+    log.debug("本地索引命中 - 类型: {}, 标题: {}, 候选ID: {}", kind, query, results.get(0).getId());
+    TmdbSearchResponse response = new TmdbSearchResponse();
+    response.setPage(1);
+    response.setResults(results);
+    response.setTotalResults(results.size());
+    response.setTotalPages(1);
+    return response;
+  }
+
+  /**
+   * 选择需要获取详情的候选：按流行度取前几个，指定年份时跳过已知年份不一致的候选，
+   * 年份未知的候选由详情确认
+   *
+   * @param candidates 同一规范化标题下按流行度降序的候选
+   * @param year       年份（可选）
+   * @return 需要获取详情的候选，为空表示需要在线搜索
+   */
+  private List<TmdbIdIndexEntry> chooseCandidates(List<TmdbIdIndexEntry> candidates, String year) {
+    if (candidates == null || candidates.isEmpty()) {
+      return List.of();
+    }
+    String targetYear = year != null ? year.trim() : "";
+    return candidates.stream()
+        .filter(c -> targetYear.isEmpty() || c.getYear() == null || targetYear.equals(c.getYear()))
+        .limit(MAX_DETAIL_CANDIDATES)
+        .toList();
+  }
+
+  /** 用详情（有缓存）补全候选的本地化标题、海报、简介和评分，字段与在线搜索结果一致 */
+  private TmdbSearchResponse.TmdbSearchResult toSearchResult(String kind, TmdbIdIndexEntry entry) {
+    TmdbSearchResponse.TmdbSearchResult result = new TmdbSearchResponse.TmdbSearchResult();
+    result.setId(entry.getTmdbId());
+    result.setMediaType(kind);
+    if (KIND_MOVIE.equals(kind)) {
+      TmdbMovieDetail detail = tmdbApiService.getMovieDetail(entry.getTmdbId());
+      result.setTitle(detail.getTitle());
+      result.setOriginalTitle(detail.getOriginalTitle());
+      result.setOverview(detail.getOverview());
+      result.setPosterPath(detail.getPosterPath());
+      result.setBackdropPath(detail.getBackdropPath());
+      result.setReleaseDate(detail.getReleaseDate());
+      result.setOriginalLanguage(detail.getOriginalLanguage());
+      result.setAdult(detail.getAdult());
+      result.setPopularity(detail.getPopularity());
+      result.setVoteAverage(detail.getVoteAverage());
+      result.setVoteCount(detail.getVoteCount());
+    } else {
+      TmdbTvDetail detail = tmdbApiService.getTvDetail(entry.getTmdbId());
+      result.setName(detail.getName());
+      result.setOriginalName(detail.getOriginalName());
+      result.setOverview(detail.getOverview());
+      result.setPosterPath(detail.getPosterPath());
+      result.setBackdropPath(detail.getBackdropPath());
+      result.setFirstAirDate(detail.getFirstAirDate());
+      result.setOriginalLanguage(detail.getOriginalLanguage());
+      result.setAdult(detail.getAdult());
+      result.setPopularity(detail.getPopularity());
+      result.setVoteAverage(detail.getVoteAverage());
+      result.setVoteCount(detail.getVoteCount());
+    }
+    return result;
+  }
+
+  /** 用在线搜索结果回填索引中的年份，之后年份不符的候选不再获取详情 */
+  private void fillYears(String kind, TmdbSearchResponse response) {
+    if (response == null
+        || response.getResults() == null
+        || !isEnabled()
+        || !isPopulated(kind)) {
+      return;
+    }
+    for (TmdbSearchResponse.TmdbSearchResult result : response.getResults()) {
+      String year = result.getReleaseYear();
+      if (result.getId() != null && year != null) {
+        fillYear(kind, result.getId(), year);
+      }
+    }
+  }
+
+  private void fillYear(String kind, Integer tmdbId, String year) {
+    try {
+      yearsFilled.addAndGet(tmdbIdIndexMapper.updateYear(kind, tmdbId, year));
+    } catch (Exception e) {
+      log.debug("回填TMDB ID索引年份失败: {}, 错误: {}", tmdbId, e.getMessage());
+    }
+  }
+
+  private TmdbIdIndexEntry parseLine(String kind, String titleField, String line, long importedAt) {
+    try {
+      JsonNode node = objectMapper.readTree(line);
+      if (node.path("adult").asBoolean(false) || !node.path("id").canConvertToInt()) {
+        return null;
+      }
+      String originalTitle = node.path(titleField).asText("").trim();
+      String title = normalizeTitle(originalTitle);
+      if (title.isEmpty()) {
+        return null;
+      }
+      return new TmdbIdIndexEntry(
+          kind,
+          node.path("id").asInt(),
+          title,
+          originalTitle,
+          node.path("popularity").asDouble(0),
+          null,
+          importedAt);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private long flush(List<TmdbIdIndexEntry> batch) {
+    if (batch.isEmpty()) {
+      return 0;
+    }
+    int size = batch.size();
+    tmdbIdIndexMapper.upsertBatch(batch);
+    batch.clear();
+    return size;
+  }
+
+  /** 按文件头判断是否为gzip压缩 */
+  private InputStream openDump(Path file) throws IOException {
+    InputStream input = new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+    input.mark(2);
+    int first = input.read();
+    int second = input.read();
+    input.reset();
+    if (first == 0x1f && second == 0x8b) {
+      return new GZIPInputStream(input, 1 << 16);
+    }
+    return input;
+  }
+
+  private boolean isPopulated(String kind) {
+    return populatedKinds.computeIfAbsent(
+        kind,
+        k -> {
+          try {
+            return tmdbIdIndexMapper.countByKind().stream()
+                .anyMatch(
+                    row ->
+                        k.equals(String.valueOf(row.get("kind")))
+                            && row.get("count") instanceof Number count
+                            && count.longValue() > 0);
+          } catch (Exception e) {
+            log.warn("统计TMDB ID索引失败: {}", e.getMessage());
+            return false;
+          }
+        });
+  }
+
+  private boolean isEnabled() {
+    return !Boolean.FALSE.equals(systemConfigService.getTmdbConfig().get("localIndexEnabled"));
+  }
+}
@@ -0,0 +1,395 @@
+package com.hienao.openlist2strm.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hienao.openlist2strm.dto.media.MediaInfo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 预编译的媒体文件解析器
+ *
+ * <p>同一组正则配置只编译一次（含优先级排序），解析结果按目录+文件名缓存。 每个正则预先提取必须出现的字面量（如 S、第、Episode），
+ * 输入中缺少任一字面量时跳过该正则，不执行完整匹配。解析结果与逐个编译正则的方式完全一致
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+@Slf4j
+public final class CompiledMediaParser {
+
+  /** 缓存的配置快照数上限 */
+  private static final int MAX_SNAPSHOTS = 16;
+
+  /** 每个快照缓存的解析结果数上限 */
+  private static final int MAX_CACHED_RESULTS = 20000;
+
+  private static final Map<List<List<String>>, CompiledMediaParser> SNAPSHOTS =
+      new ConcurrentHashMap<>();
+
+  private final List<CompiledRegex> movieRegexps;
+  private final List<CompiledRegex> tvDirRegexps;
+  private final List<CompiledRegex> tvFileRegexps;
+  private final Cache<String, MediaInfo> results =
+      Caffeine.newBuilder().maximumSize(MAX_CACHED_RESULTS).build();
+
+  private CompiledMediaParser(
+      List<String> movieRegexps, List<String> tvDirRegexps, List<String> tvFileRegexps) {
+    List<String> priorityConfig = EnhancedRegexPatterns.getRegexPriorityConfig();
+    this.movieRegexps =
+        compileAll(EnhancedRegexPatterns.prioritizeRegexes(movieRegexps, priorityConfig), "电影");
+    this.tvDirRegexps =
+        compileAll(EnhancedRegexPatterns.prioritizeRegexes(tvDirRegexps, priorityConfig), "电视剧目录");
+    this.tvFileRegexps =
+        compileAll(EnhancedRegexPatterns.prioritizeRegexes(tvFileRegexps, priorityConfig), "电视剧文件");
+  }
+
+  /**
+   * 获取指定正则配置对应的解析器，相同配置复用已编译的实例
+   *
+   * @param movieRegexps  电影正则表达式列表
+   * @param tvDirRegexps  电视剧目录正则表达式列表
+   * @param tvFileRegexps 电视剧文件正则表达式列表
+   * @return 解析器
+   */
+  public static CompiledMediaParser forConfig(
+      List<String> movieRegexps, List<String> tvDirRegexps, List<String> tvFileRegexps) {
+    List<List<String>> key =
+        List.of(orEmpty(movieRegexps), orEmpty(tvDirRegexps), orEmpty(tvFileRegexps));
+    CompiledMediaParser parser = SNAPSHOTS.get(key);
+    if (parser != null) {
+      return parser;
+    }
+
+    if (SNAPSHOTS.size() >= MAX_SNAPSHOTS) {
+      SNAPSHOTS.clear();
+    }
+    // 复制配置列表作为键，避免调用方后续修改列表影响缓存
+    List<List<String>> snapshotKey =
+        List.of(
+            new ArrayList<>(key.get(0)), new ArrayList<>(key.get(1)), new ArrayList<>(key.get(2)));
+    parser = new CompiledMediaParser(snapshotKey.get(0), snapshotKey.get(1), snapshotKey.get(2));
+    CompiledMediaParser existing = SNAPSHOTS.putIfAbsent(snapshotKey, parser);
+    return existing != null ? existing : parser;
+  }
+
+  /**
+   * 解析媒体文件名
+   *
+   * @param fileName      文件名
+   * @param directoryPath 文件所在的目录路径
+   * @return 媒体信息（调用方可自由修改）
+   */
+  public MediaInfo parse(String fileName, String directoryPath) {
+    if (fileName == null || fileName.trim().isEmpty()) {
+      return MediaFileParser.createUnknownMedia(fileName);
+    }
+
+    String cacheKey = (directoryPath == null ? "" : directoryPath) + '\u0000' + fileName;
+    MediaInfo cached = results.getIfPresent(cacheKey);
+    if (cached != null) {
+      return copyOf(cached);
+    }
+
+    MediaInfo mediaInfo = doParse(fileName, directoryPath);
+    results.put(cacheKey, copyOf(mediaInfo));
+    return mediaInfo;
+  }
+
+  private MediaInfo doParse(String fileName, String directoryPath) {
+    log.debug("开始解析（优先级模式）: 文件='{}', 目录='{}'", fileName, directoryPath);
+
+    MediaInfo mediaInfo = new MediaInfo().setOriginalFileName(fileName).setConfidence(0);
+    String nameWithoutExt = MediaFileParser.removeFileExtension(fileName);
+
+    // 优先尝试将文件作为电视剧进行解析（目录优先）
+    boolean isTv = parseAsTvShow(mediaInfo, nameWithoutExt, directoryPath);
+
+    // 如果不是电视剧，则尝试作为电影解析
+    if (!isTv) {
+      parseAsMovie(mediaInfo, nameWithoutExt);
+    }
+
+    // 计算最终置信度
+    MediaFileParser.calculateConfidence(mediaInfo);
+
+    log.debug("解析结果: {}", mediaInfo);
+    return mediaInfo;
+  }
+
+  /** 尝试将文件解析为电视剧 */
+  private boolean parseAsTvShow(MediaInfo mediaInfo, String nameWithoutExt, String directoryPath) {
+    // 1. 解析目录，找到第一个匹配的目录正则即可
+    if (directoryPath != null && !directoryPath.isEmpty()) {
+      findFirst(tvDirRegexps, directoryPath, mediaInfo);
+    }
+
+    // 2. 解析文件名以获取季集信息，找到第一个匹配的文件正则即可
+    findFirst(tvFileRegexps, nameWithoutExt, mediaInfo);
+
+    // 3. 如果同时获取到了剧名和季/集信息，则认为是电视剧
+    if (mediaInfo.getTitle() != null && mediaInfo.getSeason() != null) {
+      mediaInfo.setType(MediaInfo.MediaType.TV_SHOW);
+      MediaFileParser.cleanupTitle(mediaInfo);
+      return true;
+    }
+
+    // 即使目录匹配，但文件没匹配上季集，也可能不是电视剧，重置部分信息
+    if (mediaInfo.getSeason() == null && mediaInfo.getEpisode() == null) {
+      mediaInfo.setTitle(null);
+      mediaInfo.setYear(null);
+    }
+
+    return false;
+  }
+
+  /** 尝试将文件解析为电影 */
+  private void parseAsMovie(MediaInfo mediaInfo, String nameWithoutExt) {
+    if (findFirst(movieRegexps, nameWithoutExt, mediaInfo)) {
+      mediaInfo.setType(MediaInfo.MediaType.MOVIE);
+      MediaFileParser.cleanupTitle(mediaInfo);
+      return;
+    }
+    // 如果所有电影正则都匹配失败，则认为是未知类型
+    mediaInfo.setType(MediaInfo.MediaType.UNKNOWN);
+    mediaInfo.setTitle(nameWithoutExt); // 使用原始文件名作为标题
+  }
+
+  /** 按顺序尝试正则，第一个匹配的正则提取命名分组后返回true */
+  private boolean findFirst(List<CompiledRegex> regexps, String input, MediaInfo mediaInfo) {
+    String foldedInput = foldAsciiCase(input);
+    for (CompiledRegex regex : regexps) {
+      if (!regex.mayMatch(foldedInput)) {
+        continue;
+      }
+      Matcher matcher = regex.pattern().matcher(input);
+      if (matcher.find()) {
+        MediaFileParser.extractNamedGroups(matcher, mediaInfo);
+        log.debug("正则 '{}' 匹配成功: {}", regex.source(), input);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<CompiledRegex> compileAll(List<String> regexps, String description) {
+    List<CompiledRegex> compiled = new ArrayList<>(regexps.size());
+    for (String regex : regexps) {
+      try {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        compiled.add(new CompiledRegex(regex, pattern, requiredLiterals(regex)));
+      } catch (Exception e) {
+        log.warn("无效的{}正则表达式: '{}', 错误: {}", description, regex, e.getMessage());
+      }
+    }
+    return compiled;
+  }
+
+  /**
+   * 提取正则中必须出现的字面量片段（已转小写），无法可靠分析的正则返回空列表（不做预过滤）
+   *
+   * <p>只分析最外层：分组、字符类、转义类和带量词的字符都视为非字面量，顶层存在 | 时放弃分析
+   *
+   * @param regex 正则表达式
+   * @return 字面量片段
+   */
+  static List<String> requiredLiterals(String regex) {
+    List<String> literals = new ArrayList<>();
+    StringBuilder run = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      switch (c) {
+        case '\\' -> {
+          if (i + 1 >= regex.length()) {
+            return List.of();
+          }
+          char next = regex.charAt(i + 1);
+          if (!Character.isLetterOrDigit(next)) {
+            run.append(next);
+          } else if ("dDsSwWbBhHvV".indexOf(next) >= 0) {
+            flush(run, literals);
+          } else {
+            // \\u、\\x、\\p、\\Q、反向引用等需要完整解析，放弃预过滤
+            return List.of();
+          }
+          i += 2;
+          continue;
+        }
+        case '[' -> {
+          flush(run, literals);
+          i = skipCharacterClass(regex, i);
+          if (i < 0) {
+            return List.of();
+          }
+          continue;
+        }
+        case '(' -> {
+          flush(run, literals);
+          if (regex.startsWith("(?", i) && !isPlainGroup(regex, i)) {
+            return List.of();
+          }
+          i = skipGroup(regex, i);
+          if (i < 0) {
+            return List.of();
+          }
+          continue;
+        }
+        case '|' -> {
+          return List.of();
+        }
+        case '?', '*', '+', '{' -> {
+          // 量词作用于前一个字符时，该字符不再是必须的
+          if (run.length() > 0) {
+            run.setLength(run.length() - 1);
+          }
+          flush(run, literals);
+          if (c == '{') {
+            int end = regex.indexOf('}', i);
+            if (end < 0) {
+              return List.of();
+            }
+            i = end;
+          }
+          i++;
+          // 跳过懒惰/占有量词后缀
+          if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+            i++;
+          }
+          continue;
+        }
+        case '^', '$', '.' -> flush(run, literals);
+        default -> run.append(c);
+      }
+      i++;
+    }
+    flush(run, literals);
+    return literals;
+  }
+
+  private static void flush(StringBuilder run, List<String> literals) {
+    if (run.length() > 0) {
+      literals.add(foldAsciiCase(run.toString()));
+      run.setLength(0);
+    }
+  }
+
+  /** 只允许命名分组、非捕获分组和零宽断言，其他(?...)形式（如内联标志）会改变匹配语义 */
+  private static boolean isPlainGroup(String regex, int start) {
+    return regex.startsWith("(?<", start) || regex.startsWith("(?:", start)
+        || regex.startsWith("(?=", start) || regex.startsWith("(?!", start);
+  }
+
+  /** 返回字符类结束后的位置，无法解析时返回-1 */
+  private static int skipCharacterClass(String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (regex.startsWith("\\Q", i)) {
+          return -1;
+        }
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        depth++;
+        if (regex.startsWith("]", i + 1) || regex.startsWith("^]", i + 1)) {
+          return -1;
+        }
+      } else if (c == ']') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  /** 返回分组结束后的位置，无法解析时返回-1 */
+  private static int skipGroup(String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        if (regex.startsWith("\\Q", i)) {
+          return -1;
+        }
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipCharacterClass(regex, i);
+        if (i < 0) {
+          return -1;
+        }
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+        if (depth == 0) {
+          return i + 1;
+        }
+      }
+      i++;
+    }
+    return -1;
+  }
+
+  /** CASE_INSENSITIVE（未启用UNICODE_CASE）只对ASCII字母忽略大小写，预过滤使用相同的规则 */
+  private static String foldAsciiCase(String value) {
+    StringBuilder folded = null;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        if (folded == null) {
+          folded = new StringBuilder(value);
+        }
+        folded.setCharAt(i, (char) (c + ('a' - 'A')));
+      }
+    }
+    return folded == null ? value : folded.toString();
+  }
+
+  private static List<String> orEmpty(List<String> regexps) {
+    return regexps == null ? List.of() : regexps;
+  }
+
+  private static MediaInfo copyOf(MediaInfo source) {
+    return new MediaInfo()
+        .setType(source.getType())
+        .setTitle(source.getTitle())
+        .setYear(source.getYear())
+        .setSeason(source.getSeason())
+        .setEpisode(source.getEpisode())
+        .setOriginalFileName(source.getOriginalFileName())
+        .setCleanTitle(source.getCleanTitle())
+        .setHasYear(source.isHasYear())
+        .setHasSeasonEpisode(source.isHasSeasonEpisode())
+        .setConfidence(source.getConfidence());
+  }
+
+  /** 已编译的正则及其预过滤字面量 */
+  private record CompiledRegex(String source, Pattern pattern, List<String> literals) {
+
+    boolean mayMatch(String foldedInput) {
+      for (String literal : literals) {
+        if (!foldedInput.contains(literal)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -0,0 +1,132 @@
+package com.hienao.openlist2strm.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 媒体文件后缀匹配器
+ *
+ * <p>将后缀列表预编译为反向后缀树，匹配时从文件名末尾逐字符比较（忽略大小写），不创建临时字符串。 实例不可变，可在多线程间共享
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public final class MediaExtensionMatcher {
+
+  /** 默认媒体文件后缀 */
+  public static final List<String> DEFAULT_EXTENSIONS =
+      List.of(
+          ".mp4", ".avi", ".mkv", ".mov", ".wmv", ".flv", ".webm", ".m4v", ".3gp", ".3g2", ".asf",
+          ".divx", ".f4v", ".m2ts", ".m2v", ".mts", ".ogv", ".rm", ".rmvb", ".ts", ".vob", ".xvid");
+
+  /** 默认后缀匹配器 */
+  public static final MediaExtensionMatcher DEFAULT = of(DEFAULT_EXTENSIONS);
+
+  private final Node root;
+  private final List<String> extensions;
+
+  private MediaExtensionMatcher(Node root, List<String> extensions) {
+    this.root = root;
+    this.extensions = extensions;
+  }
+
+  /**
+   * 根据后缀列表构建匹配器
+   *
+   * @param extensions 后缀列表，如 .mp4，空值会被忽略
+   * @return 匹配器
+   */
+  public static MediaExtensionMatcher of(Collection<String> extensions) {
+    Node root = new Node();
+    List<String> normalized =
+        extensions == null
+            ? List.of()
+            : extensions.stream()
+                .filter(ext -> ext != null && !ext.isBlank())
+                .map(ext -> ext.trim().toLowerCase(Locale.ROOT))
+                .distinct()
+                .toList();
+
+    for (String extension : normalized) {
+      Node node = root;
+      for (int i = extension.length() - 1; i >= 0; i--) {
+        node = node.childOrCreate(extension.charAt(i));
+      }
+      node.terminal = true;
+    }
+    return new MediaExtensionMatcher(root, normalized);
+  }
+
+  /**
+   * 判断文件名是否以任一后缀结尾（忽略大小写）
+   *
+   * @param fileName 文件名
+   * @return 是否匹配
+   */
+  public boolean matches(String fileName) {
+    if (fileName == null) {
+      return false;
+    }
+    Node node = root;
+    for (int i = fileName.length() - 1; i >= 0; i--) {
+      node = node.child(Character.toLowerCase(fileName.charAt(i)));
+      if (node == null) {
+        return false;
+      }
+      if (node.terminal) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 是否未配置任何后缀
+   *
+   * @return 是否为空
+   */
+  public boolean isEmpty() {
+    return extensions.isEmpty();
+  }
+
+  /**
+   * 获取构建时使用的后缀列表（已转小写并去重）
+   *
+   * @return 后缀列表
+   */
+  public List<String> getExtensions() {
+    return extensions;
+  }
+
+  /** 后缀树节点，子节点数量很少，使用数组线性查找 */
+  private static final class Node {
+    private char[] keys = new char[0];
+    private Node[] children = new Node[0];
+    private boolean terminal;
+
+    Node child(char c) {
+      char[] currentKeys = keys;
+      for (int i = 0; i < currentKeys.length; i++) {
+        if (currentKeys[i] == c) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    Node childOrCreate(char c) {
+      Node existing = child(c);
+      if (existing != null) {
+        return existing;
+      }
+      Node created = new Node();
+      keys = Arrays.copyOf(keys, keys.length + 1);
+      children = Arrays.copyOf(children, children.length + 1);
+      keys[keys.length - 1] = c;
+      children[children.length - 1] = created;
+      return created;
+    }
+  }
+}
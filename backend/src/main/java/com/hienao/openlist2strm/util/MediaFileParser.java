@@ -4,7 +4,6 @@ import com.hienao.openlist2strm.dto.media.MediaInfo;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import lombok.extern.slf4j.Slf4j;
 
 /**
  * 媒体文件解析器（重构版） 使用用户可配置的正则表达式列表从文件名和目录中提取电影/电视剧信息。 支持优先级机制，提高匹配效率和准确性。
@@ -12,7 +11,6 @@ import lombok.extern.slf4j.Slf4j;
  * @author hienao
  * @since 2024-01-01
  */
-@Slf4j
 public class MediaFileParser {
 
   // 需要清理的标记和标签，用于后处理
@@ -66,124 +64,9 @@ public class MediaFileParser {
       List<String> tvDirRegexps,
       List<String> tvFileRegexps) {
 
-    if (fileName == null || fileName.trim().isEmpty()) {
-      return createUnknownMedia(fileName);
-    }
-
-    log.debug("开始解析（优先级模式）: 文件='{}', 目录='{}'", fileName, directoryPath);
-
-    // 按优先级排序正则表达式
-    List<String> prioritizedMovieRegexps =
-        EnhancedRegexPatterns.prioritizeRegexes(
-            movieRegexps, EnhancedRegexPatterns.getRegexPriorityConfig());
-    List<String> prioritizedTvDirRegexps =
-        EnhancedRegexPatterns.prioritizeRegexes(
-            tvDirRegexps, EnhancedRegexPatterns.getRegexPriorityConfig());
-    List<String> prioritizedTvFileRegexps =
-        EnhancedRegexPatterns.prioritizeRegexes(
-            tvFileRegexps, EnhancedRegexPatterns.getRegexPriorityConfig());
-
-    MediaInfo mediaInfo = new MediaInfo().setOriginalFileName(fileName).setConfidence(0);
-    String nameWithoutExt = removeFileExtension(fileName);
-
-    // 优先尝试将文件作为电视剧进行解析（目录优先）
-    boolean isTv =
-        parseAsTvShow(
-            mediaInfo,
-            nameWithoutExt,
-            directoryPath,
-            prioritizedTvDirRegexps,
-            prioritizedTvFileRegexps);
-
-    // 如果不是电视剧，则尝试作为电影解析
-    if (!isTv) {
-      parseAsMovie(mediaInfo, nameWithoutExt, prioritizedMovieRegexps);
-    }
-
-    // 计算最终置信度
-    calculateConfidence(mediaInfo);
-
-    log.debug("解析结果: {}", mediaInfo);
-    return mediaInfo;
-  }
-
-  /** 尝试将文件解析为电视剧 */
-  private static boolean parseAsTvShow(
-      MediaInfo mediaInfo,
-      String nameWithoutExt,
-      String directoryPath,
-      List<String> tvDirRegexps,
-      List<String> tvFileRegexps) {
-
-    // 1. 解析目录
-    if (directoryPath != null && !directoryPath.isEmpty()) {
-      for (String regex : tvDirRegexps) {
-        try {
-          Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-          Matcher matcher = pattern.matcher(directoryPath);
-          if (matcher.find()) {
-            extractNamedGroups(matcher, mediaInfo);
-            log.debug("电视剧目录正则 '{}' 匹配成功: {}", regex, directoryPath);
-            break; // 找到第一个匹配的目录正则即可
-          }
-        } catch (Exception e) {
-          log.warn("无效的电视剧目录正则表达式: '{}', 错误: {}", regex, e.getMessage());
-        }
-      }
-    }
-
-    // 2. 解析文件名以获取季集信息
-    for (String regex : tvFileRegexps) {
-      try {
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(nameWithoutExt);
-        if (matcher.find()) {
-          extractNamedGroups(matcher, mediaInfo);
-          log.debug("电视剧文件正则 '{}' 匹配成功: {}", regex, nameWithoutExt);
-          break; // 找到第一个匹配的文件正则即可
-        }
-      } catch (Exception e) {
-        log.warn("无效的电视剧文件正则表达式: '{}', 错误: {}", regex, e.getMessage());
-      }
-    }
-
-    // 3. 如果同时获取到了剧名和季/集信息，则认为是电视剧
-    if (mediaInfo.getTitle() != null && mediaInfo.getSeason() != null) {
-      mediaInfo.setType(MediaInfo.MediaType.TV_SHOW);
-      cleanupTitle(mediaInfo);
-      return true;
-    }
-
-    // 即使目录匹配，但文件没匹配上季集，也可能不是电视剧，重置部分信息
-    if (mediaInfo.getSeason() == null && mediaInfo.getEpisode() == null) {
-      mediaInfo.setTitle(null);
-      mediaInfo.setYear(null);
-    }
-
-    return false;
-  }
-
-  /** 尝试将文件解析为电影 */
-  private static void parseAsMovie(
-      MediaInfo mediaInfo, String nameWithoutExt, List<String> movieRegexps) {
-    for (String regex : movieRegexps) {
-      try {
-        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(nameWithoutExt);
-        if (matcher.find()) {
-          extractNamedGroups(matcher, mediaInfo);
-          log.debug("电影正则 '{}' 匹配成功: {}", regex, nameWithoutExt);
-          mediaInfo.setType(MediaInfo.MediaType.MOVIE);
-          cleanupTitle(mediaInfo);
-          return; // 找到第一个匹配的即可
-        }
-      } catch (Exception e) {
-        log.warn("无效的电影正则表达式: '{}', 错误: {}", regex, e.getMessage());
-      }
-    }
-    // 如果所有电影正则都匹配失败，则认为是未知类型
-    mediaInfo.setType(MediaInfo.MediaType.UNKNOWN);
-    mediaInfo.setTitle(nameWithoutExt); // 使用原始文件名作为标题
+    // 同一组正则只编译一次，解析结果按目录+文件名缓存
+    return CompiledMediaParser.forConfig(movieRegexps, tvDirRegexps, tvFileRegexps)
+        .parse(fileName, directoryPath);
   }
 
   /** 从Matcher的命名捕获组中提取信息 */
@@ -233,7 +116,7 @@ public class MediaFileParser {
   }
 
   /** 清理标题中的杂项 */
-  private static void cleanupTitle(MediaInfo mediaInfo) {
+  static void cleanupTitle(MediaInfo mediaInfo) {
     if (mediaInfo.getTitle() == null) {
       return;
     }
@@ -244,7 +127,7 @@ public class MediaFileParser {
   }
 
   /** 计算置信度 */
-  private static void calculateConfidence(MediaInfo mediaInfo) {
+  static void calculateConfidence(MediaInfo mediaInfo) {
     int confidence = 0;
     if (mediaInfo.getType() == MediaInfo.MediaType.UNKNOWN) {
       mediaInfo.setConfidence(0);
@@ -282,7 +165,7 @@ public class MediaFileParser {
   }
 
   /** 创建未知媒体信息 */
-  private static MediaInfo createUnknownMedia(String fileName) {
+  static MediaInfo createUnknownMedia(String fileName) {
     return new MediaInfo()
         .setType(MediaInfo.MediaType.UNKNOWN)
         .setOriginalFileName(fileName)
@@ -290,24 +173,8 @@ public class MediaFileParser {
         .setConfidence(0);
   }
 
-  /** 判断是否为视频文件 */
+  /** 判断是否为视频文件（默认后缀），按系统配置判断请使用 SystemConfigService#getMediaExtensionMatcher */
   public static boolean isVideoFile(String fileName) {
-    if (fileName == null || fileName.trim().isEmpty()) {
-      return false;
-    }
-    String lowerName = fileName.toLowerCase();
-    // 可以后续从系统配置中读取支持的后缀列表
-    return lowerName.endsWith(".mp4")
-        || lowerName.endsWith(".avi")
-        || lowerName.endsWith(".mkv")
-        || lowerName.endsWith(".mov")
-        || lowerName.endsWith(".wmv")
-        || lowerName.endsWith(".flv")
-        || lowerName.endsWith(".webm")
-        || lowerName.endsWith(".m4v")
-        || lowerName.endsWith(".rmvb")
-        || lowerName.endsWith(".ts")
-        || lowerName.endsWith(".vob")
-        || lowerName.endsWith(".3gp");
+    return MediaExtensionMatcher.DEFAULT.matches(fileName);
   }
 }
@@ -0,0 +1,159 @@
+package com.hienao.openlist2strm.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * NFO流式写入工具类 基于 XMLStreamWriter 直接写入输出流，输出格式与 Kodi/Jellyfin/Emby 的 NFO 一致（两空格缩进）
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class NfoXmlWriter implements AutoCloseable {
+
+  private static final byte[] DECLARATION =
+      "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+          .getBytes(StandardCharsets.UTF_8);
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+  private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+  private final XMLStreamWriter writer;
+
+  /** 当前嵌套层级，决定缩进 */
+  private int depth;
+
+  /**
+   * 创建写入器并写入XML声明
+   *
+   * @param out 输出流（由调用方关闭）
+   * @throws IOException 写入失败
+   */
+  public NfoXmlWriter(OutputStream out) throws IOException {
+    out.write(DECLARATION);
+    try {
+      this.writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+    } catch (XMLStreamException e) {
+      throw new IOException("创建XML写入器失败", e);
+    }
+  }
+
+  /**
+   * 开始一个包含子元素的元素
+   *
+   * @param tagName 元素名
+   * @throws IOException 写入失败
+   */
+  public void start(String tagName) throws IOException {
+    try {
+      writeIndent();
+      writer.writeStartElement(tagName);
+      writer.writeCharacters("\n");
+      depth++;
+    } catch (XMLStreamException e) {
+      throw new IOException("写入XML元素失败: " + tagName, e);
+    }
+  }
+
+  /**
+   * 结束当前元素
+   *
+   * @throws IOException 写入失败
+   */
+  public void end() throws IOException {
+    try {
+      depth--;
+      writeIndent();
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+    } catch (XMLStreamException e) {
+      throw new IOException("写入XML元素失败", e);
+    }
+  }
+
+  /**
+   * 写入文本元素，值为空时跳过
+   *
+   * @param tagName 元素名
+   * @param value 元素值
+   * @throws IOException 写入失败
+   */
+  public void element(String tagName, Object value) throws IOException {
+    if (value == null || (value instanceof String text && text.isEmpty())) {
+      return;
+    }
+    try {
+      writeIndent();
+      writer.writeStartElement(tagName);
+      writer.writeCharacters(value.toString());
+      writer.writeEndElement();
+      writer.writeCharacters("\n");
+    } catch (XMLStreamException e) {
+      throw new IOException("写入XML元素失败: " + tagName, e);
+    }
+  }
+
+  /** 刷新缓冲区，不关闭底层输出流 */
+  @Override
+  public void close() throws IOException {
+    try {
+      writer.flush();
+      writer.close();
+    } catch (XMLStreamException e) {
+      throw new IOException("关闭XML写入器失败", e);
+    }
+  }
+
+  /**
+   * 流式读取第一个指定元素的文本，读到后立即停止
+   *
+   * @param in 输入流（由调用方关闭）
+   * @param tagName 元素名
+   * @return 元素文本，不存在或解析失败时返回null
+   */
+  public static String readFirstElementText(InputStream in, String tagName) {
+    XMLStreamReader reader = null;
+    try {
+      reader = INPUT_FACTORY.createXMLStreamReader(in);
+      while (reader.hasNext()) {
+        if (reader.next() == XMLStreamConstants.START_ELEMENT
+            && tagName.equals(reader.getLocalName())) {
+          return reader.getElementText();
+        }
+      }
+      return null;
+    } catch (XMLStreamException e) {
+      return null;
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException ignored) {
+          // 忽略关闭异常
+        }
+      }
+    }
+  }
+
+  private void writeIndent() throws XMLStreamException {
+    if (depth > 0) {
+      writer.writeCharacters("  ".repeat(depth));
+    }
+  }
+
+  private static XMLInputFactory createInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    // NFO可能来自外部，禁用DTD和外部实体
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    return factory;
+  }
+}
@@ -0,0 +1,77 @@
+package com.hienao.openlist2strm.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * OpenList/Alist 文件签名工具类
+ *
+ * <p>与OpenList服务端算法一致：base64url(HMAC-SHA256(站点令牌, 路径 + ":" + 过期时间戳)) + ":" + 过期时间戳，
+ * 过期时间戳为秒，0表示永不过期。可在本地直接计算 /d 链接的sign参数，无需重新调用列表接口
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class OpenlistSigner {
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private OpenlistSigner() {}
+
+  /**
+   * 计算文件签名
+   *
+   * @param secret 站点令牌
+   * @param path 文件路径（未编码，与 /d 链接中的路径一致）
+   * @param expireEpochSeconds 过期时间戳（秒），0表示永不过期
+   * @return 签名字符串
+   */
+  public static String sign(String secret, String path, long expireEpochSeconds) {
+    if (secret == null || secret.isEmpty()) {
+      throw new IllegalArgumentException("签名密钥不能为空");
+    }
+    try {
+      String expire = String.valueOf(expireEpochSeconds);
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM));
+      byte[] digest = mac.doFinal((path + ":" + expire).getBytes(StandardCharsets.UTF_8));
+      return Base64.getUrlEncoder().encodeToString(digest) + ":" + expire;
+    } catch (Exception e) {
+      throw new IllegalStateException("计算签名失败: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * 按有效期计算文件签名
+   *
+   * @param secret 站点令牌
+   * @param path 文件路径
+   * @param expireHours 有效期（小时），为空或不大于0表示永不过期
+   * @param nowEpochSeconds 当前时间戳（秒）
+   * @return 签名字符串
+   */
+  public static String signWithHours(
+      String secret, String path, Integer expireHours, long nowEpochSeconds) {
+    long expire = expireHours == null || expireHours <= 0 ? 0 : nowEpochSeconds + expireHours * 3600L;
+    return sign(secret, path, expire);
+  }
+
+  /**
+   * 解析签名中的过期时间戳
+   *
+   * @param sign 签名字符串
+   * @return 过期时间戳（秒），无法解析或永不过期时返回0
+   */
+  public static long parseExpireEpochSeconds(String sign) {
+    if (sign == null || sign.lastIndexOf(':') < 0) {
+      return 0;
+    }
+    try {
+      return Math.max(Long.parseLong(sign.substring(sign.lastIndexOf(':') + 1)), 0);
+    } catch (NumberFormatException e) {
+      return 0;
+    }
+  }
+}
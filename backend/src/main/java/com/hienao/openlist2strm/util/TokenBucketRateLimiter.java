@@ -0,0 +1,124 @@
+package com.hienao.openlist2strm.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 令牌桶限流器
+ *
+ * <p>通过CAS预约下一个可用时间片，不持有锁，多线程共享时每个线程只等待自己预约到的时间。 支持在收到429时暂停所有调用方直到指定时间
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class TokenBucketRateLimiter {
+
+  /** 下一个令牌可用的时间（纳秒），初始为过去的时间，桶初始为满 */
+  private final AtomicLong nextFreeNanos =
+      new AtomicLong(System.nanoTime() - TimeUnit.HOURS.toNanos(1));
+
+  /** 暂停截止时间（纳秒），由Retry-After设置 */
+  private final AtomicLong pausedUntilNanos =
+      new AtomicLong(System.nanoTime() - TimeUnit.HOURS.toNanos(1));
+
+  private final AtomicLong acquiredCount = new AtomicLong();
+  private final AtomicLong throttledCount = new AtomicLong();
+  private final AtomicLong totalWaitNanos = new AtomicLong();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+  private final AtomicLong pauseCount = new AtomicLong();
+
+  /**
+   * 获取一个令牌，必要时等待
+   *
+   * @param permitsPerSecond 每秒令牌数，小于等于0时不限流
+   * @param burst            桶容量（允许的突发请求数）
+   * @return 实际等待的纳秒数
+   */
+  public long acquire(double permitsPerSecond, int burst) {
+    long waitNanos = reserve(permitsPerSecond, burst);
+    acquiredCount.incrementAndGet();
+    if (waitNanos <= 0) {
+      return 0;
+    }
+
+    throttledCount.incrementAndGet();
+    totalWaitNanos.addAndGet(waitNanos);
+    maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+
+    long deadline = System.nanoTime() + waitNanos;
+    long remaining = waitNanos;
+    while (remaining > 0) {
+      LockSupport.parkNanos(this, remaining);
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      remaining = deadline - System.nanoTime();
+    }
+    return waitNanos;
+  }
+
+  /**
+   * 预约一个令牌，返回需要等待的纳秒数（不等待）
+   *
+   * @param permitsPerSecond 每秒令牌数，小于等于0时不限流
+   * @param burst            桶容量
+   * @return 需要等待的纳秒数
+   */
+  public long reserve(double permitsPerSecond, int burst) {
+    long now = System.nanoTime();
+    long pausedUntil = pausedUntilNanos.get();
+    if (permitsPerSecond <= 0) {
+      return Math.max(pausedUntil - now, 0);
+    }
+
+    long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+    // 空闲期间最多累积burst个令牌，即时间片最多落后当前时间 (burst-1) 个间隔
+    long maxLagNanos = intervalNanos * (Math.max(burst, 1) - 1);
+    while (true) {
+      long next = nextFreeNanos.get();
+      long slot = latest(next, now - maxLagNanos);
+      slot = latest(slot, pausedUntil);
+      if (nextFreeNanos.compareAndSet(next, slot + intervalNanos)) {
+        return Math.max(slot - now, 0);
+      }
+      now = System.nanoTime();
+    }
+  }
+
+  /**
+   * 暂停所有调用方，用于处理429 Retry-After
+   *
+   * @param pauseMillis 暂停时长（毫秒）
+   */
+  public void pauseFor(long pauseMillis) {
+    pauseCount.incrementAndGet();
+    long until = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(pauseMillis, 0));
+    pausedUntilNanos.accumulateAndGet(until, TokenBucketRateLimiter::latest);
+  }
+
+  /** 比较两个nanoTime时间点，返回较晚的一个 */
+  private static long latest(long a, long b) {
+    return a - b >= 0 ? a : b;
+  }
+
+  public long getAcquiredCount() {
+    return acquiredCount.get();
+  }
+
+  public long getThrottledCount() {
+    return throttledCount.get();
+  }
+
+  public long getTotalWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get());
+  }
+
+  public long getMaxWaitMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get());
+  }
+
+  public long getPauseCount() {
+    return pauseCount.get();
+  }
+}
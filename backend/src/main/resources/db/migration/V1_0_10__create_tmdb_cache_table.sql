@@ -0,0 +1,16 @@
+-- 创建TMDB响应缓存表
+-- 字段说明：
+-- cache_key: 缓存键，由接口、ID、语言和查询条件组成
+-- kind: 缓存类型，search/movie/tv/season
+-- body: TMDB返回的原始JSON
+-- fetched_at: 获取时间戳（毫秒）
+CREATE TABLE tmdb_cache
+(
+    cache_key VARCHAR(1000) PRIMARY KEY,
+    kind VARCHAR(32) NOT NULL,
+    body TEXT NOT NULL,
+    fetched_at BIGINT NOT NULL
+);
+
+-- 创建索引
+CREATE INDEX idx_tmdb_cache_kind ON tmdb_cache(kind);
@@ -0,0 +1,24 @@
+-- 创建未匹配结果缓存表
+-- 字段说明：
+-- cache_key: 缓存键，由类型、规范化查询词和年份组成
+-- kind: 类型，movie/tv/ai
+-- query: 规范化后的查询词
+-- year: 年份（可为空）
+-- config_hash: 记录时的正则和AI配置指纹，配置变化后条目失效
+-- failure_count: 连续未匹配次数
+-- last_failed_at: 最近一次未匹配时间戳（毫秒）
+-- next_retry_at: 允许重试的时间戳（毫秒）
+CREATE TABLE negative_match_cache
+(
+    cache_key VARCHAR(1000) PRIMARY KEY,
+    kind VARCHAR(32) NOT NULL,
+    query VARCHAR(1000) NOT NULL,
+    year VARCHAR(16),
+    config_hash VARCHAR(64) NOT NULL,
+    failure_count INTEGER NOT NULL DEFAULT 1,
+    last_failed_at BIGINT NOT NULL,
+    next_retry_at BIGINT NOT NULL
+);
+
+-- 创建索引
+CREATE INDEX idx_negative_match_cache_kind ON negative_match_cache(kind);
@@ -0,0 +1,13 @@
+-- 创建AI文件名识别结果缓存表
+-- 字段说明：
+-- cache_key: 缓存键，由规范化的文件名和目录上下文组成
+-- config_hash: 记录时的模型和提示词指纹，变化后条目失效
+-- result: 识别结果JSON
+-- created_at: 识别时间戳（毫秒）
+CREATE TABLE ai_recognition_cache
+(
+    cache_key VARCHAR(2000) PRIMARY KEY,
+    config_hash VARCHAR(64) NOT NULL,
+    result TEXT NOT NULL,
+    created_at BIGINT NOT NULL
+);
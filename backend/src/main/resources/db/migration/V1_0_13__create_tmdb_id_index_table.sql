@@ -0,0 +1,23 @@
+-- 创建TMDB离线ID索引表（由TMDB每日ID导出文件导入）
+-- 字段说明：
+-- kind: 类型，movie/tv
+-- tmdb_id: TMDB ID
+-- title: 规范化后的原始标题，用于查找
+-- original_title: 原始标题
+-- popularity: 流行度，用于同名条目排序
+-- year: 年份，导出文件不含年份，在线搜索后回填
+-- imported_at: 最近一次导入时间戳（毫秒），导入完成后删除早于本次导入的条目
+CREATE TABLE tmdb_id_index
+(
+    kind VARCHAR(16) NOT NULL,
+    tmdb_id INTEGER NOT NULL,
+    title VARCHAR(500) NOT NULL,
+    original_title VARCHAR(500) NOT NULL,
+    popularity REAL NOT NULL DEFAULT 0,
+    year VARCHAR(8),
+    imported_at BIGINT NOT NULL,
+    PRIMARY KEY (kind, tmdb_id)
+);
+
+-- 创建索引
+CREATE INDEX idx_tmdb_id_index_title ON tmdb_id_index(kind, title);
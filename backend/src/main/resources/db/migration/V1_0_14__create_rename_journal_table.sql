@@ -0,0 +1,29 @@
+-- 创建批量重命名日志表
+-- 字段说明：
+-- id: 主键
+-- batch_id: 批次ID，同一次批量重命名共用
+-- config_id: OpenList配置ID
+-- seq: 批次内序号，回滚时倒序执行
+-- src_path: 源路径（相对于挂载目录）
+-- dst_path: 目标路径（相对于挂载目录）
+-- status: 状态，PENDING/DONE/FAILED/ROLLED_BACK
+-- error: 最近一次失败原因
+-- created_at: 创建时间戳（毫秒）
+-- updated_at: 最近更新时间戳（毫秒）
+CREATE TABLE rename_journal
+(
+    id INTEGER PRIMARY KEY AUTOINCREMENT,
+    batch_id VARCHAR(64) NOT NULL,
+    config_id BIGINT NOT NULL,
+    seq INTEGER NOT NULL,
+    src_path VARCHAR(2000) NOT NULL,
+    dst_path VARCHAR(2000) NOT NULL,
+    status VARCHAR(16) NOT NULL DEFAULT 'PENDING',
+    error VARCHAR(1000),
+    created_at BIGINT NOT NULL,
+    updated_at BIGINT NOT NULL
+);
+
+-- 创建索引
+CREATE INDEX idx_rename_journal_batch ON rename_journal(batch_id);
+CREATE INDEX idx_rename_journal_created_at ON rename_journal(created_at);
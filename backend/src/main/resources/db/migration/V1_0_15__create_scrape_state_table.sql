@@ -0,0 +1,15 @@
+-- 创建目录刮削状态表
+-- 字段说明：
+-- directory_path: STRM保存目录路径
+-- fingerprint: 目录内文件名、大小和修改时间的指纹，任一文件变化后条目失效
+-- config_signature: 记录时的刮削配置指纹，配置变化后条目失效
+-- fully_scraped: 是否已完全刮削，0-否，1-是
+-- checked_at: 检查时间戳（毫秒）
+CREATE TABLE scrape_state
+(
+    directory_path VARCHAR(2000) PRIMARY KEY,
+    fingerprint VARCHAR(64) NOT NULL,
+    config_signature VARCHAR(64) NOT NULL,
+    fully_scraped INTEGER NOT NULL DEFAULT 0,
+    checked_at BIGINT NOT NULL
+);
@@ -0,0 +1,7 @@
+-- 添加本地签名相关字段
+ALTER TABLE openlist_config ADD COLUMN sign_secret VARCHAR(1000);
+ALTER TABLE openlist_config ADD COLUMN sign_expire_hours INTEGER DEFAULT 0;
+
+-- 添加注释说明字段用途
+-- sign_secret: OpenList站点令牌（管理-设置-其他-令牌），配置后在本地计算文件签名，无需依赖列表接口返回的sign
+-- sign_expire_hours: 本地签名有效期（小时），需与OpenList中的“直链有效期”一致，0表示永不过期
@@ -0,0 +1,158 @@
+package com.hienao.openlist2strm.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.hienao.openlist2strm.controller.StrmLinkController;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.entity.TaskConfig;
+import com.hienao.openlist2strm.exception.BusinessException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+/**
+ * STRM链接解析服务测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class StrmLinkResolverServiceTest {
+
+  private static final String SECRET = "test-link-secret";
+
+  @Mock private SystemConfigService systemConfigService;
+  @Mock private TaskConfigService taskConfigService;
+  @Mock private OpenlistConfigService openlistConfigService;
+  @Mock private OpenlistApiService openlistApiService;
+  @Mock private StrmFileService strmFileService;
+  @Mock private CacheManager cacheManager;
+
+  private StrmLinkResolverService strmLinkResolverService;
+  private TaskConfig taskConfig;
+
+  @BeforeEach
+  void setUp() {
+    MockitoAnnotations.openMocks(this);
+    when(systemConfigService.getStrmLinkConfig())
+        .thenReturn(Map.of("publicBaseUrl", "http://192.168.1.2:3111/"));
+    when(systemConfigService.getOrCreateStrmLinkSecret()).thenReturn(SECRET);
+    when(systemConfigService.getStrmLinkSecret()).thenReturn(SECRET);
+
+    strmLinkResolverService =
+        new StrmLinkResolverService(
+            systemConfigService,
+            taskConfigService,
+            openlistConfigService,
+            openlistApiService,
+            strmFileService,
+            cacheManager);
+
+    taskConfig = new TaskConfig();
+    taskConfig.setId(1L);
+    taskConfig.setPath("/movies/");
+  }
+
+  @Test
+  public void testSignVerifyRoundTrip() {
+    String url = strmLinkResolverService.buildResolverUrl(taskConfig, "/movies/电影/Inception.mkv");
+
+    assertTrue(url.startsWith("http://192.168.1.2:3111/api/s/1/"));
+    assertEquals(
+        "/movies/电影/Inception.mkv", strmLinkResolverService.extractFilePath(taskConfig, url));
+  }
+
+  @Test
+  public void testTamperedSignature() {
+    String url = strmLinkResolverService.buildResolverUrl(taskConfig, "/movies/Inception.mkv");
+    char last = url.charAt(url.length() - 1);
+    String tampered = url.substring(0, url.length() - 1) + (last == 'A' ? 'B' : 'A');
+
+    assertNull(strmLinkResolverService.extractFilePath(taskConfig, tampered));
+    String linkId = tampered.substring(tampered.indexOf("/api/s/1/") + "/api/s/1/".length());
+    assertThrows(BusinessException.class, () -> strmLinkResolverService.resolve(1L, linkId));
+  }
+
+  @Test
+  public void testSignatureBoundToSecretAndTask() {
+    String url = strmLinkResolverService.buildResolverUrl(taskConfig, "/movies/Inception.mkv");
+
+    TaskConfig otherTask = new TaskConfig();
+    otherTask.setId(2L);
+    otherTask.setPath("/movies");
+    assertNull(
+        strmLinkResolverService.extractFilePath(otherTask, url.replace("/api/s/1/", "/api/s/2/")));
+
+    when(systemConfigService.getStrmLinkSecret()).thenReturn("another-secret");
+    assertNull(strmLinkResolverService.extractFilePath(taskConfig, url));
+  }
+
+  @Test
+  public void testOutsideTaskPathKeepsAbsolutePath() {
+    String url = strmLinkResolverService.buildResolverUrl(taskConfig, "/tv/Show/S01E01.mkv");
+
+    assertEquals("/tv/Show/S01E01.mkv", strmLinkResolverService.extractFilePath(taskConfig, url));
+  }
+
+  @Test
+  public void testMissingSecret() {
+    when(systemConfigService.getOrCreateStrmLinkSecret())
+        .thenThrow(new IllegalStateException("STRM链接签名密钥保存失败"));
+    assertThrows(
+        BusinessException.class,
+        () -> strmLinkResolverService.buildResolverUrl(taskConfig, "/movies/Inception.mkv"));
+
+    when(systemConfigService.getStrmLinkSecret()).thenReturn(null);
+    assertThrows(
+        BusinessException.class, () -> strmLinkResolverService.resolve(1L, "L21vdmllcw.abc"));
+  }
+
+  @Test
+  public void testResolverUrlResolvesThroughProxiedPath() throws Exception {
+    // Caddy和nginx只把 /api/ 和 /ws/ 转发到后端，解析地址必须位于其中
+    Path projectRoot = Paths.get("").toAbsolutePath().getParent();
+    String caddyfile = Files.readString(projectRoot.resolve("Caddyfile"), StandardCharsets.UTF_8);
+    String nginxConf = Files.readString(projectRoot.resolve("nginx.conf"), StandardCharsets.UTF_8);
+    assertTrue(caddyfile.contains("reverse_proxy /api/*"));
+    assertTrue(nginxConf.contains("location /api/"));
+
+    taskConfig.setOpenlistConfigId(10L);
+    OpenlistConfig openlistConfig = new OpenlistConfig();
+    openlistConfig.setId(10L);
+    openlistConfig.setBaseUrl("http://openlist:5244");
+    when(taskConfigService.getById(1L)).thenReturn(taskConfig);
+    when(openlistConfigService.getById(10L)).thenReturn(openlistConfig);
+    when(openlistApiService.hasLocalSigner(openlistConfig)).thenReturn(true);
+    when(openlistApiService.resolveFileSign(openlistConfig, "/movies/Inception.mkv", null))
+        .thenReturn("abc:0");
+    when(openlistApiService.buildFileUrl("http://openlist:5244", "/movies/Inception.mkv"))
+        .thenReturn("http://openlist:5244/d/movies/Inception.mkv");
+    when(strmFileService.buildStrmContentUrl(anyString(), eq(openlistConfig)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+
+    String url = strmLinkResolverService.buildResolverUrl(taskConfig, "/movies/Inception.mkv");
+    String path = URI.create(url).getRawPath();
+    assertTrue(path.startsWith("/api/"));
+
+    MockMvc mockMvc =
+        MockMvcBuilders.standaloneSetup(new StrmLinkController(strmLinkResolverService)).build();
+    mockMvc
+        .perform(get(path))
+        .andExpect(status().isFound())
+        .andExpect(
+            header().string("Location", "http://openlist:5244/d/movies/Inception.mkv?sign=abc:0"));
+  }
+}
@@ -0,0 +1,113 @@
+package com.hienao.openlist2strm.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.hienao.openlist2strm.dto.strm.StrmRewriteStatus;
+import com.hienao.openlist2strm.entity.OpenlistConfig;
+import com.hienao.openlist2strm.entity.TaskConfig;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+/**
+ * STRM批量重写服务测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class StrmRewriteServiceTest {
+
+  private static final String RESOLVER_URL = "http://192.168.1.2:3111/api/s/1/L21vdmllcy9h.tag";
+  private static final String FILE_PATH = "/movies/a.mkv";
+  private static final String DIRECT_URL = "http://openlist:5244/d/movies/a.mkv";
+
+  @Mock private TaskConfigService taskConfigService;
+  @Mock private OpenlistConfigService openlistConfigService;
+  @Mock private OpenlistApiService openlistApiService;
+  @Mock private StrmFileService strmFileService;
+  @Mock private StrmLinkResolverService strmLinkResolverService;
+  @Mock private FileWriteService fileWriteService;
+
+  @TempDir Path strmRoot;
+
+  private ExecutorService scrapingExecutor;
+  private StrmRewriteService strmRewriteService;
+  private OpenlistConfig openlistConfig;
+  private Path strmFile;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    MockitoAnnotations.openMocks(this);
+    scrapingExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    strmRewriteService =
+        new StrmRewriteService(
+            taskConfigService,
+            openlistConfigService,
+            openlistApiService,
+            strmFileService,
+            strmLinkResolverService,
+            fileWriteService,
+            Runnable::run,
+            scrapingExecutor);
+
+    TaskConfig taskConfig = new TaskConfig();
+    taskConfig.setId(1L);
+    taskConfig.setPath("/movies");
+    taskConfig.setStrmPath(strmRoot.toString());
+    taskConfig.setOpenlistConfigId(10L);
+    openlistConfig = new OpenlistConfig();
+    openlistConfig.setId(10L);
+    openlistConfig.setBaseUrl("http://openlist:5244");
+    when(taskConfigService.getById(1L)).thenReturn(taskConfig);
+    when(openlistConfigService.getById(10L)).thenReturn(openlistConfig);
+
+    strmFile = strmRoot.resolve("a.strm");
+    Files.writeString(strmFile, RESOLVER_URL, StandardCharsets.UTF_8);
+    when(strmLinkResolverService.isResolverEnabled()).thenReturn(false);
+    when(strmLinkResolverService.extractFilePath(taskConfig, RESOLVER_URL)).thenReturn(FILE_PATH);
+    when(openlistApiService.buildFileUrl("http://openlist:5244", FILE_PATH)).thenReturn(DIRECT_URL);
+    when(strmFileService.buildStrmContentUrl(anyString(), eq(openlistConfig)))
+        .thenAnswer(invocation -> invocation.getArgument(0));
+  }
+
+  @AfterEach
+  void tearDown() {
+    scrapingExecutor.close();
+  }
+
+  @Test
+  public void testResolverToDirectWithoutSignIsSkipped() throws Exception {
+    when(openlistApiService.hasLocalSigner(openlistConfig)).thenReturn(false);
+    when(openlistApiService.resolveFileSign(openlistConfig, FILE_PATH, null)).thenReturn(null);
+
+    StrmRewriteStatus status = strmRewriteService.submitRewrite(1L, 1);
+
+    assertEquals("COMPLETED", status.getState());
+    assertEquals(1L, status.getSkipped());
+    assertEquals(0L, status.getRewritten());
+    verify(fileWriteService, never()).writeString(any(), anyString());
+    assertEquals(RESOLVER_URL, Files.readString(strmFile, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testResolverToDirectWithLocalSignerIsRewritten() throws Exception {
+    when(openlistApiService.hasLocalSigner(openlistConfig)).thenReturn(true);
+    when(openlistApiService.resolveFileSign(openlistConfig, FILE_PATH, null)).thenReturn("sig:0");
+
+    StrmRewriteStatus status = strmRewriteService.submitRewrite(1L, 1);
+
+    assertEquals("COMPLETED", status.getState());
+    assertEquals(1L, status.getRewritten());
+    assertEquals(0L, status.getSkipped());
+    verify(fileWriteService).writeString(strmFile, DIRECT_URL + "?sign=sig:0");
+  }
+}
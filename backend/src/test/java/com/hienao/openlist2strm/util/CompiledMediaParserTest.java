@@ -0,0 +1,147 @@
+package com.hienao.openlist2strm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.hienao.openlist2strm.dto.media.MediaInfo;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 预编译媒体文件解析器测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class CompiledMediaParserTest {
+
+  private static final List<String> MOVIE_REGEXPS = EnhancedRegexPatterns.getEnhancedMovieRegexps();
+  private static final List<String> TV_DIR_REGEXPS = EnhancedRegexPatterns.getEnhancedTvDirRegexps();
+  private static final List<String> TV_FILE_REGEXPS =
+      EnhancedRegexPatterns.getEnhancedTvFileRegexps();
+
+  /** 参考语料：文件名 + 所在目录 */
+  private static final String[][] CORPUS = {
+    {"Inception.2010.1080p.BluRay.x264.mkv", "/movies/Inception"},
+    {"The.Matrix.[1999].mkv", "/movies"},
+    {"Avatar (2009).mp4", "/movies/Avatar (2009)"},
+    {"流浪地球.2019.4K.mkv", "/电影"},
+    {"流浪地球2.mp4", "/电影/流浪地球2"},
+    {"[阳光电影]让子弹飞.2010.mkv", "/电影"},
+    {"Heat.1080p.BluRay.mkv", "/movies"},
+    {"Breaking.Bad.S01E01.720p.mkv", "/tv/Breaking Bad/Season 1"},
+    {"Breaking Bad s02e13.mkv", "/tv/Breaking.Bad.S02"},
+    {"Friends.1x05.avi", "/tv/Friends Season 01"},
+    {"Show.Episode.12.mkv", "/tv/Show.2020"},
+    {"庆余年.第十集.mp4", "/剧集/庆余年.第一季"},
+    {"庆余年.EP10.mp4", "/剧集/庆余年 S01"},
+    {"Lost.Disc.2.07.mkv", "/tv/Lost Season 3 Disc 2"},
+    {"Lost.S03-07.mkv", "/tv/Lost.S3"},
+    {"Lost.S03.07.mkv", "/tv/Lost.S3"},
+    {"Lost S03 EP07.mkv", ""},
+    {"the.office.us.s05e14.mkv", "/tv/The Office (US) season 5"},
+    {"random_video.mp4", "/downloads"},
+    {"123.mkv", null},
+    {"noext", "/downloads"},
+    {".hidden.mkv", "/downloads"},
+    {"Movie.Title.2021.Director's.Cut.mkv", "/movies"},
+    {"Show.Season.2.Episode.3.mkv", "/tv/Show Season 2"},
+    {"龙珠.第一季.第三集.mkv", "/动画/龙珠"},
+  };
+
+  @Test
+  public void testResultsMatchReferenceParser() {
+    CompiledMediaParser parser =
+        CompiledMediaParser.forConfig(MOVIE_REGEXPS, TV_DIR_REGEXPS, TV_FILE_REGEXPS);
+    for (String[] entry : CORPUS) {
+      MediaInfo expected = referenceParse(entry[0], entry[1]);
+      assertEquals(expected, parser.parse(entry[0], entry[1]), entry[0]);
+      // 第二次解析命中缓存，结果仍然一致
+      assertEquals(expected, parser.parse(entry[0], entry[1]), entry[0]);
+    }
+  }
+
+  @Test
+  public void testCachedResultIsNotShared() {
+    CompiledMediaParser parser =
+        CompiledMediaParser.forConfig(MOVIE_REGEXPS, TV_DIR_REGEXPS, TV_FILE_REGEXPS);
+    parser.parse("Inception.2010.mkv", "/movies").setTitle("changed");
+    assertEquals("Inception", parser.parse("Inception.2010.mkv", "/movies").getTitle());
+  }
+
+  @Test
+  public void testSameConfigReusesParser() {
+    assertSame(
+        CompiledMediaParser.forConfig(MOVIE_REGEXPS, TV_DIR_REGEXPS, TV_FILE_REGEXPS),
+        CompiledMediaParser.forConfig(
+            List.copyOf(MOVIE_REGEXPS), List.copyOf(TV_DIR_REGEXPS), List.copyOf(TV_FILE_REGEXPS)));
+  }
+
+  @Test
+  public void testRequiredLiterals() {
+    assertEquals(
+        List.of("episode"),
+        CompiledMediaParser.requiredLiterals("[._ ]Episode[._ ](?<episode>\\d{1,3})"));
+    assertEquals(
+        List.of("第", "集"), CompiledMediaParser.requiredLiterals("[._ ]第[一二三四五六七八九十]+集"));
+    assertEquals(List.of("s", "e"),
+        CompiledMediaParser.requiredLiterals("[._ ]S(?<season>\\d{1,2})E(?<episode>\\d{1,3})"));
+    // 带量词的字符不是必须的
+    assertEquals(List.of("e"), CompiledMediaParser.requiredLiterals("EP?(?<episode>\\d)"));
+    // 顶层分支和无法分析的转义不做预过滤
+    assertEquals(List.of(), CompiledMediaParser.requiredLiterals("abc|def"));
+    assertEquals(List.of(), CompiledMediaParser.requiredLiterals("\\u7b2c\\d+"));
+    assertEquals(List.of(), CompiledMediaParser.requiredLiterals("(?x)a b"));
+  }
+
+  /** 参考实现：逐个编译正则并匹配（与预编译前的解析逻辑一致） */
+  private static MediaInfo referenceParse(String fileName, String directoryPath) {
+    List<String> priority = EnhancedRegexPatterns.getRegexPriorityConfig();
+    List<String> movie = EnhancedRegexPatterns.prioritizeRegexes(MOVIE_REGEXPS, priority);
+    List<String> tvDir = EnhancedRegexPatterns.prioritizeRegexes(TV_DIR_REGEXPS, priority);
+    List<String> tvFile = EnhancedRegexPatterns.prioritizeRegexes(TV_FILE_REGEXPS, priority);
+
+    MediaInfo mediaInfo = new MediaInfo().setOriginalFileName(fileName).setConfidence(0);
+    String nameWithoutExt = MediaFileParser.removeFileExtension(fileName);
+
+    if (directoryPath != null && !directoryPath.isEmpty()) {
+      findFirst(tvDir, directoryPath, mediaInfo);
+    }
+    findFirst(tvFile, nameWithoutExt, mediaInfo);
+
+    boolean isTv = false;
+    if (mediaInfo.getTitle() != null && mediaInfo.getSeason() != null) {
+      mediaInfo.setType(MediaInfo.MediaType.TV_SHOW);
+      MediaFileParser.cleanupTitle(mediaInfo);
+      isTv = true;
+    } else if (mediaInfo.getSeason() == null && mediaInfo.getEpisode() == null) {
+      mediaInfo.setTitle(null);
+      mediaInfo.setYear(null);
+    }
+
+    if (!isTv) {
+      if (findFirst(movie, nameWithoutExt, mediaInfo)) {
+        mediaInfo.setType(MediaInfo.MediaType.MOVIE);
+        MediaFileParser.cleanupTitle(mediaInfo);
+      } else {
+        mediaInfo.setType(MediaInfo.MediaType.UNKNOWN);
+        mediaInfo.setTitle(nameWithoutExt);
+      }
+    }
+
+    MediaFileParser.calculateConfidence(mediaInfo);
+    return mediaInfo;
+  }
+
+  private static boolean findFirst(List<String> regexps, String input, MediaInfo mediaInfo) {
+    for (String regex : regexps) {
+      Matcher matcher = Pattern.compile(regex, Pattern.CASE_INSENSITIVE).matcher(input);
+      if (matcher.find()) {
+        MediaFileParser.extractNamedGroups(matcher, mediaInfo);
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,55 @@
+package com.hienao.openlist2strm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 媒体文件后缀匹配器测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class MediaExtensionMatcherTest {
+
+  @Test
+  public void testMatchesIgnoreCase() {
+    MediaExtensionMatcher matcher = MediaExtensionMatcher.of(List.of(".mkv", ".MP4"));
+    assertTrue(matcher.matches("Inception.2010.mkv"));
+    assertTrue(matcher.matches("Inception.2010.MKV"));
+    assertTrue(matcher.matches("流浪地球.Mp4"));
+    assertFalse(matcher.matches("Inception.2010.mkv.nfo"));
+    assertFalse(matcher.matches("mkv"));
+    assertFalse(matcher.matches(""));
+    assertFalse(matcher.matches(null));
+  }
+
+  @Test
+  public void testOverlappingSuffixes() {
+    MediaExtensionMatcher matcher = MediaExtensionMatcher.of(List.of(".rm", ".rmvb", ".ts", ".m2ts"));
+    assertTrue(matcher.matches("a.rm"));
+    assertTrue(matcher.matches("a.rmvb"));
+    assertTrue(matcher.matches("a.ts"));
+    assertTrue(matcher.matches("a.m2ts"));
+    assertFalse(matcher.matches("a.vb"));
+    assertFalse(matcher.matches("a.mts"));
+  }
+
+  @Test
+  public void testIgnoresBlankExtensions() {
+    MediaExtensionMatcher matcher = MediaExtensionMatcher.of(Arrays.asList(null, " ", ".avi"));
+    assertEquals(List.of(".avi"), matcher.getExtensions());
+    assertFalse(matcher.matches("movie.mkv"));
+    assertTrue(MediaExtensionMatcher.of(List.of()).isEmpty());
+  }
+
+  @Test
+  public void testDefaultMatcher() {
+    for (String extension : MediaExtensionMatcher.DEFAULT_EXTENSIONS) {
+      assertTrue(MediaExtensionMatcher.DEFAULT.matches("video" + extension.toUpperCase()));
+    }
+    assertFalse(MediaExtensionMatcher.DEFAULT.matches("video.strm"));
+  }
+}
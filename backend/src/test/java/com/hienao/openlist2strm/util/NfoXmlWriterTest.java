@@ -0,0 +1,61 @@
+package com.hienao.openlist2strm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+/**
+ * NFO流式写入工具测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class NfoXmlWriterTest {
+
+  @Test
+  public void testOutputFormat() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (NfoXmlWriter nfo = new NfoXmlWriter(out)) {
+      nfo.start("movie");
+      nfo.element("title", "Tom & Jerry <1>");
+      nfo.element("plot", "");
+      nfo.element("tagline", null);
+      nfo.start("rating");
+      nfo.element("value", 8.5);
+      nfo.end();
+      nfo.element("dateadded", "2024-01-01 00:00:00");
+      nfo.end();
+    }
+
+    assertEquals(
+        "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<movie>\n"
+            + "  <title>Tom &amp; Jerry &lt;1&gt;</title>\n"
+            + "  <rating>\n"
+            + "    <value>8.5</value>\n"
+            + "  </rating>\n"
+            + "  <dateadded>2024-01-01 00:00:00</dateadded>\n"
+            + "</movie>\n",
+        out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testReadFirstElementText() {
+    String xml =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<tvshow><title>流浪地球</title><dateadded>2024-05-01 12:00:00</dateadded></tvshow>";
+    assertEquals(
+        "2024-05-01 12:00:00",
+        NfoXmlWriter.readFirstElementText(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "dateadded"));
+    assertNull(
+        NfoXmlWriter.readFirstElementText(
+            new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), "missing"));
+    assertNull(
+        NfoXmlWriter.readFirstElementText(
+            new ByteArrayInputStream("not xml".getBytes(StandardCharsets.UTF_8)), "dateadded"));
+  }
+}
@@ -0,0 +1,46 @@
+package com.hienao.openlist2strm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * OpenList签名工具测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class OpenlistSignerTest {
+
+  @Test
+  public void testSignNeverExpire() {
+    String sign = OpenlistSigner.sign("alist-test-token", "/movies/Inception.mkv", 0);
+    assertEquals("RKcLQLUtQTpTALjAYbREXkZBR57XniYQheMIbVj29Zc=:0", sign);
+  }
+
+  @Test
+  public void testSignWithExpireAndChinesePath() {
+    String sign = OpenlistSigner.sign("alist-test-token", "/电视剧/第1集.mkv", 1700000000L);
+    assertEquals("KYdg8-csj0zIjD-UtH4fj2cnwt6U49svGbkrL6-0RzE=:1700000000", sign);
+  }
+
+  @Test
+  public void testSignWithHours() {
+    assertTrue(OpenlistSigner.signWithHours("token", "/a.mkv", 0, 1000L).endsWith(":0"));
+    assertTrue(OpenlistSigner.signWithHours("token", "/a.mkv", null, 1000L).endsWith(":0"));
+    assertTrue(OpenlistSigner.signWithHours("token", "/a.mkv", 2, 1000L).endsWith(":8200"));
+  }
+
+  @Test
+  public void testParseExpireEpochSeconds() {
+    assertEquals(1700000000L, OpenlistSigner.parseExpireEpochSeconds("abc=:1700000000"));
+    assertEquals(0L, OpenlistSigner.parseExpireEpochSeconds("abc=:0"));
+    assertEquals(0L, OpenlistSigner.parseExpireEpochSeconds(null));
+    assertEquals(0L, OpenlistSigner.parseExpireEpochSeconds("invalid"));
+  }
+
+  @Test
+  public void testEmptySecret() {
+    assertThrows(IllegalArgumentException.class, () -> OpenlistSigner.sign("", "/a.mkv", 0));
+  }
+}
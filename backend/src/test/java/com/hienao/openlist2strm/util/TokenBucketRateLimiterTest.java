@@ -0,0 +1,65 @@
+package com.hienao.openlist2strm.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * 令牌桶限流器测试类
+ *
+ * @author hienao
+ * @since 2024-01-01
+ */
+public class TokenBucketRateLimiterTest {
+
+  @Test
+  public void testBurstThenThrottle() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(0, limiter.reserve(10, 5), "桶内令牌应立即可用");
+    }
+    long waitNanos = limiter.reserve(10, 5);
+    assertTrue(waitNanos > TimeUnit.MILLISECONDS.toNanos(50), "桶空后应等待约一个间隔");
+    assertTrue(waitNanos <= TimeUnit.MILLISECONDS.toNanos(100));
+  }
+
+  @Test
+  public void testPauseBlocksAllCallers() {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter();
+    limiter.pauseFor(500);
+    assertTrue(limiter.reserve(100, 10) > TimeUnit.MILLISECONDS.toNanos(400));
+    assertTrue(limiter.reserve(0, 1) > TimeUnit.MILLISECONDS.toNanos(400));
+    assertEquals(1, limiter.getPauseCount());
+  }
+
+  @Test
+  public void testConcurrentCallersShareRate() throws Exception {
+    TokenBucketRateLimiter limiter = new TokenBucketRateLimiter();
+    int threads = 8;
+    int perThread = 10;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch done = new CountDownLatch(threads);
+    long start = System.nanoTime();
+    for (int t = 0; t < threads; t++) {
+      executor.execute(
+          () -> {
+            for (int i = 0; i < perThread; i++) {
+              limiter.acquire(200, 10);
+            }
+            done.countDown();
+          });
+    }
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    executor.shutdown();
+
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // 80个请求，突发10个，其余70个按每秒200个发放，至少约350ms
+    assertTrue(elapsedMillis >= 300, "实际耗时: " + elapsedMillis);
+    assertEquals(threads * perThread, limiter.getAcquiredCount());
+    assertTrue(limiter.getThrottledCount() > 0);
+  }
+}